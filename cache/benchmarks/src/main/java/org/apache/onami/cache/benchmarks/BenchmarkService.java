@@ -0,0 +1,112 @@
+package org.apache.onami.cache.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.cache.annotation.CacheKeyParam;
+import javax.cache.annotation.CachePut;
+import javax.cache.annotation.CacheRemoveEntry;
+import javax.cache.annotation.CacheResult;
+import javax.cache.annotation.CacheValue;
+
+/**
+ * The benchmarked component: each cached method has a plain twin, so that the interceptor overhead is the
+ * difference between the two. Method bodies are kept trivial and don't allocate.
+ */
+public class BenchmarkService
+{
+
+    static final int VALUES_MASK = 1023;
+
+    private static final String[] VALUES = new String[VALUES_MASK + 1];
+
+    static
+    {
+        for ( int i = 0; i < VALUES.length; i++ )
+        {
+            VALUES[i] = "value-" + i;
+        }
+    }
+
+    static String valueOf( int key )
+    {
+        return VALUES[key & VALUES_MASK];
+    }
+
+    /* plain */
+
+    public String compute1( int a )
+    {
+        return valueOf( a );
+    }
+
+    public String compute2( int a, int b )
+    {
+        return valueOf( a ^ b );
+    }
+
+    public String compute3( int a, int b, int c )
+    {
+        return valueOf( a ^ b ^ c );
+    }
+
+    public String compute4( int a, int b, int c, int d )
+    {
+        return valueOf( a ^ b ^ c ^ d );
+    }
+
+    /* cached */
+
+    @CacheResult( cacheName = "result1" )
+    public String cached1( int a )
+    {
+        return valueOf( a );
+    }
+
+    @CacheResult( cacheName = "result2" )
+    public String cached2( int a, int b )
+    {
+        return valueOf( a ^ b );
+    }
+
+    @CacheResult( cacheName = "result3" )
+    public String cached3( int a, int b, int c )
+    {
+        return valueOf( a ^ b ^ c );
+    }
+
+    @CacheResult( cacheName = "result4" )
+    public String cached4( int a, int b, int c, int d )
+    {
+        return valueOf( a ^ b ^ c ^ d );
+    }
+
+    @CachePut( cacheName = "values" )
+    public void put( @CacheKeyParam int key, @CacheValue String value )
+    {
+        // the value is cached by the interceptor
+    }
+
+    @CacheRemoveEntry( cacheName = "values" )
+    public void remove( int key )
+    {
+        // the entry is removed by the interceptor
+    }
+
+}
@@ -0,0 +1,69 @@
+package org.apache.onami.cache.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks.
+ *
+ * Without arguments, every benchmark runs with one thread and with as many threads as processors, reporting the
+ * allocation rate through the GC profiler; otherwise arguments are the JMH command line options.
+ */
+public final class CacheBenchmarks
+{
+
+    private CacheBenchmarks()
+    {
+        // do nothing
+    }
+
+    public static void main( String[] args )
+        throws Exception
+    {
+        if ( args.length > 0 )
+        {
+            org.openjdk.jmh.Main.main( args );
+            return;
+        }
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        run( 1 );
+        if ( processors > 1 )
+        {
+            run( processors );
+        }
+    }
+
+    private static void run( int threads )
+        throws RunnerException
+    {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+            .include( CacheBenchmarks.class.getPackage().getName() + "\\..*Benchmark" )
+            .threads( threads )
+            .addProfiler( GCProfiler.class );
+        new Runner( options.build() ).run();
+    }
+
+}
@@ -0,0 +1,137 @@
+package org.apache.onami.cache.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.google.inject.Guice.createInjector;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.onami.cache.provider.LocalCacheModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code CacheResult} methods against their plain twins, by number of key parameters:
+ * <ul>
+ * <li>{@code raw}: the plain method, the baseline;</li>
+ * <li>{@code hit}: the intercepted method, the key is always cached;</li>
+ * <li>{@code miss}: the intercepted method, the key is never cached, the value is computed, cached and eventually
+ * evicted.</li>
+ * </ul>
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class CacheResultBenchmark
+{
+
+    @Param( { "1", "2", "3", "4" } )
+    public int keyParameters;
+
+    BenchmarkService plain;
+
+    BenchmarkService intercepted;
+
+    @Setup( Level.Trial )
+    public void setUp()
+    {
+        plain = new BenchmarkService();
+        intercepted = createInjector( new LocalCacheModule() ).getInstance( BenchmarkService.class );
+
+        for ( int key = 0; key <= BenchmarkService.VALUES_MASK; key++ )
+        {
+            call( intercepted, key );
+        }
+    }
+
+    /**
+     * Per thread keys, misses of different threads never collide.
+     */
+    @State( Scope.Thread )
+    public static class Keys
+    {
+
+        private static final AtomicInteger THREADS = new AtomicInteger();
+
+        private final int base = THREADS.getAndIncrement() << 24;
+
+        private int next;
+
+        int nextHit()
+        {
+            return next++ & BenchmarkService.VALUES_MASK;
+        }
+
+        int nextMiss()
+        {
+            return base | ( BenchmarkService.VALUES_MASK + 1 + ( next++ & 0x00FFFBFF ) );
+        }
+
+    }
+
+    @Benchmark
+    public String raw( Keys keys )
+    {
+        return call( plain, keys.nextHit() );
+    }
+
+    @Benchmark
+    public String hit( Keys keys )
+    {
+        return call( intercepted, keys.nextHit() );
+    }
+
+    @Benchmark
+    public String miss( Keys keys )
+    {
+        return call( intercepted, keys.nextMiss() );
+    }
+
+    private String call( BenchmarkService service, int key )
+    {
+        boolean cached = service == intercepted;
+        switch ( keyParameters )
+        {
+            case 1:
+                return cached ? service.cached1( key ) : service.compute1( key );
+            case 2:
+                return cached ? service.cached2( key, key ) : service.compute2( key, key );
+            case 3:
+                return cached ? service.cached3( key, key, key ) : service.compute3( key, key, key );
+            default:
+                return cached ? service.cached4( key, key, key, key ) : service.compute4( key, key, key, key );
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package org.apache.onami.cache.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.google.inject.Guice.createInjector;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.onami.cache.provider.LocalCacheModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@code CachePut} and {@code CacheRemoveEntry} interceptors, over a working set that fits the cache.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class CacheWriteBenchmark
+{
+
+    BenchmarkService intercepted;
+
+    @Setup( Level.Trial )
+    public void setUp()
+    {
+        intercepted = createInjector( new LocalCacheModule() ).getInstance( BenchmarkService.class );
+    }
+
+    @State( Scope.Thread )
+    public static class Keys
+    {
+
+        private int next;
+
+        int next()
+        {
+            return next++ & BenchmarkService.VALUES_MASK;
+        }
+
+    }
+
+    @Benchmark
+    public void put( Keys keys )
+    {
+        int key = keys.next();
+        intercepted.put( key, BenchmarkService.valueOf( key ) );
+    }
+
+    @Benchmark
+    public void removeEntry( Keys keys )
+    {
+        intercepted.remove( keys.next() );
+    }
+
+}
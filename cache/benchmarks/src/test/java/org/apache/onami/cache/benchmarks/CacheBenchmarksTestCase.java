@@ -0,0 +1,104 @@
+package org.apache.onami.cache.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Checks the benchmarks measure what they claim, running each benchmark method once outside JMH.
+ */
+public final class CacheBenchmarksTestCase
+{
+
+    @Test
+    public void cachedAndPlainMethodsReturnTheSameValues()
+    {
+        for ( int keyParameters = 1; keyParameters <= 4; keyParameters++ )
+        {
+            CacheResultBenchmark benchmark = newCacheResultBenchmark( keyParameters );
+
+            CacheResultBenchmark.Keys rawKeys = new CacheResultBenchmark.Keys();
+            CacheResultBenchmark.Keys hitKeys = new CacheResultBenchmark.Keys();
+            for ( int i = 0; i < 10; i++ )
+            {
+                assertEquals( benchmark.raw( rawKeys ), benchmark.hit( hitKeys ) );
+            }
+        }
+    }
+
+    @Test
+    public void onlyTheCachedMethodsAreIntercepted()
+    {
+        CacheResultBenchmark benchmark = newCacheResultBenchmark( 1 );
+
+        assertSame( BenchmarkService.class, benchmark.plain.getClass() );
+        assertFalse( BenchmarkService.class == benchmark.intercepted.getClass() );
+    }
+
+    @Test
+    public void missKeysNeverCollide()
+    {
+        CacheResultBenchmark.Keys first = new CacheResultBenchmark.Keys();
+        CacheResultBenchmark.Keys second = new CacheResultBenchmark.Keys();
+
+        Set<Integer> missKeys = new HashSet<Integer>();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            for ( int key : new int[] { first.nextMiss(), second.nextMiss() } )
+            {
+                // neither one of the cached hit keys nor a previous miss
+                assertTrue( key > BenchmarkService.VALUES_MASK );
+                assertTrue( missKeys.add( key ) );
+            }
+        }
+    }
+
+    @Test
+    public void writesRunThroughTheInterceptors()
+    {
+        CacheWriteBenchmark benchmark = new CacheWriteBenchmark();
+        benchmark.setUp();
+        CacheWriteBenchmark.Keys keys = new CacheWriteBenchmark.Keys();
+
+        // the intercepted writes must not fail, over more than the whole working set
+        for ( int i = 0; i <= BenchmarkService.VALUES_MASK + 1; i++ )
+        {
+            benchmark.put( keys );
+            benchmark.removeEntry( keys );
+        }
+    }
+
+    private static CacheResultBenchmark newCacheResultBenchmark( int keyParameters )
+    {
+        CacheResultBenchmark benchmark = new CacheResultBenchmark();
+        benchmark.keyParameters = keyParameters;
+        benchmark.setUp();
+        return benchmark;
+    }
+
+}
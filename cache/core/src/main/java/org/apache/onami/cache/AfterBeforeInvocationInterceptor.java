@@ -21,10 +21,12 @@ package org.apache.onami.cache;
 
 import java.lang.annotation.Annotation;
 
+import javax.cache.Cache;
 import javax.cache.annotation.CacheInvocationContext;
 import javax.cache.annotation.CachePut;
 import javax.cache.annotation.CacheRemoveAll;
 import javax.cache.annotation.CacheRemoveEntry;
+import javax.inject.Inject;
 
 import org.aopalliance.intercept.MethodInvocation;
 
@@ -32,6 +34,14 @@ abstract class AfterBeforeInvocationInterceptor<A extends Annotation>
     extends CacheInterceptor<A>
 {
 
+    @Inject
+    private CacheWriteBehindQueues writeBehindQueues;
+
+    public final void setWriteBehindQueues( CacheWriteBehindQueues writeBehindQueues )
+    {
+        this.writeBehindQueues = writeBehindQueues;
+    }
+
     @Override
     protected final Object invoke( CacheInvocationContext<A> context, MethodInvocation invocation )
         throws Throwable
@@ -50,6 +60,8 @@ abstract class AfterBeforeInvocationInterceptor<A extends Annotation>
         }
         catch ( Throwable t )
         {
+            recordError( context, t );
+
             if ( annotationProxy.afterInvocation() )
             {
                 // Exception is included
@@ -72,6 +84,28 @@ abstract class AfterBeforeInvocationInterceptor<A extends Annotation>
 
     protected abstract void hitCache( CacheInvocationContext<A> context );
 
+    /**
+     * @return the queue the writes to the given cache are deferred to, {@code null} if they are applied immediately
+     */
+    protected final CacheWriteBehindQueue getWriteBehindQueue( CacheInvocationContext<A> context,
+                                                               Cache<Object, Object> cache )
+    {
+        CacheWriteBehind writeBehind = getMetadata( context ).getWriteBehind();
+        if ( writeBehind == null || writeBehindQueues == null )
+        {
+            return null;
+        }
+        return writeBehindQueues.getQueue( cache, writeBehind );
+    }
+
+    /**
+     * Flushes the given queue in background, to be invoked when a write reports the batch is complete.
+     */
+    protected final void requestFlush( CacheWriteBehindQueue queue )
+    {
+        writeBehindQueues.requestFlush( queue );
+    }
+
     private static final class InterceptedAnnotationProxy<A extends Annotation>
     {
 
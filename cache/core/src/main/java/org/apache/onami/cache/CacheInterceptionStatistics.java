@@ -0,0 +1,139 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Counters and latencies of the invocations intercepted for a cache or a method, updated without locking.
+ *
+ * @since 0.1.0
+ */
+public final class CacheInterceptionStatistics
+    implements CacheInterceptionStatisticsMBean
+{
+
+    private final StripedCounter puts = new StripedCounter();
+
+    private final StripedCounter evictions = new StripedCounter();
+
+    private final StripedCounter errors = new StripedCounter();
+
+    private final LatencyHistogram cachedLatency = new LatencyHistogram();
+
+    private final LatencyHistogram uncachedLatency = new LatencyHistogram();
+
+    CacheInterceptionStatistics()
+    {
+        // created by CacheMetrics only
+    }
+
+    void recordHit( long nanos )
+    {
+        cachedLatency.record( nanos );
+    }
+
+    void recordMiss( long nanos )
+    {
+        uncachedLatency.record( nanos );
+    }
+
+    void recordPut()
+    {
+        puts.increment();
+    }
+
+    void recordEviction()
+    {
+        evictions.increment();
+    }
+
+    void recordError()
+    {
+        errors.increment();
+    }
+
+    public long getHits()
+    {
+        return cachedLatency.getCount();
+    }
+
+    public long getMisses()
+    {
+        return uncachedLatency.getCount();
+    }
+
+    public double getHitRatio()
+    {
+        long hits = getHits();
+        long requests = hits + getMisses();
+        return requests == 0L ? 0d : (double) hits / requests;
+    }
+
+    public long getPuts()
+    {
+        return puts.sum();
+    }
+
+    public long getEvictions()
+    {
+        return evictions.sum();
+    }
+
+    public long getErrors()
+    {
+        return errors.sum();
+    }
+
+    public long getCachedLatencyMeanNanos()
+    {
+        return cachedLatency.getMean();
+    }
+
+    public long getCachedLatency99thPercentileNanos()
+    {
+        return cachedLatency.getPercentile( 99d );
+    }
+
+    public long getUncachedLatencyMeanNanos()
+    {
+        return uncachedLatency.getMean();
+    }
+
+    public long getUncachedLatency99thPercentileNanos()
+    {
+        return uncachedLatency.getPercentile( 99d );
+    }
+
+    public void reset()
+    {
+        puts.reset();
+        evictions.reset();
+        errors.reset();
+        cachedLatency.reset();
+        uncachedLatency.reset();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CacheInterceptionStatistics[hits=" + getHits() + ", misses=" + getMisses() + ", puts=" + getPuts()
+            + ", evictions=" + getEvictions() + ", errors=" + getErrors() + "]";
+    }
+
+}
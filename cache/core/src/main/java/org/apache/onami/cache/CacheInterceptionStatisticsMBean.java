@@ -0,0 +1,55 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * JMX view of the {@link CacheInterceptionStatistics}.
+ *
+ * @since 0.1.0
+ */
+public interface CacheInterceptionStatisticsMBean
+{
+
+    long getHits();
+
+    long getMisses();
+
+    /**
+     * @return the ratio of the {@code CacheResult} invocations served by the cache, between {@code 0} and {@code 1}
+     */
+    double getHitRatio();
+
+    long getPuts();
+
+    long getEvictions();
+
+    long getErrors();
+
+    long getCachedLatencyMeanNanos();
+
+    long getCachedLatency99thPercentileNanos();
+
+    long getUncachedLatencyMeanNanos();
+
+    long getUncachedLatency99thPercentileNanos();
+
+    void reset();
+
+}
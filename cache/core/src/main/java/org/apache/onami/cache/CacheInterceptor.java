@@ -0,0 +1,600 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.lang.String.format;
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableSet;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.cache.annotation.CacheAnnotationConfigurationException;
+import javax.cache.annotation.CacheDefaults;
+import javax.cache.annotation.CacheInvocationContext;
+import javax.cache.annotation.CacheKeyGenerator;
+import javax.cache.annotation.CacheKeyParam;
+import javax.cache.annotation.CachePut;
+import javax.cache.annotation.CacheRemoveAll;
+import javax.cache.annotation.CacheRemoveEntry;
+import javax.cache.annotation.CacheResolver;
+import javax.cache.annotation.CacheResolverFactory;
+import javax.cache.annotation.CacheResult;
+import javax.cache.annotation.CacheValue;
+import javax.inject.Inject;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import com.google.inject.Injector;
+
+abstract class CacheInterceptor<A extends Annotation>
+    implements MethodInterceptor
+{
+
+    protected static final Object NULL_PLACEHOLDER = new Object();
+
+    @Inject
+    private Injector injector;
+
+    @Inject
+    private CacheResolverFactory cacheResolverFactory;
+
+    /**
+     * Bound by users that want to replace the built-in generator.
+     */
+    @com.google.inject.Inject( optional = true )
+    private CacheKeyGenerator cacheKeyGenerator = new DefaultCacheKeyGenerator();
+
+    /**
+     * {@code null} if invocations are not measured.
+     */
+    @com.google.inject.Inject( optional = true )
+    private CacheMetricsRecorder metricsRecorder;
+
+    private final ConcurrentMap<Method, CacheMethodMetadata<A>> methodsMetadata =
+        new ConcurrentHashMap<Method, CacheMethodMetadata<A>>();
+
+    public final void setInjector( Injector injector )
+    {
+        this.injector = injector;
+    }
+
+    public final void setCacheResolverFactory( CacheResolverFactory cacheResolverFactory )
+    {
+        this.cacheResolverFactory = cacheResolverFactory;
+    }
+
+    public final void setCacheKeyGenerator( CacheKeyGenerator cacheKeyGenerator )
+    {
+        this.cacheKeyGenerator = cacheKeyGenerator;
+    }
+
+    public final void setMetricsRecorder( CacheMetricsRecorder metricsRecorder )
+    {
+        this.metricsRecorder = metricsRecorder;
+    }
+
+    public abstract Class<A> getInterceptedAnnotationType();
+
+    public final Object invoke( MethodInvocation invocation )
+        throws Throwable
+    {
+        return invoke( new DefaultCacheKeyInvocationContext<A>( injector,
+                                                                getMetadata( invocation.getMethod() ),
+                                                                invocation.getThis(),
+                                                                invocation.getArguments() ),
+                       invocation );
+    }
+
+    protected abstract Object invoke( CacheInvocationContext<A> context, MethodInvocation invocation )
+        throws Throwable;
+
+    protected final CacheResolverFactory getCacheResolverFactory( CacheInvocationContext<A> context )
+    {
+        return getMetadata( context ).getCacheResolverFactory();
+    }
+
+    protected final CacheResolver getCacheResolver( CacheInvocationContext<A> context )
+    {
+        return getMetadata( context ).getCacheResolver();
+    }
+
+    protected final CacheResolver getExceptionCacheResolver( CacheInvocationContext<A> context )
+    {
+        return getMetadata( context ).getExceptionCacheResolver();
+    }
+
+    protected final CacheKeyGenerator getCacheKeyGenerator( CacheInvocationContext<A> context )
+    {
+        return getMetadata( context ).getCacheKeyGenerator();
+    }
+
+    /* Metrics */
+
+    /**
+     * @return the start time of the measured invocation, {@code 0} if invocations are not measured
+     */
+    protected final long startTiming()
+    {
+        return metricsRecorder != null ? System.nanoTime() : 0L;
+    }
+
+    protected final void recordHit( CacheInvocationContext<A> context, long startTime )
+    {
+        if ( metricsRecorder != null )
+        {
+            metricsRecorder.recordHit( getMetadata( context ), System.nanoTime() - startTime );
+        }
+    }
+
+    protected final void recordMiss( CacheInvocationContext<A> context, long startTime )
+    {
+        if ( metricsRecorder != null )
+        {
+            metricsRecorder.recordMiss( getMetadata( context ), System.nanoTime() - startTime );
+        }
+    }
+
+    protected final void recordPut( CacheInvocationContext<A> context )
+    {
+        if ( metricsRecorder != null )
+        {
+            metricsRecorder.recordPut( getMetadata( context ) );
+        }
+    }
+
+    protected final void recordEviction( CacheInvocationContext<A> context )
+    {
+        if ( metricsRecorder != null )
+        {
+            metricsRecorder.recordEviction( getMetadata( context ) );
+        }
+    }
+
+    protected final void recordError( CacheInvocationContext<A> context, Throwable error )
+    {
+        if ( metricsRecorder != null )
+        {
+            metricsRecorder.recordError( getMetadata( context ), error );
+        }
+    }
+
+    final CacheMethodMetadata<A> getMetadata( CacheInvocationContext<A> context )
+    {
+        return ( (DefaultCacheKeyInvocationContext<A>) context ).getMetadata();
+    }
+
+    private CacheMethodMetadata<A> getMetadata( Method method )
+    {
+        CacheMethodMetadata<A> metadata = methodsMetadata.get( method );
+        if ( metadata == null )
+        {
+            metadata = newMetadata( method );
+            CacheMethodMetadata<A> previous = methodsMetadata.putIfAbsent( method, metadata );
+            if ( previous != null )
+            {
+                metadata = previous;
+            }
+        }
+        return metadata;
+    }
+
+    private CacheMethodMetadata<A> newMetadata( Method method )
+    {
+        A annotation = method.getAnnotation( getInterceptedAnnotationType() );
+        boolean cacheValueAllowed = CachePut.class == getInterceptedAnnotationType();
+
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+
+        @SuppressWarnings( { "unchecked", "rawtypes" } )
+        Set<Annotation>[] parameterAnnotationsSets = new Set[parameterTypes.length];
+        List<Integer> keyParameterIndexesList = new ArrayList<Integer>( parameterTypes.length );
+        int valueParameterIndex = -1;
+
+        for ( int i = 0; i < parameterTypes.length; i++ )
+        {
+            parameterAnnotationsSets[i] = toAnnotationsSet( parameterAnnotations[i] );
+
+            for ( Annotation parameterAnnotation : parameterAnnotations[i] )
+            {
+                if ( CacheKeyParam.class == parameterAnnotation.annotationType() )
+                {
+                    keyParameterIndexesList.add( i );
+                }
+                else if ( CacheValue.class == parameterAnnotation.annotationType() )
+                {
+                    if ( !cacheValueAllowed )
+                    {
+                        throw new CacheAnnotationConfigurationException( format( "CacheValue parameter annotation is not allowed on %s",
+                                                                                 method ) );
+                    }
+                    else if ( valueParameterIndex >= 0 )
+                    {
+                        throw new CacheAnnotationConfigurationException( format( "Multiple CacheValue parameter annotations are not allowed on %s",
+                                                                                 method ) );
+                    }
+                    else
+                    {
+                        valueParameterIndex = i;
+                    }
+                }
+            }
+        }
+
+        if ( keyParameterIndexesList.isEmpty() )
+        {
+            // no explicit key parameters, all but the value one compose the key
+            for ( int i = 0; i < parameterTypes.length; i++ )
+            {
+                if ( i != valueParameterIndex )
+                {
+                    keyParameterIndexesList.add( i );
+                }
+            }
+        }
+
+        int[] keyParameterIndexes = new int[keyParameterIndexesList.size()];
+        for ( int i = 0; i < keyParameterIndexes.length; i++ )
+        {
+            keyParameterIndexes[i] = keyParameterIndexesList.get( i );
+        }
+
+        int bulkParameterIndex = -1;
+        if ( CacheResultAll.class == getInterceptedAnnotationType() )
+        {
+            bulkParameterIndex = getBulkParameterIndex( method, keyParameterIndexes );
+        }
+
+        CacheDefaults cacheDefaults = method.getDeclaringClass().getAnnotation( CacheDefaults.class );
+
+        return new CacheMethodMetadata<A>( method,
+                                           getCacheName( method ),
+                                           annotation,
+                                           toAnnotationsSet( method.getAnnotations() ),
+                                           parameterTypes,
+                                           parameterAnnotationsSets,
+                                           keyParameterIndexes,
+                                           valueParameterIndex,
+                                           resolveCacheResolverFactory( annotation, cacheDefaults ),
+                                           resolveCacheKeyGenerator( annotation, cacheDefaults ),
+                                           isSingleFlight( method ),
+                                           getRefreshAfterMillis( method ),
+                                           bulkParameterIndex,
+                                           getWriteBehind( method ),
+                                           getNegativeCache( method ) );
+    }
+
+    private static int getBulkParameterIndex( Method method, int[] keyParameterIndexes )
+    {
+        if ( !method.getReturnType().isAssignableFrom( LinkedHashMap.class ) )
+        {
+            throw new CacheAnnotationConfigurationException( format( "CacheResultAll methods must return a Map, %s doesn't",
+                                                                     method ) );
+        }
+
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for ( int keyParameterIndex : keyParameterIndexes )
+        {
+            Class<?> parameterType = parameterTypes[keyParameterIndex];
+            if ( Collection.class.isAssignableFrom( parameterType ) )
+            {
+                if ( !parameterType.isAssignableFrom( ArrayList.class )
+                    && !parameterType.isAssignableFrom( LinkedHashSet.class ) )
+                {
+                    throw new CacheAnnotationConfigurationException( format( "CacheResultAll collection parameter must be declared as Collection, List or Set on %s",
+                                                                             method ) );
+                }
+                return keyParameterIndex;
+            }
+        }
+
+        throw new CacheAnnotationConfigurationException( format( "CacheResultAll methods must take a Collection key parameter, %s doesn't",
+                                                                 method ) );
+    }
+
+    private boolean isSingleFlight( Method method )
+    {
+        return CacheResult.class == getInterceptedAnnotationType()
+            && ( method.isAnnotationPresent( SingleFlight.class )
+                 || method.getDeclaringClass().isAnnotationPresent( SingleFlight.class ) );
+    }
+
+    private long getRefreshAfterMillis( Method method )
+    {
+        if ( CacheResult.class != getInterceptedAnnotationType() )
+        {
+            return 0L;
+        }
+
+        CacheRefresh cacheRefresh = method.getAnnotation( CacheRefresh.class );
+        if ( cacheRefresh == null )
+        {
+            cacheRefresh = method.getDeclaringClass().getAnnotation( CacheRefresh.class );
+        }
+        if ( cacheRefresh == null )
+        {
+            return 0L;
+        }
+
+        if ( cacheRefresh.value() <= 0 )
+        {
+            throw new CacheAnnotationConfigurationException( format( "CacheRefresh duration must be positive on %s",
+                                                                     method ) );
+        }
+        return Math.max( 1L, cacheRefresh.unit().toMillis( cacheRefresh.value() ) );
+    }
+
+    private CacheWriteBehind getWriteBehind( Method method )
+    {
+        Class<A> annotationType = getInterceptedAnnotationType();
+        if ( CachePut.class != annotationType
+            && CacheRemoveEntry.class != annotationType
+            && CacheRemoveAll.class != annotationType )
+        {
+            return null;
+        }
+
+        CacheWriteBehind writeBehind = method.getAnnotation( CacheWriteBehind.class );
+        if ( writeBehind == null )
+        {
+            writeBehind = method.getDeclaringClass().getAnnotation( CacheWriteBehind.class );
+        }
+        if ( writeBehind == null )
+        {
+            return null;
+        }
+
+        if ( writeBehind.batchSize() <= 0 || writeBehind.maxQueueSize() < writeBehind.batchSize() )
+        {
+            throw new CacheAnnotationConfigurationException( format( "CacheWriteBehind batch size must be positive and not greater than the max queue size on %s",
+                                                                     method ) );
+        }
+        if ( writeBehind.flushInterval() <= 0 )
+        {
+            throw new CacheAnnotationConfigurationException( format( "CacheWriteBehind flush interval must be positive on %s",
+                                                                     method ) );
+        }
+        return writeBehind;
+    }
+
+    private NegativeCache getNegativeCache( Method method )
+    {
+        if ( CacheResult.class != getInterceptedAnnotationType() )
+        {
+            return null;
+        }
+
+        NegativeCache negativeCache = method.getAnnotation( NegativeCache.class );
+        if ( negativeCache == null )
+        {
+            negativeCache = method.getDeclaringClass().getAnnotation( NegativeCache.class );
+        }
+        if ( negativeCache == null )
+        {
+            return null;
+        }
+
+        if ( negativeCache.nullTimeToLive() < 0 || negativeCache.exceptionTimeToLive() < 0 )
+        {
+            throw new CacheAnnotationConfigurationException( format( "NegativeCache time to live must not be negative on %s",
+                                                                     method ) );
+        }
+        if ( negativeCache.maximumSize() <= 0 )
+        {
+            throw new CacheAnnotationConfigurationException( format( "NegativeCache maximum size must be positive on %s",
+                                                                     method ) );
+        }
+        return negativeCache;
+    }
+
+    private CacheResolverFactory resolveCacheResolverFactory( A annotation, CacheDefaults cacheDefaults )
+    {
+        Class<? extends CacheResolverFactory> cacheResolverFactoryType = getCacheResolverFactoryType( annotation );
+
+        if ( CacheResolverFactory.class != cacheResolverFactoryType )
+        {
+            return injector.getInstance( cacheResolverFactoryType );
+        }
+
+        if ( cacheDefaults != null && CacheResolverFactory.class != cacheDefaults.cacheResolverFactory() )
+        {
+            return injector.getInstance( cacheDefaults.cacheResolverFactory() );
+        }
+
+        return cacheResolverFactory;
+    }
+
+    private CacheKeyGenerator resolveCacheKeyGenerator( A annotation, CacheDefaults cacheDefaults )
+    {
+        Class<? extends CacheKeyGenerator> cacheKeyGeneratorType = getCacheKeyGeneratorType( annotation );
+
+        if ( cacheKeyGeneratorType != null && CacheKeyGenerator.class != cacheKeyGeneratorType )
+        {
+            return injector.getInstance( cacheKeyGeneratorType );
+        }
+
+        if ( cacheDefaults != null && CacheKeyGenerator.class != cacheDefaults.cacheKeyGenerator() )
+        {
+            return injector.getInstance( cacheDefaults.cacheKeyGenerator() );
+        }
+
+        return cacheKeyGenerator;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static String getCacheName( Method method )
+    {
+        for ( Class<? extends Annotation> annotationType : asList( CachePut.class,
+                                                                   CacheRemoveAll.class,
+                                                                   CacheRemoveEntry.class,
+                                                                   CacheResult.class,
+                                                                   CacheResultAll.class ) )
+        {
+            if ( method.isAnnotationPresent( annotationType ) )
+            {
+                Annotation annotation = method.getAnnotation( annotationType );
+                String cacheName;
+                try
+                {
+                    cacheName = (String) annotationType.getMethod( "cacheName" ).invoke( annotation );
+                }
+                catch ( Exception e )
+                {
+                    // should not happen, all enlisted annotations have "cacheName()" method
+                    cacheName = null;
+                }
+
+                if ( !isEmpty( cacheName ) )
+                {
+                    return cacheName;
+                }
+            }
+        }
+
+        if ( method.getDeclaringClass().isAnnotationPresent( CacheDefaults.class ) )
+        {
+            CacheDefaults cacheDefaults = method.getDeclaringClass().getAnnotation( CacheDefaults.class );
+            if ( !isEmpty( cacheDefaults.cacheName() ) )
+            {
+                return cacheDefaults.cacheName();
+            }
+        }
+
+        return method.toGenericString();
+    }
+
+    static <T extends Throwable> boolean include( T throwable,
+                                                  Class<? extends T>[] includes,
+                                                  Class<? extends T>[] excludes,
+                                                  boolean includeBothEmpty )
+    {
+        boolean includedEmpty = isEmpty( includes );
+        boolean excludedEmpty = isEmpty( excludes );
+
+        if ( includedEmpty && excludedEmpty )
+        {
+            return includeBothEmpty;
+        }
+
+        boolean isAssignableFromIncludes = isAssignable( throwable, includes );
+        boolean isAssignableFromExcludes = isAssignable( throwable, excludes );
+
+        if ( includedEmpty )
+        {
+            return !isAssignableFromExcludes;
+        }
+
+        if ( excludedEmpty )
+        {
+            return isAssignableFromIncludes;
+        }
+
+        return isAssignableFromIncludes && !isAssignableFromExcludes;
+    }
+
+    private static <T extends Throwable> boolean isAssignable( T target, Class<? extends T>[] from )
+    {
+        for ( final Class<? extends T> throwable : from )
+        {
+            if ( throwable.isAssignableFrom( target.getClass() ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static <T extends Throwable> boolean isEmpty( Class<? extends T>...types )
+    {
+        return types == null || types.length == 0;
+    }
+
+    private static boolean isEmpty( String value )
+    {
+        return value == null || value.length() == 0;
+    }
+
+    private static Set<Annotation> toAnnotationsSet( Annotation...annotations )
+    {
+        return unmodifiableSet( new LinkedHashSet<Annotation>( asList( annotations ) ) );
+    }
+
+    private static <A extends Annotation> Class<? extends CacheKeyGenerator> getCacheKeyGeneratorType( A annotation )
+    {
+        if ( CachePut.class.isInstance( annotation ) )
+        {
+            return ( (CachePut) annotation).cacheKeyGenerator();
+        }
+        else if ( CacheRemoveEntry.class.isInstance( annotation ) )
+        {
+            return ( (CacheRemoveEntry) annotation).cacheKeyGenerator();
+        }
+        else if ( CacheResult.class.isInstance( annotation ) )
+        {
+            return ( (CacheResult) annotation).cacheKeyGenerator();
+        }
+        else if ( CacheResultAll.class.isInstance( annotation ) )
+        {
+            return ( (CacheResultAll) annotation).cacheKeyGenerator();
+        }
+
+        // doesn't happen
+        return null;
+    }
+
+    private static <A extends Annotation> Class<? extends CacheResolverFactory> getCacheResolverFactoryType( A annotation )
+    {
+        if ( CachePut.class.isInstance( annotation ) )
+        {
+            return ( (CachePut) annotation).cacheResolverFactory();
+        }
+        else if ( CacheRemoveAll.class.isInstance( annotation ) )
+        {
+            return ( (CacheRemoveAll) annotation).cacheResolverFactory();
+        }
+        else if ( CacheRemoveEntry.class.isInstance( annotation ) )
+        {
+            return ( (CacheRemoveEntry) annotation).cacheResolverFactory();
+        }
+        else if ( CacheResult.class.isInstance( annotation ) )
+        {
+            return ( (CacheResult) annotation).cacheResolverFactory();
+        }
+        else if ( CacheResultAll.class.isInstance( annotation ) )
+        {
+            return ( (CacheResultAll) annotation).cacheResolverFactory();
+        }
+
+        // doesn't happen
+        return null;
+    }
+
+}
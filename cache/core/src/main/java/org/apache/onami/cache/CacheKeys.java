@@ -0,0 +1,329 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.cache.annotation.CacheKey;
+
+/**
+ * Keys specialized by number of parameters, built straight from the invocation arguments: the hash is computed once,
+ * at construction time, and equality is checked on fields rather than on a generic array.
+ *
+ * A specialized key and a {@link DefaultCacheKey} of the same parameters are equal and have the same hash code, so
+ * keys generated from intercepted and from non-intercepted invocations address the same entries.
+ */
+final class CacheKeys
+{
+
+    /**
+     * The key of all the invocations of methods without key parameters.
+     */
+    static final CacheKey EMPTY = new Key0();
+
+    private CacheKeys()
+    {
+        // do nothing
+    }
+
+    /**
+     * @param arguments the invocation arguments
+     * @param keyParameterIndexes the positions of the arguments composing the key
+     * @return the key of the invocation
+     */
+    static CacheKey newCacheKey( Object[] arguments, int[] keyParameterIndexes )
+    {
+        switch ( keyParameterIndexes.length )
+        {
+            case 0:
+                return EMPTY;
+
+            case 1:
+                Object only = arguments[keyParameterIndexes[0]];
+                if ( !isArray( only ) )
+                {
+                    return new Key1( only );
+                }
+                break;
+
+            case 2:
+                Object first = arguments[keyParameterIndexes[0]];
+                Object second = arguments[keyParameterIndexes[1]];
+                if ( !isArray( first ) && !isArray( second ) )
+                {
+                    return new Key2( first, second );
+                }
+                break;
+
+            case 3:
+                Object a = arguments[keyParameterIndexes[0]];
+                Object b = arguments[keyParameterIndexes[1]];
+                Object c = arguments[keyParameterIndexes[2]];
+                if ( !isArray( a ) && !isArray( b ) && !isArray( c ) )
+                {
+                    return new Key3( a, b, c );
+                }
+                break;
+
+            default:
+                break;
+        }
+
+        // arrays and long parameters lists, compared element by element
+        Object[] parameters = new Object[keyParameterIndexes.length];
+        for ( int i = 0; i < keyParameterIndexes.length; i++ )
+        {
+            parameters[i] = arguments[keyParameterIndexes[i]];
+        }
+        return new DefaultCacheKey( parameters );
+    }
+
+    private static boolean isArray( Object parameter )
+    {
+        return parameter != null && parameter.getClass().isArray();
+    }
+
+    static int hash( Object parameter )
+    {
+        if ( parameter == null )
+        {
+            return 0;
+        }
+        if ( parameter instanceof Enum<?> )
+        {
+            // identity hash codes don't survive serialization, i.e. the keys stored off-heap
+            return ( (Enum<?>) parameter ).name().hashCode();
+        }
+        return parameter.hashCode();
+    }
+
+    private static boolean same( Object left, Object right )
+    {
+        if ( left == right )
+        {
+            return true;
+        }
+        if ( left == null || right == null || left instanceof Enum<?> )
+        {
+            // enums are singletons, different references are different constants
+            return false;
+        }
+        return left.equals( right );
+    }
+
+    /**
+     * The specialized keys, equal to the {@link DefaultCacheKey} of the same parameters.
+     */
+    abstract static class SpecializedKey
+        implements CacheKey
+    {
+
+        private static final long serialVersionUID = 1L;
+
+    }
+
+    private static final class Key0
+        extends SpecializedKey
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int hashCode()
+        {
+            return 0;
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( obj instanceof DefaultCacheKey )
+            {
+                return ( (DefaultCacheKey) obj ).hasParameters();
+            }
+            return obj instanceof Key0;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "CacheKey[]";
+        }
+
+    }
+
+    private static final class Key1
+        extends SpecializedKey
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Object parameter;
+
+        private final int hashCode;
+
+        public Key1( Object parameter )
+        {
+            this.parameter = parameter;
+            this.hashCode = hash( parameter );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( this == obj )
+            {
+                return true;
+            }
+            if ( obj instanceof DefaultCacheKey )
+            {
+                return hashCode == obj.hashCode() && ( (DefaultCacheKey) obj ).hasParameters( parameter );
+            }
+            if ( !( obj instanceof Key1 ) )
+            {
+                return false;
+            }
+            Key1 other = (Key1) obj;
+            return hashCode == other.hashCode && same( parameter, other.parameter );
+        }
+
+        @Override
+        public String toString()
+        {
+            return "CacheKey[" + parameter + "]";
+        }
+
+    }
+
+    private static final class Key2
+        extends SpecializedKey
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Object first;
+
+        private final Object second;
+
+        private final int hashCode;
+
+        public Key2( Object first, Object second )
+        {
+            this.first = first;
+            this.second = second;
+            this.hashCode = 31 * hash( first ) + hash( second );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( this == obj )
+            {
+                return true;
+            }
+            if ( obj instanceof DefaultCacheKey )
+            {
+                return hashCode == obj.hashCode() && ( (DefaultCacheKey) obj ).hasParameters( first, second );
+            }
+            if ( !( obj instanceof Key2 ) )
+            {
+                return false;
+            }
+            Key2 other = (Key2) obj;
+            return hashCode == other.hashCode && same( first, other.first ) && same( second, other.second );
+        }
+
+        @Override
+        public String toString()
+        {
+            return "CacheKey[" + first + ", " + second + "]";
+        }
+
+    }
+
+    private static final class Key3
+        extends SpecializedKey
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Object first;
+
+        private final Object second;
+
+        private final Object third;
+
+        private final int hashCode;
+
+        public Key3( Object first, Object second, Object third )
+        {
+            this.first = first;
+            this.second = second;
+            this.third = third;
+            this.hashCode = 31 * ( 31 * hash( first ) + hash( second ) ) + hash( third );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( this == obj )
+            {
+                return true;
+            }
+            if ( obj instanceof DefaultCacheKey )
+            {
+                return hashCode == obj.hashCode() && ( (DefaultCacheKey) obj ).hasParameters( first, second, third );
+            }
+            if ( !( obj instanceof Key3 ) )
+            {
+                return false;
+            }
+            Key3 other = (Key3) obj;
+            return hashCode == other.hashCode
+                && same( first, other.first )
+                && same( second, other.second )
+                && same( third, other.third );
+        }
+
+        @Override
+        public String toString()
+        {
+            return "CacheKey[" + first + ", " + second + ", " + third + "]";
+        }
+
+    }
+
+}
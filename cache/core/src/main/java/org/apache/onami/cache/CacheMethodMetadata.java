@@ -0,0 +1,283 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+
+import javax.cache.annotation.CacheInvocationParameter;
+import javax.cache.annotation.CacheKeyGenerator;
+import javax.cache.annotation.CacheMethodDetails;
+import javax.cache.annotation.CacheResolver;
+import javax.cache.annotation.CacheResolverFactory;
+import javax.cache.annotation.CacheResult;
+
+/**
+ * Everything the interceptors need to know about an intercepted method that does not depend on the actual
+ * invocation arguments, computed once per method so that the per-call path only has to wrap the arguments.
+ */
+final class CacheMethodMetadata<A extends Annotation>
+    implements CacheMethodDetails<A>
+{
+
+    private final Method method;
+
+    private final String cacheName;
+
+    private final A cacheAnnotation;
+
+    private final Set<Annotation> methodAnnotations;
+
+    private final Class<?>[] parameterTypes;
+
+    private final Set<Annotation>[] parameterAnnotations;
+
+    /**
+     * Positions of the {@code CacheKeyParam} annotated parameters, all the parameters if none is annotated.
+     */
+    private final int[] keyParameterIndexes;
+
+    /**
+     * Position of the {@code CacheValue} annotated parameter, {@code -1} if none.
+     */
+    private final int valueParameterIndex;
+
+    private final CacheResolverFactory cacheResolverFactory;
+
+    private final CacheKeyGenerator cacheKeyGenerator;
+
+    /**
+     * Registry of the in-flight invocations, {@code null} if the method is not {@link SingleFlight}.
+     */
+    private final InFlightCalls inFlightCalls;
+
+    /**
+     * Age, in milliseconds, after which cached results are refreshed, {@code 0} if the method is not
+     * {@link CacheRefresh}.
+     */
+    private final long refreshAfterMillis;
+
+    /**
+     * Keys being refreshed, {@code null} if the method is not {@link CacheRefresh}.
+     */
+    private final ConcurrentMap<Object, Boolean> refreshingKeys;
+
+    /**
+     * True if the method returns a {@code Future}, cached as soon as it is returned.
+     */
+    private final boolean asynchronous;
+
+    /**
+     * Position of the collection parameter of {@link CacheResultAll} methods, {@code -1} for the others.
+     */
+    private final int bulkParameterIndex;
+
+    /**
+     * Write-behind settings of {@code CachePut}, {@code CacheRemoveEntry} and {@code CacheRemoveAll} methods,
+     * {@code null} if writes are applied immediately.
+     */
+    private final CacheWriteBehind writeBehind;
+
+    /**
+     * Negative results of {@link NegativeCache} methods, {@code null} for the others.
+     */
+    private final NegativeResultCache negativeResultCache;
+
+    private volatile CacheResolver cacheResolver;
+
+    private volatile CacheResolver exceptionCacheResolver;
+
+    public CacheMethodMetadata( Method method,
+                                String cacheName,
+                                A cacheAnnotation,
+                                Set<Annotation> methodAnnotations,
+                                Class<?>[] parameterTypes,
+                                Set<Annotation>[] parameterAnnotations,
+                                int[] keyParameterIndexes,
+                                int valueParameterIndex,
+                                CacheResolverFactory cacheResolverFactory,
+                                CacheKeyGenerator cacheKeyGenerator,
+                                boolean singleFlight,
+                                long refreshAfterMillis,
+                                int bulkParameterIndex,
+                                CacheWriteBehind writeBehind,
+                                NegativeCache negativeCache )
+    {
+        this.method = method;
+        this.cacheName = cacheName;
+        this.cacheAnnotation = cacheAnnotation;
+        this.methodAnnotations = methodAnnotations;
+        this.parameterTypes = parameterTypes;
+        this.parameterAnnotations = parameterAnnotations;
+        this.keyParameterIndexes = keyParameterIndexes;
+        this.valueParameterIndex = valueParameterIndex;
+        this.cacheResolverFactory = cacheResolverFactory;
+        this.cacheKeyGenerator = cacheKeyGenerator;
+        this.inFlightCalls = singleFlight ? new InFlightCalls() : null;
+        this.refreshAfterMillis = refreshAfterMillis;
+        this.refreshingKeys = refreshAfterMillis > 0 ? new ConcurrentHashMap<Object, Boolean>() : null;
+        this.asynchronous = Future.class.isAssignableFrom( method.getReturnType() );
+        this.bulkParameterIndex = bulkParameterIndex;
+        this.writeBehind = writeBehind;
+        this.negativeResultCache = negativeCache != null ? new NegativeResultCache( negativeCache ) : null;
+
+        if ( refreshAfterMillis > 0 )
+        {
+            // refreshes invoke the method reflectively
+            method.setAccessible( true );
+        }
+    }
+
+    public Method getMethod()
+    {
+        return method;
+    }
+
+    public Set<Annotation> getAnnotations()
+    {
+        return methodAnnotations;
+    }
+
+    public A getCacheAnnotation()
+    {
+        return cacheAnnotation;
+    }
+
+    public String getCacheName()
+    {
+        return cacheName;
+    }
+
+    public int getParametersCount()
+    {
+        return parameterTypes.length;
+    }
+
+    public int[] getKeyParameterIndexes()
+    {
+        return keyParameterIndexes;
+    }
+
+    public int getValueParameterIndex()
+    {
+        return valueParameterIndex;
+    }
+
+    public CacheResolverFactory getCacheResolverFactory()
+    {
+        return cacheResolverFactory;
+    }
+
+    public CacheKeyGenerator getCacheKeyGenerator()
+    {
+        return cacheKeyGenerator;
+    }
+
+    /**
+     * The {@code CacheResolver} is requested to the factory only once per method, the JSR-107 contract allows it.
+     *
+     * @return the {@code CacheResolver} for the intercepted method.
+     */
+    public CacheResolver getCacheResolver()
+    {
+        CacheResolver resolver = cacheResolver;
+        if ( resolver == null )
+        {
+            // racy but idempotent, worst case the factory is queried more than once
+            resolver = cacheResolverFactory.getCacheResolver( this );
+            cacheResolver = resolver;
+        }
+        return resolver;
+    }
+
+    /**
+     * Same as {@link #getCacheResolver()}, for the cache where {@code CacheResult} methods store exceptions.
+     *
+     * @return the exception {@code CacheResolver} for the intercepted method.
+     */
+    @SuppressWarnings( "unchecked" )
+    public CacheResolver getExceptionCacheResolver()
+    {
+        CacheResolver resolver = exceptionCacheResolver;
+        if ( resolver == null )
+        {
+            resolver = cacheResolverFactory.getExceptionCacheResolver( (CacheMethodDetails<CacheResult>) this );
+            exceptionCacheResolver = resolver;
+        }
+        return resolver;
+    }
+
+    public InFlightCalls getInFlightCalls()
+    {
+        return inFlightCalls;
+    }
+
+    public long getRefreshAfterMillis()
+    {
+        return refreshAfterMillis;
+    }
+
+    public boolean isAsynchronous()
+    {
+        return asynchronous;
+    }
+
+    public int getBulkParameterIndex()
+    {
+        return bulkParameterIndex;
+    }
+
+    public CacheWriteBehind getWriteBehind()
+    {
+        return writeBehind;
+    }
+
+    public NegativeResultCache getNegativeResultCache()
+    {
+        return negativeResultCache;
+    }
+
+    /**
+     * @param key the key to refresh
+     * @return true if the caller has to refresh the key, false if it is already being refreshed
+     */
+    public boolean startRefresh( Object key )
+    {
+        return refreshingKeys.putIfAbsent( key, Boolean.TRUE ) == null;
+    }
+
+    public void endRefresh( Object key )
+    {
+        refreshingKeys.remove( key );
+    }
+
+    public CacheInvocationParameter newInvocationParameter( int position, Object value )
+    {
+        return new DefaultCacheInvocationParameter( parameterTypes[position],
+                                                    value,
+                                                    parameterAnnotations[position],
+                                                    position );
+    }
+
+}
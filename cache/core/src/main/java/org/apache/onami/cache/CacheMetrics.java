@@ -0,0 +1,242 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.annotation.Annotation;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.cache.annotation.CacheMethodDetails;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.google.inject.Singleton;
+
+/**
+ * The built-in {@link CacheMetricsRecorder}, collecting {@link CacheInterceptionStatistics} per cache name and per
+ * intercepted method, each one registered as MBean in the {@code org.apache.onami.cache} domain, i.e.
+ * {@code type=Cache,name=<cache>} and {@code type=CacheMethod,cache=<cache>,name=<method>}.
+ *
+ * Enabled binding it as recorder:
+ *
+ * <pre>
+ * bind( CacheMetricsRecorder.class ).to( CacheMetrics.class );
+ * </pre>
+ *
+ * @since 0.1.0
+ */
+@Singleton
+public class CacheMetrics
+    implements CacheMetricsRecorder
+{
+
+    private static final String DOMAIN = "org.apache.onami.cache";
+
+    /**
+     * {@code null} if statistics are not exposed through JMX.
+     */
+    private final MBeanServer mBeanServer;
+
+    private final ConcurrentMap<String, CacheInterceptionStatistics> cachesStatistics =
+        new ConcurrentHashMap<String, CacheInterceptionStatistics>();
+
+    private final ConcurrentMap<Method, CacheInterceptionStatistics> methodsStatistics =
+        new ConcurrentHashMap<Method, CacheInterceptionStatistics>();
+
+    private final ConcurrentMap<ObjectName, Boolean> registeredNames = new ConcurrentHashMap<ObjectName, Boolean>();
+
+    /**
+     * Creates a new metrics registering the statistics in the platform {@code MBeanServer}.
+     */
+    public CacheMetrics()
+    {
+        this( ManagementFactory.getPlatformMBeanServer() );
+    }
+
+    /**
+     * @param mBeanServer the server the statistics are registered in, {@code null} to not expose them through JMX
+     */
+    public CacheMetrics( MBeanServer mBeanServer )
+    {
+        this.mBeanServer = mBeanServer;
+    }
+
+    public void recordHit( CacheMethodDetails<? extends Annotation> methodDetails, long nanos )
+    {
+        getMethodStatistics( methodDetails ).recordHit( nanos );
+        getCacheStatistics( methodDetails ).recordHit( nanos );
+    }
+
+    public void recordMiss( CacheMethodDetails<? extends Annotation> methodDetails, long nanos )
+    {
+        getMethodStatistics( methodDetails ).recordMiss( nanos );
+        getCacheStatistics( methodDetails ).recordMiss( nanos );
+    }
+
+    public void recordPut( CacheMethodDetails<? extends Annotation> methodDetails )
+    {
+        getMethodStatistics( methodDetails ).recordPut();
+        getCacheStatistics( methodDetails ).recordPut();
+    }
+
+    public void recordEviction( CacheMethodDetails<? extends Annotation> methodDetails )
+    {
+        getMethodStatistics( methodDetails ).recordEviction();
+        getCacheStatistics( methodDetails ).recordEviction();
+    }
+
+    public void recordError( CacheMethodDetails<? extends Annotation> methodDetails, Throwable error )
+    {
+        getMethodStatistics( methodDetails ).recordError();
+        getCacheStatistics( methodDetails ).recordError();
+    }
+
+    /**
+     * @param cacheName the cache name
+     * @return the statistics of all the methods using the named cache, {@code null} if none has been invoked yet
+     */
+    public CacheInterceptionStatistics getCacheStatistics( String cacheName )
+    {
+        return cachesStatistics.get( cacheName );
+    }
+
+    /**
+     * @param method the intercepted method
+     * @return the statistics of the method, {@code null} if it has not been invoked yet
+     */
+    public CacheInterceptionStatistics getMethodStatistics( Method method )
+    {
+        return methodsStatistics.get( method );
+    }
+
+    /**
+     * @return the statistics of all the caches used so far, by cache name
+     */
+    public Map<String, CacheInterceptionStatistics> getCachesStatistics()
+    {
+        return cachesStatistics;
+    }
+
+    /**
+     * Unregisters from the {@code MBeanServer} all the statistics registered so far.
+     */
+    public void unregisterMBeans()
+    {
+        for ( ObjectName name : registeredNames.keySet() )
+        {
+            registeredNames.remove( name );
+            try
+            {
+                mBeanServer.unregisterMBean( name );
+            }
+            catch ( InstanceNotFoundException e )
+            {
+                // already unregistered by someone else
+            }
+            catch ( JMException e )
+            {
+                throw new IllegalStateException( "Impossible to unregister MBean " + name, e );
+            }
+        }
+    }
+
+    private CacheInterceptionStatistics getCacheStatistics( CacheMethodDetails<? extends Annotation> methodDetails )
+    {
+        String cacheName = methodDetails.getCacheName();
+        CacheInterceptionStatistics statistics = cachesStatistics.get( cacheName );
+        if ( statistics == null )
+        {
+            statistics = new CacheInterceptionStatistics();
+            CacheInterceptionStatistics previous = cachesStatistics.putIfAbsent( cacheName, statistics );
+            if ( previous != null )
+            {
+                return previous;
+            }
+            register( statistics, "type=Cache,name=" + ObjectName.quote( cacheName ) );
+        }
+        return statistics;
+    }
+
+    private CacheInterceptionStatistics getMethodStatistics( CacheMethodDetails<? extends Annotation> methodDetails )
+    {
+        Method method = methodDetails.getMethod();
+        CacheInterceptionStatistics statistics = methodsStatistics.get( method );
+        if ( statistics == null )
+        {
+            statistics = new CacheInterceptionStatistics();
+            CacheInterceptionStatistics previous = methodsStatistics.putIfAbsent( method, statistics );
+            if ( previous != null )
+            {
+                return previous;
+            }
+            register( statistics, "type=CacheMethod,cache=" + ObjectName.quote( methodDetails.getCacheName() )
+                + ",name=" + ObjectName.quote( toString( method ) ) );
+        }
+        return statistics;
+    }
+
+    private void register( CacheInterceptionStatistics statistics, String properties )
+    {
+        if ( mBeanServer == null )
+        {
+            return;
+        }
+
+        try
+        {
+            ObjectName name = new ObjectName( DOMAIN + ':' + properties );
+            mBeanServer.registerMBean( statistics, name );
+            registeredNames.put( name, Boolean.TRUE );
+        }
+        catch ( InstanceAlreadyExistsException e )
+        {
+            // exposed by another injector, the statistics are still collected
+        }
+        catch ( JMException e )
+        {
+            throw new IllegalStateException( "Impossible to register the statistics MBean", e );
+        }
+    }
+
+    private static String toString( Method method )
+    {
+        StringBuilder builder = new StringBuilder( method.getDeclaringClass().getName() )
+            .append( '.' )
+            .append( method.getName() )
+            .append( '(' );
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for ( int i = 0; i < parameterTypes.length; i++ )
+        {
+            if ( i > 0 )
+            {
+                builder.append( ',' );
+            }
+            builder.append( parameterTypes[i].getSimpleName() );
+        }
+        return builder.append( ')' ).toString();
+    }
+
+}
@@ -0,0 +1,75 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.annotation.Annotation;
+
+import javax.cache.annotation.CacheMethodDetails;
+
+/**
+ * SPI notified by the cache interceptors of the outcome of each intercepted invocation, bound to plug a metrics
+ * library; see {@link CacheMetrics} for the built-in implementation.
+ *
+ * Implementations are invoked on the callers threads, so they have to be thread safe and cheap.
+ *
+ * @since 0.1.0
+ */
+public interface CacheMetricsRecorder
+{
+
+    /**
+     * A {@code CacheResult} invocation has been served by the cache.
+     *
+     * @param methodDetails the intercepted method
+     * @param nanos the invocation latency
+     */
+    void recordHit( CacheMethodDetails<? extends Annotation> methodDetails, long nanos );
+
+    /**
+     * A {@code CacheResult} invocation has not been served by the cache and the method has been invoked.
+     *
+     * @param methodDetails the intercepted method
+     * @param nanos the invocation latency, the method execution included
+     */
+    void recordMiss( CacheMethodDetails<? extends Annotation> methodDetails, long nanos );
+
+    /**
+     * A {@code CachePut} invocation has stored a value.
+     *
+     * @param methodDetails the intercepted method
+     */
+    void recordPut( CacheMethodDetails<? extends Annotation> methodDetails );
+
+    /**
+     * A {@code CacheRemoveEntry} or {@code CacheRemoveAll} invocation has evicted entries.
+     *
+     * @param methodDetails the intercepted method
+     */
+    void recordEviction( CacheMethodDetails<? extends Annotation> methodDetails );
+
+    /**
+     * The intercepted method has thrown an exception.
+     *
+     * @param methodDetails the intercepted method
+     * @param error the thrown exception
+     */
+    void recordError( CacheMethodDetails<? extends Annotation> methodDetails, Throwable error );
+
+}
@@ -24,7 +24,10 @@ import static java.util.Arrays.asList;
 import static com.google.inject.matcher.Matchers.annotatedWith;
 import static com.google.inject.matcher.Matchers.any;
 
+import java.io.File;
 import java.lang.annotation.Annotation;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import com.google.inject.AbstractModule;
 
@@ -32,6 +35,8 @@ public abstract class CacheModule
     extends AbstractModule
 {
 
+    private final Map<String, File> snapshotFiles = new LinkedHashMap<String, File>();
+
     @Override
     @SuppressWarnings( "unchecked" )
     protected final void configure()
@@ -41,13 +46,40 @@ public abstract class CacheModule
         for ( CacheInterceptor<? extends Annotation> interceptor : asList( new CachePutInterceptor(),
                                                                            new CacheResultInterceptor(),
                                                                            new CacheRemoveEntryInterceptor(),
-                                                                           new CacheRemoveAllInterceptor() ) )
+                                                                           new CacheRemoveAllInterceptor(),
+                                                                           new CacheResultAllInterceptor() ) )
         {
             requestInjection( interceptor );
             bindInterceptor( any(), annotatedWith( interceptor.getInterceptedAnnotationType() ), interceptor );
         }
+
+        if ( !snapshotFiles.isEmpty() )
+        {
+            CacheSnapshots cacheSnapshots = new CacheSnapshots( new LinkedHashMap<String, File>( snapshotFiles ) );
+            bind( CacheSnapshots.class ).toInstance( cacheSnapshots );
+        }
     }
 
     protected abstract void configureCache();
 
+    /**
+     * Opts the named cache in snapshot persistence, to be invoked while configuring the cache: the cache is restored
+     * from the snapshot file when the injector is created and saved to it at shutdown, see {@link CacheSnapshots}.
+     *
+     * @param cacheName the name of the persisted cache
+     * @param snapshotFile the file the cache is saved to
+     */
+    protected final void persistCache( String cacheName, File snapshotFile )
+    {
+        if ( cacheName == null )
+        {
+            throw new NullPointerException( "Argument 'cacheName' must be not null" );
+        }
+        if ( snapshotFile == null )
+        {
+            throw new NullPointerException( "Argument 'snapshotFile' must be not null" );
+        }
+        snapshotFiles.put( cacheName, snapshotFile );
+    }
+
 }
@@ -55,9 +55,19 @@ final class CachePutInterceptor
             }
         }
 
-        Cache<Object, Object> cache = getCacheResolverFactory( context ).getCacheResolver( context ).resolveCache( context );
+        Cache<Object, Object> cache = getCacheResolver( context ).resolveCache( context );
         CacheKey cacheKey = getCacheKeyGenerator( context ).generateCacheKey( keyedContext );
-        cache.put( cacheKey, value );
+
+        CacheWriteBehindQueue queue = getWriteBehindQueue( context, cache );
+        if ( queue == null )
+        {
+            cache.put( cacheKey, value );
+        }
+        else if ( queue.put( cacheKey, value ) )
+        {
+            requestFlush( queue );
+        }
+        recordPut( context );
     }
 
 }
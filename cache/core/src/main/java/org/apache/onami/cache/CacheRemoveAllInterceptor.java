@@ -36,8 +36,18 @@ final class CacheRemoveAllInterceptor
     @Override
     protected void hitCache( CacheInvocationContext<CacheRemoveAll> context )
     {
-        Cache<Object, Object> cache = getCacheResolverFactory( context ).getCacheResolver( context ).resolveCache(context);
-        cache.removeAll();
+        Cache<Object, Object> cache = getCacheResolver( context ).resolveCache( context );
+
+        CacheWriteBehindQueue queue = getWriteBehindQueue( context, cache );
+        if ( queue == null )
+        {
+            cache.removeAll();
+        }
+        else if ( queue.removeAll() )
+        {
+            requestFlush( queue );
+        }
+        recordEviction( context );
     }
 
 }
@@ -43,10 +43,19 @@ final class CacheRemoveEntryInterceptor
     {
         CacheKeyInvocationContext<CacheRemoveEntry> keyedContext = (CacheKeyInvocationContext<CacheRemoveEntry>) context;
 
-        Cache<Object, Object> cache = getCacheResolverFactory( context ).getCacheResolver( context ).resolveCache( context );
+        Cache<Object, Object> cache = getCacheResolver( context ).resolveCache( context );
         CacheKey cacheKey = getCacheKeyGenerator( context ).generateCacheKey( keyedContext );
 
-        cache.remove( cacheKey );
+        CacheWriteBehindQueue queue = getWriteBehindQueue( context, cache );
+        if ( queue == null )
+        {
+            cache.remove( cacheKey );
+        }
+        else if ( queue.remove( cacheKey ) )
+        {
+            requestFlush( queue );
+        }
+        recordEviction( context );
     }
 
 }
@@ -0,0 +1,71 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import javax.cache.annotation.CacheKeyGenerator;
+import javax.cache.annotation.CacheResolverFactory;
+
+/**
+ * The bulk version of {@code javax.cache.annotation.CacheResult}, for methods taking a {@code Collection} of
+ * identifiers and returning a {@code Map} from those identifiers to their values.
+ *
+ * Each element of the collection is cached on its own, under the key the method would have if it took that single
+ * element in place of the collection, so the cache can be shared with a {@code CacheResult} method looking up one
+ * identifier at a time. On invocation, all the elements are looked up with a single {@code Cache.getAll()}, the
+ * method is invoked with the missing elements only, and its results are stored with a single {@code Cache.putAll()}.
+ *
+ * The collection parameter is the first {@code Collection} among the key parameters; its declared type must be
+ * {@code Collection}, {@code List} or {@code Set}, and the declared return type must be {@code Map}.
+ *
+ * @since 0.1.0
+ */
+@Documented
+@Retention( RUNTIME )
+@Target( METHOD )
+public @interface CacheResultAll
+{
+
+    /**
+     * @return the name of the cache, see {@code CacheResult#cacheName()}
+     */
+    String cacheName() default "";
+
+    /**
+     * @return true if the elements the method returns no value for are cached as {@code null}, and no more passed
+     *         to the method
+     */
+    boolean cacheNull() default false;
+
+    Class<? extends CacheResolverFactory> cacheResolverFactory() default CacheResolverFactory.class;
+
+    /**
+     * @return the generator of the elements keys, invoked as if the method took the element in place of the
+     *         collection
+     */
+    Class<? extends CacheKeyGenerator> cacheKeyGenerator() default CacheKeyGenerator.class;
+
+}
@@ -0,0 +1,184 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import javax.cache.Cache;
+import javax.cache.annotation.CacheInvocationContext;
+import javax.cache.annotation.CacheKeyGenerator;
+
+import org.aopalliance.intercept.MethodInvocation;
+
+final class CacheResultAllInterceptor
+    extends CacheInterceptor<CacheResultAll>
+{
+
+    @Override
+    public Class<CacheResultAll> getInterceptedAnnotationType()
+    {
+        return CacheResultAll.class;
+    }
+
+    @Override
+    protected Object invoke( CacheInvocationContext<CacheResultAll> context, MethodInvocation invocation )
+        throws Throwable
+    {
+        long startTime = startTiming();
+        CacheMethodMetadata<CacheResultAll> metadata = getMetadata( context );
+        int bulkParameterIndex = metadata.getBulkParameterIndex();
+        Object[] arguments = invocation.getArguments();
+        Collection<?> elements = (Collection<?>) arguments[bulkParameterIndex];
+
+        if ( elements == null || elements.isEmpty() )
+        {
+            return invocation.proceed();
+        }
+
+        Cache<Object, Object> cache = getCacheResolver( context ).resolveCache( context );
+        Map<Object, Object> keys = generateCacheKeys( context, elements, bulkParameterIndex );
+
+        Map<Object, Object> cachedValues = cache.getAll( new HashSet<Object>( keys.values() ) );
+        Map<Object, Object> values = new HashMap<Object, Object>( keys.size() );
+        Collection<Object> missing = newCollection( metadata.getMethod().getParameterTypes()[bulkParameterIndex] );
+        for ( Map.Entry<Object, Object> key : keys.entrySet() )
+        {
+            Object cachedValue = cachedValues.get( key.getValue() );
+            if ( cachedValue instanceof RefreshableValue )
+            {
+                // shared with a CacheRefresh method
+                cachedValue = ( (RefreshableValue) cachedValue ).getValue();
+            }
+            if ( cachedValue == null )
+            {
+                missing.add( key.getKey() );
+            }
+            else if ( NULL_PLACEHOLDER != cachedValue )
+            {
+                values.put( key.getKey(), cachedValue );
+            }
+        }
+
+        if ( missing.isEmpty() )
+        {
+            recordHit( context, startTime );
+            return toResult( keys, values );
+        }
+
+        Map<?, ?> invocationResult;
+        // the method is invoked with the missing elements only
+        arguments[bulkParameterIndex] = missing;
+        try
+        {
+            invocationResult = (Map<?, ?>) invocation.proceed();
+        }
+        catch ( Throwable t )
+        {
+            recordError( context, t );
+            throw t;
+        }
+        finally
+        {
+            arguments[bulkParameterIndex] = elements;
+        }
+
+        boolean cacheNull = context.getCacheAnnotation().cacheNull();
+        Map<Object, Object> loadedValues = new HashMap<Object, Object>( missing.size() );
+        for ( Object element : missing )
+        {
+            Object value = ( invocationResult != null ) ? invocationResult.get( element ) : null;
+            if ( value != null )
+            {
+                values.put( element, value );
+                loadedValues.put( keys.get( element ), value );
+            }
+            else if ( cacheNull )
+            {
+                // Null values are cached, set value to the null placeholder
+                loadedValues.put( keys.get( element ), NULL_PLACEHOLDER );
+            }
+        }
+
+        if ( !loadedValues.isEmpty() )
+        {
+            cache.putAll( loadedValues );
+        }
+
+        recordMiss( context, startTime );
+        return toResult( keys, values );
+    }
+
+    /**
+     * @return the key of each distinct element, generated as if the element was passed in place of the collection
+     */
+    private Map<Object, Object> generateCacheKeys( CacheInvocationContext<CacheResultAll> context,
+                                                   Collection<?> elements,
+                                                   int bulkParameterIndex )
+    {
+        DefaultCacheKeyInvocationContext<CacheResultAll> keyedContext =
+            (DefaultCacheKeyInvocationContext<CacheResultAll>) context;
+        CacheKeyGenerator cacheKeyGenerator = getCacheKeyGenerator( context );
+
+        Map<Object, Object> keys = new LinkedHashMap<Object, Object>( elements.size() );
+        Object[] elementArguments = keyedContext.getArguments().clone();
+        for ( Object element : elements )
+        {
+            if ( !keys.containsKey( element ) )
+            {
+                elementArguments[bulkParameterIndex] = element;
+                keys.put( element, cacheKeyGenerator.generateCacheKey( keyedContext.withArguments( elementArguments ) ) );
+            }
+        }
+        return keys;
+    }
+
+    private static Collection<Object> newCollection( Class<?> parameterType )
+    {
+        if ( parameterType.isAssignableFrom( ArrayList.class ) )
+        {
+            return new ArrayList<Object>();
+        }
+        return new LinkedHashSet<Object>();
+    }
+
+    /**
+     * @return the values, in the order of the requested elements
+     */
+    private static Map<Object, Object> toResult( Map<Object, Object> keys, Map<Object, Object> values )
+    {
+        Map<Object, Object> result = new LinkedHashMap<Object, Object>( values.size() );
+        for ( Object element : keys.keySet() )
+        {
+            Object value = values.get( element );
+            if ( value != null )
+            {
+                result.put( element, value );
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,501 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.cache.Cache;
+import javax.cache.annotation.CacheInvocationContext;
+import javax.cache.annotation.CacheKey;
+import javax.cache.annotation.CacheKeyInvocationContext;
+import javax.cache.annotation.CacheResult;
+
+import org.aopalliance.intercept.MethodInvocation;
+
+import com.google.inject.Inject;
+
+final class CacheResultInterceptor
+    extends CacheInterceptor<CacheResult>
+{
+
+    /**
+     * Maximum number of refreshes waiting for a thread of the default executor.
+     */
+    private static final int MAXIMUM_PENDING_REFRESHES = 1024;
+
+    /**
+     * Set by the refreshing threads, to have the method invoked bypassing the cached value.
+     */
+    private static final ThreadLocal<Method> REFRESHING = new ThreadLocal<Method>();
+
+    @Inject( optional = true )
+    @CacheRefreshExecutor
+    private Executor refreshExecutor;
+
+    public void setRefreshExecutor( Executor refreshExecutor )
+    {
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    @Override
+    public Class<CacheResult> getInterceptedAnnotationType()
+    {
+        return CacheResult.class;
+    }
+
+    @Override
+    protected Object invoke( CacheInvocationContext<CacheResult> context, MethodInvocation invocation )
+        throws Throwable
+    {
+        long startTime = startTiming();
+        CacheKeyInvocationContext<CacheResult> keyedContext = (CacheKeyInvocationContext<CacheResult>) context;
+        CacheResult cacheResult = context.getCacheAnnotation();
+
+        Cache<Object, Object> cache = getCacheResolver( context ).resolveCache( context );
+        Cache<Object, Throwable> exceptionCache = getExceptionCache( context );
+        CacheKey cacheKey = getCacheKeyGenerator( context ).generateCacheKey( keyedContext );
+        boolean refreshing = isRefreshing( context );
+
+        if ( !cacheResult.skipGet() && !refreshing )
+        {
+            Object cachedValue = getCachedValue( cache, cacheKey );
+            if ( cachedValue != null )
+            {
+                if ( cachedValue instanceof RefreshableValue )
+                {
+                    refreshIfStale( (RefreshableValue) cachedValue, cacheKey, context );
+                }
+                recordHit( context, startTime );
+                return fromCachedValue( cachedValue );
+            }
+
+            Throwable cachedThrowable = getCachedThrowable( exceptionCache, cacheKey );
+            if ( cachedThrowable != null )
+            {
+                recordHit( context, startTime );
+                throw cachedThrowable;
+            }
+
+            NegativeResultCache negativeResultCache = getMetadata( context ).getNegativeResultCache();
+            if ( negativeResultCache != null )
+            {
+                NegativeResultCache.Entry negativeResult = negativeResultCache.get( cacheKey );
+                if ( negativeResult != null )
+                {
+                    recordHit( context, startTime );
+                    if ( negativeResult.getException() != null )
+                    {
+                        throw negativeResult.getException();
+                    }
+                    return null;
+                }
+            }
+
+            InFlightCalls inFlightCalls = getMetadata( context ).getInFlightCalls();
+            if ( inFlightCalls != null )
+            {
+                return invokeSingleFlight( inFlightCalls, cache, exceptionCache, cacheKey, context, invocation,
+                                           startTime );
+            }
+        }
+
+        try
+        {
+            return invokeAndCache( cache, exceptionCache, cacheKey, context, invocation, refreshing );
+        }
+        finally
+        {
+            // a background refresh is not a request of the cached value
+            if ( !refreshing )
+            {
+                recordMiss( context, startTime );
+            }
+        }
+    }
+
+    private Object invokeSingleFlight( InFlightCalls inFlightCalls,
+                                       Cache<Object, Object> cache,
+                                       Cache<Object, Throwable> exceptionCache,
+                                       CacheKey cacheKey,
+                                       CacheInvocationContext<CacheResult> context,
+                                       MethodInvocation invocation,
+                                       long startTime )
+        throws Throwable
+    {
+        InFlightCalls.Call call = inFlightCalls.newCall( cacheKey );
+        InFlightCalls.Call inFlight = inFlightCalls.putIfAbsent( call );
+        if ( inFlight != null )
+        {
+            if ( inFlight.isLedByCurrentThread() )
+            {
+                // a recursive request of the key this thread is loading, it can't wait for itself
+                try
+                {
+                    return invokeAndCache( cache, exceptionCache, cacheKey, context, invocation, false );
+                }
+                finally
+                {
+                    recordMiss( context, startTime );
+                }
+            }
+            // another thread is already loading the same key, share its outcome without invoking the method
+            try
+            {
+                return inFlight.await();
+            }
+            finally
+            {
+                recordHit( context, startTime );
+            }
+        }
+
+        boolean invoked = false;
+        try
+        {
+            // the previous leader may have completed between the cache miss and the registration
+            Object cachedValue = getCachedValue( cache, cacheKey );
+            Object result;
+            if ( cachedValue != null )
+            {
+                result = fromCachedValue( cachedValue );
+            }
+            else
+            {
+                invoked = true;
+                result = invokeAndCache( cache, exceptionCache, cacheKey, context, invocation, false );
+            }
+            call.complete( result );
+            return result;
+        }
+        catch ( Throwable t )
+        {
+            call.fail( t );
+            throw t;
+        }
+        finally
+        {
+            if ( invoked )
+            {
+                recordMiss( context, startTime );
+            }
+            else
+            {
+                recordHit( context, startTime );
+            }
+        }
+    }
+
+    private Object invokeAndCache( Cache<Object, Object> cache,
+                                   Cache<Object, Throwable> exceptionCache,
+                                   CacheKey cacheKey,
+                                   CacheInvocationContext<CacheResult> context,
+                                   MethodInvocation invocation,
+                                   boolean refreshing )
+        throws Throwable
+    {
+        CacheResult cacheResult = context.getCacheAnnotation();
+        NegativeResultCache negativeResultCache = getMetadata( context ).getNegativeResultCache();
+
+        final Object invocationResult;
+        try
+        {
+            invocationResult = invocation.proceed();
+        }
+        catch ( Throwable t )
+        {
+            recordError( context, t );
+
+            if ( exceptionCache != null
+                && include( t, cacheResult.cachedExceptions(), cacheResult.nonCachedExceptions(), true ) )
+            {
+                exceptionCache.put( cacheKey, t );
+            }
+            else if ( negativeResultCache != null && negativeResultCache.isCaching( t ) )
+            {
+                negativeResultCache.putException( cacheKey, t );
+            }
+
+            throw t;
+        }
+
+        if ( invocationResult != null )
+        {
+            if ( refreshing && getMetadata( context ).isAsynchronous()
+                && !awaitCompletion( (Future<?>) invocationResult ) )
+            {
+                // the stale value is kept, to be refreshed again later
+                return invocationResult;
+            }
+            // on a miss futures are cached as soon as returned, so that concurrent callers share the in-flight
+            // computation; on a refresh only once completed, so that callers keep being served the stale value
+            cache.put( cacheKey, toCachedValue( invocationResult, context ) );
+            if ( negativeResultCache != null )
+            {
+                negativeResultCache.remove( cacheKey );
+            }
+        }
+        else if ( negativeResultCache != null && negativeResultCache.isCachingNull() )
+        {
+            negativeResultCache.putNull( cacheKey );
+        }
+        else if ( cacheResult.cacheNull() )
+        {
+            // Null values are cached, set value to the null placeholder
+            cache.put( cacheKey, toCachedValue( NULL_PLACEHOLDER, context ) );
+        }
+
+        return invocationResult;
+    }
+
+    private Object toCachedValue( Object value, CacheInvocationContext<CacheResult> context )
+    {
+        long refreshAfterMillis = getMetadata( context ).getRefreshAfterMillis();
+        if ( refreshAfterMillis > 0 )
+        {
+            return new RefreshableValue( value, System.currentTimeMillis() + refreshAfterMillis );
+        }
+        return value;
+    }
+
+    /**
+     * Reads the cached value, discarding the futures that completed exceptionally: they are recomputed as misses.
+     */
+    private static Object getCachedValue( Cache<Object, Object> cache, CacheKey cacheKey )
+    {
+        Object cachedValue = cache.get( cacheKey );
+        if ( cachedValue != null && isFailedFuture( fromCachedValue( cachedValue ) ) )
+        {
+            cache.remove( cacheKey, cachedValue );
+            return null;
+        }
+        return cachedValue;
+    }
+
+    /**
+     * Waits for the given future, on the refreshing thread.
+     *
+     * @return true if the future completed normally
+     */
+    private static boolean awaitCompletion( Future<?> future )
+    {
+        try
+        {
+            future.get();
+            return true;
+        }
+        catch ( ExecutionException e )
+        {
+            return false;
+        }
+        catch ( CancellationException e )
+        {
+            return false;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean isFailedFuture( Object value )
+    {
+        if ( !( value instanceof Future<?> ) )
+        {
+            return false;
+        }
+
+        Future<?> future = (Future<?>) value;
+        if ( !future.isDone() )
+        {
+            return false;
+        }
+        if ( future.isCancelled() )
+        {
+            return true;
+        }
+
+        try
+        {
+            // already done, doesn't block
+            future.get();
+            return false;
+        }
+        catch ( ExecutionException e )
+        {
+            return true;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /* Refresh-ahead */
+
+    private static boolean isRefreshing( CacheInvocationContext<CacheResult> context )
+    {
+        if ( REFRESHING.get() != context.getMethod() )
+        {
+            return false;
+        }
+        // only the outermost invocation bypasses the cache
+        REFRESHING.remove();
+        return true;
+    }
+
+    private void refreshIfStale( RefreshableValue cachedValue,
+                                 final CacheKey cacheKey,
+                                 CacheInvocationContext<CacheResult> context )
+    {
+        final CacheMethodMetadata<CacheResult> metadata = getMetadata( context );
+        if ( !cachedValue.isStale( System.currentTimeMillis() ) || !metadata.startRefresh( cacheKey ) )
+        {
+            return;
+        }
+
+        final Method method = context.getMethod();
+        final Object target = context.getTarget();
+        final Object[] arguments = ( (DefaultCacheKeyInvocationContext<CacheResult>) context ).getArguments().clone();
+
+        try
+        {
+            getRefreshExecutor().execute( new Runnable()
+            {
+
+                public void run()
+                {
+                    try
+                    {
+                        // invoked through the proxy, so that all the interceptors apply and the result is cached
+                        REFRESHING.set( method );
+                        method.invoke( target, arguments );
+                    }
+                    catch ( InvocationTargetException e )
+                    {
+                        // the stale value is kept, to be refreshed again later
+                    }
+                    catch ( IllegalAccessException e )
+                    {
+                        // unreachable, the method has been made accessible
+                    }
+                    finally
+                    {
+                        REFRESHING.remove();
+                        metadata.endRefresh( cacheKey );
+                    }
+                }
+
+            } );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            // saturated, the next caller will retry
+            metadata.endRefresh( cacheKey );
+        }
+    }
+
+    private Executor getRefreshExecutor()
+    {
+        Executor executor = refreshExecutor;
+        if ( executor == null )
+        {
+            synchronized ( this )
+            {
+                executor = refreshExecutor;
+                if ( executor == null )
+                {
+                    executor = newDefaultRefreshExecutor();
+                    refreshExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    private static Executor newDefaultRefreshExecutor()
+    {
+        int threads = Math.max( 2, Runtime.getRuntime().availableProcessors() / 2 );
+        return new ThreadPoolExecutor( threads,
+                                       threads,
+                                       60L,
+                                       TimeUnit.SECONDS,
+                                       new ArrayBlockingQueue<Runnable>( MAXIMUM_PENDING_REFRESHES ),
+                                       new ThreadFactory()
+                                       {
+
+                                           private final AtomicInteger threadsCount = new AtomicInteger();
+
+                                           public Thread newThread( Runnable runnable )
+                                           {
+                                               Thread thread = new Thread( runnable, "onami-cache-refresh-"
+                                                   + threadsCount.incrementAndGet() );
+                                               thread.setDaemon( true );
+                                               return thread;
+                                           }
+
+                                       } );
+    }
+
+    private Cache<Object, Throwable> getExceptionCache( CacheInvocationContext<CacheResult> context )
+    {
+        String exceptionCacheName = context.getCacheAnnotation().exceptionCacheName();
+        if ( exceptionCacheName == null || exceptionCacheName.length() == 0 )
+        {
+            return null;
+        }
+        return getExceptionCacheResolver( context ).resolveCache( context );
+    }
+
+    private static Throwable getCachedThrowable( Cache<Object, Throwable> exceptionCache, CacheKey cacheKey )
+    {
+        if ( exceptionCache == null )
+        {
+            return null;
+        }
+        return exceptionCache.get( cacheKey );
+    }
+
+    private static Object fromCachedValue( Object cachedValue )
+    {
+        if ( cachedValue instanceof RefreshableValue )
+        {
+            cachedValue = ( (RefreshableValue) cachedValue ).getValue();
+        }
+        if ( NULL_PLACEHOLDER == cachedValue )
+        {
+            return null;
+        }
+        return cachedValue;
+    }
+
+}
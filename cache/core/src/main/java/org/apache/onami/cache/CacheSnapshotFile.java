@@ -0,0 +1,361 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.lang.String.format;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.cache.Cache;
+
+/**
+ * Reads and writes cache snapshots, streamed through a fixed size direct buffer.
+ *
+ * The format is a 16 bytes header (magic, version, snapshot time) followed by the entries, each one a tag byte, the
+ * expiration time and the length prefixed serialized key and value, and ends with a tag byte and the entries count.
+ * Keys and values are serialized with the standard Java serialization, entries that can't be are not saved.
+ */
+final class CacheSnapshotFile
+{
+
+    private static final int MAGIC = 0x4F4E4353; // "ONCS"
+
+    private static final int VERSION = 1;
+
+    private static final byte ENTRY = 1;
+
+    private static final byte END = 0;
+
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * Tag, expiration time, key and value lengths.
+     */
+    private static final int ENTRY_OVERHEAD = 1 + 8 + 4 + 4;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Restored entries are put in the cache in batches of this size.
+     */
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private CacheSnapshotFile()
+    {
+        // do nothing
+    }
+
+    /**
+     * Writes the not expired entries of a cache; the file is replaced only once the snapshot is complete.
+     *
+     * @return the number of saved entries
+     */
+    static int save( Cache<?, ?> cache, File file )
+        throws IOException
+    {
+        File temporaryFile = new File( file.getPath() + ".tmp" );
+        int count = 0;
+
+        FileChannel channel = new FileOutputStream( temporaryFile ).getChannel();
+        try
+        {
+            long now = System.currentTimeMillis();
+            ByteBuffer buffer = ByteBuffer.allocateDirect( BUFFER_SIZE );
+            buffer.putInt( MAGIC ).putInt( VERSION ).putLong( now );
+
+            for ( Cache.Entry<?, ?> entry : cache )
+            {
+                long expiresAt = Long.MAX_VALUE;
+                if ( entry instanceof ExpiringCacheEntry )
+                {
+                    expiresAt = ( (ExpiringCacheEntry) entry ).getExpirationTime();
+                    if ( expiresAt <= now )
+                    {
+                        continue;
+                    }
+                }
+
+                byte[] key = serialize( entry.getKey() );
+                byte[] value = serialize( entry.getValue() );
+                if ( key == null || value == null )
+                {
+                    continue;
+                }
+
+                writeEntry( channel, buffer, expiresAt, key, value );
+                count++;
+            }
+
+            if ( buffer.remaining() < 5 )
+            {
+                drain( channel, buffer );
+            }
+            buffer.put( END ).putInt( count );
+            drain( channel, buffer );
+            channel.force( false );
+        }
+        finally
+        {
+            channel.close();
+        }
+
+        if ( ( file.exists() && !file.delete() ) || !temporaryFile.renameTo( file ) )
+        {
+            throw new IOException( format( "Impossible to replace the snapshot %s with %s", file, temporaryFile ) );
+        }
+        return count;
+    }
+
+    /**
+     * Puts in a cache the entries of a snapshot not expired yet.
+     *
+     * @return the number of restored entries
+     */
+    static int load( File file, Cache<Object, Object> cache )
+        throws IOException
+    {
+        int loaded = 0;
+
+        FileChannel channel = new FileInputStream( file ).getChannel();
+        try
+        {
+            ByteBuffer buffer = ByteBuffer.allocateDirect( BUFFER_SIZE );
+            buffer.flip();
+
+            fill( channel, buffer, HEADER_SIZE );
+            if ( buffer.getInt() != MAGIC || buffer.getInt() != VERSION )
+            {
+                throw new IOException( format( "%s is not a cache snapshot", file ) );
+            }
+            buffer.getLong(); // snapshot time
+
+            long now = System.currentTimeMillis();
+            Map<Object, Object> batch = new HashMap<Object, Object>();
+            int read = 0;
+
+            while ( true )
+            {
+                fill( channel, buffer, 1 );
+                byte tag = buffer.get();
+                if ( END == tag )
+                {
+                    fill( channel, buffer, 4 );
+                    if ( buffer.getInt() != read )
+                    {
+                        throw new IOException( format( "Snapshot %s is corrupted", file ) );
+                    }
+                    break;
+                }
+                if ( ENTRY != tag )
+                {
+                    throw new IOException( format( "Snapshot %s is corrupted", file ) );
+                }
+
+                fill( channel, buffer, 8 + 4 );
+                long expiresAt = buffer.getLong();
+                byte[] key = readBytes( channel, buffer, buffer.getInt() );
+                fill( channel, buffer, 4 );
+                byte[] value = readBytes( channel, buffer, buffer.getInt() );
+                read++;
+
+                if ( expiresAt <= now )
+                {
+                    continue;
+                }
+
+                Object deserializedKey = deserialize( key );
+                Object deserializedValue = deserialize( value );
+                if ( deserializedKey == null || deserializedValue == null )
+                {
+                    // classes changed since the snapshot
+                    continue;
+                }
+
+                batch.put( deserializedKey, deserializedValue );
+                if ( batch.size() >= LOAD_BATCH_SIZE )
+                {
+                    cache.putAll( batch );
+                    loaded += batch.size();
+                    batch.clear();
+                }
+            }
+
+            if ( !batch.isEmpty() )
+            {
+                cache.putAll( batch );
+                loaded += batch.size();
+            }
+        }
+        finally
+        {
+            channel.close();
+        }
+        return loaded;
+    }
+
+    /* Writing */
+
+    private static void writeEntry( FileChannel channel, ByteBuffer buffer, long expiresAt, byte[] key, byte[] value )
+        throws IOException
+    {
+        int length = ENTRY_OVERHEAD + key.length + value.length;
+        if ( buffer.remaining() < length )
+        {
+            drain( channel, buffer );
+        }
+
+        ByteBuffer target = buffer;
+        if ( buffer.remaining() < length )
+        {
+            // larger than the buffer, written on its own
+            target = ByteBuffer.allocate( length );
+        }
+
+        target.put( ENTRY ).putLong( expiresAt ).putInt( key.length ).put( key ).putInt( value.length ).put( value );
+
+        if ( target != buffer )
+        {
+            target.flip();
+            writeFully( channel, target );
+        }
+    }
+
+    private static void drain( FileChannel channel, ByteBuffer buffer )
+        throws IOException
+    {
+        buffer.flip();
+        writeFully( channel, buffer );
+        buffer.clear();
+    }
+
+    private static void writeFully( FileChannel channel, ByteBuffer buffer )
+        throws IOException
+    {
+        while ( buffer.hasRemaining() )
+        {
+            channel.write( buffer );
+        }
+    }
+
+    /**
+     * @return the serialized object, {@code null} if not serializable
+     */
+    private static byte[] serialize( Object object )
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try
+        {
+            ObjectOutputStream output = new ObjectOutputStream( bytes );
+            output.writeObject( object );
+            output.close();
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    /* Reading */
+
+    /**
+     * Makes at least the given number of bytes available in the buffer, in read mode.
+     */
+    private static void fill( FileChannel channel, ByteBuffer buffer, int length )
+        throws IOException
+    {
+        if ( buffer.remaining() >= length )
+        {
+            return;
+        }
+
+        buffer.compact();
+        while ( buffer.position() < length )
+        {
+            if ( channel.read( buffer ) < 0 )
+            {
+                throw new EOFException( "Truncated cache snapshot" );
+            }
+        }
+        buffer.flip();
+    }
+
+    private static byte[] readBytes( FileChannel channel, ByteBuffer buffer, int length )
+        throws IOException
+    {
+        if ( length < 0 )
+        {
+            throw new IOException( "Corrupted cache snapshot, negative length " + length );
+        }
+
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while ( offset < length )
+        {
+            if ( !buffer.hasRemaining() )
+            {
+                fill( channel, buffer, 1 );
+            }
+            int chunk = Math.min( buffer.remaining(), length - offset );
+            buffer.get( bytes, offset, chunk );
+            offset += chunk;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the deserialized object, {@code null} if its class is not available anymore
+     */
+    private static Object deserialize( byte[] bytes )
+        throws IOException
+    {
+        ObjectInputStream input = new ObjectInputStream( new ByteArrayInputStream( bytes ) );
+        try
+        {
+            return input.readObject();
+        }
+        catch ( ClassNotFoundException e )
+        {
+            return null;
+        }
+        catch ( InvalidClassException e )
+        {
+            return null;
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+}
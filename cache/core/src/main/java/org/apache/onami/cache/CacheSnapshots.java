@@ -0,0 +1,215 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.lang.String.format;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.MutableConfiguration;
+import javax.inject.Inject;
+
+import com.google.inject.Injector;
+import com.google.inject.Key;
+
+/**
+ * Saves the caches opted in through {@link CacheModule#persistCache(String, File)} to snapshot files and restores
+ * them when the injector is created, so that restarts don't begin with empty caches.
+ *
+ * Snapshots are saved at JVM shutdown, applications stopping caches earlier should {@link #shutdown()} first, i.e.
+ * injecting this class. Entries already expired are neither saved nor restored; restored entries get the expiration
+ * of newly created ones. Caches are resolved through the bound {@code javax.cache.CacheManager}, the default one
+ * otherwise; failures are logged, persistence is best effort.
+ *
+ * @since 0.1.0
+ */
+public final class CacheSnapshots
+{
+
+    private static final Logger LOGGER = Logger.getLogger( CacheSnapshots.class.getName() );
+
+    private final Map<String, File> snapshotFiles;
+
+    private CacheManager cacheManager;
+
+    private CacheWriteBehindQueues writeBehindQueues;
+
+    private Thread shutdownHook;
+
+    CacheSnapshots( Map<String, File> snapshotFiles )
+    {
+        this.snapshotFiles = snapshotFiles;
+    }
+
+    /**
+     * @return the snapshot file by cache name
+     */
+    public Map<String, File> getSnapshotFiles()
+    {
+        return Collections.unmodifiableMap( snapshotFiles );
+    }
+
+    @Inject
+    void start( Injector injector )
+    {
+        if ( injector.getExistingBinding( Key.get( CacheManager.class ) ) != null )
+        {
+            cacheManager = injector.getInstance( CacheManager.class );
+        }
+        else
+        {
+            cacheManager = Caching.getCacheManager();
+        }
+        writeBehindQueues = injector.getInstance( CacheWriteBehindQueues.class );
+
+        restore();
+
+        synchronized ( this )
+        {
+            shutdownHook = new Thread( "onami-cache-snapshots-shutdown" )
+            {
+
+                @Override
+                public void run()
+                {
+                    save();
+                }
+
+            };
+            Runtime.getRuntime().addShutdownHook( shutdownHook );
+        }
+    }
+
+    private void restore()
+    {
+        for ( Entry<String, File> snapshotFile : snapshotFiles.entrySet() )
+        {
+            String cacheName = snapshotFile.getKey();
+            File file = snapshotFile.getValue();
+            if ( !file.isFile() )
+            {
+                continue;
+            }
+
+            try
+            {
+                int restored = CacheSnapshotFile.load( file, getOrCreateCache( cacheName ) );
+                LOGGER.fine( format( "Restored %s entries of cache '%s' from %s", restored, cacheName, file ) );
+            }
+            catch ( IOException e )
+            {
+                LOGGER.log( Level.WARNING, format( "Impossible to restore cache '%s' from %s", cacheName, file ), e );
+            }
+            catch ( RuntimeException e )
+            {
+                LOGGER.log( Level.WARNING, format( "Impossible to restore cache '%s' from %s", cacheName, file ), e );
+            }
+        }
+    }
+
+    /**
+     * Saves the snapshots of all the persisted caches, after writing their pending writes behind.
+     */
+    public void save()
+    {
+        try
+        {
+            writeBehindQueues.flush();
+        }
+        catch ( RuntimeException e )
+        {
+            LOGGER.log( Level.WARNING, "Impossible to flush the caches written behind before saving them", e );
+        }
+
+        for ( Entry<String, File> snapshotFile : snapshotFiles.entrySet() )
+        {
+            String cacheName = snapshotFile.getKey();
+            File file = snapshotFile.getValue();
+
+            Cache<Object, Object> cache = cacheManager.getCache( cacheName );
+            if ( cache == null )
+            {
+                continue;
+            }
+
+            try
+            {
+                File directory = file.getAbsoluteFile().getParentFile();
+                if ( directory != null && !directory.isDirectory() && !directory.mkdirs() )
+                {
+                    throw new IOException( format( "Impossible to create the directory %s", directory ) );
+                }
+                int saved = CacheSnapshotFile.save( cache, file );
+                LOGGER.fine( format( "Saved %s entries of cache '%s' to %s", saved, cacheName, file ) );
+            }
+            catch ( IOException e )
+            {
+                LOGGER.log( Level.WARNING, format( "Impossible to save cache '%s' to %s", cacheName, file ), e );
+            }
+            catch ( RuntimeException e )
+            {
+                LOGGER.log( Level.WARNING, format( "Impossible to save cache '%s' to %s", cacheName, file ), e );
+            }
+        }
+    }
+
+    /**
+     * Saves the snapshots and stops saving them at JVM shutdown.
+     */
+    public void shutdown()
+    {
+        synchronized ( this )
+        {
+            if ( shutdownHook != null )
+            {
+                try
+                {
+                    Runtime.getRuntime().removeShutdownHook( shutdownHook );
+                }
+                catch ( IllegalStateException e )
+                {
+                    // invoked while the JVM is shutting down
+                }
+                shutdownHook = null;
+            }
+        }
+        save();
+    }
+
+    private Cache<Object, Object> getOrCreateCache( String cacheName )
+    {
+        Cache<Object, Object> cache = cacheManager.getCache( cacheName );
+        if ( cache == null )
+        {
+            cache = cacheManager.configureCache( cacheName, new MutableConfiguration<Object, Object>() );
+        }
+        return cache;
+    }
+
+}
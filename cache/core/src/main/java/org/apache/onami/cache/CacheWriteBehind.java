@@ -0,0 +1,73 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Companion of {@code javax.cache.annotation.CachePut}, {@code CacheRemoveEntry} and {@code CacheRemoveAll} that
+ * enables the <i>write-behind</i> mode: cache writes are queued per cache instead of being applied on the caller's
+ * thread, coalesced by key (the last write wins) and applied in batches, through {@code putAll} and
+ * {@code removeAll}, once {@link #batchSize()} keys are pending or every {@link #flushInterval()}.
+ *
+ * Until flushed, pending writes are not visible to cache readers. Queues are flushed at JVM shutdown, or on demand
+ * through {@link CacheWriteBehindQueues}; a failed flush is retried with the next one. A cache is written behind
+ * with the settings of the first method writing behind to it.
+ *
+ * When placed on a type, all the methods above declared by that type are written behind, unless they are annotated
+ * too.
+ *
+ * @since 0.1.0
+ */
+@Documented
+@Retention( RUNTIME )
+@Target( { TYPE, METHOD } )
+public @interface CacheWriteBehind
+{
+
+    /**
+     * @return the number of pending keys that triggers a flush
+     */
+    int batchSize() default 100;
+
+    /**
+     * @return the number of pending keys above which callers flush the queue themselves, slowing writers down to the
+     *         pace of the cache
+     */
+    int maxQueueSize() default 10000;
+
+    /**
+     * @return the delay between two timed flushes
+     */
+    long flushInterval() default 1000L;
+
+    /**
+     * @return the unit of {@link #flushInterval()}
+     */
+    TimeUnit unit() default TimeUnit.MILLISECONDS;
+
+}
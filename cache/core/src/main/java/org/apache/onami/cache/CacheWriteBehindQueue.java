@@ -0,0 +1,296 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.cache.Cache;
+
+/**
+ * The writes pending on a cache written behind, see {@link CacheWriteBehind}.
+ *
+ * Writers only touch the pending map, under a short lock; flushes are serialized, so that batches reach the cache in
+ * the order they were formed.
+ *
+ * @since 0.1.0
+ */
+public final class CacheWriteBehindQueue
+    implements CacheWriteBehindQueueMBean
+{
+
+    /**
+     * Marks the pending removals in the pending map.
+     */
+    private static final Object REMOVED = new Object();
+
+    private final Cache<Object, Object> cache;
+
+    private final int batchSize;
+
+    private final int maxQueueSize;
+
+    private final Object lock = new Object();
+
+    /**
+     * Pending value, or {@link #REMOVED}, by key. Guarded by {@link #lock}.
+     */
+    private Map<Object, Object> pending = new LinkedHashMap<Object, Object>();
+
+    /**
+     * True if the cache has to be cleared before writing the pending keys. Guarded by {@link #lock}.
+     */
+    private boolean removeAllPending;
+
+    private final Lock flushLock = new ReentrantLock();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final AtomicLong queuedWrites = new AtomicLong();
+
+    private final AtomicLong coalescedWrites = new AtomicLong();
+
+    private final AtomicLong flushedBatches = new AtomicLong();
+
+    private final AtomicLong flushedWrites = new AtomicLong();
+
+    private final AtomicLong failedFlushes = new AtomicLong();
+
+    CacheWriteBehindQueue( Cache<Object, Object> cache, int batchSize, int maxQueueSize )
+    {
+        this.cache = cache;
+        this.batchSize = batchSize;
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    /**
+     * @return true if the caller has to request a flush, the batch size has been reached
+     */
+    boolean put( Object key, Object value )
+    {
+        return enqueue( key, value );
+    }
+
+    /**
+     * @return true if the caller has to request a flush, the batch size has been reached
+     */
+    boolean remove( Object key )
+    {
+        return enqueue( key, REMOVED );
+    }
+
+    /**
+     * @return always true, the cache has to be cleared as soon as possible
+     */
+    boolean removeAll()
+    {
+        queuedWrites.incrementAndGet();
+        synchronized ( lock )
+        {
+            // pending writes would be removed anyway
+            coalescedWrites.addAndGet( pending.size() );
+            pending.clear();
+            removeAllPending = true;
+        }
+        return true;
+    }
+
+    private boolean enqueue( Object key, Object value )
+    {
+        queuedWrites.incrementAndGet();
+        int queueDepth;
+        synchronized ( lock )
+        {
+            if ( pending.put( key, value ) != null )
+            {
+                coalescedWrites.incrementAndGet();
+            }
+            queueDepth = pending.size();
+        }
+
+        if ( queueDepth > maxQueueSize )
+        {
+            // the cache doesn't keep up, write on the caller's thread
+            flush();
+            return false;
+        }
+        return queueDepth >= batchSize;
+    }
+
+    /**
+     * @return true if no flush was requested yet, the caller has to schedule it
+     */
+    boolean requestFlush()
+    {
+        return flushRequested.compareAndSet( false, true );
+    }
+
+    public void flush()
+    {
+        flushLock.lock();
+        try
+        {
+            flushRequested.set( false );
+
+            Map<Object, Object> batch;
+            boolean removeAll;
+            synchronized ( lock )
+            {
+                if ( pending.isEmpty() && !removeAllPending )
+                {
+                    return;
+                }
+                batch = pending;
+                removeAll = removeAllPending;
+                pending = new LinkedHashMap<Object, Object>();
+                removeAllPending = false;
+            }
+
+            try
+            {
+                write( batch, removeAll );
+            }
+            catch ( RuntimeException e )
+            {
+                failedFlushes.incrementAndGet();
+                requeue( batch, removeAll );
+                throw e;
+            }
+        }
+        finally
+        {
+            flushLock.unlock();
+        }
+    }
+
+    private void write( Map<Object, Object> batch, boolean removeAll )
+    {
+        if ( removeAll )
+        {
+            cache.removeAll();
+        }
+
+        Map<Object, Object> puts = new HashMap<Object, Object>();
+        Set<Object> removes = new HashSet<Object>();
+        for ( Entry<Object, Object> write : batch.entrySet() )
+        {
+            if ( REMOVED == write.getValue() )
+            {
+                removes.add( write.getKey() );
+            }
+            else
+            {
+                puts.put( write.getKey(), write.getValue() );
+            }
+        }
+
+        if ( !puts.isEmpty() )
+        {
+            cache.putAll( puts );
+        }
+        if ( !removes.isEmpty() )
+        {
+            cache.removeAll( removes );
+        }
+
+        flushedBatches.incrementAndGet();
+        flushedWrites.addAndGet( batch.size() );
+    }
+
+    /**
+     * Puts back the writes of a failed batch, unless superseded in the meanwhile.
+     */
+    private void requeue( Map<Object, Object> batch, boolean removeAll )
+    {
+        synchronized ( lock )
+        {
+            if ( removeAllPending )
+            {
+                // cleared again in the meanwhile, the batch is obsolete
+                return;
+            }
+
+            Map<Object, Object> requeued = new LinkedHashMap<Object, Object>( batch );
+            requeued.putAll( pending );
+            pending = requeued;
+            removeAllPending = removeAll;
+        }
+    }
+
+    public String getCacheName()
+    {
+        return cache.getName();
+    }
+
+    public int getQueueDepth()
+    {
+        synchronized ( lock )
+        {
+            return pending.size();
+        }
+    }
+
+    public long getQueuedWrites()
+    {
+        return queuedWrites.get();
+    }
+
+    public long getCoalescedWrites()
+    {
+        return coalescedWrites.get();
+    }
+
+    public long getFlushedBatches()
+    {
+        return flushedBatches.get();
+    }
+
+    public long getFlushedWrites()
+    {
+        return flushedWrites.get();
+    }
+
+    public long getFailedFlushes()
+    {
+        return failedFlushes.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CacheWriteBehindQueue[cacheName=" + getCacheName()
+            + ", queueDepth=" + getQueueDepth()
+            + ", queuedWrites=" + getQueuedWrites()
+            + ", coalescedWrites=" + getCoalescedWrites()
+            + ", flushedBatches=" + getFlushedBatches()
+            + ", flushedWrites=" + getFlushedWrites()
+            + ", failedFlushes=" + getFailedFlushes()
+            + "]";
+    }
+
+}
@@ -0,0 +1,61 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * JMX view of a {@link CacheWriteBehindQueue}.
+ *
+ * @since 0.1.0
+ */
+public interface CacheWriteBehindQueueMBean
+{
+
+    String getCacheName();
+
+    /**
+     * @return the number of keys waiting to be written
+     */
+    int getQueueDepth();
+
+    /**
+     * @return the number of writes queued since the creation
+     */
+    long getQueuedWrites();
+
+    /**
+     * @return the number of queued writes superseded by a later write of the same key before being flushed
+     */
+    long getCoalescedWrites();
+
+    long getFlushedBatches();
+
+    /**
+     * @return the number of keys written to the cache
+     */
+    long getFlushedWrites();
+
+    long getFailedFlushes();
+
+    /**
+     * Writes the pending keys to the cache, waiting for the flush in progress, if any.
+     */
+    void flush();
+
+}
@@ -0,0 +1,336 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.Cache;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.google.inject.Singleton;
+
+/**
+ * Owns the {@link CacheWriteBehindQueue}s of an injector, one per cache written behind, and the thread that flushes
+ * them. Each queue is registered as MBean in the {@code org.apache.onami.cache} domain, i.e.
+ * {@code type=WriteBehind,name=<cache>}.
+ *
+ * Queues are flushed by a JVM shutdown hook, applications stopping caches earlier should {@link #shutdown()} first,
+ * i.e. injecting this class.
+ *
+ * @since 0.1.0
+ */
+@Singleton
+public class CacheWriteBehindQueues
+{
+
+    private static final String DOMAIN = "org.apache.onami.cache";
+
+    /**
+     * {@code null} if queues are not exposed through JMX.
+     */
+    private final MBeanServer mBeanServer;
+
+    private final ConcurrentMap<Cache<?, ?>, CacheWriteBehindQueue> queues =
+        new ConcurrentHashMap<Cache<?, ?>, CacheWriteBehindQueue>();
+
+    private final ConcurrentMap<ObjectName, Boolean> registeredNames = new ConcurrentHashMap<ObjectName, Boolean>();
+
+    /**
+     * Created with the first queue, nothing runs until a method writes behind.
+     */
+    private ScheduledExecutorService flusher;
+
+    private Thread shutdownHook;
+
+    private volatile boolean shutdown;
+
+    /**
+     * Creates new queues registered in the platform {@code MBeanServer}.
+     */
+    public CacheWriteBehindQueues()
+    {
+        this( ManagementFactory.getPlatformMBeanServer() );
+    }
+
+    /**
+     * @param mBeanServer the server the queues are registered in, {@code null} to not expose them through JMX
+     */
+    public CacheWriteBehindQueues( MBeanServer mBeanServer )
+    {
+        this.mBeanServer = mBeanServer;
+    }
+
+    /**
+     * @param cacheName the name of a cache written behind
+     * @return the queue of the named cache, {@code null} if not written behind
+     */
+    public CacheWriteBehindQueue getQueue( String cacheName )
+    {
+        for ( CacheWriteBehindQueue queue : queues.values() )
+        {
+            if ( queue.getCacheName().equals( cacheName ) )
+            {
+                return queue;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes all the pending keys to their caches.
+     */
+    public void flush()
+    {
+        RuntimeException failure = null;
+        for ( CacheWriteBehindQueue queue : queues.values() )
+        {
+            try
+            {
+                queue.flush();
+            }
+            catch ( RuntimeException e )
+            {
+                // keep flushing the other caches
+                failure = e;
+            }
+        }
+        if ( failure != null )
+        {
+            throw failure;
+        }
+    }
+
+    /**
+     * Stops the timed flushes and writes all the pending keys; later writes are applied on the caller's thread.
+     */
+    public void shutdown()
+    {
+        ScheduledExecutorService stoppedFlusher;
+        synchronized ( this )
+        {
+            shutdown = true;
+            stoppedFlusher = flusher;
+            flusher = null;
+            if ( shutdownHook != null )
+            {
+                try
+                {
+                    Runtime.getRuntime().removeShutdownHook( shutdownHook );
+                }
+                catch ( IllegalStateException e )
+                {
+                    // invoked while the JVM is shutting down
+                }
+                shutdownHook = null;
+            }
+        }
+
+        if ( stoppedFlusher != null )
+        {
+            stoppedFlusher.shutdown();
+        }
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            unregisterMBeans();
+        }
+    }
+
+    /**
+     * @return the queue of the given cache, {@code null} once shut down
+     */
+    CacheWriteBehindQueue getQueue( Cache<Object, Object> cache, CacheWriteBehind settings )
+    {
+        if ( shutdown )
+        {
+            return null;
+        }
+
+        CacheWriteBehindQueue queue = queues.get( cache );
+        if ( queue == null )
+        {
+            synchronized ( this )
+            {
+                queue = queues.get( cache );
+                if ( queue == null )
+                {
+                    if ( shutdown )
+                    {
+                        return null;
+                    }
+                    queue = new CacheWriteBehindQueue( cache, settings.batchSize(), settings.maxQueueSize() );
+                    schedule( queue, settings.unit().toMillis( settings.flushInterval() ) );
+                    register( queue );
+                    queues.put( cache, queue );
+                }
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * Schedules an immediate flush of the given queue, unless already requested.
+     */
+    void requestFlush( CacheWriteBehindQueue queue )
+    {
+        if ( !queue.requestFlush() )
+        {
+            return;
+        }
+
+        ScheduledExecutorService currentFlusher;
+        synchronized ( this )
+        {
+            currentFlusher = flusher;
+        }
+
+        if ( currentFlusher != null )
+        {
+            try
+            {
+                currentFlusher.execute( new FlushTask( queue ) );
+                return;
+            }
+            catch ( RejectedExecutionException e )
+            {
+                // shut down in the meanwhile
+            }
+        }
+        queue.flush();
+    }
+
+    private void schedule( CacheWriteBehindQueue queue, long flushIntervalMillis )
+    {
+        if ( flusher == null )
+        {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor( 1, new ThreadFactory()
+            {
+
+                public Thread newThread( Runnable runnable )
+                {
+                    Thread thread = new Thread( runnable, "onami-cache-write-behind" );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+
+            } );
+            executor.setExecuteExistingDelayedTasksAfterShutdownPolicy( false );
+            flusher = executor;
+
+            shutdownHook = new Thread( "onami-cache-write-behind-shutdown" )
+            {
+
+                @Override
+                public void run()
+                {
+                    flush();
+                }
+
+            };
+            Runtime.getRuntime().addShutdownHook( shutdownHook );
+        }
+
+        long delay = Math.max( 1L, flushIntervalMillis );
+        flusher.scheduleWithFixedDelay( new FlushTask( queue ), delay, delay, TimeUnit.MILLISECONDS );
+    }
+
+    private void register( CacheWriteBehindQueue queue )
+    {
+        if ( mBeanServer == null )
+        {
+            return;
+        }
+
+        try
+        {
+            ObjectName name = new ObjectName( DOMAIN + ":type=WriteBehind,name=" + ObjectName.quote( queue.getCacheName() ) );
+            mBeanServer.registerMBean( queue, name );
+            registeredNames.put( name, Boolean.TRUE );
+        }
+        catch ( InstanceAlreadyExistsException e )
+        {
+            // exposed by another injector, the queue works anyway
+        }
+        catch ( JMException e )
+        {
+            throw new IllegalStateException( "Impossible to register the write-behind queue MBean", e );
+        }
+    }
+
+    private void unregisterMBeans()
+    {
+        for ( ObjectName name : registeredNames.keySet() )
+        {
+            registeredNames.remove( name );
+            try
+            {
+                mBeanServer.unregisterMBean( name );
+            }
+            catch ( InstanceNotFoundException e )
+            {
+                // already unregistered by someone else
+            }
+            catch ( JMException e )
+            {
+                throw new IllegalStateException( "Impossible to unregister MBean " + name, e );
+            }
+        }
+    }
+
+    private static final class FlushTask
+        implements Runnable
+    {
+
+        private final CacheWriteBehindQueue queue;
+
+        public FlushTask( CacheWriteBehindQueue queue )
+        {
+            this.queue = queue;
+        }
+
+        public void run()
+        {
+            try
+            {
+                queue.flush();
+            }
+            catch ( RuntimeException e )
+            {
+                // retried with the next flush, a failure must not cancel the timed flushes
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,107 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.util.Arrays.deepEquals;
+import static java.util.Arrays.deepHashCode;
+import static java.util.Arrays.deepToString;
+
+import javax.cache.annotation.CacheKey;
+
+/**
+ * The key of any list of parameters, arrays included; hashed like the {@link CacheKeys} of the same parameters, and
+ * equal to them.
+ */
+final class DefaultCacheKey
+    implements CacheKey
+{
+
+    private static final long serialVersionUID = 2L;
+
+    private final Object[] parameters;
+
+    private final int hashCode;
+
+    public DefaultCacheKey( Object[] parameters )
+    {
+        this.parameters = parameters;
+        this.hashCode = hash( parameters );
+    }
+
+    private static int hash( Object[] parameters )
+    {
+        int hash = 0;
+        for ( Object parameter : parameters )
+        {
+            int parameterHash;
+            if ( parameter != null && parameter.getClass().isArray() )
+            {
+                parameterHash = deepHashCode( new Object[] { parameter } );
+            }
+            else
+            {
+                parameterHash = CacheKeys.hash( parameter );
+            }
+            hash = 31 * hash + parameterHash;
+        }
+        return hash;
+    }
+
+    /**
+     * @param expected the parameters of a specialized key
+     * @return true if this key is made of the expected parameters
+     */
+    boolean hasParameters( Object... expected )
+    {
+        return deepEquals( parameters, expected );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals( Object obj )
+    {
+        if ( this == obj )
+        {
+            return true;
+        }
+        if ( obj instanceof CacheKeys.SpecializedKey )
+        {
+            return obj.equals( this );
+        }
+        if ( obj == null || getClass() != obj.getClass() )
+        {
+            return false;
+        }
+        DefaultCacheKey other = (DefaultCacheKey) obj;
+        return hashCode == other.hashCode && deepEquals( parameters, other.parameters );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "DefaultCacheKey" + deepToString( parameters );
+    }
+
+}
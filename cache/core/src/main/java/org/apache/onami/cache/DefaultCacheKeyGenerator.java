@@ -0,0 +1,60 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.annotation.Annotation;
+
+import javax.cache.annotation.CacheInvocationParameter;
+import javax.cache.annotation.CacheKey;
+import javax.cache.annotation.CacheKeyGenerator;
+import javax.cache.annotation.CacheKeyInvocationContext;
+
+/**
+ * The default {@link CacheKeyGenerator}, builds keys from the values of all the key parameters.
+ *
+ * Keys of intercepted invocations with up to three key parameters are specialized by number of parameters, see
+ * {@link CacheKeys}; they are equal to, and hash like, the keys generated for the same parameters from any other
+ * invocation context.
+ *
+ * @since 0.1.0
+ */
+public final class DefaultCacheKeyGenerator
+    implements CacheKeyGenerator
+{
+
+    public CacheKey generateCacheKey( CacheKeyInvocationContext<? extends Annotation> cacheKeyInvocationContext )
+    {
+        if ( cacheKeyInvocationContext instanceof DefaultCacheKeyInvocationContext<?> )
+        {
+            // intercepted invocation: the key is built straight from the arguments, no parameters wrapping
+            DefaultCacheKeyInvocationContext<?> context = (DefaultCacheKeyInvocationContext<?>) cacheKeyInvocationContext;
+            return CacheKeys.newCacheKey( context.getArguments(), context.getMetadata().getKeyParameterIndexes() );
+        }
+
+        CacheInvocationParameter[] keyParameters = cacheKeyInvocationContext.getKeyParameters();
+        Object[] parameters = new Object[keyParameters.length];
+        for ( int i = 0; i < keyParameters.length; i++ )
+        {
+            parameters[i] = keyParameters[i].getValue();
+        }
+        return new DefaultCacheKey( parameters );
+    }
+
+}
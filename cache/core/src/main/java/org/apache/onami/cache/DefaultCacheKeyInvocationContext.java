@@ -0,0 +1,156 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Set;
+
+import javax.cache.annotation.CacheInvocationParameter;
+import javax.cache.annotation.CacheKeyInvocationContext;
+
+import com.google.inject.Injector;
+
+final class DefaultCacheKeyInvocationContext<A extends Annotation>
+    implements CacheKeyInvocationContext<A>
+{
+
+    private final Injector injector;
+
+    private final CacheMethodMetadata<A> metadata;
+
+    private final Object target;
+
+    private final Object[] arguments;
+
+    private CacheInvocationParameter[] allParameters;
+
+    private CacheInvocationParameter[] keyParameters;
+
+    public DefaultCacheKeyInvocationContext( Injector injector,
+                                             CacheMethodMetadata<A> metadata,
+                                             Object target,
+                                             Object[] arguments )
+    {
+        this.injector = injector;
+        this.metadata = metadata;
+        this.target = target;
+        this.arguments = arguments;
+    }
+
+    final CacheMethodMetadata<A> getMetadata()
+    {
+        return metadata;
+    }
+
+    final Object[] getArguments()
+    {
+        return arguments;
+    }
+
+    /**
+     * @param otherArguments the arguments of the new context
+     * @return a context of the same invocation, with different arguments
+     */
+    final DefaultCacheKeyInvocationContext<A> withArguments( Object[] otherArguments )
+    {
+        return new DefaultCacheKeyInvocationContext<A>( injector, metadata, target, otherArguments );
+    }
+
+    public final Method getMethod()
+    {
+        return metadata.getMethod();
+    }
+
+    public final Set<Annotation> getAnnotations()
+    {
+        return metadata.getAnnotations();
+    }
+
+    public final A getCacheAnnotation()
+    {
+        return metadata.getCacheAnnotation();
+    }
+
+    public final String getCacheName()
+    {
+        return metadata.getCacheName();
+    }
+
+    public final Object getTarget()
+    {
+        return target;
+    }
+
+    public final CacheInvocationParameter[] getAllParameters()
+    {
+        // parameters are wrapped only when a key generator really asks for them
+        if ( allParameters == null )
+        {
+            CacheInvocationParameter[] parameters = new CacheInvocationParameter[arguments.length];
+            for ( int i = 0; i < arguments.length; i++ )
+            {
+                parameters[i] = metadata.newInvocationParameter( i, arguments[i] );
+            }
+            allParameters = parameters;
+        }
+        return allParameters;
+    }
+
+    public final <T> T unwrap( Class<T> cls )
+    {
+        return injector.getInstance( cls );
+    }
+
+    public CacheInvocationParameter[] getKeyParameters()
+    {
+        if ( keyParameters == null )
+        {
+            CacheInvocationParameter[] parameters = getAllParameters();
+            int[] keyParameterIndexes = metadata.getKeyParameterIndexes();
+
+            if ( keyParameterIndexes.length == parameters.length )
+            {
+                keyParameters = parameters;
+            }
+            else
+            {
+                CacheInvocationParameter[] keys = new CacheInvocationParameter[keyParameterIndexes.length];
+                for ( int i = 0; i < keyParameterIndexes.length; i++ )
+                {
+                    keys[i] = parameters[keyParameterIndexes[i]];
+                }
+                keyParameters = keys;
+            }
+        }
+        return keyParameters;
+    }
+
+    public CacheInvocationParameter getValueParameter()
+    {
+        int valueParameterIndex = metadata.getValueParameterIndex();
+        if ( valueParameterIndex < 0 )
+        {
+            return null;
+        }
+        return getAllParameters()[valueParameterIndex];
+    }
+
+}
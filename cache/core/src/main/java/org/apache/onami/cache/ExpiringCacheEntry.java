@@ -19,30 +19,21 @@ package org.apache.onami.cache;
  * under the License.
  */
 
-import javax.cache.annotation.CacheInvocationContext;
-import javax.cache.annotation.CacheResult;
-
-import org.aopalliance.intercept.MethodInvocation;
+import javax.cache.Cache;
 
 /**
+ * Implemented by the {@code javax.cache.Cache.Entry} of providers that expose when entries expire, so that cache
+ * snapshots can skip entries expired before being restored.
  *
+ * @since 0.1.0
  */
-final class CacheResultInterceptor
-    extends CacheInterceptor<CacheResult>
+public interface ExpiringCacheEntry
 {
 
-    @Override
-    public Class<CacheResult> getInterceptedAnnotationType()
-    {
-        return CacheResult.class;
-    }
-
-    @Override
-    protected Object invoke( CacheInvocationContext<CacheResult> context, MethodInvocation invocation )
-        throws Throwable
-    {
-        // TODO Auto-generated method stub
-        return null;
-    }
+    /**
+     * @return the wall clock time, in milliseconds, the entry expires at, {@code Long.MAX_VALUE} if it never expires
+     * @see Cache.Entry
+     */
+    long getExpirationTime();
 
 }
@@ -0,0 +1,146 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Registry of the method invocations currently loading a cache key, used to let concurrent misses on the same
+ * key wait for a single invocation instead of hitting the backend N times.
+ */
+final class InFlightCalls
+{
+
+    private final ConcurrentMap<Object, Call> calls = new ConcurrentHashMap<Object, Call>();
+
+    /**
+     * Creates a new call that loads the input key, not yet registered, led by the current thread.
+     *
+     * @param key the key to be loaded
+     * @return a new, not registered, call
+     */
+    public Call newCall( Object key )
+    {
+        return new Call( key );
+    }
+
+    /**
+     * Registers the input call unless another one is already loading the same key.
+     *
+     * @param call the call to be registered
+     * @return the call already in flight for the same key, {@code null} if the input call has been registered and
+     *         the caller is in charge of completing it
+     */
+    public Call putIfAbsent( Call call )
+    {
+        return calls.putIfAbsent( call.key, call );
+    }
+
+    final class Call
+    {
+
+        private final Object key;
+
+        private final Thread leader = Thread.currentThread();
+
+        private final CountDownLatch done = new CountDownLatch( 1 );
+
+        private volatile Object result;
+
+        private volatile Throwable failure;
+
+        private Call( Object key )
+        {
+            this.key = key;
+        }
+
+        public void complete( Object result )
+        {
+            this.result = result;
+            release();
+        }
+
+        public void fail( Throwable failure )
+        {
+            this.failure = failure;
+            release();
+        }
+
+        private void release()
+        {
+            calls.remove( key, this );
+            done.countDown();
+        }
+
+        /**
+         * @return true if the current thread is the one in charge of completing the call: waiting for it would
+         *         never end, e.g. when the loading method requests the same key recursively
+         */
+        public boolean isLedByCurrentThread()
+        {
+            return leader == Thread.currentThread();
+        }
+
+        /**
+         * Waits for the call to complete, sharing its outcome.
+         *
+         * @return the result of the call
+         * @throws Throwable the same error thrown by the call
+         */
+        public Object await()
+            throws Throwable
+        {
+            boolean interrupted = false;
+            try
+            {
+                while ( true )
+                {
+                    try
+                    {
+                        done.await();
+                        break;
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        // the leader is going to complete anyway, keep waiting
+                        interrupted = true;
+                    }
+                }
+            }
+            finally
+            {
+                if ( interrupted )
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            if ( failure != null )
+            {
+                throw failure;
+            }
+            return result;
+        }
+
+    }
+
+}
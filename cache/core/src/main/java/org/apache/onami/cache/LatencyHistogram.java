@@ -0,0 +1,99 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies, in nanoseconds, with power of two buckets: percentiles are approximated by
+ * the upper bound of the bucket they fall in.
+ */
+final class LatencyHistogram
+{
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray( BUCKETS );
+
+    private final StripedCounter count = new StripedCounter();
+
+    private final StripedCounter total = new StripedCounter();
+
+    public void record( long nanos )
+    {
+        long value = Math.max( 0L, nanos );
+        buckets.incrementAndGet( BUCKETS - 1 - Long.numberOfLeadingZeros( value | 1L ) );
+        count.increment();
+        total.add( value );
+    }
+
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    public long getMean()
+    {
+        long samples = count.sum();
+        return samples == 0L ? 0L : total.sum() / samples;
+    }
+
+    /**
+     * @param percentile the percentile, between {@code 0} and {@code 100}
+     * @return the upper bound of the bucket the percentile falls in, {@code 0} if nothing has been recorded
+     */
+    public long getPercentile( double percentile )
+    {
+        long[] snapshot = new long[BUCKETS];
+        long samples = 0L;
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            snapshot[i] = buckets.get( i );
+            samples += snapshot[i];
+        }
+        if ( samples == 0L )
+        {
+            return 0L;
+        }
+
+        long rank = (long) Math.ceil( samples * percentile / 100d );
+        long seen = 0L;
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            seen += snapshot[i];
+            if ( seen >= Math.max( 1L, rank ) )
+            {
+                return i == BUCKETS - 1 ? Long.MAX_VALUE : ( 1L << ( i + 1 ) ) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public void reset()
+    {
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            buckets.set( i, 0L );
+        }
+        count.reset();
+        total.reset();
+    }
+
+}
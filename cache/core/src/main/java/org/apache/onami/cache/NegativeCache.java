@@ -0,0 +1,81 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Companion of {@code javax.cache.annotation.CacheResult} that enables <i>negative caching</i>: {@code null} results
+ * and the selected exceptions are cached, for a short time, apart from the cached values, in a bounded in-memory
+ * cache per method. Repeated misses and deterministic failures are then served without invoking the method again.
+ *
+ * Negative entries are looked up after the cached values, so a value put in the cache meanwhile wins; they are
+ * never written to the {@code javax.cache.Cache}. {@code null} results are negatively cached, when enabled, even if
+ * {@code CacheResult.cacheNull()} is set.
+ *
+ * When placed on a type, all the {@code CacheResult} methods declared by that type cache negative results, unless
+ * they are annotated too.
+ *
+ * @since 0.1.0
+ */
+@Documented
+@Retention( RUNTIME )
+@Target( { TYPE, METHOD } )
+public @interface NegativeCache
+{
+
+    /**
+     * @return how long {@code null} results are cached, {@code 0} to not cache them
+     */
+    long nullTimeToLive() default 30L;
+
+    /**
+     * @return how long exceptions are cached, {@code 0} to not cache them
+     */
+    long exceptionTimeToLive() default 5L;
+
+    /**
+     * @return the unit of {@link #nullTimeToLive()} and {@link #exceptionTimeToLive()}
+     */
+    TimeUnit unit() default TimeUnit.SECONDS;
+
+    /**
+     * @return the maximum number of negative entries, the least recently used are evicted first
+     */
+    int maximumSize() default 1000;
+
+    /**
+     * @return the exceptions to cache, all but {@link #nonCachedExceptions()} if empty
+     */
+    Class<? extends Throwable>[] cachedExceptions() default {};
+
+    /**
+     * @return the exceptions not to cache, overriding {@link #cachedExceptions()}
+     */
+    Class<? extends Throwable>[] nonCachedExceptions() default {};
+
+}
@@ -0,0 +1,179 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The bounded, expiring, store of the negative results of a {@link NegativeCache} method: striped access ordered
+ * maps, each one bounded to its share of the maximum size.
+ */
+final class NegativeResultCache
+{
+
+    private static final int STRIPES = 16;
+
+    private final NegativeCache settings;
+
+    private final long nullTimeToLiveNanos;
+
+    private final long exceptionTimeToLiveNanos;
+
+    private final Stripe[] stripes;
+
+    public NegativeResultCache( NegativeCache settings )
+    {
+        this.settings = settings;
+        this.nullTimeToLiveNanos = settings.unit().toNanos( settings.nullTimeToLive() );
+        this.exceptionTimeToLiveNanos = settings.unit().toNanos( settings.exceptionTimeToLive() );
+
+        int stripeMaximumSize = Math.max( 1, settings.maximumSize() / STRIPES );
+        stripes = new Stripe[STRIPES];
+        for ( int i = 0; i < STRIPES; i++ )
+        {
+            stripes[i] = new Stripe( stripeMaximumSize );
+        }
+    }
+
+    public boolean isCachingNull()
+    {
+        return nullTimeToLiveNanos > 0;
+    }
+
+    /**
+     * @return true if the given exception has to be cached
+     */
+    public boolean isCaching( Throwable exception )
+    {
+        return exceptionTimeToLiveNanos > 0
+            && CacheInterceptor.include( exception, settings.cachedExceptions(), settings.nonCachedExceptions(), true );
+    }
+
+    /**
+     * @return the negative result cached for the key, {@code null} if none
+     */
+    public Entry get( Object key )
+    {
+        Stripe stripe = stripeFor( key );
+        synchronized ( stripe )
+        {
+            Entry entry = stripe.get( key );
+            if ( entry != null && entry.hasExpired( System.nanoTime() ) )
+            {
+                stripe.remove( key );
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    public void putNull( Object key )
+    {
+        put( key, new Entry( null, System.nanoTime() + nullTimeToLiveNanos ) );
+    }
+
+    public void putException( Object key, Throwable exception )
+    {
+        put( key, new Entry( exception, System.nanoTime() + exceptionTimeToLiveNanos ) );
+    }
+
+    /**
+     * Discards the negative result of the key, superseded by a value.
+     */
+    public void remove( Object key )
+    {
+        Stripe stripe = stripeFor( key );
+        synchronized ( stripe )
+        {
+            stripe.remove( key );
+        }
+    }
+
+    private void put( Object key, Entry entry )
+    {
+        Stripe stripe = stripeFor( key );
+        synchronized ( stripe )
+        {
+            stripe.put( key, entry );
+        }
+    }
+
+    private Stripe stripeFor( Object key )
+    {
+        int hash = key.hashCode();
+        hash ^= ( hash >>> 16 );
+        return stripes[hash & ( STRIPES - 1 )];
+    }
+
+    /**
+     * A negative result: {@code null} or an exception.
+     */
+    static final class Entry
+    {
+
+        private final Throwable exception;
+
+        private final long expiresAt;
+
+        Entry( Throwable exception, long expiresAt )
+        {
+            this.exception = exception;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * @return the cached exception, {@code null} if the result was {@code null}
+         */
+        public Throwable getException()
+        {
+            return exception;
+        }
+
+        boolean hasExpired( long now )
+        {
+            return now - expiresAt >= 0;
+        }
+
+    }
+
+    private static final class Stripe
+        extends LinkedHashMap<Object, Entry>
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumSize;
+
+        Stripe( int maximumSize )
+        {
+            super( 16, 0.75f, true );
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<Object, Entry> eldest )
+        {
+            return size() > maximumSize;
+        }
+
+    }
+
+}
@@ -0,0 +1,63 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Serializable;
+
+/**
+ * The cached form of the results of {@link CacheRefresh} methods, remembering when they have to be refreshed.
+ */
+final class RefreshableValue
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+
+    private final Object value;
+
+    private final long refreshAt;
+
+    public RefreshableValue( Object value, long refreshAt )
+    {
+        this.value = value;
+        this.refreshAt = refreshAt;
+    }
+
+    public Object getValue()
+    {
+        return value;
+    }
+
+    /**
+     * @param now the current time, in milliseconds
+     * @return true if the value has to be refreshed
+     */
+    public boolean isStale( long now )
+    {
+        return now >= refreshAt;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RefreshableValue[" + value + "]";
+    }
+
+}
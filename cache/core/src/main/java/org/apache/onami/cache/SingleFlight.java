@@ -0,0 +1,45 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Companion of {@code javax.cache.annotation.CacheResult} that enables the <i>single-flight</i> mode: when
+ * several threads miss the same key at the same time, only one of them invokes the intercepted method while the
+ * others wait for - and share - its outcome, being it a result or an exception.
+ *
+ * When placed on a type, all the {@code CacheResult} methods declared by that type are single-flight.
+ *
+ * @since 0.1.0
+ */
+@Documented
+@Retention( RUNTIME )
+@Target( { TYPE, METHOD } )
+public @interface SingleFlight
+{
+
+}
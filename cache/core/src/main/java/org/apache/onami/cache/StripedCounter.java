@@ -0,0 +1,82 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter spread over padded cells, each thread adding to the cell picked by its id, so that concurrent updates
+ * rarely contend on the same cache line; reads sum all the cells.
+ */
+final class StripedCounter
+{
+
+    /**
+     * Longs per cell, 64 bytes apart to avoid false sharing.
+     */
+    private static final int PADDING = 8;
+
+    private static final int STRIPES = ceilingPowerOfTwo( Runtime.getRuntime().availableProcessors() * 2 );
+
+    private static final int STRIPES_MASK = STRIPES - 1;
+
+    private final AtomicLongArray cells = new AtomicLongArray( STRIPES * PADDING );
+
+    public void increment()
+    {
+        add( 1L );
+    }
+
+    public void add( long delta )
+    {
+        cells.addAndGet( stripe() * PADDING, delta );
+    }
+
+    public long sum()
+    {
+        long sum = 0L;
+        for ( int i = 0; i < STRIPES; i++ )
+        {
+            sum += cells.get( i * PADDING );
+        }
+        return sum;
+    }
+
+    public void reset()
+    {
+        for ( int i = 0; i < STRIPES; i++ )
+        {
+            cells.set( i * PADDING, 0L );
+        }
+    }
+
+    private static int stripe()
+    {
+        long id = Thread.currentThread().getId();
+        int hash = (int) ( id ^ ( id >>> 32 ) ) * 0x9e3779b9;
+        return ( hash ^ ( hash >>> 16 ) ) & STRIPES_MASK;
+    }
+
+    private static int ceilingPowerOfTwo( int x )
+    {
+        return 1 << -Integer.numberOfLeadingZeros( x - 1 );
+    }
+
+}
@@ -0,0 +1,174 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import javax.cache.annotation.CacheKey;
+
+import org.junit.Test;
+
+public final class CacheKeysTestCase
+{
+
+    private static final int[] FIRST = { 0 };
+
+    private static final int[] FIRST_TWO = { 0, 1 };
+
+    private static final int[] FIRST_THREE = { 0, 1, 2 };
+
+    @Test
+    public void keysWithoutParametersAreShared()
+    {
+        CacheKey key = CacheKeys.newCacheKey( new Object[] { "ignored" }, new int[0] );
+
+        assertSame( CacheKeys.EMPTY, key );
+        assertEquals( CacheKeys.EMPTY.hashCode(), key.hashCode() );
+    }
+
+    @Test
+    public void keysAreEqualByParameters()
+    {
+        assertEqualKeys( key( FIRST, "a" ), key( FIRST, new String( "a" ) ) );
+        assertEqualKeys( key( FIRST_TWO, "a", 1 ), key( FIRST_TWO, "a", 1 ) );
+        assertEqualKeys( key( FIRST_THREE, "a", 1, null ), key( FIRST_THREE, "a", 1, null ) );
+        assertEqualKeys( key( FIRST, (Object) null ), key( FIRST, (Object) null ) );
+
+        assertFalse( key( FIRST, "a" ).equals( key( FIRST, "b" ) ) );
+        assertFalse( key( FIRST_TWO, "a", 1 ).equals( key( FIRST_TWO, "a", 2 ) ) );
+        assertFalse( key( FIRST_TWO, "a", 1 ).equals( key( FIRST_TWO, 1, "a" ) ) );
+        assertFalse( key( FIRST_THREE, "a", 1, null ).equals( key( FIRST_THREE, "a", 1, "c" ) ) );
+    }
+
+    @Test
+    public void keysOfDifferentArityAreDifferent()
+    {
+        assertFalse( key( FIRST, "a" ).equals( key( FIRST_TWO, "a", null ) ) );
+        assertFalse( key( FIRST_TWO, "a", null ).equals( key( FIRST, "a" ) ) );
+        assertFalse( key( FIRST_TWO, "a", 1 ).equals( key( FIRST_THREE, "a", 1, null ) ) );
+        assertFalse( CacheKeys.EMPTY.equals( key( FIRST, (Object) null ) ) );
+    }
+
+    @Test
+    public void keysAreBuiltFromTheKeyParametersOnly()
+    {
+        CacheKey key = CacheKeys.newCacheKey( new Object[] { "ignored", "a", 1 }, new int[] { 1, 2 } );
+
+        assertEqualKeys( key( FIRST_TWO, "a", 1 ), key );
+    }
+
+    @Test
+    public void enumsAreComparedByIdentity()
+        throws Exception
+    {
+        assertEqualKeys( key( FIRST, Color.RED ), key( FIRST, Color.RED ) );
+        assertFalse( key( FIRST, Color.RED ).equals( key( FIRST, Color.GREEN ) ) );
+        assertFalse( key( FIRST, Color.RED ).equals( key( FIRST, "RED" ) ) );
+
+        // the hash doesn't depend on the identity of the constant, so it survives serialization
+        CacheKey key = key( FIRST_TWO, Color.RED, "a" );
+        assertEqualKeys( key, deserialize( serialize( key ) ) );
+    }
+
+    @Test
+    public void arraysAreComparedElementByElement()
+    {
+        CacheKey key = key( FIRST_TWO, new int[] { 1, 2 }, "a" );
+
+        assertTrue( key instanceof DefaultCacheKey );
+        assertEqualKeys( key, key( FIRST_TWO, new int[] { 1, 2 }, "a" ) );
+        assertFalse( key.equals( key( FIRST_TWO, new int[] { 1, 3 }, "a" ) ) );
+    }
+
+    @Test
+    public void longParametersListsAreComparedElementByElement()
+    {
+        int[] firstFour = { 0, 1, 2, 3 };
+        CacheKey key = key( firstFour, "a", 1, 2L, Color.RED );
+
+        assertTrue( key instanceof DefaultCacheKey );
+        assertEqualKeys( key, key( firstFour, "a", 1, 2L, Color.RED ) );
+        assertFalse( key.equals( key( firstFour, "a", 1, 2L, Color.GREEN ) ) );
+    }
+
+    @Test
+    public void specializedKeysAreEqualToTheDefaultKeysOfTheSameParameters()
+    {
+        assertEqualKeys( CacheKeys.EMPTY, new DefaultCacheKey( new Object[0] ) );
+        assertEqualKeys( key( FIRST, "a" ), new DefaultCacheKey( new Object[] { "a" } ) );
+        assertEqualKeys( key( FIRST, (Object) null ), new DefaultCacheKey( new Object[] { null } ) );
+        assertEqualKeys( key( FIRST_TWO, "a", Color.RED ), new DefaultCacheKey( new Object[] { "a", Color.RED } ) );
+        assertEqualKeys( key( FIRST_THREE, "a", 1, null ), new DefaultCacheKey( new Object[] { "a", 1, null } ) );
+
+        assertFalse( key( FIRST, "a" ).equals( new DefaultCacheKey( new Object[] { "b" } ) ) );
+        assertFalse( new DefaultCacheKey( new Object[] { "a", null } ).equals( key( FIRST, "a" ) ) );
+        assertFalse( CacheKeys.EMPTY.equals( new DefaultCacheKey( new Object[] { null } ) ) );
+    }
+
+    private static CacheKey key( int[] keyParameterIndexes, Object... arguments )
+    {
+        return CacheKeys.newCacheKey( arguments, keyParameterIndexes );
+    }
+
+    private static void assertEqualKeys( CacheKey expected, CacheKey actual )
+    {
+        assertEquals( expected, actual );
+        assertEquals( actual, expected );
+        assertEquals( expected.hashCode(), actual.hashCode() );
+    }
+
+    private static byte[] serialize( Object object )
+        throws Exception
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream output = new ObjectOutputStream( bytes );
+        output.writeObject( object );
+        output.close();
+        return bytes.toByteArray();
+    }
+
+    private static CacheKey deserialize( byte[] bytes )
+        throws Exception
+    {
+        ObjectInputStream input = new ObjectInputStream( new ByteArrayInputStream( bytes ) );
+        try
+        {
+            return (CacheKey) input.readObject();
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+    private enum Color
+    {
+        RED, GREEN
+    }
+
+}
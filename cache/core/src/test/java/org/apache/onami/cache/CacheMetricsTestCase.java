@@ -0,0 +1,167 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import javax.cache.annotation.CacheKeyParam;
+import javax.cache.annotation.CachePut;
+import javax.cache.annotation.CacheRemoveAll;
+import javax.cache.annotation.CacheRemoveEntry;
+import javax.cache.annotation.CacheResult;
+import javax.cache.annotation.CacheValue;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+
+public final class CacheMetricsTestCase
+{
+
+    private MBeanServer mBeanServer;
+
+    private CacheMetrics metrics;
+
+    private Repository repository;
+
+    @Before
+    public void setUp()
+    {
+        mBeanServer = MBeanServerFactory.newMBeanServer();
+        metrics = new CacheMetrics( mBeanServer );
+        repository = Guice.createInjector( new MapCacheModule()
+        {
+
+            @Override
+            protected void configureMapCache()
+            {
+                bind( CacheMetricsRecorder.class ).toInstance( metrics );
+            }
+
+        } ).getInstance( Repository.class );
+    }
+
+    @After
+    public void tearDown()
+    {
+        metrics.unregisterMBeans();
+    }
+
+    @Test
+    public void invocationsAreRecordedPerCacheAndPerMethod()
+        throws Exception
+    {
+        repository.find( "a" );
+        repository.find( "a" );
+        repository.find( "b" );
+        repository.store( "c", "value" );
+        repository.remove( "a" );
+        repository.clear();
+        try
+        {
+            repository.fail( "a" );
+            fail( "IllegalStateException expected" );
+        }
+        catch ( IllegalStateException e )
+        {
+            // expected
+        }
+
+        CacheInterceptionStatistics cacheStatistics = metrics.getCacheStatistics( "metrics" );
+        assertEquals( 1, cacheStatistics.getHits() );
+        assertEquals( 3, cacheStatistics.getMisses() );
+        assertEquals( 1, cacheStatistics.getPuts() );
+        assertEquals( 2, cacheStatistics.getEvictions() );
+        assertEquals( 1, cacheStatistics.getErrors() );
+
+        CacheInterceptionStatistics findStatistics =
+            metrics.getMethodStatistics( Repository.class.getMethod( "find", String.class ) );
+        assertEquals( 1, findStatistics.getHits() );
+        assertEquals( 2, findStatistics.getMisses() );
+        assertEquals( 0, findStatistics.getErrors() );
+
+        CacheInterceptionStatistics removeStatistics =
+            metrics.getMethodStatistics( Repository.class.getMethod( "remove", String.class ) );
+        assertEquals( 1, removeStatistics.getEvictions() );
+        assertEquals( 0, removeStatistics.getPuts() );
+    }
+
+    @Test
+    public void statisticsAreRegisteredAsMBeans()
+        throws Exception
+    {
+        repository.find( "a" );
+        repository.find( "a" );
+
+        ObjectName cacheName = new ObjectName( "org.apache.onami.cache:type=Cache,name=\"metrics\"" );
+        assertTrue( mBeanServer.isRegistered( cacheName ) );
+        assertEquals( 1L, mBeanServer.getAttribute( cacheName, "Hits" ) );
+        assertEquals( 1L, mBeanServer.getAttribute( cacheName, "Misses" ) );
+        assertEquals( 1, mBeanServer.queryNames( new ObjectName( "org.apache.onami.cache:type=CacheMethod,*" ),
+                                                 null ).size() );
+
+        metrics.unregisterMBeans();
+        assertFalse( mBeanServer.isRegistered( cacheName ) );
+    }
+
+    public static class Repository
+    {
+
+        @CacheResult( cacheName = "metrics" )
+        public String find( String key )
+        {
+            return key + "-value";
+        }
+
+        @CacheResult( cacheName = "metrics" )
+        public String fail( String key )
+        {
+            throw new IllegalStateException( key + " is failing" );
+        }
+
+        @CachePut( cacheName = "metrics" )
+        public void store( @CacheKeyParam String key, @CacheValue String value )
+        {
+            // only cached
+        }
+
+        @CacheRemoveEntry( cacheName = "metrics" )
+        public void remove( String key )
+        {
+            // only removed from the cache
+        }
+
+        @CacheRemoveAll( cacheName = "metrics" )
+        public void clear()
+        {
+            // only removed from the cache
+        }
+
+    }
+
+}
@@ -0,0 +1,240 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.cache.annotation.CacheResult;
+import javax.management.MBeanServerFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Singleton;
+
+public final class CacheRefreshTestCase
+{
+
+    private static final long REFRESH_AFTER_MILLIS = 100;
+
+    private Backend backend;
+
+    private CacheMetrics metrics;
+
+    @Before
+    public void setUp()
+    {
+        metrics = new CacheMetrics( MBeanServerFactory.newMBeanServer() );
+        backend = Guice.createInjector( new MapCacheModule()
+        {
+
+            @Override
+            protected void configureMapCache()
+            {
+                bind( CacheMetricsRecorder.class ).toInstance( metrics );
+            }
+
+        } ).getInstance( Backend.class );
+    }
+
+    @After
+    public void tearDown()
+    {
+        metrics.unregisterMBeans();
+        backend.release.countDown();
+        backend.loader.shutdownNow();
+    }
+
+    @Test
+    public void freshValuesAreNotRefreshed()
+        throws Exception
+    {
+        assertEquals( "key-1", backend.find( "key" ) );
+        assertEquals( "key-1", backend.find( "key" ) );
+        assertEquals( 1, backend.invocations.get() );
+    }
+
+    @Test
+    public void staleValuesAreServedWhileRefreshed()
+        throws Exception
+    {
+        assertEquals( "key-1", backend.find( "key" ) );
+        Thread.sleep( REFRESH_AFTER_MILLIS * 2 );
+
+        // triggers the refresh, which waits for the release
+        assertEquals( "key-1", backend.find( "key" ) );
+        awaitInvocations( 2 );
+        assertEquals( "key-1", backend.find( "key" ) );
+        assertEquals( 2, backend.invocations.get() );
+
+        backend.release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while ( !"key-2".equals( backend.find( "key" ) ) )
+        {
+            assertTrue( "The refreshed value wasn't cached", System.currentTimeMillis() < deadline );
+            Thread.sleep( 10 );
+        }
+
+        // only the first call missed, the refresh ran in background
+        assertEquals( 1, metrics.getCacheStatistics( "refresh-ahead-sync" ).getMisses() );
+    }
+
+    @Test
+    public void futuresAreCachedAsSoonAsReturned()
+        throws Exception
+    {
+        Future<String> future = backend.load( "key" );
+
+        assertSame( future, backend.load( "key" ) );
+        assertEquals( "key-1", future.get( 5, TimeUnit.SECONDS ) );
+        assertEquals( 1, backend.invocations.get() );
+    }
+
+    @Test
+    public void staleReadsDontWaitForTheRefreshedFuture()
+        throws Exception
+    {
+        assertEquals( "key-1", backend.load( "key" ).get( 5, TimeUnit.SECONDS ) );
+        Thread.sleep( REFRESH_AFTER_MILLIS * 2 );
+
+        // triggers the refresh, whose future waits for the release
+        assertStaleValue( backend.load( "key" ) );
+        awaitInvocations( 2 );
+        assertStaleValue( backend.load( "key" ) );
+
+        backend.release.countDown();
+        awaitValue( "key-2" );
+    }
+
+    @Test
+    public void failedRefreshKeepsTheStaleFuture()
+        throws Exception
+    {
+        assertEquals( "failing-1", backend.load( "failing" ).get( 5, TimeUnit.SECONDS ) );
+        Thread.sleep( REFRESH_AFTER_MILLIS * 2 );
+
+        assertEquals( "failing-1", backend.load( "failing" ).get( 5, TimeUnit.SECONDS ) );
+        awaitInvocations( 2 );
+        backend.release.countDown();
+
+        // the stale reads start another refresh once the failed one is over, meanwhile they keep its value
+        long deadline = System.currentTimeMillis() + 5000;
+        while ( backend.invocations.get() < 3 )
+        {
+            assertTrue( "The method wasn't refreshed again", System.currentTimeMillis() < deadline );
+            assertEquals( "failing-1", backend.load( "failing" ).get( 5, TimeUnit.SECONDS ) );
+            Thread.sleep( 10 );
+        }
+        assertEquals( "failing-1", backend.load( "failing" ).get( 5, TimeUnit.SECONDS ) );
+    }
+
+    private static void assertStaleValue( Future<String> future )
+        throws Exception
+    {
+        assertTrue( "The stale future was replaced by the running one", future.isDone() );
+        assertEquals( "key-1", future.get() );
+    }
+
+    private void awaitInvocations( int invocations )
+        throws Exception
+    {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ( backend.invocations.get() < invocations )
+        {
+            assertTrue( "The method wasn't refreshed", System.currentTimeMillis() < deadline );
+            Thread.sleep( 10 );
+        }
+    }
+
+    private void awaitValue( String expected )
+        throws Exception
+    {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ( !expected.equals( backend.load( "key" ).get( 5, TimeUnit.SECONDS ) ) )
+        {
+            assertTrue( "The refreshed value wasn't cached", System.currentTimeMillis() < deadline );
+            Thread.sleep( 10 );
+        }
+    }
+
+    @Singleton
+    public static class Backend
+    {
+
+        final AtomicInteger invocations = new AtomicInteger();
+
+        final CountDownLatch release = new CountDownLatch( 1 );
+
+        final ExecutorService loader = Executors.newCachedThreadPool();
+
+        @CacheResult( cacheName = "refresh-ahead-sync" )
+        @CacheRefresh( value = REFRESH_AFTER_MILLIS, unit = TimeUnit.MILLISECONDS )
+        public String find( String key )
+            throws InterruptedException
+        {
+            int invocation = invocations.incrementAndGet();
+            if ( invocation > 1 )
+            {
+                release.await();
+            }
+            return key + "-" + invocation;
+        }
+
+        @CacheResult( cacheName = "refresh-ahead" )
+        @CacheRefresh( value = REFRESH_AFTER_MILLIS, unit = TimeUnit.MILLISECONDS )
+        public Future<String> load( final String key )
+        {
+            final int invocation = invocations.incrementAndGet();
+            return loader.submit( new Callable<String>()
+            {
+
+                public String call()
+                    throws InterruptedException
+                {
+                    if ( invocation == 1 )
+                    {
+                        return key + "-" + invocation;
+                    }
+                    release.await();
+                    if ( key.startsWith( "failing" ) )
+                    {
+                        throw new IllegalStateException( key + " is failing" );
+                    }
+                    return key + "-" + invocation;
+                }
+
+            } );
+        }
+
+    }
+
+}
@@ -0,0 +1,156 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.cache.annotation.CacheResult;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Singleton;
+
+public final class CacheResultAllTestCase
+{
+
+    private Backend backend;
+
+    @Before
+    public void setUp()
+    {
+        backend = Guice.createInjector( new MapCacheModule() ).getInstance( Backend.class );
+    }
+
+    @Test
+    public void partialLoadsRequestTheMissingElementsOnly()
+    {
+        assertEquals( "b-value", backend.load( "b" ) );
+
+        Map<String, String> result = backend.loadAll( asList( "d", "b", "a", "c" ) );
+
+        assertEquals( 1, backend.requests.size() );
+        assertEquals( asList( "d", "a", "c" ), backend.requests.get( 0 ) );
+        assertEquals( asList( "d", "b", "a", "c" ), new ArrayList<String>( result.keySet() ) );
+        assertEquals( asList( "d-value", "b-value", "a-value", "c-value" ), new ArrayList<String>( result.values() ) );
+    }
+
+    @Test
+    public void cachedElementsAreSharedWithSingleLookups()
+    {
+        backend.loadAll( asList( "a", "b" ) );
+
+        assertEquals( "a-value", backend.load( "a" ) );
+        assertEquals( 0, backend.singleInvocations.get() );
+
+        Map<String, String> result = backend.loadAll( asList( "b", "a" ) );
+        assertEquals( 1, backend.requests.size() );
+        assertEquals( asList( "b", "a" ), new ArrayList<String>( result.keySet() ) );
+    }
+
+    @Test
+    public void duplicateElementsAreRequestedOnce()
+    {
+        Map<String, String> result = backend.loadAll( asList( "a", "b", "a" ) );
+
+        assertEquals( 1, backend.requests.size() );
+        assertEquals( asList( "a", "b" ), backend.requests.get( 0 ) );
+        assertEquals( asList( "a", "b" ), new ArrayList<String>( result.keySet() ) );
+    }
+
+    @Test
+    public void missingElementsAreRequestedAgainUnlessCachedAsNull()
+    {
+        backend.loadAll( asList( "a", "missing" ) );
+        Map<String, String> result = backend.loadAll( asList( "a", "missing" ) );
+        assertEquals( 2, backend.requests.size() );
+        assertEquals( asList( "a", "missing" ), backend.requests.get( 0 ) );
+        assertEquals( asList( "missing" ), backend.requests.get( 1 ) );
+        assertEquals( asList( "a" ), new ArrayList<String>( result.keySet() ) );
+
+        backend.requests.clear();
+        Set<String> elements = new LinkedHashSet<String>( asList( "a", "missing" ) );
+        backend.loadAllCachingNull( elements );
+        result = backend.loadAllCachingNull( elements );
+        assertEquals( 1, backend.requests.size() );
+        assertTrue( backend.requests.get( 0 ) instanceof Set );
+        assertEquals( asList( "a" ), new ArrayList<String>( result.keySet() ) );
+    }
+
+    @Singleton
+    public static class Backend
+    {
+
+        /**
+         * The elements of each bulk invocation.
+         */
+        final List<Collection<String>> requests = new ArrayList<Collection<String>>();
+
+        final AtomicInteger singleInvocations = new AtomicInteger();
+
+        @CacheResult( cacheName = "bulk" )
+        public String load( String id )
+        {
+            singleInvocations.incrementAndGet();
+            return id + "-value";
+        }
+
+        @CacheResultAll( cacheName = "bulk" )
+        public Map<String, String> loadAll( List<String> ids )
+        {
+            return invoke( ids );
+        }
+
+        @CacheResultAll( cacheName = "bulk-null", cacheNull = true )
+        public Map<String, String> loadAllCachingNull( Set<String> ids )
+        {
+            return invoke( ids );
+        }
+
+        private Map<String, String> invoke( Collection<String> ids )
+        {
+            requests.add( ids );
+            // not in the request order
+            Map<String, String> values = new HashMap<String, String>();
+            for ( String id : ids )
+            {
+                if ( !id.startsWith( "missing" ) )
+                {
+                    values.put( id, id + "-value" );
+                }
+            }
+            return values;
+        }
+
+    }
+
+}
@@ -0,0 +1,154 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.cache.annotation.CacheKeyParam;
+import javax.cache.annotation.CachePut;
+import javax.cache.annotation.CacheResult;
+import javax.cache.annotation.CacheValue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Singleton;
+
+public final class CacheSnapshotsTestCase
+{
+
+    private File file;
+
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        file = File.createTempFile( "onami-cache", ".snapshot" );
+        file.delete();
+        file.deleteOnExit();
+    }
+
+    @After
+    public void tearDown()
+    {
+        file.delete();
+    }
+
+    @Test
+    public void savedCachesAreRestored()
+    {
+        Injector injector = createInjector();
+        Backend backend = injector.getInstance( Backend.class );
+        assertEquals( "a-1", backend.load( "a" ) );
+        assertEquals( "b-2", backend.load( "b" ) );
+        shutdown( injector );
+        assertTrue( file.isFile() );
+
+        Backend restarted = createInjector().getInstance( Backend.class );
+        assertEquals( "a-1", restarted.load( "a" ) );
+        assertEquals( "b-2", restarted.load( "b" ) );
+        assertEquals( 0, restarted.invocations.get() );
+        assertEquals( "c-1", restarted.load( "c" ) );
+    }
+
+    @Test
+    public void pendingWritesBehindAreSaved()
+    {
+        Injector injector = createInjector();
+        injector.getInstance( Backend.class ).store( "a", "stored" );
+        shutdown( injector );
+
+        Backend restarted = createInjector().getInstance( Backend.class );
+        assertEquals( "stored", restarted.load( "a" ) );
+        assertEquals( 0, restarted.invocations.get() );
+    }
+
+    @Test
+    public void corruptedSnapshotsAreIgnored()
+        throws IOException
+    {
+        OutputStream output = new FileOutputStream( file );
+        try
+        {
+            output.write( "not a snapshot".getBytes( "UTF-8" ) );
+        }
+        finally
+        {
+            output.close();
+        }
+
+        Backend backend = createInjector().getInstance( Backend.class );
+        assertEquals( "a-1", backend.load( "a" ) );
+        assertEquals( "a-1", backend.load( "a" ) );
+        assertEquals( 1, backend.invocations.get() );
+    }
+
+    private Injector createInjector()
+    {
+        return Guice.createInjector( new MapCacheModule()
+        {
+
+            @Override
+            protected void configureMapCache()
+            {
+                persistCache( "persisted", file );
+            }
+
+        } );
+    }
+
+    private static void shutdown( Injector injector )
+    {
+        injector.getInstance( CacheSnapshots.class ).shutdown();
+        injector.getInstance( CacheWriteBehindQueues.class ).shutdown();
+    }
+
+    @Singleton
+    public static class Backend
+    {
+
+        final AtomicInteger invocations = new AtomicInteger();
+
+        @CacheResult( cacheName = "persisted" )
+        public String load( String key )
+        {
+            return key + "-" + invocations.incrementAndGet();
+        }
+
+        @CachePut( cacheName = "persisted" )
+        @CacheWriteBehind
+        public void store( @CacheKeyParam String key, @CacheValue String value )
+        {
+            // only cached
+        }
+
+    }
+
+}
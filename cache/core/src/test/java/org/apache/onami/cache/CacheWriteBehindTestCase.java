@@ -0,0 +1,174 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.annotation.CacheKeyParam;
+import javax.cache.annotation.CachePut;
+import javax.cache.annotation.CacheRemoveEntry;
+import javax.cache.annotation.CacheResult;
+import javax.cache.annotation.CacheValue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+public final class CacheWriteBehindTestCase
+{
+
+    private CacheWriteBehindQueues queues;
+
+    private Repository repository;
+
+    @Before
+    public void setUp()
+    {
+        Injector injector = Guice.createInjector( new MapCacheModule() );
+        queues = injector.getInstance( CacheWriteBehindQueues.class );
+        repository = injector.getInstance( Repository.class );
+    }
+
+    @After
+    public void tearDown()
+    {
+        queues.shutdown();
+    }
+
+    @Test
+    public void writesAreCoalescedUntilTheBatchIsComplete()
+        throws Exception
+    {
+        repository.put( "a", "1" );
+        repository.put( "a", "2" );
+        repository.put( "b", "1" );
+        repository.put( "c", "1" );
+        repository.remove( "c" );
+
+        CacheWriteBehindQueue queue = queues.getQueue( "write-behind" );
+        assertEquals( 3, queue.getQueueDepth() );
+        assertEquals( 5, queue.getQueuedWrites() );
+        assertEquals( 2, queue.getCoalescedWrites() );
+        assertEquals( 0, queue.getFlushedBatches() );
+        assertNull( repository.get( "a" ) );
+
+        // completes the batch, flushed in background
+        repository.put( "d", "1" );
+        awaitFlushedBatches( queue, 1 );
+
+        assertEquals( 0, queue.getQueueDepth() );
+        assertEquals( 4, queue.getFlushedWrites() );
+        assertEquals( "2", repository.get( "a" ) );
+        assertEquals( "1", repository.get( "b" ) );
+        assertNull( repository.get( "c" ) );
+        assertEquals( "1", repository.get( "d" ) );
+    }
+
+    @Test
+    public void incompleteBatchesAreFlushedOnInterval()
+        throws Exception
+    {
+        repository.putTimed( "a", "1" );
+
+        CacheWriteBehindQueue queue = queues.getQueue( "write-behind-timed" );
+        awaitFlushedBatches( queue, 1 );
+
+        assertEquals( 1, queue.getFlushedWrites() );
+        assertEquals( "1", repository.getTimed( "a" ) );
+    }
+
+    @Test
+    public void shutdownDrainsTheQueues()
+    {
+        repository.put( "a", "1" );
+        repository.putTimed( "b", "1" );
+        assertNull( repository.get( "a" ) );
+
+        queues.shutdown();
+
+        assertEquals( "1", repository.get( "a" ) );
+        assertEquals( "1", repository.getTimed( "b" ) );
+        assertEquals( 0, queues.getQueue( "write-behind" ).getQueueDepth() );
+
+        // later writes are applied on the caller's thread
+        repository.put( "c", "1" );
+        assertEquals( "1", repository.get( "c" ) );
+    }
+
+    private static void awaitFlushedBatches( CacheWriteBehindQueue queue, long batches )
+        throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ( queue.getFlushedBatches() < batches )
+        {
+            assertTrue( "The queue wasn't flushed", System.currentTimeMillis() < deadline );
+            Thread.sleep( 10 );
+        }
+    }
+
+    public static class Repository
+    {
+
+        @CachePut( cacheName = "write-behind" )
+        @CacheWriteBehind( batchSize = 4, flushInterval = 1, unit = TimeUnit.HOURS )
+        public void put( @CacheKeyParam String key, @CacheValue String value )
+        {
+            // only cached
+        }
+
+        @CacheRemoveEntry( cacheName = "write-behind" )
+        @CacheWriteBehind( batchSize = 4, flushInterval = 1, unit = TimeUnit.HOURS )
+        public void remove( @CacheKeyParam String key )
+        {
+            // only removed from the cache
+        }
+
+        /**
+         * @return the cached value, {@code null} if not cached
+         */
+        @CacheResult( cacheName = "write-behind" )
+        public String get( String key )
+        {
+            return null;
+        }
+
+        @CachePut( cacheName = "write-behind-timed" )
+        @CacheWriteBehind( flushInterval = 50 )
+        public void putTimed( @CacheKeyParam String key, @CacheValue String value )
+        {
+            // only cached
+        }
+
+        @CacheResult( cacheName = "write-behind-timed" )
+        public String getTimed( String key )
+        {
+            return null;
+        }
+
+    }
+
+}
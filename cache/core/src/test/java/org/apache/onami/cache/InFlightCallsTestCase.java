@@ -0,0 +1,204 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+public final class InFlightCallsTestCase
+{
+
+    private final InFlightCalls inFlightCalls = new InFlightCalls();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void followersShareTheResult()
+        throws Exception
+    {
+        InFlightCalls.Call call = inFlightCalls.newCall( "key" );
+        assertNull( inFlightCalls.putIfAbsent( call ) );
+
+        Future<Object> first = follow( "key" );
+        Future<Object> second = follow( "key" );
+        assertWaiting( first );
+        assertWaiting( second );
+
+        Object result = new Object();
+        call.complete( result );
+        assertSame( result, first.get( 5, TimeUnit.SECONDS ) );
+        assertSame( result, second.get( 5, TimeUnit.SECONDS ) );
+    }
+
+    @Test
+    public void followersShareTheFailure()
+        throws Exception
+    {
+        InFlightCalls.Call call = inFlightCalls.newCall( "key" );
+        inFlightCalls.putIfAbsent( call );
+
+        Future<Object> follower = follow( "key" );
+        assertWaiting( follower );
+
+        IllegalStateException failure = new IllegalStateException();
+        call.fail( failure );
+        try
+        {
+            follower.get( 5, TimeUnit.SECONDS );
+        }
+        catch ( ExecutionException e )
+        {
+            assertSame( failure, e.getCause() );
+            return;
+        }
+        throw new AssertionError( "The failure of the leader must be shared" );
+    }
+
+    @Test
+    public void completedCallsAreUnregistered()
+    {
+        InFlightCalls.Call call = inFlightCalls.newCall( "key" );
+        inFlightCalls.putIfAbsent( call );
+        assertSame( call, inFlightCalls.putIfAbsent( inFlightCalls.newCall( "key" ) ) );
+
+        call.complete( "value" );
+        assertNull( inFlightCalls.putIfAbsent( inFlightCalls.newCall( "key" ) ) );
+    }
+
+    @Test
+    public void differentKeysAreLoadedIndependently()
+    {
+        assertNull( inFlightCalls.putIfAbsent( inFlightCalls.newCall( "key" ) ) );
+        assertNull( inFlightCalls.putIfAbsent( inFlightCalls.newCall( "other" ) ) );
+    }
+
+    @Test
+    public void interruptedFollowerKeepsWaiting()
+        throws Exception
+    {
+        final InFlightCalls.Call call = inFlightCalls.newCall( "key" );
+        inFlightCalls.putIfAbsent( call );
+
+        final AtomicReference<Thread> followerThread = new AtomicReference<Thread>();
+        Future<Boolean> follower = executor.submit( new Callable<Boolean>()
+        {
+
+            public Boolean call()
+                throws Exception
+            {
+                followerThread.set( Thread.currentThread() );
+                Object result = await( inFlightCalls.putIfAbsent( inFlightCalls.newCall( "key" ) ) );
+                // the interruption is restored once the result is available
+                return "value".equals( result ) && Thread.interrupted();
+            }
+
+        } );
+        assertWaiting( follower );
+
+        followerThread.get().interrupt();
+        assertWaiting( follower );
+
+        call.complete( "value" );
+        assertTrue( follower.get( 5, TimeUnit.SECONDS ) );
+    }
+
+    @Test
+    public void leaderIsTheCreatingThread()
+        throws Exception
+    {
+        final InFlightCalls.Call call = inFlightCalls.newCall( "key" );
+        assertTrue( call.isLedByCurrentThread() );
+        assertFalse( executor.submit( new Callable<Boolean>()
+        {
+
+            public Boolean call()
+            {
+                return call.isLedByCurrentThread();
+            }
+
+        } ).get( 5, TimeUnit.SECONDS ) );
+    }
+
+    private Future<Object> follow( final Object key )
+    {
+        return executor.submit( new Callable<Object>()
+        {
+
+            public Object call()
+                throws Exception
+            {
+                return await( inFlightCalls.putIfAbsent( inFlightCalls.newCall( key ) ) );
+            }
+
+        } );
+    }
+
+    private static Object await( InFlightCalls.Call call )
+        throws Exception
+    {
+        try
+        {
+            return call.await();
+        }
+        catch ( Exception e )
+        {
+            throw e;
+        }
+        catch ( Throwable t )
+        {
+            throw new AssertionError( t );
+        }
+    }
+
+    private static void assertWaiting( Future<?> future )
+        throws Exception
+    {
+        try
+        {
+            future.get( 100, TimeUnit.MILLISECONDS );
+        }
+        catch ( TimeoutException e )
+        {
+            return;
+        }
+        throw new AssertionError( "The follower must wait for the leader" );
+    }
+
+}
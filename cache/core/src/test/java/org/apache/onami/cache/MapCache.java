@@ -0,0 +1,265 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.CacheMXBean;
+import javax.cache.CacheStatisticsMXBean;
+import javax.cache.Configuration;
+import javax.cache.Status;
+import javax.cache.event.CacheEntryEventFilter;
+import javax.cache.event.CacheEntryListener;
+
+/**
+ * A minimal, unbounded, {@code Cache} backed by a {@code ConcurrentHashMap}, to test the interceptors without a
+ * provider; the optional operations are not supported.
+ */
+final class MapCache<K, V>
+    implements Cache<K, V>
+{
+
+    private final String name;
+
+    private final CacheManager cacheManager;
+
+    private final Configuration<K, V> configuration;
+
+    private final ConcurrentMap<K, V> entries = new ConcurrentHashMap<K, V>();
+
+    MapCache( String name, CacheManager cacheManager, Configuration<K, V> configuration )
+    {
+        this.name = name;
+        this.cacheManager = cacheManager;
+        this.configuration = configuration;
+    }
+
+    public V get( K key )
+    {
+        return entries.get( key );
+    }
+
+    public Map<K, V> getAll( Set<? extends K> keys )
+    {
+        Map<K, V> values = new HashMap<K, V>();
+        for ( K key : keys )
+        {
+            V value = entries.get( key );
+            if ( value != null )
+            {
+                values.put( key, value );
+            }
+        }
+        return values;
+    }
+
+    public boolean containsKey( K key )
+    {
+        return entries.containsKey( key );
+    }
+
+    public Future<V> load( K key )
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    public Future<Map<K, ? extends V>> loadAll( Set<? extends K> keys )
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    public CacheStatisticsMXBean getStatistics()
+    {
+        return null;
+    }
+
+    public void put( K key, V value )
+    {
+        entries.put( key, value );
+    }
+
+    public V getAndPut( K key, V value )
+    {
+        return entries.put( key, value );
+    }
+
+    public void putAll( Map<? extends K, ? extends V> values )
+    {
+        entries.putAll( values );
+    }
+
+    public boolean putIfAbsent( K key, V value )
+    {
+        return entries.putIfAbsent( key, value ) == null;
+    }
+
+    public boolean remove( K key )
+    {
+        return entries.remove( key ) != null;
+    }
+
+    public boolean remove( K key, V oldValue )
+    {
+        return entries.remove( key, oldValue );
+    }
+
+    public V getAndRemove( K key )
+    {
+        return entries.remove( key );
+    }
+
+    public boolean replace( K key, V oldValue, V newValue )
+    {
+        return entries.replace( key, oldValue, newValue );
+    }
+
+    public boolean replace( K key, V value )
+    {
+        return entries.replace( key, value ) != null;
+    }
+
+    public V getAndReplace( K key, V value )
+    {
+        return entries.replace( key, value );
+    }
+
+    public void removeAll( Set<? extends K> keys )
+    {
+        for ( K key : keys )
+        {
+            entries.remove( key );
+        }
+    }
+
+    public void removeAll()
+    {
+        entries.clear();
+    }
+
+    public void clear()
+    {
+        entries.clear();
+    }
+
+    public Configuration<K, V> getConfiguration()
+    {
+        return configuration;
+    }
+
+    public boolean registerCacheEntryListener( CacheEntryListener<? super K, ? super V> listener,
+                                               boolean requireOldValue,
+                                               CacheEntryEventFilter<? super K, ? super V> filter,
+                                               boolean synchronous )
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean unregisterCacheEntryListener( CacheEntryListener<?, ?> listener )
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    public <T> T invokeEntryProcessor( K key, EntryProcessor<K, V, T> entryProcessor )
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public CacheManager getCacheManager()
+    {
+        return cacheManager;
+    }
+
+    public <T> T unwrap( Class<T> cls )
+    {
+        throw new IllegalArgumentException( "Unwrapping to " + cls + " is not supported" );
+    }
+
+    public Iterator<Entry<K, V>> iterator()
+    {
+        final Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+        return new Iterator<Entry<K, V>>()
+        {
+
+            public boolean hasNext()
+            {
+                return iterator.hasNext();
+            }
+
+            public Entry<K, V> next()
+            {
+                final Map.Entry<K, V> entry = iterator.next();
+                return new Entry<K, V>()
+                {
+
+                    public K getKey()
+                    {
+                        return entry.getKey();
+                    }
+
+                    public V getValue()
+                    {
+                        return entry.getValue();
+                    }
+
+                };
+            }
+
+            public void remove()
+            {
+                iterator.remove();
+            }
+
+        };
+    }
+
+    public CacheMXBean getMBean()
+    {
+        return null;
+    }
+
+    public void start()
+    {
+        // do nothing
+    }
+
+    public void stop()
+    {
+        entries.clear();
+    }
+
+    public Status getStatus()
+    {
+        return Status.STARTED;
+    }
+
+}
@@ -0,0 +1,115 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Configuration;
+import javax.cache.MutableConfiguration;
+import javax.cache.OptionalFeature;
+import javax.cache.Status;
+import javax.transaction.UserTransaction;
+
+/**
+ * Holds {@link MapCache}s, created on demand.
+ */
+final class MapCacheManager
+    implements CacheManager
+{
+
+    private final ConcurrentMap<String, MapCache<?, ?>> caches = new ConcurrentHashMap<String, MapCache<?, ?>>();
+
+    public String getName()
+    {
+        return "onami-map";
+    }
+
+    public Status getStatus()
+    {
+        return Status.STARTED;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public <K, V> Cache<K, V> configureCache( String cacheName, Configuration<K, V> configuration )
+    {
+        MapCache<?, ?> cache = caches.get( cacheName );
+        if ( cache == null )
+        {
+            MapCache<K, V> created = new MapCache<K, V>( cacheName, this, configuration );
+            cache = caches.putIfAbsent( cacheName, created );
+            if ( cache == null )
+            {
+                cache = created;
+            }
+        }
+        return (Cache<K, V>) cache;
+    }
+
+    public <K, V> Cache<K, V> getOrCreateCache( String cacheName )
+    {
+        return configureCache( cacheName, new MutableConfiguration<K, V>() );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public <K, V> Cache<K, V> getCache( String cacheName )
+    {
+        return (Cache<K, V>) caches.get( cacheName );
+    }
+
+    public Iterable<Cache<?, ?>> getCaches()
+    {
+        return new ArrayList<Cache<?, ?>>( caches.values() );
+    }
+
+    public boolean removeCache( String cacheName )
+    {
+        return caches.remove( cacheName ) != null;
+    }
+
+    public UserTransaction getUserTransaction()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean isSupported( OptionalFeature optionalFeature )
+    {
+        return OptionalFeature.STORE_BY_REFERENCE == optionalFeature;
+    }
+
+    public void enableStatistics( String cacheName, boolean enabled )
+    {
+        // do nothing
+    }
+
+    public void shutdown()
+    {
+        caches.clear();
+    }
+
+    public <T> T unwrap( Class<T> cls )
+    {
+        throw new IllegalArgumentException( "Unwrapping to " + cls + " is not supported" );
+    }
+
+}
@@ -0,0 +1,82 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.annotation.Annotation;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.annotation.CacheInvocationContext;
+import javax.cache.annotation.CacheMethodDetails;
+import javax.cache.annotation.CacheResolver;
+import javax.cache.annotation.CacheResolverFactory;
+import javax.cache.annotation.CacheResult;
+
+/**
+ * Runs the interceptors on {@link MapCache}s, the exception caches included; subclasses can contribute extra
+ * bindings overriding {@link #configureMapCache()}.
+ */
+class MapCacheModule
+    extends CacheModule
+{
+
+    private final MapCacheManager cacheManager = new MapCacheManager();
+
+    @Override
+    protected final void configureCache()
+    {
+        bind( CacheManager.class ).toInstance( cacheManager );
+        bind( CacheResolverFactory.class ).toInstance( new CacheResolverFactory()
+        {
+
+            public CacheResolver getCacheResolver( CacheMethodDetails<? extends Annotation> cacheMethodDetails )
+            {
+                return resolverOf( cacheMethodDetails.getCacheName() );
+            }
+
+            public CacheResolver getExceptionCacheResolver( CacheMethodDetails<CacheResult> cacheMethodDetails )
+            {
+                return resolverOf( cacheMethodDetails.getCacheAnnotation().exceptionCacheName() );
+            }
+
+        } );
+
+        configureMapCache();
+    }
+
+    protected void configureMapCache()
+    {
+        // do nothing
+    }
+
+    private CacheResolver resolverOf( final String cacheName )
+    {
+        return new CacheResolver()
+        {
+
+            public <K, V> Cache<K, V> resolveCache( CacheInvocationContext<? extends Annotation> context )
+            {
+                return cacheManager.getOrCreateCache( cacheName );
+            }
+
+        };
+    }
+
+}
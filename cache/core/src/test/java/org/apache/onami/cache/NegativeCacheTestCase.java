@@ -0,0 +1,204 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.cache.annotation.CacheKeyParam;
+import javax.cache.annotation.CachePut;
+import javax.cache.annotation.CacheResult;
+import javax.cache.annotation.CacheValue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Singleton;
+
+public final class NegativeCacheTestCase
+{
+
+    private static final long SHORT_TIME_TO_LIVE_MILLIS = 100;
+
+    private Backend backend;
+
+    @Before
+    public void setUp()
+    {
+        backend = Guice.createInjector( new MapCacheModule() ).getInstance( Backend.class );
+    }
+
+    @Test
+    public void nullsAndExceptionsExpireAfterTheirOwnTimeToLive()
+        throws Exception
+    {
+        backend.results.put( "failing", new IllegalArgumentException( "failing" ) );
+
+        assertNull( backend.find( "missing" ) );
+        IllegalArgumentException cached = findFailing();
+        assertNull( backend.find( "missing" ) );
+        assertSame( cached, findFailing() );
+        assertEquals( 2, backend.invocations.get() );
+
+        Thread.sleep( SHORT_TIME_TO_LIVE_MILLIS * 2 );
+
+        assertNull( backend.find( "missing" ) );
+        assertEquals( 2, backend.invocations.get() );
+        findFailing();
+        assertEquals( 3, backend.invocations.get() );
+    }
+
+    @Test
+    public void nullsExpireAndExceptionsAreNotCachedWithoutTimeToLive()
+        throws Exception
+    {
+        assertNull( backend.findBriefly( "missing" ) );
+        assertNull( backend.findBriefly( "missing" ) );
+        assertEquals( 1, backend.invocations.get() );
+
+        Thread.sleep( SHORT_TIME_TO_LIVE_MILLIS * 2 );
+
+        assertNull( backend.findBriefly( "missing" ) );
+        assertEquals( 2, backend.invocations.get() );
+
+        backend.results.put( "failing", new IllegalArgumentException( "failing" ) );
+        for ( int i = 0; i < 2; i++ )
+        {
+            try
+            {
+                backend.findBriefly( "failing" );
+                fail( "IllegalArgumentException expected" );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                // expected
+            }
+        }
+        assertEquals( 4, backend.invocations.get() );
+    }
+
+    @Test
+    public void onlyTheSelectedExceptionsAreCached()
+    {
+        backend.results.put( "selected", new IllegalArgumentException( "selected" ) );
+        backend.results.put( "excluded", new NumberFormatException( "excluded" ) );
+        backend.results.put( "other", new IllegalStateException( "other" ) );
+
+        for ( String key : new String[] { "selected", "excluded", "other" } )
+        {
+            for ( int i = 0; i < 2; i++ )
+            {
+                try
+                {
+                    backend.find( key );
+                    fail( "RuntimeException expected" );
+                }
+                catch ( RuntimeException e )
+                {
+                    assertSame( backend.results.get( key ), e );
+                }
+            }
+        }
+        // the selected one once, the NumberFormatException excluded and the IllegalStateException not selected twice
+        assertEquals( 5, backend.invocations.get() );
+    }
+
+    @Test
+    public void cachedValuesSupersedeNegativeResults()
+    {
+        assertNull( backend.find( "key" ) );
+        backend.store( "key", "value" );
+
+        assertEquals( "value", backend.find( "key" ) );
+        assertEquals( 1, backend.invocations.get() );
+    }
+
+    private IllegalArgumentException findFailing()
+    {
+        try
+        {
+            backend.find( "failing" );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            return e;
+        }
+        throw new AssertionError( "IllegalArgumentException expected" );
+    }
+
+    @Singleton
+    public static class Backend
+    {
+
+        final AtomicInteger invocations = new AtomicInteger();
+
+        /**
+         * The exception thrown for each key, the others are missing: {@code null} is returned.
+         */
+        final Map<String, RuntimeException> results = new ConcurrentHashMap<String, RuntimeException>();
+
+        @CacheResult( cacheName = "negative" )
+        @NegativeCache( nullTimeToLive = 10000L,
+                        exceptionTimeToLive = SHORT_TIME_TO_LIVE_MILLIS,
+                        unit = TimeUnit.MILLISECONDS,
+                        cachedExceptions = IllegalArgumentException.class,
+                        nonCachedExceptions = NumberFormatException.class )
+        public String find( String key )
+        {
+            return invoke( key );
+        }
+
+        @CacheResult( cacheName = "negative-briefly" )
+        @NegativeCache( nullTimeToLive = SHORT_TIME_TO_LIVE_MILLIS,
+                        exceptionTimeToLive = 0L,
+                        unit = TimeUnit.MILLISECONDS )
+        public String findBriefly( String key )
+        {
+            return invoke( key );
+        }
+
+        @CachePut( cacheName = "negative" )
+        public void store( @CacheKeyParam String key, @CacheValue String value )
+        {
+            // only cached
+        }
+
+        private String invoke( String key )
+        {
+            invocations.incrementAndGet();
+            RuntimeException exception = results.get( key );
+            if ( exception != null )
+            {
+                throw exception;
+            }
+            return null;
+        }
+
+    }
+
+}
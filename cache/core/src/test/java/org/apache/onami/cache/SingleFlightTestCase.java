@@ -0,0 +1,291 @@
+package org.apache.onami.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.cache.annotation.CacheResult;
+import javax.management.MBeanServerFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+
+public final class SingleFlightTestCase
+{
+
+    private static final int CALLERS = 4;
+
+    private final List<Thread> callerThreads = new ArrayList<Thread>();
+
+    private ExecutorService executor;
+
+    private Backend backend;
+
+    private CacheMetrics metrics;
+
+    @Before
+    public void setUp()
+    {
+        metrics = new CacheMetrics( MBeanServerFactory.newMBeanServer() );
+        executor = Executors.newFixedThreadPool( CALLERS, new ThreadFactory()
+        {
+
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable );
+                synchronized ( callerThreads )
+                {
+                    callerThreads.add( thread );
+                }
+                return thread;
+            }
+
+        } );
+        backend = Guice.createInjector( new MapCacheModule()
+        {
+
+            @Override
+            protected void configureMapCache()
+            {
+                bind( CacheMetricsRecorder.class ).toInstance( metrics );
+            }
+
+        } ).getInstance( Backend.class );
+    }
+
+    @After
+    public void tearDown()
+    {
+        metrics.unregisterMBeans();
+        backend.release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentMissesShareTheResult()
+        throws Exception
+    {
+        List<Future<String>> results = loadConcurrently( "key" );
+        backend.release.countDown();
+
+        for ( Future<String> result : results )
+        {
+            assertEquals( "key-1", result.get( 5, TimeUnit.SECONDS ) );
+        }
+        assertEquals( 1, backend.invocations.get() );
+        assertEquals( "key-1", backend.load( "key" ) );
+
+        // the followers didn't invoke the method
+        CacheInterceptionStatistics statistics = metrics.getCacheStatistics( "single-flight" );
+        assertEquals( CALLERS, statistics.getHits() );
+        assertEquals( 1, statistics.getMisses() );
+    }
+
+    @Test
+    public void concurrentMissesShareTheException()
+        throws Exception
+    {
+        List<Future<String>> results = loadConcurrently( "failing" );
+        backend.release.countDown();
+
+        Throwable shared = null;
+        for ( Future<String> result : results )
+        {
+            try
+            {
+                result.get( 5, TimeUnit.SECONDS );
+            }
+            catch ( ExecutionException e )
+            {
+                assertTrue( e.getCause() instanceof IllegalStateException );
+                if ( shared == null )
+                {
+                    shared = e.getCause();
+                }
+                assertSame( shared, e.getCause() );
+            }
+        }
+        assertTrue( shared != null );
+        assertEquals( 1, backend.invocations.get() );
+    }
+
+    @Test
+    public void interruptedFollowersKeepWaiting()
+        throws Exception
+    {
+        List<Future<String>> results = loadConcurrently( "key" );
+        synchronized ( callerThreads )
+        {
+            for ( Thread thread : callerThreads )
+            {
+                if ( thread != backend.invoker )
+                {
+                    thread.interrupt();
+                }
+            }
+        }
+        backend.release.countDown();
+
+        for ( Future<String> result : results )
+        {
+            assertEquals( "key-1", result.get( 5, TimeUnit.SECONDS ) );
+        }
+        assertEquals( 1, backend.invocations.get() );
+    }
+
+    @Test
+    public void recursiveRequestOfTheSameKey()
+        throws Exception
+    {
+        Future<String> result = executor.submit( new Callable<String>()
+        {
+
+            public String call()
+            {
+                return backend.recursive( "key" );
+            }
+
+        } );
+        assertEquals( "outer-inner", result.get( 5, TimeUnit.SECONDS ) );
+    }
+
+    /**
+     * Starts the concurrent loads of the key, returning once the callers wait: for the release of the backend, or
+     * for the caller invoking it.
+     */
+    private List<Future<String>> loadConcurrently( final String key )
+        throws InterruptedException
+    {
+        List<Future<String>> results = new ArrayList<Future<String>>();
+        for ( int i = 0; i < CALLERS; i++ )
+        {
+            results.add( executor.submit( new Callable<String>()
+            {
+
+                public String call()
+                    throws InterruptedException
+                {
+                    return backend.load( key );
+                }
+
+            } ) );
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while ( !allWaiting() )
+        {
+            assertTrue( "The callers didn't start waiting", System.currentTimeMillis() < deadline );
+            Thread.sleep( 10 );
+        }
+        return results;
+    }
+
+    private boolean allWaiting()
+    {
+        synchronized ( callerThreads )
+        {
+            if ( callerThreads.size() < CALLERS )
+            {
+                return false;
+            }
+            for ( Thread thread : callerThreads )
+            {
+                if ( thread.getState() != Thread.State.WAITING )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    @Singleton
+    public static class Backend
+    {
+
+        final AtomicInteger invocations = new AtomicInteger();
+
+        final CountDownLatch release = new CountDownLatch( 1 );
+
+        volatile Thread invoker;
+
+        private final ThreadLocal<Boolean> nested = new ThreadLocal<Boolean>();
+
+        @Inject
+        private Provider<Backend> self;
+
+        @CacheResult( cacheName = "single-flight" )
+        @SingleFlight
+        public String load( String key )
+            throws InterruptedException
+        {
+            invoker = Thread.currentThread();
+            int invocation = invocations.incrementAndGet();
+            release.await();
+            if ( key.startsWith( "failing" ) )
+            {
+                throw new IllegalStateException( key + " is failing" );
+            }
+            return key + "-" + invocation;
+        }
+
+        @CacheResult( cacheName = "single-flight-recursive" )
+        @SingleFlight
+        public String recursive( String key )
+        {
+            if ( nested.get() != null )
+            {
+                return "inner";
+            }
+            nested.set( Boolean.TRUE );
+            try
+            {
+                // through the proxy, as another caller of the key would
+                return "outer-" + self.get().recursive( key );
+            }
+            finally
+            {
+                nested.remove();
+            }
+        }
+
+    }
+
+}
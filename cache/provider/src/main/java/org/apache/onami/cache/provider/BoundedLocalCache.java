@@ -0,0 +1,1182 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.cache.Cache;
+import javax.cache.Configuration.Duration;
+import javax.cache.ExpiryPolicy;
+
+import org.apache.onami.cache.ExpiringCacheEntry;
+
+/**
+ * A concurrent map bounded by the total weight of its entries, evicted with the W-TinyLFU policy: new entries are
+ * admitted in a small LRU window; entries leaving the window compete against the victim of the main Segmented LRU
+ * space, and only the most frequently used one, as estimated by a {@link FrequencySketch}, is retained.
+ *
+ * Reads are served directly by a {@link ConcurrentHashMap} without locking: accesses are recorded in a lossy
+ * {@link ReadBuffer}, writes in a queue, and both are replayed against the policy in batches by whichever thread
+ * acquires the eviction lock with a {@code tryLock}. Expired entries are discarded when read and swept while the
+ * policy is maintained.
+ */
+final class BoundedLocalCache<K, V>
+    implements LocalStore<K, V>
+{
+
+    /**
+     * Writers start blocking on the eviction lock above this number of writes not yet applied to the policy.
+     */
+    private static final int MAXIMUM_PENDING_WRITES = 1024;
+
+    /**
+     * Percentage of the maximum weight reserved to the admission window.
+     */
+    private static final double WINDOW_PERCENTAGE = 0.01d;
+
+    /**
+     * Percentage of the main space reserved to the protected segment.
+     */
+    private static final double PROTECTED_PERCENTAGE = 0.80d;
+
+    private final ConcurrentMap<K, Node<K, V>> data = new ConcurrentHashMap<K, Node<K, V>>();
+
+    private final long maximum;
+
+    /**
+     * {@code null} when each entry weighs {@code 1}.
+     */
+    private final Weigher<? super K, ? super V> weigher;
+
+    /**
+     * {@code null} when entries never expire.
+     */
+    private final ExpiryPolicy<? super K, ? super V> expiryPolicy;
+
+    private final boolean refreshOnAccess;
+
+    private final EvictionListener<K, V> evictionListener;
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final ReadBuffer<Node<K, V>> readBuffer = new ReadBuffer<Node<K, V>>();
+
+    private final ConcurrentLinkedQueue<Runnable> writeBuffer = new ConcurrentLinkedQueue<Runnable>();
+
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+
+    private final ReadBuffer.Consumer<Node<K, V>> accessRecorder = new ReadBuffer.Consumer<Node<K, V>>()
+    {
+
+        public void accept( Node<K, V> node )
+        {
+            onAccess( node );
+        }
+
+    };
+
+    // the following fields are guarded by the eviction lock
+
+    private final FrequencySketch sketch = new FrequencySketch();
+
+    private final AccessOrderDeque<K, V> window = new AccessOrderDeque<K, V>();
+
+    private final AccessOrderDeque<K, V> probation = new AccessOrderDeque<K, V>();
+
+    private final AccessOrderDeque<K, V> protectedSegment = new AccessOrderDeque<K, V>();
+
+    private final long windowMaximum;
+
+    private final long protectedMaximum;
+
+    private long weightedSize;
+
+    private long windowWeight;
+
+    private long protectedWeight;
+
+    /**
+     * @param maximum the maximum total weight of the entries
+     * @param weigher the entries weigher, {@code null} if each entry weighs {@code 1}
+     * @param expiryPolicy the expiry policy, {@code null} if entries never expire
+     * @param evictionListener notified when entries are evicted or expire
+     */
+    public BoundedLocalCache( long maximum,
+                              Weigher<? super K, ? super V> weigher,
+                              ExpiryPolicy<? super K, ? super V> expiryPolicy,
+                              EvictionListener<K, V> evictionListener )
+    {
+        if ( maximum < 0 )
+        {
+            throw new IllegalArgumentException( "Maximum must be non negative, found " + maximum );
+        }
+
+        this.maximum = maximum;
+        this.weigher = weigher;
+        this.expiryPolicy = expiryPolicy;
+        this.refreshOnAccess = expiryPolicy instanceof ExpiryPolicy.Accessed;
+        this.evictionListener = evictionListener;
+
+        windowMaximum = Math.max( Math.min( 1, maximum ), (long) ( maximum * WINDOW_PERCENTAGE ) );
+        protectedMaximum = (long) ( ( maximum - windowMaximum ) * PROTECTED_PERCENTAGE );
+
+        if ( weigher == null )
+        {
+            sketch.ensureCapacity( Math.min( maximum, 1024 ) );
+        }
+        else
+        {
+            sketch.ensureCapacity( 1024 );
+        }
+    }
+
+    /* Map operations */
+
+    public int size()
+    {
+        return data.size();
+    }
+
+    public long weightedSize()
+    {
+        evictionLock.lock();
+        try
+        {
+            maintenance();
+            return weightedSize;
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    public boolean containsKey( Object key )
+    {
+        Node<K, V> node = data.get( key );
+        return node != null && !hasExpired( node, now() );
+    }
+
+    public V get( Object key )
+    {
+        Node<K, V> node = data.get( key );
+        if ( node == null )
+        {
+            return null;
+        }
+
+        long now = now();
+        if ( hasExpired( node, now ) )
+        {
+            expire( node );
+            return null;
+        }
+
+        V value = node.value;
+        onReadExpiry( node, now );
+        afterRead( node );
+        return value;
+    }
+
+    /**
+     * Same as {@link #get(Object)} without recording the access, neither on the eviction nor on the expiry policy.
+     *
+     * @param key the key whose value has to be returned
+     * @return the value mapped to the key, {@code null} if none
+     */
+    public V getQuietly( Object key )
+    {
+        Node<K, V> node = data.get( key );
+        if ( node == null || hasExpired( node, now() ) )
+        {
+            return null;
+        }
+        return node.value;
+    }
+
+    /**
+     * Maps the value to the key.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the previous value, {@code null} if none
+     */
+    public V put( K key, V value )
+    {
+        return put( key, value, false );
+    }
+
+    /**
+     * Maps the value to the key, only if the key is not already mapped.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the current value, {@code null} if the input one has been stored
+     */
+    public V putIfAbsent( K key, V value )
+    {
+        return put( key, value, true );
+    }
+
+    private V put( K key, V value, boolean onlyIfAbsent )
+    {
+        checkNotNull( key, value );
+
+        int weight = weigh( key, value );
+        long now = now();
+
+        Node<K, V> node = null;
+        while ( true )
+        {
+            Node<K, V> prior = data.get( key );
+            if ( prior == null )
+            {
+                if ( node == null )
+                {
+                    node = new Node<K, V>( key, value, weight );
+                    onCreateExpiry( node, now );
+                }
+
+                prior = data.putIfAbsent( key, node );
+                if ( prior == null )
+                {
+                    afterWrite( new AddTask( node ) );
+                    return null;
+                }
+            }
+
+            V oldValue;
+            synchronized ( prior )
+            {
+                if ( !prior.isAlive() )
+                {
+                    // concurrently removed, retry
+                    continue;
+                }
+
+                oldValue = prior.value;
+                boolean expired = hasExpired( prior, now );
+                if ( onlyIfAbsent && !expired )
+                {
+                    // no policy update, counts as a read
+                    afterRead( prior );
+                    return oldValue;
+                }
+
+                prior.value = value;
+                prior.weight = weight;
+                if ( expired )
+                {
+                    onCreateExpiry( prior, now );
+                    oldValue = null;
+                }
+                else
+                {
+                    onUpdateExpiry( prior, now );
+                }
+            }
+
+            afterWrite( new UpdateTask( prior ) );
+            return oldValue;
+        }
+    }
+
+    /**
+     * Replaces the value mapped to the key, only if the key is already mapped.
+     *
+     * @param key the key
+     * @param value the new value
+     * @return the previous value, {@code null} if the key was not mapped
+     */
+    public V replace( K key, V value )
+    {
+        checkNotNull( key, value );
+
+        Node<K, V> node = data.get( key );
+        if ( node == null )
+        {
+            return null;
+        }
+
+        int weight = weigh( key, value );
+        long now = now();
+        V oldValue;
+        synchronized ( node )
+        {
+            if ( !node.isAlive() || hasExpired( node, now ) )
+            {
+                return null;
+            }
+            oldValue = node.value;
+            node.value = value;
+            node.weight = weight;
+            onUpdateExpiry( node, now );
+        }
+
+        afterWrite( new UpdateTask( node ) );
+        return oldValue;
+    }
+
+    /**
+     * Replaces the value mapped to the key, only if currently mapped to the given value.
+     *
+     * @param key the key
+     * @param oldValue the expected value
+     * @param newValue the new value
+     * @return true if the value has been replaced
+     */
+    public boolean replace( K key, V oldValue, V newValue )
+    {
+        checkNotNull( key, newValue );
+
+        Node<K, V> node = data.get( key );
+        if ( node == null || oldValue == null )
+        {
+            return false;
+        }
+
+        int weight = weigh( key, newValue );
+        long now = now();
+        synchronized ( node )
+        {
+            if ( !node.isAlive() || hasExpired( node, now ) || !node.value.equals( oldValue ) )
+            {
+                return false;
+            }
+            node.value = newValue;
+            node.weight = weight;
+            onUpdateExpiry( node, now );
+        }
+
+        afterWrite( new UpdateTask( node ) );
+        return true;
+    }
+
+    /**
+     * Removes the mapping for the key.
+     *
+     * @param key the key
+     * @return the removed value, {@code null} if none or if it was expired
+     */
+    public V remove( Object key )
+    {
+        Node<K, V> node = data.remove( key );
+        if ( node == null )
+        {
+            return null;
+        }
+
+        V oldValue;
+        synchronized ( node )
+        {
+            oldValue = node.value;
+            node.retire();
+        }
+
+        afterWrite( new RemovalTask( node ) );
+        return hasExpired( node, now() ) ? null : oldValue;
+    }
+
+    /**
+     * Removes the mapping for the key only if currently mapped to the given value.
+     *
+     * @param key the key
+     * @param value the expected value
+     * @return true if the mapping has been removed
+     */
+    public boolean remove( Object key, Object value )
+    {
+        Node<K, V> node = data.get( key );
+        if ( node == null || value == null )
+        {
+            return false;
+        }
+
+        synchronized ( node )
+        {
+            if ( !node.isAlive() || hasExpired( node, now() ) || !node.value.equals( value ) )
+            {
+                return false;
+            }
+            if ( !data.remove( key, node ) )
+            {
+                return false;
+            }
+            node.retire();
+        }
+
+        afterWrite( new RemovalTask( node ) );
+        return true;
+    }
+
+    public void clear()
+    {
+        evictionLock.lock();
+        try
+        {
+            maintenance();
+
+            for ( Node<K, V> node : data.values() )
+            {
+                if ( data.remove( node.key, node ) )
+                {
+                    synchronized ( node )
+                    {
+                        node.retire();
+                    }
+                    unlink( node );
+                    node.dead = true;
+                }
+            }
+
+            // drain the writes enqueued concurrently while clearing
+            maintenance();
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Applies pending reads and writes to the policy, evicts and expires the entries as needed.
+     */
+    public void cleanUp()
+    {
+        evictionLock.lock();
+        try
+        {
+            maintenance();
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Clears the cache, heap entries don't outlive it.
+     */
+    public void close()
+    {
+        clear();
+    }
+
+    /**
+     * Iterates over the not expired entries, without recording any access.
+     */
+    public Iterator<Cache.Entry<K, V>> iterator()
+    {
+        final Iterator<Node<K, V>> nodes = data.values().iterator();
+        return new Iterator<Cache.Entry<K, V>>()
+        {
+
+            private Node<K, V> next;
+
+            private Node<K, V> current;
+
+            public boolean hasNext()
+            {
+                long now = now();
+                while ( next == null && nodes.hasNext() )
+                {
+                    Node<K, V> node = nodes.next();
+                    if ( !hasExpired( node, now ) )
+                    {
+                        next = node;
+                    }
+                }
+                return next != null;
+            }
+
+            public Cache.Entry<K, V> next()
+            {
+                if ( !hasNext() )
+                {
+                    throw new NoSuchElementException();
+                }
+                current = next;
+                next = null;
+                return current;
+            }
+
+            public void remove()
+            {
+                if ( current == null )
+                {
+                    throw new IllegalStateException();
+                }
+                BoundedLocalCache.this.remove( current.key, current.value );
+                current = null;
+            }
+
+        };
+    }
+
+    /* Read and write buffers */
+
+    private void afterRead( Node<K, V> node )
+    {
+        if ( readBuffer.offer( node ) == ReadBuffer.FULL )
+        {
+            tryToDrainBuffers();
+        }
+    }
+
+    private void afterWrite( Runnable task )
+    {
+        writeBuffer.add( task );
+        if ( pendingWrites.incrementAndGet() > MAXIMUM_PENDING_WRITES )
+        {
+            // writers are faster than the maintenance, apply back pressure
+            evictionLock.lock();
+            try
+            {
+                maintenance();
+            }
+            finally
+            {
+                evictionLock.unlock();
+            }
+            return;
+        }
+        tryToDrainBuffers();
+    }
+
+    private void tryToDrainBuffers()
+    {
+        // loop so that writes enqueued while the lock holder was releasing it are not left behind
+        while ( evictionLock.tryLock() )
+        {
+            try
+            {
+                maintenance();
+            }
+            finally
+            {
+                evictionLock.unlock();
+            }
+
+            if ( writeBuffer.isEmpty() )
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Guarded by the eviction lock.
+     */
+    private void maintenance()
+    {
+        readBuffer.drainTo( accessRecorder );
+
+        Runnable task;
+        while ( ( task = writeBuffer.poll() ) != null )
+        {
+            pendingWrites.decrementAndGet();
+            task.run();
+        }
+
+        expireEntries();
+        evictEntries();
+    }
+
+    /* Policy, guarded by the eviction lock */
+
+    private void onAccess( Node<K, V> node )
+    {
+        if ( node.queue == Node.NONE )
+        {
+            // not yet added, or already removed
+            return;
+        }
+
+        sketch.increment( node.key );
+
+        switch ( node.queue )
+        {
+            case Node.WINDOW:
+                window.moveToBack( node );
+                break;
+
+            case Node.PROBATION:
+                // promoted to the protected segment
+                probation.remove( node );
+                protectedSegment.add( node );
+                node.queue = Node.PROTECTED;
+                protectedWeight += node.policyWeight;
+                demoteFromProtected();
+                break;
+
+            case Node.PROTECTED:
+                protectedSegment.moveToBack( node );
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    private void demoteFromProtected()
+    {
+        while ( protectedWeight > protectedMaximum )
+        {
+            Node<K, V> demoted = protectedSegment.poll();
+            if ( demoted == null )
+            {
+                break;
+            }
+            protectedWeight -= demoted.policyWeight;
+            probation.add( demoted );
+            demoted.queue = Node.PROBATION;
+        }
+    }
+
+    private void unlink( Node<K, V> node )
+    {
+        switch ( node.queue )
+        {
+            case Node.WINDOW:
+                window.remove( node );
+                windowWeight -= node.policyWeight;
+                break;
+
+            case Node.PROBATION:
+                probation.remove( node );
+                break;
+
+            case Node.PROTECTED:
+                protectedSegment.remove( node );
+                protectedWeight -= node.policyWeight;
+                break;
+
+            default:
+                return;
+        }
+
+        weightedSize -= node.policyWeight;
+        node.queue = Node.NONE;
+    }
+
+    private void evictEntries()
+    {
+        sketch.ensureCapacity( ( weigher == null ) ? Math.min( maximum, data.size() ) : data.size() );
+
+        int candidates = evictFromWindow();
+        evictFromMain( candidates );
+    }
+
+    /**
+     * Moves the entries exceeding the window capacity to the probation segment, where they become admission
+     * candidates.
+     *
+     * @return the number of candidates moved to the probation segment
+     */
+    private int evictFromWindow()
+    {
+        int candidates = 0;
+        while ( windowWeight > windowMaximum )
+        {
+            Node<K, V> node = window.poll();
+            if ( node == null )
+            {
+                break;
+            }
+            windowWeight -= node.policyWeight;
+            probation.add( node );
+            node.queue = Node.PROBATION;
+            candidates++;
+        }
+        return candidates;
+    }
+
+    /**
+     * Evicts from the main space while the cache exceeds its maximum, the candidates (at the tail of the probation
+     * segment) are admitted only if more popular than the victims (at the head of the probation segment). Each
+     * candidate is compared once, from the last moved backwards: whichever of the two loses is evicted, and the
+     * winning victim is compared to the next candidate.
+     *
+     * @param candidates the number of admission candidates
+     */
+    private void evictFromMain( int candidates )
+    {
+        Node<K, V> candidate = ( candidates > 0 ) ? probation.peekLast() : null;
+        while ( weightedSize > maximum )
+        {
+            Node<K, V> victim = probation.peekFirst();
+            if ( victim == null )
+            {
+                victim = protectedSegment.peekFirst();
+            }
+            if ( victim == null )
+            {
+                victim = window.peekFirst();
+            }
+            if ( victim == null )
+            {
+                break;
+            }
+
+            if ( candidate == null || candidate == victim )
+            {
+                // no candidate left to compare to, the probation segment is evicted in LRU order
+                evict( victim, false );
+                candidate = null;
+                continue;
+            }
+
+            Node<K, V> previous = candidate.previous;
+            if ( sketch.frequency( candidate.key ) > sketch.frequency( victim.key ) )
+            {
+                evict( victim, false );
+                // admitted: the next candidate is the one now before it, the victim may have been a candidate too
+                previous = candidate.previous;
+            }
+            else
+            {
+                evict( candidate, false );
+            }
+            candidate = ( --candidates > 0 ) ? previous : null;
+        }
+    }
+
+    private void expireEntries()
+    {
+        if ( expiryPolicy == null )
+        {
+            return;
+        }
+
+        long now = now();
+        expireEntries( window, now );
+        expireEntries( probation, now );
+        expireEntries( protectedSegment, now );
+    }
+
+    private void expireEntries( AccessOrderDeque<K, V> deque, long now )
+    {
+        Node<K, V> node;
+        while ( ( node = deque.peekFirst() ) != null && hasExpired( node, now ) )
+        {
+            evict( node, true );
+        }
+    }
+
+    private void evict( Node<K, V> node, boolean expired )
+    {
+        unlink( node );
+        node.dead = true;
+
+        V value;
+        boolean removed = data.remove( node.key, node );
+        synchronized ( node )
+        {
+            value = node.value;
+            node.retire();
+        }
+
+        if ( removed && evictionListener != null )
+        {
+            evictionListener.onEviction( node.key, value, expired );
+        }
+    }
+
+    /**
+     * Removes an entry found expired while reading it.
+     */
+    private void expire( Node<K, V> node )
+    {
+        if ( data.remove( node.key, node ) )
+        {
+            V value;
+            synchronized ( node )
+            {
+                value = node.value;
+                node.retire();
+            }
+            afterWrite( new RemovalTask( node ) );
+
+            if ( evictionListener != null )
+            {
+                evictionListener.onEviction( node.key, value, true );
+            }
+        }
+    }
+
+    /* Expiry */
+
+    private static long now()
+    {
+        return System.nanoTime();
+    }
+
+    private boolean hasExpired( Node<K, V> node, long now )
+    {
+        if ( expiryPolicy == null )
+        {
+            return false;
+        }
+        long expiresAt = node.expiresAt;
+        return expiresAt != Long.MAX_VALUE && now - expiresAt >= 0;
+    }
+
+    private void onCreateExpiry( Node<K, V> node, long now )
+    {
+        if ( expiryPolicy != null )
+        {
+            setExpiry( node, expiryPolicy.getTTLForCreatedEntry( node ), now );
+        }
+    }
+
+    private void onUpdateExpiry( Node<K, V> node, long now )
+    {
+        if ( expiryPolicy != null )
+        {
+            Duration ttl = expiryPolicy.getTTLForModifiedEntry( node, node.ttl );
+            if ( ttl != null )
+            {
+                setExpiry( node, ttl, now );
+            }
+        }
+    }
+
+    private void onReadExpiry( Node<K, V> node, long now )
+    {
+        if ( expiryPolicy != null )
+        {
+            Duration current = node.ttl;
+            Duration ttl = expiryPolicy.getTTLForAccessedEntry( node, current );
+            // returning the current duration means "unchanged", except for the access based policy
+            if ( ttl != null && ( ttl != current || refreshOnAccess ) )
+            {
+                setExpiry( node, ttl, now );
+            }
+        }
+    }
+
+    private static void setExpiry( Node<?, ?> node, Duration ttl, long now )
+    {
+        node.ttl = ttl;
+        if ( ttl == null || ttl.isEternal() )
+        {
+            node.expiresAt = Long.MAX_VALUE;
+            return;
+        }
+
+        long nanos = ttl.getTimeUnit().toNanos( ttl.getDurationAmount() );
+        node.expiresAt = ( nanos >= Long.MAX_VALUE - Math.max( 0, now ) ) ? Long.MAX_VALUE - 1 : now + nanos;
+    }
+
+    /* Utilities */
+
+    private int weigh( K key, V value )
+    {
+        if ( weigher == null )
+        {
+            return 1;
+        }
+
+        int weight = weigher.weigh( key, value );
+        if ( weight < 0 )
+        {
+            throw new IllegalArgumentException( "Negative weight " + weight + " for key " + key );
+        }
+        return weight;
+    }
+
+    private static void checkNotNull( Object key, Object value )
+    {
+        if ( key == null )
+        {
+            throw new NullPointerException( "Null keys are not allowed" );
+        }
+        if ( value == null )
+        {
+            throw new NullPointerException( "Null values are not allowed" );
+        }
+    }
+
+    /* Write tasks, run under the eviction lock */
+
+    private final class AddTask
+        implements Runnable
+    {
+
+        private final Node<K, V> node;
+
+        public AddTask( Node<K, V> node )
+        {
+            this.node = node;
+        }
+
+        public void run()
+        {
+            if ( node.dead )
+            {
+                // removed before being added to the policy
+                return;
+            }
+
+            node.policyWeight = node.weight;
+            window.add( node );
+            node.queue = Node.WINDOW;
+            windowWeight += node.policyWeight;
+            weightedSize += node.policyWeight;
+            sketch.increment( node.key );
+        }
+
+    }
+
+    private final class UpdateTask
+        implements Runnable
+    {
+
+        private final Node<K, V> node;
+
+        public UpdateTask( Node<K, V> node )
+        {
+            this.node = node;
+        }
+
+        public void run()
+        {
+            if ( node.queue == Node.NONE )
+            {
+                // the pending add task will pick the new weight up
+                return;
+            }
+
+            int delta = node.weight - node.policyWeight;
+            node.policyWeight = node.weight;
+            weightedSize += delta;
+            if ( node.queue == Node.WINDOW )
+            {
+                windowWeight += delta;
+            }
+            else if ( node.queue == Node.PROTECTED )
+            {
+                protectedWeight += delta;
+            }
+            onAccess( node );
+        }
+
+    }
+
+    private final class RemovalTask
+        implements Runnable
+    {
+
+        private final Node<K, V> node;
+
+        public RemovalTask( Node<K, V> node )
+        {
+            this.node = node;
+        }
+
+        public void run()
+        {
+            unlink( node );
+            node.dead = true;
+        }
+
+    }
+
+    /**
+     * A cache entry, also linked in one of the policy deques.
+     */
+    static final class Node<K, V>
+        implements Cache.Entry<K, V>, ExpiringCacheEntry
+    {
+
+        static final int NONE = -1;
+
+        static final int WINDOW = 0;
+
+        static final int PROBATION = 1;
+
+        static final int PROTECTED = 2;
+
+        final K key;
+
+        // guarded by the node monitor for writes
+
+        volatile V value;
+
+        volatile int weight;
+
+        private volatile boolean alive = true;
+
+        volatile long expiresAt = Long.MAX_VALUE;
+
+        volatile Duration ttl;
+
+        // guarded by the eviction lock
+
+        int policyWeight;
+
+        int queue = NONE;
+
+        boolean dead;
+
+        Node<K, V> previous;
+
+        Node<K, V> next;
+
+        Node( K key, V value, int weight )
+        {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+
+        public K getKey()
+        {
+            return key;
+        }
+
+        public V getValue()
+        {
+            return value;
+        }
+
+        public long getExpirationTime()
+        {
+            long expiration = expiresAt;
+            if ( expiration == Long.MAX_VALUE )
+            {
+                return Long.MAX_VALUE;
+            }
+            // expiration times are relative to the nano time
+            return System.currentTimeMillis() + TimeUnit.NANOSECONDS.toMillis( expiration - now() );
+        }
+
+        boolean isAlive()
+        {
+            return alive;
+        }
+
+        /**
+         * Invoked, holding the node monitor, once the node has been removed from the map.
+         */
+        void retire()
+        {
+            alive = false;
+        }
+
+        @Override
+        public String toString()
+        {
+            return key + "=" + value;
+        }
+
+    }
+
+    /**
+     * Intrusive doubly linked list of nodes, in access order: least recently used first.
+     */
+    static final class AccessOrderDeque<K, V>
+    {
+
+        private Node<K, V> first;
+
+        private Node<K, V> last;
+
+        public Node<K, V> peekFirst()
+        {
+            return first;
+        }
+
+        public Node<K, V> peekLast()
+        {
+            return last;
+        }
+
+        public void add( Node<K, V> node )
+        {
+            node.previous = last;
+            node.next = null;
+            if ( last == null )
+            {
+                first = node;
+            }
+            else
+            {
+                last.next = node;
+            }
+            last = node;
+        }
+
+        public Node<K, V> poll()
+        {
+            Node<K, V> node = first;
+            if ( node != null )
+            {
+                remove( node );
+            }
+            return node;
+        }
+
+        public void remove( Node<K, V> node )
+        {
+            Node<K, V> previous = node.previous;
+            Node<K, V> next = node.next;
+
+            if ( previous == null )
+            {
+                first = next;
+            }
+            else
+            {
+                previous.next = next;
+            }
+
+            if ( next == null )
+            {
+                last = previous;
+            }
+            else
+            {
+                next.previous = previous;
+            }
+
+            node.previous = null;
+            node.next = null;
+        }
+
+        public void moveToBack( Node<K, V> node )
+        {
+            if ( node != last )
+            {
+                remove( node );
+                add( node );
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,158 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * A probabilistic multiset, based on a 4-bit Count-Min sketch, used to estimate the popularity of the cached keys
+ * within a time window. The counters are periodically halved so that the history ages and the sketch keeps
+ * tracking the recent popularity, that is the TinyLFU admission policy.
+ *
+ * This class is not thread-safe, all the accesses are guarded by the cache eviction lock.
+ */
+final class FrequencySketch
+{
+
+    private static final long[] SEED = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+        0xcbf29ce484222325L };
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private long[] table = new long[0];
+
+    private int tableMask;
+
+    private int sampleSize;
+
+    private int size;
+
+    /**
+     * Grows the sketch so that it can accurately estimate the popularity of the input number of elements.
+     * Resizing drops the collected frequencies.
+     *
+     * @param maximumSize the expected number of elements
+     */
+    public void ensureCapacity( long maximumSize )
+    {
+        int maximum = (int) Math.min( Math.max( maximumSize, 16 ), MAXIMUM_CAPACITY );
+        if ( table.length >= maximum )
+        {
+            return;
+        }
+
+        table = new long[ceilingPowerOfTwo( maximum )];
+        tableMask = Math.max( 0, table.length - 1 );
+        sampleSize = 10 * maximum;
+        if ( sampleSize <= 0 )
+        {
+            sampleSize = Integer.MAX_VALUE;
+        }
+        size = 0;
+    }
+
+    /**
+     * Returns the estimated number of occurrences of an element, up to the maximum (15).
+     *
+     * @param e the element to count occurrences of
+     * @return the estimated number of occurrences of the element
+     */
+    public int frequency( Object e )
+    {
+        int hash = spread( e.hashCode() );
+        int start = ( hash & 3 ) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for ( int i = 0; i < 4; i++ )
+        {
+            int index = indexOf( hash, i );
+            int count = (int) ( ( table[index] >>> ( ( start + i ) << 2 ) ) & 0xfL );
+            frequency = Math.min( frequency, count );
+        }
+        return frequency;
+    }
+
+    /**
+     * Increments the popularity of the element if it does not exceed the maximum (15). When the number of
+     * increments reaches the sample size all the counters are halved.
+     *
+     * @param e the element to add
+     */
+    public void increment( Object e )
+    {
+        int hash = spread( e.hashCode() );
+        int start = ( hash & 3 ) << 2;
+
+        boolean added = false;
+        for ( int i = 0; i < 4; i++ )
+        {
+            added |= incrementAt( indexOf( hash, i ), start + i );
+        }
+
+        if ( added && ( ++size == sampleSize ) )
+        {
+            reset();
+        }
+    }
+
+    private boolean incrementAt( int i, int j )
+    {
+        int offset = j << 2;
+        long mask = ( 0xfL << offset );
+        if ( ( table[i] & mask ) != mask )
+        {
+            table[i] += ( 1L << offset );
+            return true;
+        }
+        return false;
+    }
+
+    private void reset()
+    {
+        int count = 0;
+        for ( int i = 0; i < table.length; i++ )
+        {
+            count += Long.bitCount( table[i] & ONE_MASK );
+            table[i] = ( table[i] >>> 1 ) & RESET_MASK;
+        }
+        size = ( size - ( count >>> 2 ) ) >>> 1;
+    }
+
+    private int indexOf( int item, int i )
+    {
+        long hash = ( item + SEED[i] ) * SEED[i];
+        hash += ( hash >>> 32 );
+        return ( (int) hash ) & tableMask;
+    }
+
+    private static int spread( int x )
+    {
+        x = ( ( x >>> 16 ) ^ x ) * 0x45d9f3b;
+        x = ( ( x >>> 16 ) ^ x ) * 0x45d9f3b;
+        return ( x >>> 16 ) ^ x;
+    }
+
+    static int ceilingPowerOfTwo( int x )
+    {
+        return 1 << -Integer.numberOfLeadingZeros( x - 1 );
+    }
+
+}
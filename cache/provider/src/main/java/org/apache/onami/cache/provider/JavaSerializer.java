@@ -0,0 +1,81 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import javax.cache.CacheException;
+
+/**
+ * A {@link Serializer} relying on the standard Java serialization, the default one of the off-heap caches.
+ *
+ * @param <T> the type of the serialized objects
+ * @since 0.1.0
+ */
+public final class JavaSerializer<T>
+    implements Serializer<T>
+{
+
+    public byte[] serialize( T object )
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try
+        {
+            ObjectOutputStream output = new ObjectOutputStream( bytes );
+            output.writeObject( object );
+            output.close();
+        }
+        catch ( IOException e )
+        {
+            throw new CacheException( "Impossible to serialize " + object, e );
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public T deserialize( byte[] bytes )
+    {
+        try
+        {
+            ObjectInputStream input = new ObjectInputStream( new ByteArrayInputStream( bytes ) );
+            try
+            {
+                return (T) input.readObject();
+            }
+            finally
+            {
+                input.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new CacheException( "Impossible to deserialize the cached object", e );
+        }
+        catch ( ClassNotFoundException e )
+        {
+            throw new CacheException( "Impossible to deserialize the cached object", e );
+        }
+    }
+
+}
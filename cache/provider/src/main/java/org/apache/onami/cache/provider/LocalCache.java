@@ -0,0 +1,800 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Callable;
+
+import javax.cache.Cache;
+import javax.cache.CacheLoader;
+import javax.cache.CacheMXBean;
+import javax.cache.CacheManager;
+import javax.cache.CacheStatisticsMXBean;
+import javax.cache.CacheWriter;
+import javax.cache.Configuration;
+import javax.cache.ExpiryPolicy;
+import javax.cache.Status;
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryEventFilter;
+import javax.cache.event.CacheEntryExpiredListener;
+import javax.cache.event.CacheEntryListener;
+import javax.cache.event.CacheEntryReadListener;
+import javax.cache.event.CacheEntryRemovedListener;
+import javax.cache.event.CacheEntryUpdatedListener;
+
+/**
+ * The in-process {@code javax.cache.Cache} implementation, backed by the {@link LocalStore} created by its
+ * {@link LocalCacheConfiguration}.
+ *
+ * Listeners are always notified synchronously, on the thread that performed the operation. Loads required by
+ * {@link #load(Object)} and {@link #loadAll(Set)} are performed by the calling thread as well, the returned
+ * {@code Future} is already completed.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+final class LocalCache<K, V>
+    implements Cache<K, V>
+{
+
+    private final String name;
+
+    private final LocalCacheManager cacheManager;
+
+    private final LocalCacheConfiguration<K, V> configuration;
+
+    private final LocalStore<K, V> store;
+
+    private final LocalCacheStatistics statistics = new LocalCacheStatistics();
+
+    private final List<Registration<K, V>> registrations = new CopyOnWriteArrayList<Registration<K, V>>();
+
+    private volatile Status status = Status.STARTED;
+
+    public LocalCache( String name, LocalCacheManager cacheManager, LocalCacheConfiguration<K, V> configuration )
+    {
+        this.name = name;
+        this.cacheManager = cacheManager;
+        this.configuration = configuration;
+
+        ExpiryPolicy<? super K, ? super V> expiryPolicy = configuration.getExpiryPolicy();
+        if ( expiryPolicy instanceof ExpiryPolicy.Default )
+        {
+            // eternal entries, don't pay for the expiry checks
+            expiryPolicy = null;
+        }
+
+        store = configuration.newStore( expiryPolicy, new LocalStore.EvictionListener<K, V>()
+        {
+
+            public void onEviction( K key, V value, boolean expired )
+            {
+                if ( expired )
+                {
+                    dispatch( EventType.EXPIRED, key, value, value );
+                }
+                else if ( isStatisticsEnabled() )
+                {
+                    statistics.recordEviction();
+                }
+            }
+
+        } );
+
+        for ( javax.cache.event.CacheEntryListenerRegistration<? super K, ? super V> registration
+                        : configuration.getCacheEntryListenerRegistrations() )
+        {
+            registerCacheEntryListener( registration.getCacheEntryListener(),
+                                        registration.isOldValueRequired(),
+                                        registration.getCacheEntryFilter(),
+                                        registration.isSynchronous() );
+        }
+    }
+
+    /* Reads */
+
+    public V get( K key )
+    {
+        checkStarted();
+
+        long start = startTime();
+        V value = store.get( key );
+        if ( value == null && configuration.isReadThrough() )
+        {
+            value = loadAndPut( key );
+        }
+        else if ( value != null )
+        {
+            dispatch( EventType.READ, key, value, null );
+        }
+
+        if ( start != 0 )
+        {
+            statistics.recordGet( value != null, System.nanoTime() - start );
+        }
+        return value;
+    }
+
+    public Map<K, V> getAll( Set<? extends K> keys )
+    {
+        checkStarted();
+
+        Map<K, V> result = new HashMap<K, V>( keys.size() );
+        for ( K key : keys )
+        {
+            V value = get( key );
+            if ( value != null )
+            {
+                result.put( key, value );
+            }
+        }
+        return result;
+    }
+
+    public boolean containsKey( K key )
+    {
+        checkStarted();
+        return store.containsKey( key );
+    }
+
+    public Future<V> load( final K key )
+    {
+        checkStarted();
+
+        FutureTask<V> task = new FutureTask<V>( new Callable<V>()
+        {
+
+            public V call()
+                throws Exception
+            {
+                V value = store.getQuietly( key );
+                return value != null ? value : loadAndPut( key );
+            }
+
+        } );
+        task.run();
+        return task;
+    }
+
+    public Future<Map<K, ? extends V>> loadAll( final Set<? extends K> keys )
+    {
+        checkStarted();
+
+        FutureTask<Map<K, ? extends V>> task = new FutureTask<Map<K, ? extends V>>( new Callable<Map<K, ? extends V>>()
+        {
+
+            public Map<K, ? extends V> call()
+                throws Exception
+            {
+                Map<K, V> result = new HashMap<K, V>( keys.size() );
+                for ( K key : keys )
+                {
+                    V value = store.getQuietly( key );
+                    if ( value == null )
+                    {
+                        value = loadAndPut( key );
+                    }
+                    if ( value != null )
+                    {
+                        result.put( key, value );
+                    }
+                }
+                return result;
+            }
+
+        } );
+        task.run();
+        return task;
+    }
+
+    private V loadAndPut( K key )
+    {
+        CacheLoader<K, ? extends V> cacheLoader = configuration.getCacheLoader();
+        if ( cacheLoader == null )
+        {
+            return null;
+        }
+
+        Cache.Entry<K, ? extends V> loaded = cacheLoader.load( key );
+        if ( loaded == null || loaded.getValue() == null )
+        {
+            return null;
+        }
+
+        V value = loaded.getValue();
+        V oldValue = store.putIfAbsent( key, value );
+        if ( oldValue != null )
+        {
+            // concurrently loaded by someone else
+            return oldValue;
+        }
+        dispatch( EventType.CREATED, key, value, null );
+        return value;
+    }
+
+    /* Writes */
+
+    public void put( K key, V value )
+    {
+        getAndPut( key, value );
+    }
+
+    public V getAndPut( K key, V value )
+    {
+        checkStarted();
+
+        long start = startTime();
+        V oldValue = store.put( key, value );
+        writeThrough( key, value );
+        if ( start != 0 )
+        {
+            statistics.recordPut( System.nanoTime() - start );
+        }
+
+        if ( oldValue == null )
+        {
+            dispatch( EventType.CREATED, key, value, null );
+        }
+        else
+        {
+            dispatch( EventType.UPDATED, key, value, oldValue );
+        }
+        return oldValue;
+    }
+
+    public void putAll( Map<? extends K, ? extends V> map )
+    {
+        checkStarted();
+
+        for ( Map.Entry<? extends K, ? extends V> entry : map.entrySet() )
+        {
+            put( entry.getKey(), entry.getValue() );
+        }
+    }
+
+    public boolean putIfAbsent( K key, V value )
+    {
+        checkStarted();
+
+        long start = startTime();
+        if ( store.putIfAbsent( key, value ) != null )
+        {
+            return false;
+        }
+
+        writeThrough( key, value );
+        if ( start != 0 )
+        {
+            statistics.recordPut( System.nanoTime() - start );
+        }
+        dispatch( EventType.CREATED, key, value, null );
+        return true;
+    }
+
+    public boolean remove( K key )
+    {
+        return getAndRemove( key ) != null;
+    }
+
+    public boolean remove( K key, V oldValue )
+    {
+        checkStarted();
+
+        long start = startTime();
+        if ( !store.remove( key, oldValue ) )
+        {
+            return false;
+        }
+
+        deleteThrough( key );
+        if ( start != 0 )
+        {
+            statistics.recordRemoval( System.nanoTime() - start );
+        }
+        dispatch( EventType.REMOVED, key, oldValue, oldValue );
+        return true;
+    }
+
+    public V getAndRemove( K key )
+    {
+        checkStarted();
+
+        long start = startTime();
+        V oldValue = store.remove( key );
+        deleteThrough( key );
+        if ( oldValue == null )
+        {
+            return null;
+        }
+
+        if ( start != 0 )
+        {
+            statistics.recordRemoval( System.nanoTime() - start );
+        }
+        dispatch( EventType.REMOVED, key, oldValue, oldValue );
+        return oldValue;
+    }
+
+    public boolean replace( K key, V oldValue, V newValue )
+    {
+        checkStarted();
+
+        long start = startTime();
+        if ( !store.replace( key, oldValue, newValue ) )
+        {
+            return false;
+        }
+
+        writeThrough( key, newValue );
+        if ( start != 0 )
+        {
+            statistics.recordPut( System.nanoTime() - start );
+        }
+        dispatch( EventType.UPDATED, key, newValue, oldValue );
+        return true;
+    }
+
+    public boolean replace( K key, V value )
+    {
+        return getAndReplace( key, value ) != null;
+    }
+
+    public V getAndReplace( K key, V value )
+    {
+        checkStarted();
+
+        long start = startTime();
+        V oldValue = store.replace( key, value );
+        if ( oldValue == null )
+        {
+            return null;
+        }
+
+        writeThrough( key, value );
+        if ( start != 0 )
+        {
+            statistics.recordPut( System.nanoTime() - start );
+        }
+        dispatch( EventType.UPDATED, key, value, oldValue );
+        return oldValue;
+    }
+
+    public void removeAll( Set<? extends K> keys )
+    {
+        checkStarted();
+
+        for ( K key : keys )
+        {
+            remove( key );
+        }
+    }
+
+    public void removeAll()
+    {
+        checkStarted();
+
+        for ( Iterator<Cache.Entry<K, V>> entries = store.iterator(); entries.hasNext(); )
+        {
+            remove( entries.next().getKey() );
+        }
+    }
+
+    public void clear()
+    {
+        checkStarted();
+        store.clear();
+    }
+
+    public <T> T invokeEntryProcessor( K key, EntryProcessor<K, V, T> entryProcessor )
+    {
+        checkStarted();
+
+        // optimistic: the processor runs against a snapshot, its outcome is applied only if the entry didn't change
+        while ( true )
+        {
+            V current = store.get( key );
+            ProcessorEntry entry = new ProcessorEntry( key, current );
+            T result = entryProcessor.process( entry );
+
+            if ( !entry.modified )
+            {
+                return result;
+            }
+
+            boolean applied;
+            if ( entry.value == null )
+            {
+                applied = ( current == null ) || remove( key, current );
+            }
+            else if ( current == null )
+            {
+                applied = putIfAbsent( key, entry.value );
+            }
+            else
+            {
+                applied = replace( key, current, entry.value );
+            }
+
+            if ( applied )
+            {
+                return result;
+            }
+        }
+    }
+
+    private void writeThrough( K key, V value )
+    {
+        CacheWriter<? super K, ? super V> cacheWriter = configuration.getCacheWriter();
+        if ( cacheWriter != null && configuration.isWriteThrough() )
+        {
+            cacheWriter.write( new BoundedLocalCache.Node<K, V>( key, value, 0 ) );
+        }
+    }
+
+    private void deleteThrough( K key )
+    {
+        CacheWriter<? super K, ? super V> cacheWriter = configuration.getCacheWriter();
+        if ( cacheWriter != null && configuration.isWriteThrough() )
+        {
+            cacheWriter.delete( key );
+        }
+    }
+
+    /* Listeners */
+
+    public boolean registerCacheEntryListener( CacheEntryListener<? super K, ? super V> cacheEntryListener,
+                                               boolean requireOldValue,
+                                               CacheEntryEventFilter<? super K, ? super V> cacheEntryFilter,
+                                               boolean synchronous )
+    {
+        if ( cacheEntryListener == null )
+        {
+            throw new NullPointerException( "Argument 'cacheEntryListener' must be not null" );
+        }
+
+        for ( Registration<K, V> registration : registrations )
+        {
+            if ( registration.listener.equals( cacheEntryListener ) )
+            {
+                return false;
+            }
+        }
+
+        registrations.add( new Registration<K, V>( cacheEntryListener, requireOldValue, cacheEntryFilter ) );
+        return true;
+    }
+
+    public boolean unregisterCacheEntryListener( CacheEntryListener<?, ?> cacheEntryListener )
+    {
+        for ( Registration<K, V> registration : registrations )
+        {
+            if ( registration.listener.equals( cacheEntryListener ) )
+            {
+                return registrations.remove( registration );
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private void dispatch( EventType type, K key, V value, V oldValue )
+    {
+        if ( registrations.isEmpty() )
+        {
+            return;
+        }
+
+        for ( Registration<K, V> registration : registrations )
+        {
+            if ( !type.accepts( registration.listener ) )
+            {
+                continue;
+            }
+
+            CacheEntryEvent<K, V> event =
+                new LocalCacheEntryEvent<K, V>( this, key, value, oldValue, registration.oldValueRequired );
+            if ( registration.filter != null
+                && !( (CacheEntryEventFilter<K, V>) registration.filter ).evaluate( event ) )
+            {
+                continue;
+            }
+
+            Iterable<CacheEntryEvent<? extends K, ? extends V>> events =
+                Collections.<CacheEntryEvent<? extends K, ? extends V>> singleton( event );
+            type.fire( (CacheEntryListener<K, V>) registration.listener, events );
+        }
+    }
+
+    /* Management */
+
+    public Configuration<K, V> getConfiguration()
+    {
+        return configuration;
+    }
+
+    public CacheStatisticsMXBean getStatistics()
+    {
+        return statistics;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public CacheManager getCacheManager()
+    {
+        return cacheManager;
+    }
+
+    public <T> T unwrap( Class<T> cls )
+    {
+        if ( cls.isInstance( this ) )
+        {
+            return cls.cast( this );
+        }
+        throw new IllegalArgumentException( "Unwrapping to " + cls + " is not supported" );
+    }
+
+    public Iterator<Cache.Entry<K, V>> iterator()
+    {
+        checkStarted();
+        return store.iterator();
+    }
+
+    public CacheMXBean getMBean()
+    {
+        return new CacheMXBean()
+        {
+
+            public String getName()
+            {
+                return name;
+            }
+
+            public Status getStatus()
+            {
+                return status;
+            }
+
+        };
+    }
+
+    public void start()
+    {
+        status = Status.STARTED;
+    }
+
+    public void stop()
+    {
+        status = Status.STOPPED;
+        store.close();
+    }
+
+    public Status getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * @return the number of entries currently stored
+     */
+    int size()
+    {
+        return store.size();
+    }
+
+    /**
+     * Performs the pending maintenance of the eviction policy.
+     */
+    void cleanUp()
+    {
+        store.cleanUp();
+    }
+
+    private boolean isStatisticsEnabled()
+    {
+        return configuration.isStatisticsEnabled();
+    }
+
+    private long startTime()
+    {
+        return isStatisticsEnabled() ? System.nanoTime() : 0L;
+    }
+
+    private void checkStarted()
+    {
+        if ( status != Status.STARTED )
+        {
+            throw new IllegalStateException( "Cache " + name + " is " + status );
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LocalCache[" + name + "]";
+    }
+
+    private final class ProcessorEntry
+        implements Cache.MutableEntry<K, V>
+    {
+
+        private final K key;
+
+        private V value;
+
+        private boolean modified;
+
+        public ProcessorEntry( K key, V value )
+        {
+            this.key = key;
+            this.value = value;
+        }
+
+        public K getKey()
+        {
+            return key;
+        }
+
+        public V getValue()
+        {
+            return value;
+        }
+
+        public boolean exists()
+        {
+            return value != null;
+        }
+
+        public void remove()
+        {
+            value = null;
+            modified = true;
+        }
+
+        public void setValue( V value )
+        {
+            if ( value == null )
+            {
+                throw new NullPointerException( "Null values are not allowed" );
+            }
+            this.value = value;
+            modified = true;
+        }
+
+    }
+
+    private static final class Registration<K, V>
+    {
+
+        private final CacheEntryListener<? super K, ? super V> listener;
+
+        private final boolean oldValueRequired;
+
+        private final CacheEntryEventFilter<? super K, ? super V> filter;
+
+        public Registration( CacheEntryListener<? super K, ? super V> listener,
+                             boolean oldValueRequired,
+                             CacheEntryEventFilter<? super K, ? super V> filter )
+        {
+            this.listener = listener;
+            this.oldValueRequired = oldValueRequired;
+            this.filter = filter;
+        }
+
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private enum EventType
+    {
+
+        CREATED
+        {
+            @Override
+            boolean accepts( CacheEntryListener<?, ?> listener )
+            {
+                return listener instanceof CacheEntryCreatedListener;
+            }
+
+            @Override
+            <K, V> void fire( CacheEntryListener<K, V> listener, Iterable<CacheEntryEvent<? extends K, ? extends V>> events )
+            {
+                ( (CacheEntryCreatedListener<K, V>) listener ).onCreated( events );
+            }
+        },
+
+        UPDATED
+        {
+            @Override
+            boolean accepts( CacheEntryListener<?, ?> listener )
+            {
+                return listener instanceof CacheEntryUpdatedListener;
+            }
+
+            @Override
+            <K, V> void fire( CacheEntryListener<K, V> listener, Iterable<CacheEntryEvent<? extends K, ? extends V>> events )
+            {
+                ( (CacheEntryUpdatedListener<K, V>) listener ).onUpdated( events );
+            }
+        },
+
+        REMOVED
+        {
+            @Override
+            boolean accepts( CacheEntryListener<?, ?> listener )
+            {
+                return listener instanceof CacheEntryRemovedListener;
+            }
+
+            @Override
+            <K, V> void fire( CacheEntryListener<K, V> listener, Iterable<CacheEntryEvent<? extends K, ? extends V>> events )
+            {
+                ( (CacheEntryRemovedListener<K, V>) listener ).onRemoved( events );
+            }
+        },
+
+        EXPIRED
+        {
+            @Override
+            boolean accepts( CacheEntryListener<?, ?> listener )
+            {
+                return listener instanceof CacheEntryExpiredListener;
+            }
+
+            @Override
+            <K, V> void fire( CacheEntryListener<K, V> listener, Iterable<CacheEntryEvent<? extends K, ? extends V>> events )
+            {
+                ( (CacheEntryExpiredListener<K, V>) listener ).onExpired( events );
+            }
+        },
+
+        READ
+        {
+            @Override
+            boolean accepts( CacheEntryListener<?, ?> listener )
+            {
+                return listener instanceof CacheEntryReadListener;
+            }
+
+            @Override
+            <K, V> void fire( CacheEntryListener<K, V> listener, Iterable<CacheEntryEvent<? extends K, ? extends V>> events )
+            {
+                ( (CacheEntryReadListener<K, V>) listener ).onRead( events );
+            }
+        };
+
+        abstract boolean accepts( CacheEntryListener<?, ?> listener );
+
+        abstract <K, V> void fire( CacheEntryListener<K, V> listener,
+                                   Iterable<CacheEntryEvent<? extends K, ? extends V>> events );
+
+    }
+
+}
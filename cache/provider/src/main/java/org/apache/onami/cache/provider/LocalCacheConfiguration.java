@@ -0,0 +1,173 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.cache.Configuration;
+import javax.cache.ExpiryPolicy;
+import javax.cache.MutableConfiguration;
+
+/**
+ * The {@code javax.cache.Configuration} of the caches created by the {@link LocalCacheManager}: in addition to the
+ * standard settings, it specifies how the cache is bounded, either by the number of entries or by their total
+ * weight. Expiration is configured through the standard {@code javax.cache.ExpiryPolicy}, i.e.
+ * {@code ExpiryPolicy.Modified} expires entries after write, {@code ExpiryPolicy.Accessed} after access.
+ *
+ * Local caches store entries by reference.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @since 0.1.0
+ */
+public class LocalCacheConfiguration<K, V>
+    extends MutableConfiguration<K, V>
+{
+
+    /**
+     * The maximum number of entries of caches not explicitly bounded.
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 10000L;
+
+    private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+    private long maximumWeight = -1L;
+
+    private Weigher<? super K, ? super V> weigher;
+
+    public LocalCacheConfiguration()
+    {
+        setStoreByValue( false );
+    }
+
+    /**
+     * Creates a new configuration copying the input one.
+     *
+     * @param configuration the configuration to copy
+     */
+    public LocalCacheConfiguration( Configuration<K, V> configuration )
+    {
+        super( configuration );
+        setStoreByValue( false );
+
+        if ( configuration instanceof LocalCacheConfiguration )
+        {
+            LocalCacheConfiguration<K, V> localConfiguration = (LocalCacheConfiguration<K, V>) configuration;
+            maximumSize = localConfiguration.maximumSize;
+            maximumWeight = localConfiguration.maximumWeight;
+            weigher = localConfiguration.weigher;
+        }
+    }
+
+    /**
+     * Bounds the cache by number of entries.
+     *
+     * @param maximumSize the maximum number of entries
+     * @return this configuration
+     */
+    public LocalCacheConfiguration<K, V> setMaximumSize( long maximumSize )
+    {
+        if ( maximumSize < 0 )
+        {
+            throw new IllegalArgumentException( "Argument 'maximumSize' must be non negative" );
+        }
+        this.maximumSize = maximumSize;
+        this.maximumWeight = -1L;
+        this.weigher = null;
+        return this;
+    }
+
+    /**
+     * Bounds the cache by the total weight of its entries.
+     *
+     * @param maximumWeight the maximum total weight
+     * @param weigher computes the weight of each entry
+     * @return this configuration
+     */
+    public LocalCacheConfiguration<K, V> setMaximumWeight( long maximumWeight, Weigher<? super K, ? super V> weigher )
+    {
+        if ( maximumWeight < 0 )
+        {
+            throw new IllegalArgumentException( "Argument 'maximumWeight' must be non negative" );
+        }
+        if ( weigher == null )
+        {
+            throw new IllegalArgumentException( "Argument 'weigher' must be not null" );
+        }
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        return this;
+    }
+
+    /**
+     * @return the maximum number of entries, meaningful only if the cache is not weight bounded
+     */
+    public long getMaximumSize()
+    {
+        return maximumSize;
+    }
+
+    /**
+     * @return the maximum total weight, {@code -1} if the cache is bounded by number of entries
+     */
+    public long getMaximumWeight()
+    {
+        return maximumWeight;
+    }
+
+    /**
+     * @return the entries weigher, {@code null} if the cache is bounded by number of entries
+     */
+    public Weigher<? super K, ? super V> getWeigher()
+    {
+        return weigher;
+    }
+
+    /**
+     * @return true if the cache is bounded by the total weight of its entries
+     */
+    public boolean isWeighted()
+    {
+        return weigher != null;
+    }
+
+    /**
+     * @return a copy of this configuration, owned by the cache it configures
+     */
+    LocalCacheConfiguration<K, V> copy()
+    {
+        return new LocalCacheConfiguration<K, V>( this );
+    }
+
+    /**
+     * Creates the storage of a cache with this configuration.
+     *
+     * @param expiryPolicy the expiry policy, {@code null} if entries never expire
+     * @param evictionListener notified when entries are evicted or expire
+     * @return the new cache storage
+     */
+    LocalStore<K, V> newStore( ExpiryPolicy<? super K, ? super V> expiryPolicy,
+                               LocalStore.EvictionListener<K, V> evictionListener )
+    {
+        return new BoundedLocalCache<K, V>( isWeighted() ? maximumWeight : maximumSize,
+                                            weigher,
+                                            expiryPolicy,
+                                            evictionListener );
+    }
+
+}
@@ -0,0 +1,79 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.cache.Cache;
+import javax.cache.event.CacheEntryEvent;
+
+/**
+ * The event dispatched to the listeners registered on a {@link LocalCache}.
+ */
+final class LocalCacheEntryEvent<K, V>
+    extends CacheEntryEvent<K, V>
+{
+
+    private static final long serialVersionUID = 1L;
+
+    private final K key;
+
+    private final V value;
+
+    private final V oldValue;
+
+    private final boolean oldValueAvailable;
+
+    public LocalCacheEntryEvent( Cache<K, V> source, K key, V value, V oldValue, boolean oldValueAvailable )
+    {
+        super( source );
+        this.key = key;
+        this.value = value;
+        this.oldValue = oldValue;
+        this.oldValueAvailable = oldValueAvailable;
+    }
+
+    @Override
+    public K getKey()
+    {
+        return key;
+    }
+
+    @Override
+    public V getValue()
+    {
+        return value;
+    }
+
+    @Override
+    public V getOldValue()
+    {
+        if ( !oldValueAvailable )
+        {
+            throw new UnsupportedOperationException( "Old value not available" );
+        }
+        return oldValue;
+    }
+
+    @Override
+    public boolean isOldValueAvailable()
+    {
+        return oldValueAvailable;
+    }
+
+}
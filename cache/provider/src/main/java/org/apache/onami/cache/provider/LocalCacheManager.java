@@ -0,0 +1,201 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Configuration;
+import javax.cache.OptionalFeature;
+import javax.cache.Status;
+import javax.transaction.UserTransaction;
+
+/**
+ * A {@code CacheManager} holding {@link LocalCache} instances in the current JVM heap.
+ *
+ * Caches that are not explicitly configured are created on first use with a default
+ * {@link LocalCacheConfiguration}, see {@link #getOrCreateCache(String)}.
+ *
+ * @since 0.1.0
+ */
+public class LocalCacheManager
+    implements CacheManager
+{
+
+    private static final String DEFAULT_NAME = "onami-local";
+
+    private final String name;
+
+    private final ConcurrentMap<String, LocalCache<?, ?>> caches = new ConcurrentHashMap<String, LocalCache<?, ?>>();
+
+    private volatile Status status = Status.STARTED;
+
+    public LocalCacheManager()
+    {
+        this( DEFAULT_NAME );
+    }
+
+    public LocalCacheManager( String name )
+    {
+        if ( name == null )
+        {
+            throw new NullPointerException( "Argument 'name' must be not null" );
+        }
+        this.name = name;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public Status getStatus()
+    {
+        return status;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public <K, V> Cache<K, V> configureCache( String cacheName, Configuration<K, V> configuration )
+    {
+        checkStarted();
+
+        if ( cacheName == null )
+        {
+            throw new NullPointerException( "Argument 'cacheName' must be not null" );
+        }
+        if ( configuration == null )
+        {
+            throw new NullPointerException( "Argument 'configuration' must be not null" );
+        }
+
+        LocalCache<?, ?> cache = caches.get( cacheName );
+        if ( cache == null )
+        {
+            LocalCacheConfiguration<K, V> localConfiguration = ( configuration instanceof LocalCacheConfiguration )
+                ? ( (LocalCacheConfiguration<K, V>) configuration ).copy()
+                : new LocalCacheConfiguration<K, V>( configuration );
+            LocalCache<K, V> created = new LocalCache<K, V>( cacheName, this, localConfiguration );
+            cache = caches.putIfAbsent( cacheName, created );
+            if ( cache == null )
+            {
+                cache = created;
+            }
+        }
+        return (Cache<K, V>) cache;
+    }
+
+    /**
+     * Returns the cache with the given name, creating it with the default configuration if it does not exist yet.
+     *
+     * @param cacheName the cache name
+     * @return the named cache, never null
+     */
+    public <K, V> Cache<K, V> getOrCreateCache( String cacheName )
+    {
+        return configureCache( cacheName, new LocalCacheConfiguration<K, V>() );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public <K, V> Cache<K, V> getCache( String cacheName )
+    {
+        checkStarted();
+        return (Cache<K, V>) caches.get( cacheName );
+    }
+
+    public Iterable<Cache<?, ?>> getCaches()
+    {
+        checkStarted();
+        Collection<Cache<?, ?>> snapshot = new ArrayList<Cache<?, ?>>( caches.values() );
+        return snapshot;
+    }
+
+    public boolean removeCache( String cacheName )
+    {
+        checkStarted();
+
+        LocalCache<?, ?> cache = caches.remove( cacheName );
+        if ( cache == null )
+        {
+            return false;
+        }
+        cache.stop();
+        return true;
+    }
+
+    public UserTransaction getUserTransaction()
+    {
+        throw new UnsupportedOperationException( "Transactions are not supported by " + getClass().getName() );
+    }
+
+    public boolean isSupported( OptionalFeature optionalFeature )
+    {
+        return OptionalFeature.STORE_BY_REFERENCE == optionalFeature;
+    }
+
+    public void enableStatistics( String cacheName, boolean enabled )
+    {
+        checkStarted();
+
+        LocalCache<?, ?> cache = caches.get( cacheName );
+        if ( cache == null )
+        {
+            throw new IllegalArgumentException( "Cache " + cacheName + " does not exist" );
+        }
+        ( (LocalCacheConfiguration<?, ?>) cache.getConfiguration() ).setStatisticsEnabled( enabled );
+    }
+
+    public void shutdown()
+    {
+        status = Status.STOPPED;
+        for ( LocalCache<?, ?> cache : caches.values() )
+        {
+            cache.stop();
+        }
+        caches.clear();
+    }
+
+    public <T> T unwrap( Class<T> cls )
+    {
+        if ( cls.isInstance( this ) )
+        {
+            return cls.cast( this );
+        }
+        throw new IllegalArgumentException( "Unwrapping to " + cls + " is not supported" );
+    }
+
+    private void checkStarted()
+    {
+        if ( status != Status.STARTED )
+        {
+            throw new IllegalStateException( "CacheManager " + name + " is " + status );
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LocalCacheManager[" + name + "]";
+    }
+
+}
@@ -0,0 +1,78 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.cache.CacheManager;
+import javax.cache.annotation.CacheResolverFactory;
+
+import org.apache.onami.cache.CacheModule;
+
+/**
+ * A {@link CacheModule} that runs the cache interceptors on the bundled in-process provider.
+ *
+ * Subclasses can configure caches upfront through {@link #getCacheManager()} or contribute extra bindings
+ * overriding {@link #configureLocalCache()}.
+ *
+ * @since 0.1.0
+ */
+public class LocalCacheModule
+    extends CacheModule
+{
+
+    private final LocalCacheManager cacheManager;
+
+    public LocalCacheModule()
+    {
+        this( new LocalCacheManager() );
+    }
+
+    public LocalCacheModule( LocalCacheManager cacheManager )
+    {
+        if ( cacheManager == null )
+        {
+            throw new NullPointerException( "Argument 'cacheManager' must be not null" );
+        }
+        this.cacheManager = cacheManager;
+    }
+
+    protected final LocalCacheManager getCacheManager()
+    {
+        return cacheManager;
+    }
+
+    @Override
+    protected final void configureCache()
+    {
+        bind( LocalCacheManager.class ).toInstance( cacheManager );
+        bind( CacheManager.class ).toInstance( cacheManager );
+        bind( CacheResolverFactory.class ).to( LocalCacheResolverFactory.class );
+
+        configureLocalCache();
+    }
+
+    /**
+     * Hook to contribute additional bindings, does nothing by default.
+     */
+    protected void configureLocalCache()
+    {
+        // do nothing
+    }
+
+}
@@ -0,0 +1,89 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.annotation.Annotation;
+
+import javax.cache.Cache;
+import javax.cache.annotation.CacheInvocationContext;
+import javax.cache.annotation.CacheMethodDetails;
+import javax.cache.annotation.CacheResolver;
+import javax.cache.annotation.CacheResolverFactory;
+import javax.cache.annotation.CacheResult;
+import javax.cache.annotation.CacheAnnotationConfigurationException;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Resolves the annotated methods caches against a {@link LocalCacheManager}, creating them on demand.
+ *
+ * @since 0.1.0
+ */
+@Singleton
+public class LocalCacheResolverFactory
+    implements CacheResolverFactory
+{
+
+    private final LocalCacheManager cacheManager;
+
+    @Inject
+    public LocalCacheResolverFactory( LocalCacheManager cacheManager )
+    {
+        this.cacheManager = cacheManager;
+    }
+
+    public CacheResolver getCacheResolver( CacheMethodDetails<? extends Annotation> cacheMethodDetails )
+    {
+        return new LocalCacheResolver( cacheManager.getOrCreateCache( cacheMethodDetails.getCacheName() ) );
+    }
+
+    public CacheResolver getExceptionCacheResolver( CacheMethodDetails<CacheResult> cacheMethodDetails )
+    {
+        String exceptionCacheName = cacheMethodDetails.getCacheAnnotation().exceptionCacheName();
+        if ( exceptionCacheName.length() == 0 )
+        {
+            throw new CacheAnnotationConfigurationException( "Method "
+                + cacheMethodDetails.getMethod()
+                + " does not declare an exception cache name" );
+        }
+        return new LocalCacheResolver( cacheManager.getOrCreateCache( exceptionCacheName ) );
+    }
+
+    private static final class LocalCacheResolver
+        implements CacheResolver
+    {
+
+        private final Cache<?, ?> cache;
+
+        public LocalCacheResolver( Cache<?, ?> cache )
+        {
+            this.cache = cache;
+        }
+
+        @SuppressWarnings( "unchecked" )
+        public <K, V> Cache<K, V> resolveCache( CacheInvocationContext<? extends Annotation> cacheInvocationContext )
+        {
+            return (Cache<K, V>) cache;
+        }
+
+    }
+
+}
@@ -0,0 +1,164 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.cache.CacheStatisticsMXBean;
+
+/**
+ * Statistics of a {@link LocalCache}, only collected when enabled in the cache configuration.
+ */
+final class LocalCacheStatistics
+    implements CacheStatisticsMXBean
+{
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong puts = new AtomicLong();
+
+    private final AtomicLong removals = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong getTimeNanos = new AtomicLong();
+
+    private final AtomicLong putTimeNanos = new AtomicLong();
+
+    private final AtomicLong removeTimeNanos = new AtomicLong();
+
+    private volatile Date startAccumulationDate = new Date();
+
+    public void clear()
+    {
+        hits.set( 0 );
+        misses.set( 0 );
+        puts.set( 0 );
+        removals.set( 0 );
+        evictions.set( 0 );
+        getTimeNanos.set( 0 );
+        putTimeNanos.set( 0 );
+        removeTimeNanos.set( 0 );
+        startAccumulationDate = new Date();
+    }
+
+    void recordGet( boolean hit, long nanos )
+    {
+        if ( hit )
+        {
+            hits.incrementAndGet();
+        }
+        else
+        {
+            misses.incrementAndGet();
+        }
+        getTimeNanos.addAndGet( nanos );
+    }
+
+    void recordPut( long nanos )
+    {
+        puts.incrementAndGet();
+        putTimeNanos.addAndGet( nanos );
+    }
+
+    void recordRemoval( long nanos )
+    {
+        removals.incrementAndGet();
+        removeTimeNanos.addAndGet( nanos );
+    }
+
+    void recordEviction()
+    {
+        evictions.incrementAndGet();
+    }
+
+    public Date getStartAccumulationDate()
+    {
+        return startAccumulationDate;
+    }
+
+    public long getCacheHits()
+    {
+        return hits.get();
+    }
+
+    public float getCacheHitPercentage()
+    {
+        long gets = getCacheGets();
+        return gets == 0 ? 0 : (float) getCacheHits() / gets * 100;
+    }
+
+    public long getCacheMisses()
+    {
+        return misses.get();
+    }
+
+    public float getCacheMissPercentage()
+    {
+        long gets = getCacheGets();
+        return gets == 0 ? 0 : (float) getCacheMisses() / gets * 100;
+    }
+
+    public long getCacheGets()
+    {
+        return hits.get() + misses.get();
+    }
+
+    public long getCachePuts()
+    {
+        return puts.get();
+    }
+
+    public long getCacheRemovals()
+    {
+        return removals.get();
+    }
+
+    public long getCacheEvictions()
+    {
+        return evictions.get();
+    }
+
+    public float getAverageGetMillis()
+    {
+        return average( getTimeNanos.get(), getCacheGets() );
+    }
+
+    public float getAveragePutMillis()
+    {
+        return average( putTimeNanos.get(), getCachePuts() );
+    }
+
+    public float getAverageRemoveMillis()
+    {
+        return average( removeTimeNanos.get(), getCacheRemovals() );
+    }
+
+    private static float average( long totalNanos, long count )
+    {
+        return count == 0 ? 0 : (float) totalNanos / count / NANOS_PER_MILLI;
+    }
+
+}
@@ -0,0 +1,119 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.cache.Cache;
+
+/**
+ * The storage backing a {@link LocalCache}, responsible of bounding and expiring its entries.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+interface LocalStore<K, V>
+    extends Iterable<Cache.Entry<K, V>>
+{
+
+    /**
+     * @return the number of entries, expired ones not yet discarded included
+     */
+    int size();
+
+    boolean containsKey( Object key );
+
+    /**
+     * @param key the key whose value has to be returned
+     * @return the value mapped to the key, {@code null} if none
+     */
+    V get( Object key );
+
+    /**
+     * Same as {@link #get(Object)} without recording the access, neither on the eviction nor on the expiry policy.
+     *
+     * @param key the key whose value has to be returned
+     * @return the value mapped to the key, {@code null} if none
+     */
+    V getQuietly( Object key );
+
+    /**
+     * Maps the value to the key.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the previous value, {@code null} if none
+     */
+    V put( K key, V value );
+
+    /**
+     * Maps the value to the key, only if the key is not already mapped.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the current value, {@code null} if the input one has been stored
+     */
+    V putIfAbsent( K key, V value );
+
+    /**
+     * Maps the value to the key, only if the key is already mapped.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the previous value, {@code null} if the key was not mapped
+     */
+    V replace( K key, V value );
+
+    boolean replace( K key, V oldValue, V newValue );
+
+    /**
+     * @param key the key to unmap
+     * @return the removed value, {@code null} if the key was not mapped
+     */
+    V remove( Object key );
+
+    boolean remove( Object key, Object value );
+
+    void clear();
+
+    /**
+     * Performs any pending maintenance.
+     */
+    void cleanUp();
+
+    /**
+     * Releases the store when the owning cache is stopped; durable stores are flushed, the others cleared.
+     */
+    void close();
+
+    /**
+     * Notified when entries are automatically removed.
+     */
+    interface EvictionListener<K, V>
+    {
+
+        /**
+         * @param key the removed key
+         * @param value the removed value
+         * @param expired true if the entry expired, false if evicted because of the size bound
+         */
+        void onEviction( K key, V value, boolean expired );
+
+    }
+
+}
@@ -0,0 +1,422 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.cache.Cache;
+import javax.cache.CacheMXBean;
+import javax.cache.CacheManager;
+import javax.cache.CacheStatisticsMXBean;
+import javax.cache.Configuration;
+import javax.cache.ExpiryPolicy;
+import javax.cache.Status;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryEventFilter;
+import javax.cache.event.CacheEntryExpiredListener;
+import javax.cache.event.CacheEntryListener;
+import javax.cache.event.CacheEntryRemovedListener;
+import javax.cache.event.CacheEntryUpdatedListener;
+
+/**
+ * A two-level cache: a small, bounded, on-heap L1 of the values read from any L2 {@code javax.cache.Cache}, which
+ * remains the source of truth.
+ *
+ * Reads are served by the L1 when possible, otherwise by the L2, populating the L1. Writes go to the L2 and
+ * invalidate the L1 entry, as do the L2 updates, removals and expirations notified through the entry listener the
+ * near cache registers on the L2, so that changes made by other clients of a shared L2 propagate too. The L1 can
+ * additionally be bounded in time, to limit the staleness when the L2 does not notify remote changes.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @since 0.1.0
+ */
+public final class NearCache<K, V>
+    implements Cache<K, V>
+{
+
+    private final Cache<K, V> l2;
+
+    private final BoundedLocalCache<K, V> l1;
+
+    private final NearCacheStatistics nearCacheStatistics = new NearCacheStatistics();
+
+    /**
+     * Incremented on each invalidation: L2 reads racing with an invalidation don't populate the L1, it could be
+     * populated with the value just invalidated.
+     */
+    private final AtomicLong invalidationsCount = new AtomicLong();
+
+    private final Invalidator invalidator = new Invalidator();
+
+    /**
+     * @param l2 the cache behind the near cache
+     * @param maximumSize the maximum number of L1 entries
+     * @param timeToLive the maximum time L1 entries are kept, {@code null} or eternal if they don't expire
+     */
+    public NearCache( Cache<K, V> l2, long maximumSize, Configuration.Duration timeToLive )
+    {
+        if ( l2 == null )
+        {
+            throw new NullPointerException( "Argument 'l2' must be not null" );
+        }
+        this.l2 = l2;
+
+        ExpiryPolicy<K, V> expiryPolicy = null;
+        if ( timeToLive != null && !timeToLive.isEternal() )
+        {
+            expiryPolicy = new ExpiryPolicy.Modified<K, V>( timeToLive );
+        }
+        l1 = new BoundedLocalCache<K, V>( maximumSize, null, expiryPolicy, null );
+
+        l2.registerCacheEntryListener( invalidator, false, null, true );
+    }
+
+    /**
+     * @return the cache behind the near cache
+     */
+    public Cache<K, V> getL2()
+    {
+        return l2;
+    }
+
+    /**
+     * @return the statistics of each level, always collected
+     */
+    public NearCacheStatistics getNearCacheStatistics()
+    {
+        return nearCacheStatistics;
+    }
+
+    /* Reads */
+
+    public V get( K key )
+    {
+        V value = l1.get( key );
+        if ( value != null )
+        {
+            nearCacheStatistics.recordL1Hit();
+            return value;
+        }
+
+        long invalidations = invalidationsCount.get();
+        value = l2.get( key );
+        nearCacheStatistics.recordL2Get( value != null );
+        if ( value != null )
+        {
+            populate( key, value, invalidations );
+        }
+        return value;
+    }
+
+    public Map<K, V> getAll( Set<? extends K> keys )
+    {
+        Map<K, V> result = new HashMap<K, V>( keys.size() );
+        Set<K> missing = new HashSet<K>();
+        for ( K key : keys )
+        {
+            V value = l1.get( key );
+            if ( value != null )
+            {
+                nearCacheStatistics.recordL1Hit();
+                result.put( key, value );
+            }
+            else
+            {
+                missing.add( key );
+            }
+        }
+
+        if ( missing.isEmpty() )
+        {
+            return result;
+        }
+
+        long invalidations = invalidationsCount.get();
+        Map<K, V> loaded = l2.getAll( missing );
+        for ( K key : missing )
+        {
+            V value = loaded.get( key );
+            nearCacheStatistics.recordL2Get( value != null );
+            if ( value != null )
+            {
+                result.put( key, value );
+                populate( key, value, invalidations );
+            }
+        }
+        return result;
+    }
+
+    public boolean containsKey( K key )
+    {
+        return l1.containsKey( key ) || l2.containsKey( key );
+    }
+
+    public Future<V> load( K key )
+    {
+        return l2.load( key );
+    }
+
+    public Future<Map<K, ? extends V>> loadAll( Set<? extends K> keys )
+    {
+        return l2.loadAll( keys );
+    }
+
+    private void populate( K key, V value, long invalidations )
+    {
+        if ( invalidationsCount.get() == invalidations )
+        {
+            l1.putIfAbsent( key, value );
+        }
+    }
+
+    /* Writes, applied to the L2 and invalidated in the L1 */
+
+    public void put( K key, V value )
+    {
+        l2.put( key, value );
+        invalidate( key );
+    }
+
+    public V getAndPut( K key, V value )
+    {
+        V oldValue = l2.getAndPut( key, value );
+        invalidate( key );
+        return oldValue;
+    }
+
+    public void putAll( Map<? extends K, ? extends V> map )
+    {
+        l2.putAll( map );
+        for ( K key : map.keySet() )
+        {
+            invalidate( key );
+        }
+    }
+
+    public boolean putIfAbsent( K key, V value )
+    {
+        boolean put = l2.putIfAbsent( key, value );
+        invalidate( key );
+        return put;
+    }
+
+    public boolean remove( K key )
+    {
+        boolean removed = l2.remove( key );
+        invalidate( key );
+        return removed;
+    }
+
+    public boolean remove( K key, V oldValue )
+    {
+        boolean removed = l2.remove( key, oldValue );
+        invalidate( key );
+        return removed;
+    }
+
+    public V getAndRemove( K key )
+    {
+        V oldValue = l2.getAndRemove( key );
+        invalidate( key );
+        return oldValue;
+    }
+
+    public boolean replace( K key, V oldValue, V newValue )
+    {
+        boolean replaced = l2.replace( key, oldValue, newValue );
+        invalidate( key );
+        return replaced;
+    }
+
+    public boolean replace( K key, V value )
+    {
+        boolean replaced = l2.replace( key, value );
+        invalidate( key );
+        return replaced;
+    }
+
+    public V getAndReplace( K key, V value )
+    {
+        V oldValue = l2.getAndReplace( key, value );
+        invalidate( key );
+        return oldValue;
+    }
+
+    public void removeAll( Set<? extends K> keys )
+    {
+        l2.removeAll( keys );
+        for ( K key : keys )
+        {
+            invalidate( key );
+        }
+    }
+
+    public void removeAll()
+    {
+        l2.removeAll();
+        invalidateAll();
+    }
+
+    public void clear()
+    {
+        l2.clear();
+        invalidateAll();
+    }
+
+    public <T> T invokeEntryProcessor( K key, EntryProcessor<K, V, T> entryProcessor )
+    {
+        T result = l2.invokeEntryProcessor( key, entryProcessor );
+        invalidate( key );
+        return result;
+    }
+
+    private void invalidate( Object key )
+    {
+        invalidationsCount.incrementAndGet();
+        if ( l1.remove( key ) != null )
+        {
+            nearCacheStatistics.recordInvalidation();
+        }
+    }
+
+    private void invalidateAll()
+    {
+        invalidationsCount.incrementAndGet();
+        l1.clear();
+    }
+
+    /* Delegated to the L2 */
+
+    public CacheStatisticsMXBean getStatistics()
+    {
+        return l2.getStatistics();
+    }
+
+    public Configuration<K, V> getConfiguration()
+    {
+        return l2.getConfiguration();
+    }
+
+    public boolean registerCacheEntryListener( CacheEntryListener<? super K, ? super V> cacheEntryListener,
+                                               boolean requireOldValue,
+                                               CacheEntryEventFilter<? super K, ? super V> cacheEntryFilter,
+                                               boolean synchronous )
+    {
+        return l2.registerCacheEntryListener( cacheEntryListener, requireOldValue, cacheEntryFilter, synchronous );
+    }
+
+    public boolean unregisterCacheEntryListener( CacheEntryListener<?, ?> cacheEntryListener )
+    {
+        return l2.unregisterCacheEntryListener( cacheEntryListener );
+    }
+
+    public String getName()
+    {
+        return l2.getName();
+    }
+
+    public CacheManager getCacheManager()
+    {
+        return l2.getCacheManager();
+    }
+
+    public <T> T unwrap( Class<T> cls )
+    {
+        if ( cls.isInstance( this ) )
+        {
+            return cls.cast( this );
+        }
+        return l2.unwrap( cls );
+    }
+
+    public Iterator<Cache.Entry<K, V>> iterator()
+    {
+        return l2.iterator();
+    }
+
+    public CacheMXBean getMBean()
+    {
+        return l2.getMBean();
+    }
+
+    public void start()
+    {
+        l2.start();
+        l2.registerCacheEntryListener( invalidator, false, null, true );
+    }
+
+    public void stop()
+    {
+        l2.unregisterCacheEntryListener( invalidator );
+        invalidateAll();
+        l2.stop();
+    }
+
+    public Status getStatus()
+    {
+        return l2.getStatus();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "NearCache[" + l2 + "]";
+    }
+
+    /**
+     * Discards the L1 entries changed in the L2.
+     */
+    private final class Invalidator
+        implements CacheEntryUpdatedListener<K, V>, CacheEntryRemovedListener<K, V>, CacheEntryExpiredListener<K, V>
+    {
+
+        public void onUpdated( Iterable<CacheEntryEvent<? extends K, ? extends V>> events )
+        {
+            invalidate( events );
+        }
+
+        public void onRemoved( Iterable<CacheEntryEvent<? extends K, ? extends V>> events )
+        {
+            invalidate( events );
+        }
+
+        public void onExpired( Iterable<CacheEntryEvent<? extends K, ? extends V>> events )
+        {
+            invalidate( events );
+        }
+
+        private void invalidate( Iterable<CacheEntryEvent<? extends K, ? extends V>> events )
+        {
+            for ( CacheEntryEvent<? extends K, ? extends V> event : events )
+            {
+                NearCache.this.invalidate( event.getKey() );
+            }
+        }
+
+    }
+
+}
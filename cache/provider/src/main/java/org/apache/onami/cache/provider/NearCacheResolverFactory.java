@@ -0,0 +1,128 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.annotation.Annotation;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.cache.Cache;
+import javax.cache.Configuration;
+import javax.cache.annotation.CacheInvocationContext;
+import javax.cache.annotation.CacheMethodDetails;
+import javax.cache.annotation.CacheResolver;
+import javax.cache.annotation.CacheResolverFactory;
+import javax.cache.annotation.CacheResult;
+
+/**
+ * A {@code CacheResolverFactory} that fronts the caches resolved by another one with a {@link NearCache}, one per
+ * L2 cache, shared by all the methods using it. Exception caches are not fronted.
+ *
+ * <pre>
+ * bind( CacheResolverFactory.class ).toInstance( new NearCacheResolverFactory( remoteCacheResolverFactory, 1000, null ) );
+ * </pre>
+ *
+ * @since 0.1.0
+ */
+public class NearCacheResolverFactory
+    implements CacheResolverFactory
+{
+
+    private final CacheResolverFactory l2CacheResolverFactory;
+
+    private final long maximumSize;
+
+    private final Configuration.Duration timeToLive;
+
+    private final ConcurrentMap<Cache<?, ?>, NearCache<?, ?>> nearCaches =
+        new ConcurrentHashMap<Cache<?, ?>, NearCache<?, ?>>();
+
+    /**
+     * @param l2CacheResolverFactory resolves the caches behind the near caches
+     * @param maximumSize the maximum number of entries of each L1
+     * @param timeToLive the maximum time L1 entries are kept, {@code null} if they don't expire
+     */
+    public NearCacheResolverFactory( CacheResolverFactory l2CacheResolverFactory,
+                                     long maximumSize,
+                                     Configuration.Duration timeToLive )
+    {
+        if ( l2CacheResolverFactory == null )
+        {
+            throw new NullPointerException( "Argument 'l2CacheResolverFactory' must be not null" );
+        }
+        this.l2CacheResolverFactory = l2CacheResolverFactory;
+        this.maximumSize = maximumSize;
+        this.timeToLive = timeToLive;
+    }
+
+    public CacheResolver getCacheResolver( CacheMethodDetails<? extends Annotation> cacheMethodDetails )
+    {
+        return new NearCacheResolver( l2CacheResolverFactory.getCacheResolver( cacheMethodDetails ) );
+    }
+
+    public CacheResolver getExceptionCacheResolver( CacheMethodDetails<CacheResult> cacheMethodDetails )
+    {
+        return l2CacheResolverFactory.getExceptionCacheResolver( cacheMethodDetails );
+    }
+
+    /**
+     * @param l2 the cache behind the near cache
+     * @return the near cache fronting the input cache
+     */
+    @SuppressWarnings( "unchecked" )
+    public <K, V> NearCache<K, V> getNearCache( Cache<K, V> l2 )
+    {
+        NearCache<K, V> nearCache = (NearCache<K, V>) nearCaches.get( l2 );
+        if ( nearCache == null )
+        {
+            synchronized ( nearCaches )
+            {
+                nearCache = (NearCache<K, V>) nearCaches.get( l2 );
+                if ( nearCache == null )
+                {
+                    // created under lock, each near cache registers a listener on its L2
+                    nearCache = new NearCache<K, V>( l2, maximumSize, timeToLive );
+                    nearCaches.put( l2, nearCache );
+                }
+            }
+        }
+        return nearCache;
+    }
+
+    private final class NearCacheResolver
+        implements CacheResolver
+    {
+
+        private final CacheResolver l2CacheResolver;
+
+        public NearCacheResolver( CacheResolver l2CacheResolver )
+        {
+            this.l2CacheResolver = l2CacheResolver;
+        }
+
+        public <K, V> Cache<K, V> resolveCache( CacheInvocationContext<? extends Annotation> cacheInvocationContext )
+        {
+            Cache<K, V> l2 = l2CacheResolver.resolveCache( cacheInvocationContext );
+            return getNearCache( l2 );
+        }
+
+    }
+
+}
@@ -0,0 +1,126 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hits and misses of each level of a {@link NearCache}: L2 lookups are the L1 misses.
+ *
+ * @since 0.1.0
+ */
+public final class NearCacheStatistics
+{
+
+    private final AtomicLong l1Hits = new AtomicLong();
+
+    private final AtomicLong l2Hits = new AtomicLong();
+
+    private final AtomicLong l2Misses = new AtomicLong();
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    NearCacheStatistics()
+    {
+        // created by NearCache only
+    }
+
+    void recordL1Hit()
+    {
+        l1Hits.incrementAndGet();
+    }
+
+    void recordL2Get( boolean hit )
+    {
+        if ( hit )
+        {
+            l2Hits.incrementAndGet();
+        }
+        else
+        {
+            l2Misses.incrementAndGet();
+        }
+    }
+
+    void recordInvalidation()
+    {
+        invalidations.incrementAndGet();
+    }
+
+    public long getL1Hits()
+    {
+        return l1Hits.get();
+    }
+
+    public long getL1Misses()
+    {
+        return l2Hits.get() + l2Misses.get();
+    }
+
+    public float getL1HitPercentage()
+    {
+        return percentage( getL1Hits(), getL1Misses() );
+    }
+
+    public long getL2Hits()
+    {
+        return l2Hits.get();
+    }
+
+    public long getL2Misses()
+    {
+        return l2Misses.get();
+    }
+
+    public float getL2HitPercentage()
+    {
+        return percentage( getL2Hits(), getL2Misses() );
+    }
+
+    /**
+     * @return the number of L1 entries discarded because changed, locally or through the L2 listener
+     */
+    public long getInvalidations()
+    {
+        return invalidations.get();
+    }
+
+    public void clear()
+    {
+        l1Hits.set( 0 );
+        l2Hits.set( 0 );
+        l2Misses.set( 0 );
+        invalidations.set( 0 );
+    }
+
+    private static float percentage( long hits, long misses )
+    {
+        long gets = hits + misses;
+        return gets == 0 ? 0f : hits * 100f / gets;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "NearCacheStatistics[l1Hits=" + getL1Hits() + ", l2Hits=" + getL2Hits() + ", l2Misses="
+            + getL2Misses() + ", invalidations=" + getInvalidations() + "]";
+    }
+
+}
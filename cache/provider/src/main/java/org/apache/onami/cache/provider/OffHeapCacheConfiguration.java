@@ -0,0 +1,188 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+
+import javax.cache.Configuration;
+import javax.cache.ExpiryPolicy;
+
+/**
+ * Configures a cache whose entries are serialized outside the Java heap, either in direct memory or, when a file is
+ * specified, in a memory-mapped file that is reopened, with its content, by the next cache configured on it.
+ *
+ * Off-heap caches are bounded by the bytes they occupy, rather than by {@link #getMaximumSize()} or
+ * {@link #getMaximumWeight()}: once full, the least recently written entries are evicted. Entries are stored by
+ * value; {@code replace} and conditional {@code remove} compare values by their serialized form.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @since 0.1.0
+ */
+public class OffHeapCacheConfiguration<K, V>
+    extends LocalCacheConfiguration<K, V>
+{
+
+    /**
+     * The off-heap bytes of caches not explicitly sized, 64MB.
+     */
+    public static final long DEFAULT_CAPACITY = 64L * 1024L * 1024L;
+
+    /**
+     * The number of independently locked segments of caches not explicitly configured.
+     */
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    private long capacity = DEFAULT_CAPACITY;
+
+    private int concurrencyLevel = DEFAULT_CONCURRENCY_LEVEL;
+
+    private File file;
+
+    private Serializer<K> keySerializer = new JavaSerializer<K>();
+
+    private Serializer<V> valueSerializer = new JavaSerializer<V>();
+
+    public OffHeapCacheConfiguration()
+    {
+        setStoreByValue( true );
+    }
+
+    /**
+     * Creates a new configuration copying the input one.
+     *
+     * @param configuration the configuration to copy
+     */
+    public OffHeapCacheConfiguration( Configuration<K, V> configuration )
+    {
+        super( configuration );
+        setStoreByValue( true );
+
+        if ( configuration instanceof OffHeapCacheConfiguration )
+        {
+            OffHeapCacheConfiguration<K, V> offHeapConfiguration = (OffHeapCacheConfiguration<K, V>) configuration;
+            capacity = offHeapConfiguration.capacity;
+            concurrencyLevel = offHeapConfiguration.concurrencyLevel;
+            file = offHeapConfiguration.file;
+            keySerializer = offHeapConfiguration.keySerializer;
+            valueSerializer = offHeapConfiguration.valueSerializer;
+        }
+    }
+
+    /**
+     * @param capacity the off-heap bytes reserved to the cache, entries and their headers included
+     * @return this configuration
+     */
+    public OffHeapCacheConfiguration<K, V> setCapacity( long capacity )
+    {
+        if ( capacity <= 0 )
+        {
+            throw new IllegalArgumentException( "Argument 'capacity' must be positive" );
+        }
+        this.capacity = capacity;
+        return this;
+    }
+
+    /**
+     * @param concurrencyLevel the number of segments the capacity is split in, each one locked independently
+     * @return this configuration
+     */
+    public OffHeapCacheConfiguration<K, V> setConcurrencyLevel( int concurrencyLevel )
+    {
+        if ( concurrencyLevel <= 0 )
+        {
+            throw new IllegalArgumentException( "Argument 'concurrencyLevel' must be positive" );
+        }
+        this.concurrencyLevel = concurrencyLevel;
+        return this;
+    }
+
+    /**
+     * @param file the file the entries are mapped to, {@code null} to keep them in direct memory
+     * @return this configuration
+     */
+    public OffHeapCacheConfiguration<K, V> setFile( File file )
+    {
+        this.file = file;
+        return this;
+    }
+
+    public OffHeapCacheConfiguration<K, V> setKeySerializer( Serializer<K> keySerializer )
+    {
+        if ( keySerializer == null )
+        {
+            throw new IllegalArgumentException( "Argument 'keySerializer' must be not null" );
+        }
+        this.keySerializer = keySerializer;
+        return this;
+    }
+
+    public OffHeapCacheConfiguration<K, V> setValueSerializer( Serializer<V> valueSerializer )
+    {
+        if ( valueSerializer == null )
+        {
+            throw new IllegalArgumentException( "Argument 'valueSerializer' must be not null" );
+        }
+        this.valueSerializer = valueSerializer;
+        return this;
+    }
+
+    public long getCapacity()
+    {
+        return capacity;
+    }
+
+    public int getConcurrencyLevel()
+    {
+        return concurrencyLevel;
+    }
+
+    /**
+     * @return the file the entries are mapped to, {@code null} if they are kept in direct memory
+     */
+    public File getFile()
+    {
+        return file;
+    }
+
+    public Serializer<K> getKeySerializer()
+    {
+        return keySerializer;
+    }
+
+    public Serializer<V> getValueSerializer()
+    {
+        return valueSerializer;
+    }
+
+    @Override
+    OffHeapCacheConfiguration<K, V> copy()
+    {
+        return new OffHeapCacheConfiguration<K, V>( this );
+    }
+
+    @Override
+    LocalStore<K, V> newStore( ExpiryPolicy<? super K, ? super V> expiryPolicy,
+                               LocalStore.EvictionListener<K, V> evictionListener )
+    {
+        return new OffHeapStore<K, V>( this, expiryPolicy, evictionListener );
+    }
+
+}
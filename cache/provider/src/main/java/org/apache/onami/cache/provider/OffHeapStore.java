@@ -0,0 +1,1055 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.cache.Cache;
+import javax.cache.CacheException;
+import javax.cache.Configuration.Duration;
+import javax.cache.ExpiryPolicy;
+
+/**
+ * A store keeping serialized entries outside the Java heap, in direct or memory-mapped buffers, so that large caches
+ * put neither objects nor GC work on the heap: the only per-entry heap footprint is a slot of a {@code long[]} index.
+ *
+ * The capacity is split in independently locked segments. Each segment is an append-only log of records, indexed by
+ * an open addressing hash table of {@code (hash, offset)} pairs; updates append a new record and mark the previous
+ * one dead. When the log is full it is compacted in place, discarding dead and expired records and, if that is not
+ * enough, the oldest ones.
+ *
+ * Memory-mapped segments start with a header describing the layout, so that a store opened on a file written by an
+ * identically configured one finds its entries back.
+ */
+final class OffHeapStore<K, V>
+    implements LocalStore<K, V>
+{
+
+    private static final int MAGIC = 0x4f4e4348;
+
+    // segment header: magic, number of segments, segment capacity, log tail
+
+    private static final int HEADER_MAGIC = 0;
+
+    private static final int HEADER_SEGMENTS = 4;
+
+    private static final int HEADER_CAPACITY = 8;
+
+    private static final int HEADER_TAIL = 12;
+
+    private static final int SEGMENT_HEADER = 16;
+
+    // record header: key hash, key length, value length, expiration time, time to live, status
+
+    private static final int RECORD_HASH = 0;
+
+    private static final int RECORD_KEY_LENGTH = 4;
+
+    private static final int RECORD_VALUE_LENGTH = 8;
+
+    private static final int RECORD_EXPIRES_AT = 12;
+
+    private static final int RECORD_TTL = 20;
+
+    private static final int RECORD_STATUS = 28;
+
+    private static final int RECORD_HEADER = 29;
+
+    private static final byte LIVE = 1;
+
+    private static final byte DEAD = 0;
+
+    private static final long ETERNAL = -1L;
+
+    private static final int INITIAL_INDEX_LENGTH = 64;
+
+    // update modes
+
+    private static final int PUT = 0;
+
+    private static final int PUT_IF_ABSENT = 1;
+
+    private static final int REPLACE = 2;
+
+    private static final int REPLACE_IF_EQUAL = 3;
+
+    private static final int REMOVE = 4;
+
+    private static final int REMOVE_IF_EQUAL = 5;
+
+    private final Serializer<K> keySerializer;
+
+    private final Serializer<V> valueSerializer;
+
+    /**
+     * {@code null} when entries never expire.
+     */
+    private final ExpiryPolicy<? super K, ? super V> expiryPolicy;
+
+    private final boolean refreshOnAccess;
+
+    private final EvictionListener<K, V> evictionListener;
+
+    private final Segment[] segments;
+
+    private final int segmentShift;
+
+    /**
+     * {@code null} unless mapped to a file.
+     */
+    private final MappedByteBuffer[] mappedBuffers;
+
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    public OffHeapStore( OffHeapCacheConfiguration<K, V> configuration,
+                         ExpiryPolicy<? super K, ? super V> expiryPolicy,
+                         EvictionListener<K, V> evictionListener )
+    {
+        this.keySerializer = configuration.getKeySerializer();
+        this.valueSerializer = configuration.getValueSerializer();
+        this.expiryPolicy = expiryPolicy;
+        this.refreshOnAccess = expiryPolicy instanceof ExpiryPolicy.Accessed;
+        this.evictionListener = evictionListener;
+
+        int segmentsCount = FrequencySketch.ceilingPowerOfTwo( configuration.getConcurrencyLevel() );
+        long segmentCapacity = configuration.getCapacity() / segmentsCount;
+        if ( segmentCapacity <= SEGMENT_HEADER + RECORD_HEADER || segmentCapacity > Integer.MAX_VALUE )
+        {
+            throw new IllegalArgumentException( "Capacity " + configuration.getCapacity()
+                + " can not be split in " + segmentsCount + " segments" );
+        }
+
+        segments = new OffHeapStore.Segment[segmentsCount];
+        segmentShift = 32 - Integer.numberOfTrailingZeros( segmentsCount );
+
+        File file = configuration.getFile();
+        if ( file == null )
+        {
+            mappedBuffers = null;
+            for ( int i = 0; i < segmentsCount; i++ )
+            {
+                segments[i] = new Segment( ByteBuffer.allocateDirect( (int) segmentCapacity ), segmentsCount );
+            }
+        }
+        else
+        {
+            mappedBuffers = map( file, segmentsCount, (int) segmentCapacity );
+            for ( int i = 0; i < segmentsCount; i++ )
+            {
+                segments[i] = new Segment( mappedBuffers[i], segmentsCount );
+            }
+        }
+    }
+
+    private static MappedByteBuffer[] map( File file, int segmentsCount, int segmentCapacity )
+    {
+        try
+        {
+            RandomAccessFile randomAccessFile = new RandomAccessFile( file, "rw" );
+            try
+            {
+                FileChannel channel = randomAccessFile.getChannel();
+                MappedByteBuffer[] buffers = new MappedByteBuffer[segmentsCount];
+                for ( int i = 0; i < segmentsCount; i++ )
+                {
+                    buffers[i] = channel.map( FileChannel.MapMode.READ_WRITE,
+                                              (long) i * segmentCapacity,
+                                              segmentCapacity );
+                }
+                return buffers;
+            }
+            finally
+            {
+                // mappings stay valid once the channel is closed
+                randomAccessFile.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new CacheException( "Impossible to map the cache file " + file, e );
+        }
+    }
+
+    /* Map operations */
+
+    public int size()
+    {
+        int size = 0;
+        for ( Segment segment : segments )
+        {
+            size += segment.count;
+        }
+        return size;
+    }
+
+    public boolean containsKey( Object key )
+    {
+        byte[] keyBytes = serializeKey( key );
+        int hash = hash( keyBytes );
+        Segment segment = segmentFor( hash );
+
+        segment.lock.readLock().lock();
+        try
+        {
+            int slot = segment.findSlot( hash, keyBytes );
+            return slot >= 0 && !segment.isExpired( segment.offsetAt( slot ), now() );
+        }
+        finally
+        {
+            segment.lock.readLock().unlock();
+        }
+    }
+
+    public V get( Object key )
+    {
+        return get( key, true );
+    }
+
+    public V getQuietly( Object key )
+    {
+        return get( key, false );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private V get( Object key, boolean recordAccess )
+    {
+        byte[] keyBytes = serializeKey( key );
+        int hash = hash( keyBytes );
+        Segment segment = segmentFor( hash );
+
+        long now = now();
+        byte[] valueBytes;
+        long ttl;
+        segment.lock.readLock().lock();
+        try
+        {
+            int slot = segment.findSlot( hash, keyBytes );
+            if ( slot < 0 )
+            {
+                return null;
+            }
+
+            int offset = segment.offsetAt( slot );
+            if ( segment.isExpired( offset, now ) )
+            {
+                valueBytes = null;
+                ttl = ETERNAL;
+            }
+            else
+            {
+                valueBytes = segment.readValue( offset );
+                ttl = segment.buffer.getLong( offset + RECORD_TTL );
+            }
+        }
+        finally
+        {
+            segment.lock.readLock().unlock();
+        }
+
+        if ( valueBytes == null )
+        {
+            if ( recordAccess )
+            {
+                expire( segment, hash, keyBytes );
+            }
+            return null;
+        }
+
+        V value = valueSerializer.deserialize( valueBytes );
+        if ( recordAccess && expiryPolicy != null )
+        {
+            onReadExpiry( segment, hash, keyBytes, asEntry( (K) key, value ), ttl, now );
+        }
+        return value;
+    }
+
+    public V put( K key, V value )
+    {
+        checkNotNull( key, value );
+        return deserializeValue( update( key, value, null, PUT ) );
+    }
+
+    public V putIfAbsent( K key, V value )
+    {
+        checkNotNull( key, value );
+        return deserializeValue( update( key, value, null, PUT_IF_ABSENT ) );
+    }
+
+    public V replace( K key, V value )
+    {
+        checkNotNull( key, value );
+        return deserializeValue( update( key, value, null, REPLACE ) );
+    }
+
+    public boolean replace( K key, V oldValue, V newValue )
+    {
+        checkNotNull( key, newValue );
+        return oldValue != null && update( key, newValue, valueSerializer.serialize( oldValue ), REPLACE_IF_EQUAL ) != null;
+    }
+
+    public V remove( Object key )
+    {
+        return deserializeValue( update( key, null, null, REMOVE ) );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public boolean remove( Object key, Object value )
+    {
+        return value != null && update( key, null, valueSerializer.serialize( (V) value ), REMOVE_IF_EQUAL ) != null;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private byte[] update( Object key, V value, byte[] expected, int mode )
+    {
+        byte[] keyBytes = serializeKey( key );
+        byte[] valueBytes = value != null ? valueSerializer.serialize( value ) : null;
+        int hash = hash( keyBytes );
+        Segment segment = segmentFor( hash );
+
+        byte[] current;
+        List<Record> evicted;
+        segment.lock.writeLock().lock();
+        try
+        {
+            current = segment.update( hash, keyBytes, asEntry( (K) key, value ), valueBytes, expected, mode, now() );
+            evicted = segment.takeEvicted();
+        }
+        finally
+        {
+            segment.lock.writeLock().unlock();
+        }
+
+        notifyEvicted( evicted );
+        return current;
+    }
+
+    private void expire( Segment segment, int hash, byte[] keyBytes )
+    {
+        List<Record> evicted;
+        segment.lock.writeLock().lock();
+        try
+        {
+            int slot = segment.findSlot( hash, keyBytes );
+            if ( slot >= 0 )
+            {
+                int offset = segment.offsetAt( slot );
+                if ( segment.isExpired( offset, now() ) )
+                {
+                    segment.evict( offset, true );
+                    segment.discard( slot, offset );
+                }
+            }
+            evicted = segment.takeEvicted();
+        }
+        finally
+        {
+            segment.lock.writeLock().unlock();
+        }
+
+        notifyEvicted( evicted );
+    }
+
+    public void clear()
+    {
+        for ( Segment segment : segments )
+        {
+            segment.lock.writeLock().lock();
+            try
+            {
+                segment.reset();
+            }
+            finally
+            {
+                segment.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Compacts the segments, discarding the expired entries.
+     */
+    public void cleanUp()
+    {
+        for ( Segment segment : segments )
+        {
+            List<Record> evicted;
+            segment.lock.writeLock().lock();
+            try
+            {
+                segment.compact( 0, now() );
+                evicted = segment.takeEvicted();
+            }
+            finally
+            {
+                segment.lock.writeLock().unlock();
+            }
+
+            notifyEvicted( evicted );
+        }
+    }
+
+    /**
+     * Flushes the mapped file, if any, otherwise releases the entries.
+     */
+    public void close()
+    {
+        if ( mappedBuffers == null )
+        {
+            clear();
+            return;
+        }
+
+        for ( MappedByteBuffer mappedBuffer : mappedBuffers )
+        {
+            mappedBuffer.force();
+        }
+    }
+
+    /**
+     * Iterates over a per segment snapshot of the not expired entries, without recording any access.
+     */
+    public Iterator<Cache.Entry<K, V>> iterator()
+    {
+        return new Iterator<Cache.Entry<K, V>>()
+        {
+
+            private int nextSegment;
+
+            private Iterator<Record> records = Collections.<Record> emptyList().iterator();
+
+            private Cache.Entry<K, V> current;
+
+            public boolean hasNext()
+            {
+                while ( !records.hasNext() && nextSegment < segments.length )
+                {
+                    records = segments[nextSegment++].snapshot().iterator();
+                }
+                return records.hasNext();
+            }
+
+            public Cache.Entry<K, V> next()
+            {
+                if ( !hasNext() )
+                {
+                    throw new NoSuchElementException();
+                }
+                Record record = records.next();
+                current = asEntry( keySerializer.deserialize( record.key ), valueSerializer.deserialize( record.value ) );
+                return current;
+            }
+
+            public void remove()
+            {
+                if ( current == null )
+                {
+                    throw new IllegalStateException();
+                }
+                OffHeapStore.this.remove( current.getKey(), current.getValue() );
+                current = null;
+            }
+
+        };
+    }
+
+    /* Expiry */
+
+    private static long now()
+    {
+        // wall clock time, the expiration times outlive the JVM in mapped files
+        return System.currentTimeMillis();
+    }
+
+    private void onReadExpiry( Segment segment, int hash, byte[] keyBytes, Cache.Entry<K, V> entry, long ttl, long now )
+    {
+        Duration current = toDuration( ttl );
+        Duration updated = expiryPolicy.getTTLForAccessedEntry( entry, current );
+        // returning the current duration means "unchanged", except for the access based policy
+        if ( updated == null || ( updated == current && !refreshOnAccess ) )
+        {
+            return;
+        }
+
+        segment.lock.writeLock().lock();
+        try
+        {
+            int slot = segment.findSlot( hash, keyBytes );
+            if ( slot >= 0 )
+            {
+                segment.setExpiry( segment.offsetAt( slot ), toMillis( updated ), now );
+            }
+        }
+        finally
+        {
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    private static Duration toDuration( long ttl )
+    {
+        return ttl == ETERNAL ? Duration.ETERNAL : new Duration( MILLISECONDS, ttl );
+    }
+
+    private static long toMillis( Duration duration )
+    {
+        if ( duration == null || duration.isEternal() )
+        {
+            return ETERNAL;
+        }
+        return duration.getTimeUnit().toMillis( duration.getDurationAmount() );
+    }
+
+    /* Utilities */
+
+    private Segment segmentFor( int hash )
+    {
+        // the index slots are addressed by the low bits, segments by the high ones
+        return segments[segmentShift == 32 ? 0 : hash >>> segmentShift];
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private byte[] serializeKey( Object key )
+    {
+        if ( key == null )
+        {
+            throw new NullPointerException( "Null keys are not allowed" );
+        }
+        return keySerializer.serialize( (K) key );
+    }
+
+    private V deserializeValue( byte[] valueBytes )
+    {
+        return valueBytes != null ? valueSerializer.deserialize( valueBytes ) : null;
+    }
+
+    private static <K, V> Cache.Entry<K, V> asEntry( K key, V value )
+    {
+        return new BoundedLocalCache.Node<K, V>( key, value, 0 );
+    }
+
+    private void notifyEvicted( List<Record> evicted )
+    {
+        if ( evicted == null )
+        {
+            return;
+        }
+
+        for ( Record record : evicted )
+        {
+            evictionListener.onEviction( keySerializer.deserialize( record.key ),
+                                         valueSerializer.deserialize( record.value ),
+                                         record.expired );
+        }
+    }
+
+    /**
+     * FNV-1a, followed by the MurmurHash3 finalizer to spread the bits used to address segments and slots.
+     */
+    private static int hash( byte[] bytes )
+    {
+        int h = 0x811c9dc5;
+        for ( byte b : bytes )
+        {
+            h ^= b;
+            h *= 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static void checkNotNull( Object key, Object value )
+    {
+        if ( key == null )
+        {
+            throw new NullPointerException( "Null keys are not allowed" );
+        }
+        if ( value == null )
+        {
+            throw new NullPointerException( "Null values are not allowed" );
+        }
+    }
+
+    /**
+     * A portion of the store, all its fields and buffer content are guarded by its lock.
+     */
+    private final class Segment
+    {
+
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        final ByteBuffer buffer;
+
+        private final int capacity;
+
+        private final int segmentsCount;
+
+        volatile int count;
+
+        private int tail;
+
+        private int liveBytes;
+
+        /**
+         * Each non zero slot holds the hash of a key in the high half, the offset of its record in the low one.
+         */
+        private long[] index = new long[INITIAL_INDEX_LENGTH];
+
+        private List<Record> evicted;
+
+        public Segment( ByteBuffer buffer, int segmentsCount )
+        {
+            this.buffer = buffer;
+            this.capacity = buffer.capacity();
+            this.segmentsCount = segmentsCount;
+
+            if ( buffer.getInt( HEADER_MAGIC ) == MAGIC
+                && buffer.getInt( HEADER_SEGMENTS ) == segmentsCount
+                && buffer.getInt( HEADER_CAPACITY ) == capacity
+                && buffer.getInt( HEADER_TAIL ) >= SEGMENT_HEADER
+                && buffer.getInt( HEADER_TAIL ) <= capacity )
+            {
+                reopen();
+            }
+            else
+            {
+                reset();
+            }
+        }
+
+        private void reopen()
+        {
+            tail = buffer.getInt( HEADER_TAIL );
+            for ( int offset = SEGMENT_HEADER; offset < tail; offset += recordSize( offset ) )
+            {
+                if ( buffer.get( offset + RECORD_STATUS ) == LIVE )
+                {
+                    insert( buffer.getInt( offset + RECORD_HASH ), offset );
+                    liveBytes += recordSize( offset );
+                }
+            }
+        }
+
+        void reset()
+        {
+            buffer.putInt( HEADER_MAGIC, MAGIC );
+            buffer.putInt( HEADER_SEGMENTS, segmentsCount );
+            buffer.putInt( HEADER_CAPACITY, capacity );
+            setTail( SEGMENT_HEADER );
+            liveBytes = 0;
+            Arrays.fill( index, 0L );
+            count = 0;
+        }
+
+        /* Index */
+
+        int findSlot( int hash, byte[] keyBytes )
+        {
+            int mask = index.length - 1;
+            for ( int slot = hash & mask;; slot = ( slot + 1 ) & mask )
+            {
+                long entry = index[slot];
+                if ( entry == 0L )
+                {
+                    return -1;
+                }
+                if ( (int) ( entry >>> 32 ) == hash && keyEquals( (int) entry, keyBytes ) )
+                {
+                    return slot;
+                }
+            }
+        }
+
+        int offsetAt( int slot )
+        {
+            return (int) index[slot];
+        }
+
+        private void insert( int hash, int offset )
+        {
+            if ( ( count + 1 ) * 2 > index.length )
+            {
+                long[] previous = index;
+                index = new long[previous.length * 2];
+                for ( long entry : previous )
+                {
+                    if ( entry != 0L )
+                    {
+                        put( entry );
+                    }
+                }
+            }
+            put( ( (long) hash << 32 ) | ( offset & 0xffffffffL ) );
+            count++;
+        }
+
+        private void put( long entry )
+        {
+            int mask = index.length - 1;
+            int slot = (int) ( entry >>> 32 ) & mask;
+            while ( index[slot] != 0L )
+            {
+                slot = ( slot + 1 ) & mask;
+            }
+            index[slot] = entry;
+        }
+
+        /**
+         * Linear probing removal, shifting back the following entries of the cluster.
+         */
+        private void removeSlot( int slot )
+        {
+            int mask = index.length - 1;
+            int hole = slot;
+            for ( int next = ( slot + 1 ) & mask; index[next] != 0L; next = ( next + 1 ) & mask )
+            {
+                int home = (int) ( index[next] >>> 32 ) & mask;
+                boolean stays = ( hole <= next ) ? ( hole < home && home <= next ) : ( hole < home || home <= next );
+                if ( !stays )
+                {
+                    index[hole] = index[next];
+                    hole = next;
+                }
+            }
+            index[hole] = 0L;
+            count--;
+        }
+
+        /* Records */
+
+        private int recordSize( int offset )
+        {
+            return RECORD_HEADER + buffer.getInt( offset + RECORD_KEY_LENGTH )
+                + buffer.getInt( offset + RECORD_VALUE_LENGTH );
+        }
+
+        private boolean keyEquals( int offset, byte[] keyBytes )
+        {
+            if ( buffer.getInt( offset + RECORD_KEY_LENGTH ) != keyBytes.length )
+            {
+                return false;
+            }
+            int start = offset + RECORD_HEADER;
+            for ( int i = 0; i < keyBytes.length; i++ )
+            {
+                if ( buffer.get( start + i ) != keyBytes[i] )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isExpired( int offset, long now )
+        {
+            long expiresAt = buffer.getLong( offset + RECORD_EXPIRES_AT );
+            return expiresAt != Long.MAX_VALUE && now >= expiresAt;
+        }
+
+        void setExpiry( int offset, long ttl, long now )
+        {
+            buffer.putLong( offset + RECORD_TTL, ttl );
+            buffer.putLong( offset + RECORD_EXPIRES_AT, expiresAt( ttl, now ) );
+        }
+
+        private byte[] readKey( int offset )
+        {
+            return read( offset + RECORD_HEADER, buffer.getInt( offset + RECORD_KEY_LENGTH ) );
+        }
+
+        byte[] readValue( int offset )
+        {
+            return read( offset + RECORD_HEADER + buffer.getInt( offset + RECORD_KEY_LENGTH ),
+                         buffer.getInt( offset + RECORD_VALUE_LENGTH ) );
+        }
+
+        private byte[] read( int position, int length )
+        {
+            byte[] bytes = new byte[length];
+            // readers share the buffer, its position can't be moved
+            ByteBuffer view = buffer.duplicate();
+            view.position( position );
+            view.get( bytes );
+            return bytes;
+        }
+
+        private void setTail( int tail )
+        {
+            this.tail = tail;
+            buffer.putInt( HEADER_TAIL, tail );
+        }
+
+        /* Updates, under the write lock */
+
+        byte[] update( int hash, byte[] keyBytes, Cache.Entry<K, V> entry, byte[] valueBytes, byte[] expected,
+                       int mode, long now )
+        {
+            int slot = findSlot( hash, keyBytes );
+            int offset = -1;
+            byte[] current = null;
+            if ( slot >= 0 )
+            {
+                offset = offsetAt( slot );
+                if ( isExpired( offset, now ) )
+                {
+                    evict( offset, true );
+                    discard( slot, offset );
+                    slot = -1;
+                }
+                else
+                {
+                    current = readValue( offset );
+                }
+            }
+
+            switch ( mode )
+            {
+                case PUT_IF_ABSENT:
+                    if ( current != null )
+                    {
+                        return current;
+                    }
+                    break;
+
+                case REPLACE:
+                case REMOVE:
+                    if ( current == null )
+                    {
+                        return null;
+                    }
+                    break;
+
+                case REPLACE_IF_EQUAL:
+                case REMOVE_IF_EQUAL:
+                    if ( current == null || !Arrays.equals( current, expected ) )
+                    {
+                        return null;
+                    }
+                    break;
+
+                default:
+                    break;
+            }
+
+            if ( mode == REMOVE || mode == REMOVE_IF_EQUAL )
+            {
+                discard( slot, offset );
+                return current;
+            }
+
+            long ttl = ETERNAL;
+            if ( expiryPolicy != null )
+            {
+                if ( current == null )
+                {
+                    ttl = toMillis( expiryPolicy.getTTLForCreatedEntry( entry ) );
+                }
+                else
+                {
+                    long currentTtl = buffer.getLong( offset + RECORD_TTL );
+                    Duration modified = expiryPolicy.getTTLForModifiedEntry( entry, toDuration( currentTtl ) );
+                    ttl = ( modified == null ) ? currentTtl : toMillis( modified );
+                }
+            }
+
+            if ( slot >= 0 )
+            {
+                discard( slot, offset );
+            }
+            if ( !append( hash, keyBytes, valueBytes, ttl, now ) )
+            {
+                // larger than the whole segment
+                evicted( keyBytes, valueBytes, false );
+            }
+            return current;
+        }
+
+        void discard( int slot, int offset )
+        {
+            buffer.put( offset + RECORD_STATUS, DEAD );
+            liveBytes -= recordSize( offset );
+            removeSlot( slot );
+        }
+
+        private boolean append( int hash, byte[] keyBytes, byte[] valueBytes, long ttl, long now )
+        {
+            int size = RECORD_HEADER + keyBytes.length + valueBytes.length;
+            if ( size > capacity - SEGMENT_HEADER )
+            {
+                return false;
+            }
+            if ( size > capacity - tail )
+            {
+                compact( size, now );
+            }
+
+            int offset = tail;
+            buffer.putInt( offset + RECORD_HASH, hash );
+            buffer.putInt( offset + RECORD_KEY_LENGTH, keyBytes.length );
+            buffer.putInt( offset + RECORD_VALUE_LENGTH, valueBytes.length );
+            setExpiry( offset, ttl, now );
+            buffer.put( offset + RECORD_STATUS, LIVE );
+            ByteBuffer view = buffer.duplicate();
+            view.position( offset + RECORD_HEADER );
+            view.put( keyBytes );
+            view.put( valueBytes );
+
+            // the record is complete before being made reachable through the tail
+            setTail( offset + size );
+            liveBytes += size;
+            insert( hash, offset );
+            return true;
+        }
+
+        /**
+         * Slides the live records to the beginning of the log, dropping the expired ones and, until the required
+         * space is available, the oldest ones.
+         */
+        void compact( int required, long now )
+        {
+            int toFree = liveBytes + required - ( capacity - SEGMENT_HEADER );
+
+            Arrays.fill( index, 0L );
+            count = 0;
+            liveBytes = 0;
+
+            int to = SEGMENT_HEADER;
+            for ( int from = SEGMENT_HEADER; from < tail; )
+            {
+                int size = recordSize( from );
+                if ( buffer.get( from + RECORD_STATUS ) == LIVE )
+                {
+                    boolean expired = isExpired( from, now );
+                    if ( expired || toFree > 0 )
+                    {
+                        evict( from, expired );
+                        toFree -= size;
+                    }
+                    else
+                    {
+                        if ( from != to )
+                        {
+                            byte[] record = read( from, size );
+                            ByteBuffer view = buffer.duplicate();
+                            view.position( to );
+                            view.put( record );
+                        }
+                        insert( buffer.getInt( to + RECORD_HASH ), to );
+                        liveBytes += size;
+                        to += size;
+                    }
+                }
+                from += size;
+            }
+            setTail( to );
+        }
+
+        void evict( int offset, boolean expired )
+        {
+            evicted( readKey( offset ), readValue( offset ), expired );
+        }
+
+        private void evicted( byte[] keyBytes, byte[] valueBytes, boolean expired )
+        {
+            if ( evicted == null )
+            {
+                evicted = new ArrayList<Record>();
+            }
+            evicted.add( new Record( keyBytes, valueBytes, expired ) );
+        }
+
+        /**
+         * @return the records evicted by the last update, to be notified once the lock is released
+         */
+        List<Record> takeEvicted()
+        {
+            List<Record> taken = evicted;
+            evicted = null;
+            return taken;
+        }
+
+        List<Record> snapshot()
+        {
+            List<Record> records = new ArrayList<Record>();
+            long now = now();
+            lock.readLock().lock();
+            try
+            {
+                for ( int offset = SEGMENT_HEADER; offset < tail; offset += recordSize( offset ) )
+                {
+                    if ( buffer.get( offset + RECORD_STATUS ) == LIVE && !isExpired( offset, now ) )
+                    {
+                        records.add( new Record( readKey( offset ), readValue( offset ), false ) );
+                    }
+                }
+            }
+            finally
+            {
+                lock.readLock().unlock();
+            }
+            return records;
+        }
+
+    }
+
+    private static final class Record
+    {
+
+        final byte[] key;
+
+        final byte[] value;
+
+        final boolean expired;
+
+        public Record( byte[] key, byte[] value, boolean expired )
+        {
+            this.key = key;
+            this.value = value;
+            this.expired = expired;
+        }
+
+    }
+
+    private static long expiresAt( long ttl, long now )
+    {
+        if ( ttl == ETERNAL )
+        {
+            return Long.MAX_VALUE;
+        }
+        return ( ttl >= Long.MAX_VALUE - now ) ? Long.MAX_VALUE - 1 : now + ttl;
+    }
+
+}
@@ -0,0 +1,133 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A striped, lossy, bounded buffer where reader threads record the accessed entries without blocking, so that
+ * the eviction policy can be updated in batches under the eviction lock. When a stripe is full or contended the
+ * element is simply dropped: the policy only needs a good sample of the accesses, not all of them.
+ */
+final class ReadBuffer<E>
+{
+
+    /**
+     * Offer outcome: the element has been recorded.
+     */
+    static final int SUCCESS = 0;
+
+    /**
+     * Offer outcome: the element has been dropped because of contention.
+     */
+    static final int FAILED = 1;
+
+    /**
+     * Offer outcome: the element has been dropped because the stripe is full, the buffer should be drained.
+     */
+    static final int FULL = 2;
+
+    /**
+     * The number of elements each stripe can hold, a power of two.
+     */
+    static final int STRIPE_SIZE = 16;
+
+    private static final int STRIPE_MASK = STRIPE_SIZE - 1;
+
+    private static final int STRIPES =
+        FrequencySketch.ceilingPowerOfTwo( Math.max( 1, Runtime.getRuntime().availableProcessors() ) );
+
+    private static final int STRIPES_MASK = STRIPES - 1;
+
+    private final AtomicReferenceArray<E> slots = new AtomicReferenceArray<E>( STRIPES * STRIPE_SIZE );
+
+    private final AtomicLongArray writeCounters = new AtomicLongArray( STRIPES );
+
+    private final AtomicLongArray readCounters = new AtomicLongArray( STRIPES );
+
+    /**
+     * Records the input element, never blocks.
+     *
+     * @param e the element to be recorded
+     * @return one of {@link #SUCCESS}, {@link #FAILED} or {@link #FULL}
+     */
+    public int offer( E e )
+    {
+        int stripe = stripe();
+        long tail = writeCounters.get( stripe );
+        long head = readCounters.get( stripe );
+        if ( tail - head >= STRIPE_SIZE )
+        {
+            return FULL;
+        }
+        if ( writeCounters.compareAndSet( stripe, tail, tail + 1 ) )
+        {
+            slots.set( stripe * STRIPE_SIZE + (int) ( tail & STRIPE_MASK ), e );
+            return SUCCESS;
+        }
+        return FAILED;
+    }
+
+    /**
+     * Drains all the recorded elements to the consumer, must be invoked by a single thread at a time.
+     *
+     * @param consumer the elements consumer
+     */
+    public void drainTo( Consumer<E> consumer )
+    {
+        for ( int stripe = 0; stripe < STRIPES; stripe++ )
+        {
+            long head = readCounters.get( stripe );
+            long tail = writeCounters.get( stripe );
+            for ( ; head < tail; head++ )
+            {
+                int index = stripe * STRIPE_SIZE + (int) ( head & STRIPE_MASK );
+                E e = slots.get( index );
+                if ( e == null )
+                {
+                    // slot reserved but not yet published, next drain will pick it up
+                    break;
+                }
+                slots.set( index, null );
+                consumer.accept( e );
+            }
+            readCounters.set( stripe, head );
+        }
+    }
+
+    private static int stripe()
+    {
+        long id = Thread.currentThread().getId();
+        int hash = (int) ( id ^ ( id >>> 32 ) ) * 0x9E3779B9;
+        return ( hash ^ ( hash >>> 16 ) ) & STRIPES_MASK;
+    }
+
+    /**
+     * Receives the drained elements.
+     */
+    interface Consumer<E>
+    {
+
+        void accept( E e );
+
+    }
+
+}
@@ -0,0 +1,45 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Converts keys and values to and from the bytes kept by the off-heap caches.
+ *
+ * Serialized forms are compared byte by byte, so equal objects have to be serialized to identical bytes.
+ *
+ * @param <T> the type of the serialized objects
+ * @since 0.1.0
+ */
+public interface Serializer<T>
+{
+
+    /**
+     * @param object the object to serialize, never null
+     * @return the serialized form
+     */
+    byte[] serialize( T object );
+
+    /**
+     * @param bytes the serialized form
+     * @return the deserialized object
+     */
+    T deserialize( byte[] bytes );
+
+}
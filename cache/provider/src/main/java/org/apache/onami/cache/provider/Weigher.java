@@ -0,0 +1,42 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Computes the relative weight of cache entries, used by weight bounded caches.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @since 0.1.0
+ */
+public interface Weigher<K, V>
+{
+
+    /**
+     * Returns the weight of a cache entry, that must be a non negative number. The weight of an entry is computed
+     * when it is stored and never re-evaluated.
+     *
+     * @param key the key to weigh
+     * @param value the value to weigh
+     * @return the weight of the entry, must be non negative
+     */
+    int weigh( K key, V value );
+
+}
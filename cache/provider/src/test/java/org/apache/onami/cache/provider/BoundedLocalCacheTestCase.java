@@ -0,0 +1,209 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.Configuration.Duration;
+import javax.cache.ExpiryPolicy;
+
+import org.junit.Test;
+
+public final class BoundedLocalCacheTestCase
+{
+
+    private final List<String> evicted = new ArrayList<String>();
+
+    private final List<String> expired = new ArrayList<String>();
+
+    private final LocalStore.EvictionListener<String, Integer> evictionListener =
+        new LocalStore.EvictionListener<String, Integer>()
+        {
+
+            public void onEviction( String key, Integer value, boolean hasExpired )
+            {
+                ( hasExpired ? expired : evicted ).add( key );
+            }
+
+        };
+
+    @Test
+    public void maximumSize()
+    {
+        BoundedLocalCache<String, Integer> cache = new BoundedLocalCache<String, Integer>( 100, null, null,
+                                                                                           evictionListener );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            cache.put( "key" + i, i );
+        }
+        cache.cleanUp();
+
+        assertEquals( 100, cache.size() );
+        assertEquals( 100, cache.weightedSize() );
+        assertEquals( 900, evicted.size() );
+        assertTrue( expired.isEmpty() );
+    }
+
+    @Test
+    public void maximumWeight()
+    {
+        BoundedLocalCache<String, Integer> cache =
+            new BoundedLocalCache<String, Integer>( 1000, new ValueWeigher(), null, evictionListener );
+        for ( int i = 0; i < 100; i++ )
+        {
+            cache.put( "key" + i, 50 );
+        }
+        cache.cleanUp();
+
+        assertEquals( 20, cache.size() );
+        assertEquals( 1000, cache.weightedSize() );
+
+        // an update changes the weight too
+        cache.put( "key99", 500 );
+        cache.cleanUp();
+        assertTrue( cache.weightedSize() <= 1000 );
+        assertEquals( Integer.valueOf( 500 ), cache.get( "key99" ) );
+    }
+
+    @Test
+    public void frequentlyUsedEntriesAreRetained()
+    {
+        BoundedLocalCache<String, Integer> cache = new BoundedLocalCache<String, Integer>( 100, null, null,
+                                                                                           evictionListener );
+        for ( int i = 0; i < 100; i++ )
+        {
+            cache.put( "hot" + i, i );
+        }
+        for ( int read = 0; read < 5; read++ )
+        {
+            for ( int i = 0; i < 100; i++ )
+            {
+                cache.get( "hot" + i );
+            }
+        }
+
+        // a scan of entries used once does not flush the popular ones
+        for ( int i = 0; i < 1000; i++ )
+        {
+            cache.put( "cold" + i, i );
+        }
+        cache.cleanUp();
+
+        int hot = 0;
+        for ( int i = 0; i < 100; i++ )
+        {
+            if ( cache.getQuietly( "hot" + i ) != null )
+            {
+                hot++;
+            }
+        }
+        assertTrue( "Only " + hot + " popular entries retained", hot >= 98 );
+    }
+
+    @Test
+    public void eachCandidateIsComparedOnce()
+    {
+        BoundedLocalCache<String, Integer> cache =
+            new BoundedLocalCache<String, Integer>( 1000, new ValueWeigher(), null, evictionListener );
+        for ( int i = 0; i < 990; i++ )
+        {
+            cache.put( "filler" + i, 1 );
+        }
+        // the window, whose maximum weight is 10, holds both candidates
+        cache.put( "unpopular", 5 );
+        cache.put( "popular", 5 );
+        for ( int i = 0; i < 5; i++ )
+        {
+            cache.get( "popular" );
+        }
+        assertTrue( evicted.isEmpty() );
+
+        // pushes both candidates out of the window at once, against the least recently used fillers
+        cache.put( "heavy", 10 );
+        cache.cleanUp();
+
+        assertNotNull( cache.getQuietly( "popular" ) );
+        assertNull( cache.getQuietly( "unpopular" ) );
+        assertNotNull( cache.getQuietly( "heavy" ) );
+        assertEquals( 1000, cache.weightedSize() );
+        // the popular candidate is admitted against a single filler, the unpopular one loses the next comparison
+        assertEquals( "filler0", evicted.get( 0 ) );
+        assertEquals( "unpopular", evicted.get( 1 ) );
+    }
+
+    @Test
+    public void expiry()
+        throws InterruptedException
+    {
+        BoundedLocalCache<String, Integer> cache =
+            new BoundedLocalCache<String, Integer>( 100, null, new ExpiryPolicy.Modified<String, Integer>(
+                new Duration( TimeUnit.MILLISECONDS, 50 ) ), evictionListener );
+        cache.put( "read", 1 );
+        cache.put( "swept", 2 );
+        assertEquals( Integer.valueOf( 1 ), cache.get( "read" ) );
+
+        Thread.sleep( 100 );
+        assertNull( cache.get( "read" ) );
+        assertFalse( cache.containsKey( "swept" ) );
+
+        cache.cleanUp();
+        assertEquals( 0, cache.size() );
+        assertEquals( 2, expired.size() );
+        assertTrue( evicted.isEmpty() );
+
+        // a new value gets a new time to live
+        cache.put( "read", 3 );
+        assertEquals( Integer.valueOf( 3 ), cache.get( "read" ) );
+    }
+
+    @Test
+    public void updateRenewsTheTimeToLive()
+        throws InterruptedException
+    {
+        BoundedLocalCache<String, Integer> cache =
+            new BoundedLocalCache<String, Integer>( 100, null, new ExpiryPolicy.Modified<String, Integer>(
+                new Duration( TimeUnit.MILLISECONDS, 200 ) ), evictionListener );
+        cache.put( "key", 1 );
+        Thread.sleep( 120 );
+        cache.put( "key", 2 );
+        Thread.sleep( 120 );
+        assertEquals( Integer.valueOf( 2 ), cache.get( "key" ) );
+    }
+
+    private static final class ValueWeigher
+        implements Weigher<String, Integer>
+    {
+
+        public int weigh( String key, Integer value )
+        {
+            return value;
+        }
+
+    }
+
+}
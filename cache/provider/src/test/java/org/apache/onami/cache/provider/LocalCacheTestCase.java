@@ -0,0 +1,183 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.Cache;
+import javax.cache.Configuration.Duration;
+import javax.cache.ExpiryPolicy;
+import javax.cache.event.CacheEntryCreatedListener;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryExpiredListener;
+import javax.cache.event.CacheEntryRemovedListener;
+import javax.cache.event.CacheEntryUpdatedListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public final class LocalCacheTestCase
+{
+
+    private final List<String> events = new ArrayList<String>();
+
+    private LocalCacheManager cacheManager;
+
+    @Before
+    public void setUp()
+    {
+        cacheManager = new LocalCacheManager();
+    }
+
+    @After
+    public void tearDown()
+    {
+        cacheManager.shutdown();
+    }
+
+    @Test
+    public void boundedByTheConfiguredSize()
+    {
+        LocalCacheConfiguration<Integer, Integer> configuration = new LocalCacheConfiguration<Integer, Integer>();
+        configuration.setMaximumSize( 10 );
+        configuration.setStatisticsEnabled( true );
+        LocalCache<Integer, Integer> cache =
+            (LocalCache<Integer, Integer>) cacheManager.configureCache( "bounded", configuration );
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            cache.put( i, i );
+        }
+        cache.cleanUp();
+
+        assertEquals( 10, cache.size() );
+        assertEquals( 90, cache.getStatistics().getCacheEvictions() );
+        assertEquals( 100, cache.getStatistics().getCachePuts() );
+    }
+
+    @Test
+    public void boundedByTheConfiguredWeight()
+    {
+        LocalCacheConfiguration<Integer, String> configuration = new LocalCacheConfiguration<Integer, String>();
+        configuration.setMaximumWeight( 100, new Weigher<Integer, String>()
+        {
+
+            public int weigh( Integer key, String value )
+            {
+                return value.length();
+            }
+
+        } );
+        LocalCache<Integer, String> cache =
+            (LocalCache<Integer, String>) cacheManager.configureCache( "weighted", configuration );
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            cache.put( i, "0123456789" );
+        }
+        cache.cleanUp();
+
+        assertEquals( 10, cache.size() );
+    }
+
+    @Test
+    public void listenersAreNotified()
+        throws InterruptedException
+    {
+        LocalCacheConfiguration<String, String> configuration = new LocalCacheConfiguration<String, String>();
+        configuration.setExpiryPolicy( new ExpiryPolicy.Modified<String, String>(
+            new Duration( TimeUnit.MILLISECONDS, 50 ) ) );
+        Cache<String, String> cache = cacheManager.configureCache( "listened", configuration );
+        cache.registerCacheEntryListener( new RecordingListener(), false, null, true );
+
+        cache.put( "key", "a" );
+        cache.put( "key", "b" );
+        cache.remove( "key" );
+        cache.put( "expiring", "a" );
+        Thread.sleep( 100 );
+        assertNull( cache.get( "expiring" ) );
+
+        assertEquals( "[created key, updated key, removed key, created expiring, expired expiring]",
+                      events.toString() );
+    }
+
+    @Test
+    public void statistics()
+    {
+        LocalCacheConfiguration<String, String> configuration = new LocalCacheConfiguration<String, String>();
+        configuration.setStatisticsEnabled( true );
+        Cache<String, String> cache = cacheManager.configureCache( "statistics", configuration );
+
+        cache.put( "key", "a" );
+        cache.get( "key" );
+        cache.get( "missing" );
+        cache.remove( "key" );
+
+        assertEquals( 1, cache.getStatistics().getCacheHits() );
+        assertEquals( 1, cache.getStatistics().getCacheMisses() );
+        assertEquals( 1, cache.getStatistics().getCachePuts() );
+        assertEquals( 1, cache.getStatistics().getCacheRemovals() );
+        assertTrue( cache.getStatistics().getCacheHitPercentage() > 0 );
+    }
+
+    private final class RecordingListener
+        implements CacheEntryCreatedListener<String, String>, CacheEntryUpdatedListener<String, String>,
+        CacheEntryRemovedListener<String, String>, CacheEntryExpiredListener<String, String>
+    {
+
+        public void onCreated( Iterable<CacheEntryEvent<? extends String, ? extends String>> cacheEntryEvents )
+        {
+            record( "created", cacheEntryEvents );
+        }
+
+        public void onUpdated( Iterable<CacheEntryEvent<? extends String, ? extends String>> cacheEntryEvents )
+        {
+            record( "updated", cacheEntryEvents );
+        }
+
+        public void onRemoved( Iterable<CacheEntryEvent<? extends String, ? extends String>> cacheEntryEvents )
+        {
+            record( "removed", cacheEntryEvents );
+        }
+
+        public void onExpired( Iterable<CacheEntryEvent<? extends String, ? extends String>> cacheEntryEvents )
+        {
+            record( "expired", cacheEntryEvents );
+        }
+
+        private void record( String type,
+                             Iterable<CacheEntryEvent<? extends String, ? extends String>> cacheEntryEvents )
+        {
+            for ( CacheEntryEvent<? extends String, ? extends String> event : cacheEntryEvents )
+            {
+                events.add( type + " " + event.getKey() );
+            }
+        }
+
+    }
+
+}
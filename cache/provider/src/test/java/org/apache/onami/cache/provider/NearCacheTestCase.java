@@ -0,0 +1,126 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.Cache;
+import javax.cache.Configuration.Duration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public final class NearCacheTestCase
+{
+
+    private LocalCacheManager cacheManager;
+
+    private Cache<String, String> l2;
+
+    private NearCache<String, String> nearCache;
+
+    @Before
+    public void setUp()
+    {
+        cacheManager = new LocalCacheManager();
+        l2 = cacheManager.configureCache( "l2", new LocalCacheConfiguration<String, String>() );
+        nearCache = new NearCache<String, String>( l2, 100, null );
+    }
+
+    @After
+    public void tearDown()
+    {
+        cacheManager.shutdown();
+    }
+
+    @Test
+    public void readsArePopulatedInL1()
+    {
+        l2.put( "key", "a" );
+
+        assertEquals( "a", nearCache.get( "key" ) );
+        assertEquals( "a", nearCache.get( "key" ) );
+        assertNull( nearCache.get( "missing" ) );
+
+        NearCacheStatistics statistics = nearCache.getNearCacheStatistics();
+        assertEquals( 1, statistics.getL1Hits() );
+        assertEquals( 1, statistics.getL2Hits() );
+        assertEquals( 1, statistics.getL2Misses() );
+    }
+
+    @Test
+    public void writesInvalidateL1()
+    {
+        nearCache.put( "key", "a" );
+        assertEquals( "a", nearCache.get( "key" ) );
+
+        nearCache.put( "key", "b" );
+        assertEquals( "b", nearCache.get( "key" ) );
+        assertEquals( "b", l2.get( "key" ) );
+
+        nearCache.remove( "key" );
+        assertNull( nearCache.get( "key" ) );
+        assertNull( l2.get( "key" ) );
+    }
+
+    @Test
+    public void l2ChangesInvalidateL1()
+    {
+        l2.put( "updated", "a" );
+        l2.put( "removed", "a" );
+        nearCache.getAll( new HashSet<String>( Arrays.asList( "updated", "removed" ) ) );
+
+        // written by another client of the L2
+        l2.put( "updated", "b" );
+        l2.remove( "removed" );
+
+        Map<String, String> values =
+            nearCache.getAll( new HashSet<String>( Arrays.asList( "updated", "removed" ) ) );
+        assertEquals( 1, values.size() );
+        assertEquals( "b", values.get( "updated" ) );
+        assertEquals( 2, nearCache.getNearCacheStatistics().getInvalidations() );
+        assertEquals( 0, nearCache.getNearCacheStatistics().getL1Hits() );
+    }
+
+    @Test
+    public void l1EntriesExpire()
+        throws InterruptedException
+    {
+        nearCache = new NearCache<String, String>( l2, 100, new Duration( TimeUnit.MILLISECONDS, 50 ) );
+        l2.put( "key", "a" );
+        nearCache.get( "key" );
+        assertEquals( "a", nearCache.get( "key" ) );
+
+        Thread.sleep( 100 );
+        assertEquals( "a", nearCache.get( "key" ) );
+
+        NearCacheStatistics statistics = nearCache.getNearCacheStatistics();
+        assertEquals( 1, statistics.getL1Hits() );
+        assertEquals( 2, statistics.getL2Hits() );
+    }
+
+}
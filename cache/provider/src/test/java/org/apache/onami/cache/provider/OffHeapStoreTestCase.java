@@ -0,0 +1,213 @@
+package org.apache.onami.cache.provider;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.cache.Configuration.Duration;
+import javax.cache.ExpiryPolicy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public final class OffHeapStoreTestCase
+{
+
+    private static final String VALUE = newValue( 'v', 100 );
+
+    private final List<String> evicted = new ArrayList<String>();
+
+    private final List<String> expired = new ArrayList<String>();
+
+    private final LocalStore.EvictionListener<String, String> evictionListener =
+        new LocalStore.EvictionListener<String, String>()
+        {
+
+            public void onEviction( String key, String value, boolean hasExpired )
+            {
+                ( hasExpired ? expired : evicted ).add( key );
+            }
+
+        };
+
+    private File file;
+
+    @Before
+    public void setUp()
+        throws IOException
+    {
+        file = File.createTempFile( "onami-cache", ".bin" );
+        file.deleteOnExit();
+    }
+
+    @After
+    public void tearDown()
+    {
+        file.delete();
+    }
+
+    @Test
+    public void putGetRemove()
+    {
+        OffHeapStore<String, String> store = newStore( newConfiguration( 64 * 1024, 4 ), null );
+
+        assertNull( store.put( "key", "a" ) );
+        assertEquals( "a", store.get( "key" ) );
+        assertEquals( "a", store.putIfAbsent( "key", "b" ) );
+        assertEquals( "a", store.replace( "key", "b" ) );
+        assertFalse( store.replace( "key", "a", "c" ) );
+        assertTrue( store.replace( "key", "b", "c" ) );
+        assertNull( store.replace( "missing", "c" ) );
+        assertEquals( 1, store.size() );
+
+        assertFalse( store.remove( "key", "b" ) );
+        assertTrue( store.remove( "key", "c" ) );
+        assertNull( store.get( "key" ) );
+        assertEquals( 0, store.size() );
+        assertTrue( evicted.isEmpty() );
+    }
+
+    @Test
+    public void updatesAreCompacted()
+    {
+        OffHeapStore<String, String> store = newStore( newConfiguration( 4096, 1 ), null );
+
+        // many times the capacity, each update leaving a dead record behind
+        for ( int i = 0; i < 1000; i++ )
+        {
+            store.put( "key", newValue( (char) ( 'a' + i % 26 ), 100 ) );
+            store.put( "other", VALUE );
+        }
+
+        assertEquals( newValue( (char) ( 'a' + 999 % 26 ), 100 ), store.get( "key" ) );
+        assertEquals( VALUE, store.get( "other" ) );
+        assertEquals( 2, store.size() );
+        assertTrue( evicted.isEmpty() );
+    }
+
+    @Test
+    public void oldestEntriesAreEvictedWhenFull()
+    {
+        OffHeapStore<String, String> store = newStore( newConfiguration( 4096, 1 ), null );
+        for ( int i = 0; i < 100; i++ )
+        {
+            store.put( "key" + i, VALUE );
+        }
+
+        assertTrue( store.size() < 100 );
+        assertEquals( 100, store.size() + evicted.size() );
+        assertEquals( "key0", evicted.get( 0 ) );
+        assertNull( store.get( "key0" ) );
+        assertEquals( VALUE, store.get( "key99" ) );
+        assertTrue( expired.isEmpty() );
+    }
+
+    @Test
+    public void expiry()
+        throws InterruptedException
+    {
+        OffHeapStore<String, String> store =
+            newStore( newConfiguration( 64 * 1024, 1 ),
+                      new ExpiryPolicy.Modified<String, String>( new Duration( TimeUnit.MILLISECONDS, 50 ) ) );
+        store.put( "read", VALUE );
+        store.put( "swept", VALUE );
+        assertEquals( VALUE, store.get( "read" ) );
+
+        Thread.sleep( 100 );
+        assertNull( store.get( "read" ) );
+        assertFalse( store.containsKey( "swept" ) );
+
+        store.cleanUp();
+        assertEquals( 0, store.size() );
+        assertEquals( Arrays.asList( "read", "swept" ), expired );
+        assertTrue( evicted.isEmpty() );
+    }
+
+    @Test
+    public void reopen()
+    {
+        OffHeapStore<String, String> store = newStore( newConfiguration( 64 * 1024, 4 ).setFile( file ), null );
+        for ( int i = 0; i < 10; i++ )
+        {
+            store.put( "key" + i, VALUE + i );
+        }
+        store.remove( "key0" );
+        store.close();
+
+        OffHeapStore<String, String> reopened =
+            newStore( newConfiguration( 64 * 1024, 4 ).setFile( file ), null );
+        assertEquals( 9, reopened.size() );
+        assertNull( reopened.get( "key0" ) );
+        for ( int i = 1; i < 10; i++ )
+        {
+            assertEquals( VALUE + i, reopened.get( "key" + i ) );
+        }
+        reopened.close();
+    }
+
+    @Test
+    public void reopenWithAnotherLayout()
+    {
+        OffHeapStore<String, String> store = newStore( newConfiguration( 64 * 1024, 4 ).setFile( file ), null );
+        store.put( "key", VALUE );
+        store.close();
+
+        // the segments don't match, the content is discarded
+        OffHeapStore<String, String> reopened =
+            newStore( newConfiguration( 64 * 1024, 8 ).setFile( file ), null );
+        assertEquals( 0, reopened.size() );
+        assertNull( reopened.get( "key" ) );
+        reopened.close();
+    }
+
+    private OffHeapStore<String, String> newStore( OffHeapCacheConfiguration<String, String> configuration,
+                                                   ExpiryPolicy<String, String> expiryPolicy )
+    {
+        return new OffHeapStore<String, String>( configuration, expiryPolicy, evictionListener );
+    }
+
+    private static OffHeapCacheConfiguration<String, String> newConfiguration( long capacity, int concurrencyLevel )
+    {
+        return new OffHeapCacheConfiguration<String, String>()
+            .setCapacity( capacity )
+            .setConcurrencyLevel( concurrencyLevel )
+            .setKeySerializer( new StringSerializer() )
+            .setValueSerializer( new StringSerializer() );
+    }
+
+    private static String newValue( char c, int length )
+    {
+        char[] chars = new char[length];
+        Arrays.fill( chars, c );
+        return new String( chars );
+    }
+
+}
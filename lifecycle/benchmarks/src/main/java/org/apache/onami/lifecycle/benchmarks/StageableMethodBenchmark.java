@@ -0,0 +1,177 @@
+package org.apache.onami.lifecycle.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.google.inject.Guice.createInjector;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.reflect.Method;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.onami.lifecycle.core.LifeCycleStageModule;
+import org.apache.onami.lifecycle.core.NoOpStageHandler;
+import org.apache.onami.lifecycle.core.StageHandler;
+import org.apache.onami.lifecycle.core.Stageable;
+import org.apache.onami.lifecycle.core.Stager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the invocation of a lifecycle method:
+ * <ul>
+ * <li>{@code direct}: the plain method call, the baseline;</li>
+ * <li>{@code reflective}: the former stageable invocation, granting the access at each invocation;</li>
+ * <li>{@code stageable}: the stageable registered by the {@code LifeCycleStageModule}.</li>
+ * </ul>
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class StageableMethodBenchmark
+{
+
+    @Retention( RetentionPolicy.RUNTIME )
+    public @interface Release
+    {
+    }
+
+    public static class Resource
+    {
+
+        private int released;
+
+        @Release
+        void release()
+        {
+            released++;
+        }
+
+    }
+
+    /**
+     * Keeps the registered stageable, so that it can be staged many times.
+     */
+    static class CapturingStager
+        implements Stager<Release>
+    {
+
+        Stageable stageable;
+
+        @Override
+        public void register( Stageable stageable )
+        {
+            this.stageable = stageable;
+        }
+
+        @Override
+        public void stage()
+        {
+            stage( new NoOpStageHandler() );
+        }
+
+        @Override
+        public void stage( StageHandler stageHandler )
+        {
+            stageable.stage( stageHandler );
+        }
+
+        @Override
+        public Class<Release> getStage()
+        {
+            return Release.class;
+        }
+
+    }
+
+    Resource resource;
+
+    Method releaseMethod;
+
+    Stageable stageable;
+
+    final StageHandler stageHandler = new NoOpStageHandler();
+
+    @Setup
+    public void setUp()
+        throws Exception
+    {
+        final CapturingStager stager = new CapturingStager();
+        resource = createInjector( new LifeCycleStageModule()
+        {
+
+            @Override
+            protected void configureBindings()
+            {
+                bindStager( stager );
+            }
+
+        } ).getInstance( Resource.class );
+        stageable = stager.stageable;
+        releaseMethod = Resource.class.getDeclaredMethod( "release" );
+    }
+
+    @Benchmark
+    public int direct()
+    {
+        resource.release();
+        return resource.released;
+    }
+
+    @Benchmark
+    public int reflective()
+        throws Exception
+    {
+        AccessController.doPrivileged( new PrivilegedAction<Void>()
+        {
+
+            @Override
+            public Void run()
+            {
+                releaseMethod.setAccessible( true );
+                return null;
+            }
+
+        } );
+        releaseMethod.invoke( resource );
+        return resource.released;
+    }
+
+    @Benchmark
+    public int stageable()
+    {
+        stageable.stage( stageHandler );
+        return resource.released;
+    }
+
+}
@@ -78,20 +78,18 @@ abstract class AbstractMethodTypeListener
             return;
         }
 
+        LifeCycleMethods lifeCycleMethods = LifeCycleMethods.of( klass );
         for ( Class<? extends Annotation> annotationType : annotationTypes )
         {
-            for ( Method method : klass.getDeclaredMethods() )
+            for ( Method method : lifeCycleMethods.get( annotationType ) )
             {
-                if ( method.isAnnotationPresent( annotationType ) )
+                if ( method.getParameterTypes().length != 0 )
                 {
-                    if ( method.getParameterTypes().length != 0 )
-                    {
-                        encounter.addError( "Annotated methods with @%s must not accept any argument, found %s",
-                                            annotationType.getName(), method );
-                    }
-
-                    hear( method, parentType, encounter, annotationType );
+                    encounter.addError( "Annotated methods with @%s must not accept any argument, found %s",
+                                        annotationType.getName(), method );
                 }
+
+                hear( method, parentType, encounter, annotationType );
             }
         }
 
@@ -0,0 +1,42 @@
+package org.apache.onami.lifecycle.core;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.annotation.Annotation;
+
+/**
+ * A {@link Stageable} staging an annotated element, e.g. a method, whose annotations may tune how it is staged.
+ *
+ * @since 0.2.0
+ */
+public interface AnnotatedStageable
+    extends Stageable
+{
+
+    /**
+     * Returns the annotation of the staged element for the given type, if present.
+     *
+     * @param annotationType the annotation type
+     * @param <T>            the annotation type
+     * @return the annotation, {@code null} if not present.
+     */
+    <T extends Annotation> T getAnnotation( Class<T> annotationType );
+
+}
@@ -22,13 +22,35 @@ package org.apache.onami.lifecycle.core;
 import java.io.Closeable;
 import java.lang.annotation.Annotation;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Default {@link Stager} implementation.
+ * <p/>
+ * By default resources are staged one at a time, each {@link ExecutorService} being awaited up to a minute before
+ * the next resource is staged. Created with a parallelism and a timeout, the stager disposes in parallel instead,
+ * under a single deadline:
+ * <ol>
+ * <li>all the {@link ExecutorService}s are shut down at once, in the stager order;</li>
+ * <li>the {@link Closeable}s are closed in parallel on a pool bounded by the parallelism, while the other
+ * {@link Stageable}s are staged one at a time in the stager order, since they may depend on each other;</li>
+ * <li>the {@link ExecutorService}s are awaited until the deadline, the ones still running are then stopped with
+ * {@link ExecutorService#shutdownNow()}.</li>
+ * </ol>
+ * Once the deadline has passed, the resources still being staged are interrupted and the ones not staged yet are
+ * reported to the {@link StageHandler} as failed with a {@link TimeoutException}.
  */
 public class DefaultStager<A extends Annotation>
     implements DisposingStager<A>
@@ -40,6 +62,13 @@ public class DefaultStager<A extends Annotation>
      */
     private final Queue<Stageable> stageables;
 
+    /**
+     * Number of threads disposing in parallel, {@code 0} to stage one resource at a time.
+     */
+    private final int parallelism;
+
+    private final long timeoutNanos;
+
     /**
      * @param stage the annotation that specifies this stage
      */
@@ -54,7 +83,36 @@ public class DefaultStager<A extends Annotation>
      */
     public DefaultStager( Class<A> stage, Order mode )
     {
+        this( stage, mode, 0, 0, TimeUnit.NANOSECONDS );
+    }
+
+    /**
+     * Creates a stager disposing the resources in parallel, all of them within the given timeout.
+     *
+     * @param stage       the annotation that specifies this stage
+     * @param mode        execution order of the executors shutdown and of the stageables other than closeables
+     * @param parallelism maximum number of threads closing the closeables, {@code 0} to stage one resource at a time
+     * @param timeout     time to dispose all the resources, once the stage begins
+     * @param unit        the {@code timeout} unit
+     * @since 0.2.0
+     */
+    public DefaultStager( Class<A> stage, Order mode, int parallelism, long timeout, TimeUnit unit )
+    {
+        if ( parallelism < 0 )
+        {
+            throw new IllegalArgumentException( "Argument 'parallelism' must be not negative" );
+        }
+        if ( parallelism > 0 && timeout <= 0 )
+        {
+            throw new IllegalArgumentException( "Argument 'timeout' must be positive" );
+        }
+        if ( unit == null )
+        {
+            throw new IllegalArgumentException( "Argument 'unit' must be not null" );
+        }
         this.stage = stage;
+        this.parallelism = parallelism;
+        this.timeoutNanos = unit.toNanos( timeout );
 
         Queue<Stageable> localStageables;
         switch ( mode )
@@ -131,6 +189,12 @@ public class DefaultStager<A extends Annotation>
             stageHandler = new NoOpStageHandler();
         }
 
+        if ( parallelism > 0 )
+        {
+            stageInParallel( new SynchronizedStageHandler( stageHandler ) );
+            return;
+        }
+
         while ( true )
         {
             Stageable stageable;
@@ -146,6 +210,143 @@ public class DefaultStager<A extends Annotation>
         }
     }
 
+    private void stageInParallel( StageHandler stageHandler )
+    {
+        long deadline = System.nanoTime() + timeoutNanos;
+        ExecutorService disposer = newDisposer();
+        try
+        {
+            // resources registered while staging are staged in the next round, under the same deadline
+            List<Stageable> round;
+            while ( !( round = pollAll() ).isEmpty() )
+            {
+                if ( !stageInParallel( round, stageHandler, disposer, deadline ) )
+                {
+                    break;
+                }
+            }
+        }
+        finally
+        {
+            disposer.shutdownNow();
+        }
+    }
+
+    /**
+     * @return false if the current thread has been interrupted
+     */
+    private boolean stageInParallel( List<Stageable> round, StageHandler stageHandler, ExecutorService disposer,
+                                     long deadline )
+    {
+        List<ExecutorService> executors = new ArrayList<ExecutorService>();
+        List<Stageable> sequence = new ArrayList<Stageable>();
+        List<DisposingTask> tasks = new ArrayList<DisposingTask>();
+        for ( Stageable stageable : round )
+        {
+            if ( stageable instanceof ExecutorServiceStageable )
+            {
+                ExecutorService executor = ( (ExecutorServiceStageable) stageable ).object;
+                executor.shutdown();
+                executors.add( executor );
+            }
+            else if ( stageable instanceof CloseableStageable )
+            {
+                tasks.add( new DisposingTask( Collections.singletonList( stageable ), stageHandler ) );
+            }
+            else
+            {
+                sequence.add( stageable );
+            }
+        }
+        if ( !sequence.isEmpty() )
+        {
+            tasks.add( new DisposingTask( sequence, stageHandler ) );
+        }
+
+        boolean interrupted = false;
+        for ( DisposingTask task : tasks )
+        {
+            task.future = disposer.submit( task );
+        }
+        for ( DisposingTask task : tasks )
+        {
+            if ( interrupted )
+            {
+                task.cancel();
+                continue;
+            }
+            try
+            {
+                task.future.get( Math.max( 0, deadline - System.nanoTime() ), TimeUnit.NANOSECONDS );
+            }
+            catch ( TimeoutException e )
+            {
+                task.cancel();
+            }
+            catch ( InterruptedException e )
+            {
+                interrupted = true;
+                task.cancel();
+            }
+            catch ( ExecutionException e )
+            {
+                // reported by the task
+            }
+        }
+
+        for ( ExecutorService executor : executors )
+        {
+            if ( interrupted )
+            {
+                new ExecutorServiceStageable( executor, System.nanoTime() ).stage( stageHandler );
+            }
+            else
+            {
+                new ExecutorServiceStageable( executor, deadline ).stage( stageHandler );
+                interrupted = Thread.currentThread().isInterrupted();
+            }
+        }
+
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+        return !interrupted;
+    }
+
+    private List<Stageable> pollAll()
+    {
+        List<Stageable> round = new ArrayList<Stageable>();
+        synchronized ( stageables )
+        {
+            Stageable stageable;
+            while ( ( stageable = stageables.poll() ) != null )
+            {
+                round.add( stageable );
+            }
+        }
+        return round;
+    }
+
+    private ExecutorService newDisposer()
+    {
+        final String name = "onami-stager-" + stage.getSimpleName() + "-";
+        return new ThreadPoolExecutor( parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                                       new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+        {
+            private final AtomicInteger threadsCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable, name + threadsCount.incrementAndGet() );
+                // a resource that can't be disposed must not prevent the JVM from exiting
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -171,7 +372,7 @@ public class DefaultStager<A extends Annotation>
         FIRST_IN_LAST_OUT
     }
 
-    private static class CloseableStageable extends AbstractStageable<Closeable>
+    static class CloseableStageable extends AbstractStageable<Closeable>
     {
 
         public CloseableStageable( Closeable closeable )
@@ -187,12 +388,28 @@ public class DefaultStager<A extends Annotation>
 
     }
 
-    private static class ExecutorServiceStageable extends AbstractStageable<ExecutorService>
+    static class ExecutorServiceStageable extends AbstractStageable<ExecutorService>
     {
 
+        /**
+         * The {@code System.nanoTime()} the executor is awaited until, if {@link #bounded}.
+         */
+        private final long deadline;
+
+        private final boolean bounded;
+
         public ExecutorServiceStageable( ExecutorService executor )
         {
             super( executor );
+            this.deadline = 0;
+            this.bounded = false;
+        }
+
+        public ExecutorServiceStageable( ExecutorService executor, long deadline )
+        {
+            super( executor );
+            this.deadline = deadline;
+            this.bounded = true;
         }
 
         @Override
@@ -201,7 +418,8 @@ public class DefaultStager<A extends Annotation>
             object.shutdown();
             try
             {
-                if ( !object.awaitTermination( 1, TimeUnit.MINUTES ) )
+                long timeout = bounded ? deadline - System.nanoTime() : TimeUnit.MINUTES.toNanos( 1 );
+                if ( !object.awaitTermination( timeout, TimeUnit.NANOSECONDS ) )
                 {
                     object.shutdownNow();
                 }
@@ -215,4 +433,88 @@ public class DefaultStager<A extends Annotation>
 
     }
 
+    /**
+     * Stages a sequence of stageables, the ones not started when cancelled are reported as timed out.
+     */
+    private static class DisposingTask implements Runnable
+    {
+
+        private final List<Stageable> sequence;
+
+        private final StageHandler stageHandler;
+
+        /**
+         * Index of the next stageable to stage, the stageables before it are claimed by the task or by cancel().
+         */
+        private final AtomicInteger next = new AtomicInteger();
+
+        Future<?> future;
+
+        public DisposingTask( List<Stageable> sequence, StageHandler stageHandler )
+        {
+            this.sequence = sequence;
+            this.stageHandler = stageHandler;
+        }
+
+        @Override
+        public void run()
+        {
+            for ( int i = 0; i < sequence.size(); i++ )
+            {
+                if ( !next.compareAndSet( i, i + 1 ) )
+                {
+                    // cancelled, the remaining stageables are reported by cancel()
+                    return;
+                }
+                Stageable stageable = sequence.get( i );
+                try
+                {
+                    stageable.stage( stageHandler );
+                }
+                catch ( RuntimeException e )
+                {
+                    stageHandler.onError( stageable, e );
+                }
+            }
+        }
+
+        void cancel()
+        {
+            int notStarted = next.getAndSet( sequence.size() );
+            future.cancel( true );
+            for ( Stageable stageable : sequence.subList( notStarted, sequence.size() ) )
+            {
+                stageHandler.onError( stageable, new TimeoutException( "Disposal deadline exceeded" ) );
+            }
+        }
+
+    }
+
+    /**
+     * Serializes the notifications of the disposing threads.
+     */
+    static class SynchronizedStageHandler implements StageHandler
+    {
+
+        private final StageHandler delegate;
+
+        public SynchronizedStageHandler( StageHandler delegate )
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized <I> void onSuccess( I injectee )
+        {
+            delegate.onSuccess( injectee );
+        }
+
+        @Override
+        public synchronized <I, E extends Throwable> void onError( I injectee, E error )
+        {
+            delegate.onError( injectee, error );
+        }
+
+    }
+
 }
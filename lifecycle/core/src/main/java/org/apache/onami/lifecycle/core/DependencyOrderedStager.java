@@ -0,0 +1,357 @@
+package org.apache.onami.lifecycle.core;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.TypeLiteral;
+
+import java.io.Closeable;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link DisposingStager} that follows the injection graph in reverse: the resources of a type are disposed only
+ * after the ones of all the types that depend on it, and the independent types are disposed in parallel. Disposing
+ * takes roughly the time of the longest dependency chain, rather than the sum of all the disposals.
+ * <p/>
+ * The graph is the one the warm up is performed along, see {@link InjectionDependencies#between(Set, Injector)}:
+ * types are mapped through
+ * {@link #registerType(Stageable, TypeLiteral)}, so the stager must be bound with
+ * {@code bindStager( stager ).mappingWith( stager )}; once bound, the injector is also used to follow the linked
+ * bindings. Dependencies forming a cycle are disposed last registered first.
+ * <p/>
+ * The stageables not mapped to a type, {@link ExecutorService}s and {@link Closeable}s included, are staged once the
+ * graph is disposed, last registered first.
+ *
+ * @since 0.2.0
+ */
+public class DependencyOrderedStager<A extends Annotation>
+    implements DisposingStager<A>, StageableTypeMapper
+{
+
+    private final Class<A> stage;
+
+    private final int parallelism;
+
+    /**
+     * Guards the registered stageables.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * Stageables not mapped to a type, in registration order.
+     */
+    private final Set<Stageable> unmapped = new LinkedHashSet<Stageable>();
+
+    /**
+     * Stageables by the type that registered them, in registration order.
+     */
+    private final Map<TypeLiteral<?>, List<Stageable>> mapped = new LinkedHashMap<TypeLiteral<?>, List<Stageable>>();
+
+    private volatile Injector injector;
+
+    /**
+     * Creates a stager disposing on as many threads as processors.
+     *
+     * @param stage the annotation that specifies this stage
+     */
+    public DependencyOrderedStager( Class<A> stage )
+    {
+        this( stage, Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     * @param stage       the annotation that specifies this stage
+     * @param parallelism maximum number of threads disposing the independent types
+     */
+    public DependencyOrderedStager( Class<A> stage, int parallelism )
+    {
+        if ( parallelism < 1 )
+        {
+            throw new IllegalArgumentException( "Argument 'parallelism' must be positive" );
+        }
+        this.stage = stage;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the injector to resolve the linked bindings with, injected once the stager is bound.
+     *
+     * @param injector the injector the stager is bound in
+     */
+    @Inject
+    public void setInjector( Injector injector )
+    {
+        this.injector = injector;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void register( Stageable stageable )
+    {
+        synchronized ( lock )
+        {
+            unmapped.add( stageable );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends ExecutorService> T register( T executorService )
+    {
+        register( new DefaultStager.ExecutorServiceStageable( executorService ) );
+        return executorService;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends Closeable> T register( T closeable )
+    {
+        register( new DefaultStager.CloseableStageable( closeable ) );
+        return closeable;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <I> void registerType( Stageable stageable, TypeLiteral<I> parentType )
+    {
+        synchronized ( lock )
+        {
+            // registered before as unmapped
+            unmapped.remove( stageable );
+            List<Stageable> stageables = mapped.get( parentType );
+            if ( stageables == null )
+            {
+                stageables = new ArrayList<Stageable>();
+                mapped.put( parentType, stageables );
+            }
+            stageables.add( stageable );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stage()
+    {
+        stage( null );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stage( StageHandler stageHandler )
+    {
+        if ( stageHandler == null )
+        {
+            stageHandler = new NoOpStageHandler();
+        }
+        StageHandler synchronizedStageHandler = new DefaultStager.SynchronizedStageHandler( stageHandler );
+
+        // resources registered while staging are staged in the next round
+        while ( true )
+        {
+            Map<TypeLiteral<?>, List<Stageable>> graph;
+            List<Stageable> others;
+            synchronized ( lock )
+            {
+                graph = new LinkedHashMap<TypeLiteral<?>, List<Stageable>>( mapped );
+                others = new ArrayList<Stageable>( unmapped );
+                mapped.clear();
+                unmapped.clear();
+            }
+            if ( graph.isEmpty() && others.isEmpty() )
+            {
+                return;
+            }
+
+            if ( !graph.isEmpty() && !stageGraph( graph, synchronizedStageHandler ) )
+            {
+                return;
+            }
+            Collections.reverse( others );
+            for ( Stageable stageable : others )
+            {
+                stageable.stage( stageHandler );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Class<A> getStage()
+    {
+        return stage;
+    }
+
+    /**
+     * @return false if the current thread has been interrupted
+     */
+    private boolean stageGraph( final Map<TypeLiteral<?>, List<Stageable>> graph, final StageHandler stageHandler )
+    {
+        Map<TypeLiteral<?>, Set<TypeLiteral<?>>> dependencies =
+            InjectionDependencies.between( graph.keySet(), injector );
+        Map<TypeLiteral<?>, Integer> pendingDependents = new HashMap<TypeLiteral<?>, Integer>();
+        for ( TypeLiteral<?> type : graph.keySet() )
+        {
+            pendingDependents.put( type, 0 );
+        }
+        for ( Set<TypeLiteral<?>> typeDependencies : dependencies.values() )
+        {
+            for ( TypeLiteral<?> dependency : typeDependencies )
+            {
+                pendingDependents.put( dependency, pendingDependents.get( dependency ) + 1 );
+            }
+        }
+
+        // last registered first, for the types unrelated or in a cycle
+        List<TypeLiteral<?>> remaining = new ArrayList<TypeLiteral<?>>( graph.keySet() );
+        Collections.reverse( remaining );
+
+        ExecutorService disposer = newDisposer( Math.min( parallelism, graph.size() ) );
+        CompletionService<TypeLiteral<?>> completion = new ExecutorCompletionService<TypeLiteral<?>>( disposer );
+        try
+        {
+            int running = 0;
+            for ( TypeLiteral<?> type : new ArrayList<TypeLiteral<?>>( remaining ) )
+            {
+                if ( pendingDependents.get( type ) == 0 )
+                {
+                    submit( completion, type, graph.get( type ), stageHandler );
+                    remaining.remove( type );
+                    running++;
+                }
+            }
+
+            while ( running > 0 || !remaining.isEmpty() )
+            {
+                if ( running == 0 )
+                {
+                    // all the types left depend on each other
+                    TypeLiteral<?> type = remaining.remove( 0 );
+                    submit( completion, type, graph.get( type ), stageHandler );
+                    running++;
+                }
+
+                TypeLiteral<?> disposed = completion.take().get();
+                running--;
+                for ( TypeLiteral<?> dependency : dependencies.get( disposed ) )
+                {
+                    int pending = pendingDependents.get( dependency ) - 1;
+                    pendingDependents.put( dependency, pending );
+                    if ( pending == 0 && remaining.remove( dependency ) )
+                    {
+                        submit( completion, dependency, graph.get( dependency ), stageHandler );
+                        running++;
+                    }
+                }
+            }
+            return true;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        catch ( ExecutionException e )
+        {
+            throw new IllegalStateException( "Disposal of " + stage.getSimpleName() + " failed", e.getCause() );
+        }
+        finally
+        {
+            disposer.shutdownNow();
+        }
+    }
+
+    private static void submit( CompletionService<TypeLiteral<?>> completion, final TypeLiteral<?> type,
+                                final List<Stageable> stageables, final StageHandler stageHandler )
+    {
+        completion.submit( new Callable<TypeLiteral<?>>()
+        {
+            @Override
+            public TypeLiteral<?> call()
+            {
+                // instances of the same type, last registered first
+                for ( int i = stageables.size() - 1; i >= 0; i-- )
+                {
+                    Stageable stageable = stageables.get( i );
+                    try
+                    {
+                        stageable.stage( stageHandler );
+                    }
+                    catch ( RuntimeException e )
+                    {
+                        stageHandler.onError( stageable, e );
+                    }
+                }
+                return type;
+            }
+        } );
+    }
+
+    private ExecutorService newDisposer( int threads )
+    {
+        final String name = "onami-disposer-" + stage.getSimpleName() + "-";
+        return new ThreadPoolExecutor( threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                       new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+        {
+            private final AtomicInteger threadsCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable, name + threadsCount.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+    }
+
+}
@@ -0,0 +1,210 @@
+package org.apache.onami.lifecycle.core;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.Binding;
+import com.google.inject.ConfigurationException;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+import com.google.inject.spi.Dependency;
+import com.google.inject.spi.InjectionPoint;
+import com.google.inject.spi.LinkedKeyBinding;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The edges of the injection graph: the keys a type gets injected through its constructor, methods and fields, and
+ * the dependencies between the types of the stageables, along which stagers order them.
+ *
+ * @since 0.2.0
+ */
+public final class InjectionDependencies
+{
+
+    /**
+     * Returns the keys injected into instances of the given type, none if the type can't be inspected, e.g.
+     * interfaces or types without an injectable constructor.
+     *
+     * @param type the injected type
+     * @return the keys the type depends on
+     */
+    public static Set<Key<?>> of( TypeLiteral<?> type )
+    {
+        Set<Key<?>> dependencies = new LinkedHashSet<Key<?>>();
+        addDependencies( dependencies, getConstructorInjectionPoint( type ) );
+        for ( InjectionPoint injectionPoint : getMethodInjectionPoints( type ) )
+        {
+            addDependencies( dependencies, injectionPoint );
+        }
+        return dependencies;
+    }
+
+    /**
+     * Returns the injection graph between the given types: for each type, the nearest of the given types it depends
+     * on, either directly or through other types. {@code Provider}s count as dependencies on the provided types.
+     *
+     * @param types    the types the graph is made of
+     * @param injector the injector to follow the linked bindings with, {@code null} to only consider the injected types
+     * @return the dependencies of each type
+     */
+    public static Map<TypeLiteral<?>, Set<TypeLiteral<?>>> between( Set<TypeLiteral<?>> types, Injector injector )
+    {
+        Map<TypeLiteral<?>, Set<TypeLiteral<?>>> edges = new HashMap<TypeLiteral<?>, Set<TypeLiteral<?>>>();
+        Map<TypeLiteral<?>, Set<TypeLiteral<?>>> dependencies = new HashMap<TypeLiteral<?>, Set<TypeLiteral<?>>>();
+        for ( TypeLiteral<?> type : types )
+        {
+            Set<TypeLiteral<?>> typeDependencies = new LinkedHashSet<TypeLiteral<?>>();
+            Set<TypeLiteral<?>> visited = new HashSet<TypeLiteral<?>>();
+            visited.add( type );
+            collectDependencies( type, types, injector, edges, visited, typeDependencies );
+            dependencies.put( type, typeDependencies );
+        }
+        return dependencies;
+    }
+
+    private static void collectDependencies( TypeLiteral<?> type, Set<TypeLiteral<?>> types, Injector injector,
+                                             Map<TypeLiteral<?>, Set<TypeLiteral<?>>> edges,
+                                             Set<TypeLiteral<?>> visited, Set<TypeLiteral<?>> typeDependencies )
+    {
+        for ( TypeLiteral<?> dependency : getEdges( type, injector, edges ) )
+        {
+            if ( !visited.add( dependency ) )
+            {
+                continue;
+            }
+            if ( types.contains( dependency ) )
+            {
+                typeDependencies.add( dependency );
+            }
+            else
+            {
+                collectDependencies( dependency, types, injector, edges, visited, typeDependencies );
+            }
+        }
+    }
+
+    private static Set<TypeLiteral<?>> getEdges( TypeLiteral<?> type, Injector injector,
+                                                 Map<TypeLiteral<?>, Set<TypeLiteral<?>>> edges )
+    {
+        Set<TypeLiteral<?>> typeEdges = edges.get( type );
+        if ( typeEdges == null )
+        {
+            typeEdges = new LinkedHashSet<TypeLiteral<?>>();
+            for ( Key<?> dependency : of( type ) )
+            {
+                typeEdges.add( resolve( dependency, injector ) );
+            }
+            edges.put( type, typeEdges );
+        }
+        return typeEdges;
+    }
+
+    /**
+     * @return the type actually injected for the key: the provided type for providers, the implementation for the
+     *         linked bindings
+     */
+    private static TypeLiteral<?> resolve( Key<?> key, Injector injector )
+    {
+        Type type = key.getTypeLiteral().getType();
+        if ( type instanceof ParameterizedType )
+        {
+            ParameterizedType parameterizedType = (ParameterizedType) type;
+            if ( parameterizedType.getRawType() == com.google.inject.Provider.class
+                || parameterizedType.getRawType() == javax.inject.Provider.class )
+            {
+                Type providedType = parameterizedType.getActualTypeArguments()[0];
+                if ( key.getAnnotation() != null )
+                {
+                    key = Key.get( providedType, key.getAnnotation() );
+                }
+                else if ( key.getAnnotationType() != null )
+                {
+                    key = Key.get( providedType, key.getAnnotationType() );
+                }
+                else
+                {
+                    key = Key.get( providedType );
+                }
+            }
+        }
+
+        if ( injector != null )
+        {
+            Set<Key<?>> followed = new HashSet<Key<?>>();
+            Binding<?> binding;
+            while ( followed.add( key ) && ( binding = injector.getExistingBinding( key ) ) != null
+                && binding instanceof LinkedKeyBinding )
+            {
+                key = ( (LinkedKeyBinding<?>) binding ).getLinkedKey();
+            }
+        }
+        return key.getTypeLiteral();
+    }
+
+    private static void addDependencies( Set<Key<?>> dependencies, InjectionPoint injectionPoint )
+    {
+        if ( injectionPoint != null )
+        {
+            for ( Dependency<?> dependency : injectionPoint.getDependencies() )
+            {
+                dependencies.add( dependency.getKey() );
+            }
+        }
+    }
+
+    private static Set<InjectionPoint> getMethodInjectionPoints( TypeLiteral<?> type )
+    {
+        try
+        {
+            return InjectionPoint.forInstanceMethodsAndFields( type );
+        }
+        catch ( ConfigurationException e )
+        {
+            // ignore
+        }
+        return new LinkedHashSet<InjectionPoint>();
+    }
+
+    private static InjectionPoint getConstructorInjectionPoint( TypeLiteral<?> type )
+    {
+        try
+        {
+            return InjectionPoint.forConstructorOf( type );
+        }
+        catch ( ConfigurationException e )
+        {
+            // ignore
+        }
+        return null;
+    }
+
+    private InjectionDependencies()
+    {
+        // do nothing
+    }
+
+}
@@ -0,0 +1,210 @@
+package org.apache.onami.lifecycle.core;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.annotation.Annotation;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The annotated methods declared by a class, indexed by annotation type in a single {@code getDeclaredMethods} pass
+ * and shared by all the lifecycle modules. The methods of a lifecycle annotation are made accessible once, the first
+ * time they are requested, so that invoking them doesn't pay the access checks anymore; when not allowed, e.g. in a
+ * named module not open to this one, the stageables grant the access at each invocation.
+ * <p/>
+ * Classes are weakly referenced and indexes softly referenced, as the reflection data of the JVM, so that neither
+ * prevents classes from being unloaded; classes without annotated methods share the same empty index. Lookups don't
+ * lock, the entries of unloaded classes are purged when new classes are indexed.
+ */
+final class LifeCycleMethods
+{
+
+    private static final LifeCycleMethods NONE =
+        new LifeCycleMethods( Collections.<Class<? extends Annotation>, List<Method>>emptyMap() );
+
+    private static final SoftReference<LifeCycleMethods> NONE_REFERENCE = new SoftReference<LifeCycleMethods>( NONE );
+
+    private static final ConcurrentMap<ClassReference, SoftReference<LifeCycleMethods>> INDEXES =
+        new ConcurrentHashMap<ClassReference, SoftReference<LifeCycleMethods>>();
+
+    private static final ReferenceQueue<Class<?>> UNLOADED_CLASSES = new ReferenceQueue<Class<?>>();
+
+    /**
+     * Returns the index of the methods declared by the given class, computing it the first time.
+     *
+     * @param klass the class declaring the methods
+     * @return the methods index
+     */
+    static LifeCycleMethods of( Class<?> klass )
+    {
+        SoftReference<LifeCycleMethods> reference = INDEXES.get( new ClassReference( klass, null ) );
+        LifeCycleMethods methods = reference != null ? reference.get() : null;
+        if ( methods == null )
+        {
+            purgeUnloadedClasses();
+            // may be computed twice concurrently, both indexes are equal
+            methods = index( klass );
+            INDEXES.put( new ClassReference( klass, UNLOADED_CLASSES ),
+                         methods == NONE ? NONE_REFERENCE : new SoftReference<LifeCycleMethods>( methods ) );
+        }
+        return methods;
+    }
+
+    private static void purgeUnloadedClasses()
+    {
+        Object unloaded;
+        while ( ( unloaded = UNLOADED_CLASSES.poll() ) != null )
+        {
+            INDEXES.remove( unloaded );
+        }
+    }
+
+    private static LifeCycleMethods index( Class<?> klass )
+    {
+        Map<Class<? extends Annotation>, List<Method>> methodsByAnnotation = null;
+        for ( Method method : klass.getDeclaredMethods() )
+        {
+            for ( Annotation annotation : method.getDeclaredAnnotations() )
+            {
+                if ( methodsByAnnotation == null )
+                {
+                    methodsByAnnotation = new HashMap<Class<? extends Annotation>, List<Method>>();
+                }
+                List<Method> methods = methodsByAnnotation.get( annotation.annotationType() );
+                if ( methods == null )
+                {
+                    methods = new ArrayList<Method>( 1 );
+                    methodsByAnnotation.put( annotation.annotationType(), methods );
+                }
+                methods.add( method );
+            }
+        }
+        return methodsByAnnotation == null ? NONE : new LifeCycleMethods( methodsByAnnotation );
+    }
+
+    private static void setAccessible( final List<Method> methods )
+    {
+        AccessController.doPrivileged( new PrivilegedAction<Void>()
+        {
+
+            @Override
+            public Void run()
+            {
+                for ( Method method : methods )
+                {
+                    try
+                    {
+                        method.setAccessible( true );
+                    }
+                    catch ( RuntimeException e )
+                    {
+                        // SecurityException or, since Java 9, InaccessibleObjectException: access granted per call
+                    }
+                }
+                return null;
+            }
+
+        } );
+    }
+
+    /**
+     * A weak reference to a class, equal to the references to the same class.
+     */
+    private static final class ClassReference
+        extends WeakReference<Class<?>>
+    {
+
+        private final int hashCode;
+
+        ClassReference( Class<?> klass, ReferenceQueue<Class<?>> queue )
+        {
+            super( klass, queue );
+            hashCode = System.identityHashCode( klass );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals( Object obj )
+        {
+            if ( this == obj )
+            {
+                return true;
+            }
+            if ( !( obj instanceof ClassReference ) )
+            {
+                return false;
+            }
+            Class<?> klass = get();
+            return klass != null && klass == ( (ClassReference) obj ).get();
+        }
+
+    }
+
+    private final Map<Class<? extends Annotation>, List<Method>> methodsByAnnotation;
+
+    /**
+     * The annotations whose methods have been made accessible.
+     */
+    private final Set<Class<? extends Annotation>> accessibleAnnotations =
+        Collections.newSetFromMap( new ConcurrentHashMap<Class<? extends Annotation>, Boolean>() );
+
+    private LifeCycleMethods( Map<Class<? extends Annotation>, List<Method>> methodsByAnnotation )
+    {
+        this.methodsByAnnotation = methodsByAnnotation;
+    }
+
+    /**
+     * Returns the methods annotated with the given lifecycle annotation, made accessible if allowed.
+     *
+     * @param annotationType the lifecycle annotation
+     * @return the methods annotated with the given annotation, in declaration order
+     */
+    List<Method> get( Class<? extends Annotation> annotationType )
+    {
+        List<Method> methods = methodsByAnnotation.get( annotationType );
+        if ( methods == null )
+        {
+            return Collections.emptyList();
+        }
+        if ( accessibleAnnotations.add( annotationType ) )
+        {
+            setAccessible( methods );
+        }
+        return methods;
+    }
+
+}
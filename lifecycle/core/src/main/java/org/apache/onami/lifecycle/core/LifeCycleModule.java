@@ -42,6 +42,27 @@ public abstract class LifeCycleModule
     extends AbstractModule
 {
 
+    private StageProfiler stageProfiler;
+
+    /**
+     * Records the lifecycle methods invoked in the given profiler, it must be set before the injector is created.
+     *
+     * @param stageProfiler the profiler the lifecycle methods are recorded in
+     * @since 0.2.0
+     */
+    public final void setStageProfiler( StageProfiler stageProfiler )
+    {
+        this.stageProfiler = stageProfiler;
+    }
+
+    /**
+     * @return the profiler the lifecycle methods are recorded in, {@code null} if not profiled
+     */
+    final StageProfiler getStageProfiler()
+    {
+        return stageProfiler;
+    }
+
     /**
      * Binds lifecycle listener.
      *
@@ -71,22 +92,31 @@ public abstract class LifeCycleModule
      */
     protected final void bindLifeCycle( List<? extends Class<? extends Annotation>> annotations, Matcher<? super TypeLiteral<?>> typeMatcher )
     {
+        final StageProfiler profiler = stageProfiler;
+        if ( profiler != null )
+        {
+            requestInjection( profiler );
+        }
         bindListener( typeMatcher, new AbstractMethodTypeListener( annotations )
         {
 
             @Override
-            protected <I> void hear( final Method method, TypeLiteral<I> parentType, TypeEncounter<I> encounter,
+            protected <I> void hear( final Method method, final TypeLiteral<I> parentType, TypeEncounter<I> encounter,
                                      final Class<? extends Annotation> annotationType )
             {
+                final String name = profiler != null ? StageProfiler.getName( method, parentType ) : null;
                 encounter.register( new InjectionListener<I>()
                 {
 
                     @Override
                     public void afterInjection( I injectee )
                     {
+                        long start = profiler != null ? System.nanoTime() : 0L;
+                        boolean failed = true;
                         try
                         {
                             method.invoke( injectee );
+                            failed = false;
                         }
                         catch ( IllegalArgumentException e )
                         {
@@ -106,6 +136,13 @@ public abstract class LifeCycleModule
                                 format( "An error occurred while invoking @%s %s on %s", annotationType.getName(),
                                         method, injectee ), e.getCause() );
                         }
+                        finally
+                        {
+                            if ( profiler != null )
+                            {
+                                profiler.record( annotationType, parentType, name, start, failed );
+                            }
+                        }
                     }
 
                 } );
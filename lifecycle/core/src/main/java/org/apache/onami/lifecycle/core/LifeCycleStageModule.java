@@ -85,6 +85,10 @@ public abstract class LifeCycleStageModule
         bindings = new ArrayList<BindingBuilder<?>>();
         try
         {
+            if ( getStageProfiler() != null )
+            {
+                requestInjection( getStageProfiler() );
+            }
             configureBindings();
             for ( BindingBuilder<?> binding : bindings )
             {
@@ -101,6 +105,7 @@ public abstract class LifeCycleStageModule
     {
         final Stager<A> stager = binding.stager;
         final StageableTypeMapper typeMapper = binding.typeMapper;
+        final StageProfiler profiler = getStageProfiler();
         bind( type( stager.getStage() ) ).toInstance( stager );
 
         bindListener( binding.typeMatcher, new AbstractMethodTypeListener( asList( stager.getStage() ) )
@@ -117,7 +122,12 @@ public abstract class LifeCycleStageModule
                     @Override
                     public void afterInjection( I injectee )
                     {
-                        Stageable stageable = new StageableMethod( stageMethod, injectee );
+                        StageableMethod stageableMethod = new StageableMethod( stageMethod, injectee );
+                        Stageable stageable = stageableMethod;
+                        if ( profiler != null )
+                        {
+                            stageable = profiler.profile( stageableMethod, stageMethod, parentType, stager.getStage() );
+                        }
                         stager.register( stageable );
                         typeMapper.registerType( stageable, parentType );
                     }
@@ -0,0 +1,111 @@
+package org.apache.onami.lifecycle.core;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.TypeLiteral;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * Records the execution of the staged method in the {@link StageProfiler}.
+ */
+final class ProfiledStageable
+    implements AnnotatedStageable
+{
+
+    private final AnnotatedStageable delegate;
+
+    private final TypeLiteral<?> type;
+
+    private final String name;
+
+    private final Class<? extends Annotation> stage;
+
+    private final StageProfiler profiler;
+
+    ProfiledStageable( AnnotatedStageable delegate, TypeLiteral<?> type, String name,
+                       Class<? extends Annotation> stage, StageProfiler profiler )
+    {
+        this.delegate = delegate;
+        this.type = type;
+        this.name = name;
+        this.stage = stage;
+        this.profiler = profiler;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stage( final StageHandler stageHandler )
+    {
+        final boolean[] failed = new boolean[1];
+        long start = System.nanoTime();
+        try
+        {
+            // invoked on the staging thread, so failed is visible once staged
+            delegate.stage( new StageHandler()
+            {
+
+                @Override
+                public <I> void onSuccess( I injectee )
+                {
+                    stageHandler.onSuccess( injectee );
+                }
+
+                @Override
+                public <I, E extends Throwable> void onError( I injectee, E error )
+                {
+                    failed[0] = true;
+                    stageHandler.onError( injectee, error );
+                }
+
+            } );
+        }
+        catch ( RuntimeException e )
+        {
+            failed[0] = true;
+            throw e;
+        }
+        finally
+        {
+            profiler.record( stage, type, name, start, failed[0] );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends Annotation> T getAnnotation( Class<T> annotationType )
+    {
+        return delegate.getAnnotation( annotationType );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return delegate.toString();
+    }
+
+}
@@ -0,0 +1,332 @@
+package org.apache.onami.lifecycle.core;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.TypeLiteral;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Records when, on which thread and for how long the lifecycle methods are invoked, to find the ones worth optimizing
+ * to cut the startup and shutdown latency. The profiler is installed on the lifecycle modules:
+ *
+ * <pre>
+ * StageProfiler profiler = new StageProfiler();
+ * WarmUpModule warmUpModule = new WarmUpModule();
+ * warmUpModule.setStageProfiler( profiler );
+ * PostConstructModule postConstructModule = new PostConstructModule();
+ * postConstructModule.setStageProfiler( profiler );
+ * Injector injector = Guice.createInjector( warmUpModule, postConstructModule, ... );
+ * ...
+ * profiler.getCriticalPath( WarmUp.class ); // the chain of methods the warm up waited for
+ * profiler.writeChromeTrace( writer ); // to be loaded in chrome://tracing
+ * </pre>
+ *
+ * @since 0.2.0
+ */
+public final class StageProfiler
+{
+
+    private static final Comparator<StageSpan> BY_START = new Comparator<StageSpan>()
+    {
+
+        @Override
+        public int compare( StageSpan span1, StageSpan span2 )
+        {
+            long start1 = span1.getStartNanos();
+            long start2 = span2.getStartNanos();
+            return start1 < start2 ? -1 : ( start1 == start2 ? 0 : 1 );
+        }
+
+    };
+
+    private final ConcurrentLinkedQueue<StageSpan> spans = new ConcurrentLinkedQueue<StageSpan>();
+
+    private volatile long origin = System.nanoTime();
+
+    private volatile Injector injector;
+
+    /**
+     * Sets the injector the dependencies between the profiled types are resolved with, the modules the profiler is
+     * installed on request it.
+     *
+     * @param injector the injector the profiled types are created by
+     */
+    @Inject
+    public void setInjector( Injector injector )
+    {
+        this.injector = injector;
+    }
+
+    /**
+     * @return all the recorded methods, by start time
+     */
+    public List<StageSpan> getSpans()
+    {
+        List<StageSpan> sorted = new ArrayList<StageSpan>( spans );
+        Collections.sort( sorted, BY_START );
+        return sorted;
+    }
+
+    /**
+     * @param stage the stage annotation
+     * @return the methods recorded for the stage, by start time
+     */
+    public List<StageSpan> getSpans( Class<? extends Annotation> stage )
+    {
+        List<StageSpan> stageSpans = new ArrayList<StageSpan>();
+        for ( StageSpan span : getSpans() )
+        {
+            if ( span.getStage() == stage )
+            {
+                stageSpans.add( span );
+            }
+        }
+        return stageSpans;
+    }
+
+    /**
+     * Returns the critical path of a stage: the longest chain of types depending on each other, the time of a type
+     * being the sum of its methods ones. Whatever the parallelism, the stage can't take less than this chain, so
+     * its methods are the ones to optimize first.
+     *
+     * @param stage the stage annotation
+     * @return the methods of the critical path, by start time
+     */
+    public List<StageSpan> getCriticalPath( Class<? extends Annotation> stage )
+    {
+        Map<TypeLiteral<?>, List<StageSpan>> spansByType = groupByType( getSpans( stage ) );
+        Map<TypeLiteral<?>, Set<TypeLiteral<?>>> dependencies =
+            InjectionDependencies.between( spansByType.keySet(), injector );
+
+        Map<TypeLiteral<?>, Long> pathNanos = new HashMap<TypeLiteral<?>, Long>();
+        Map<TypeLiteral<?>, TypeLiteral<?>> pathNext = new HashMap<TypeLiteral<?>, TypeLiteral<?>>();
+        TypeLiteral<?> head = null;
+        for ( TypeLiteral<?> type : spansByType.keySet() )
+        {
+            long nanos = longestPath( type, spansByType, dependencies, pathNanos, pathNext,
+                                      new HashSet<TypeLiteral<?>>() );
+            if ( head == null || nanos > pathNanos.get( head ) )
+            {
+                head = type;
+            }
+        }
+
+        List<StageSpan> criticalPath = new ArrayList<StageSpan>();
+        for ( TypeLiteral<?> type = head; type != null; type = pathNext.get( type ) )
+        {
+            criticalPath.addAll( spansByType.get( type ) );
+        }
+        Collections.sort( criticalPath, BY_START );
+        return criticalPath;
+    }
+
+    /**
+     * Writes the recorded methods in the Chrome trace event format, one complete event per method, the ones on the
+     * critical path of their stage flagged in their arguments, along with the types they depend on.
+     *
+     * @param writer where the JSON trace is written to, not closed
+     * @throws IOException if the trace can't be written
+     */
+    public void writeChromeTrace( Writer writer )
+        throws IOException
+    {
+        List<StageSpan> allSpans = getSpans();
+
+        Map<Class<? extends Annotation>, Set<StageSpan>> criticalPaths =
+            new HashMap<Class<? extends Annotation>, Set<StageSpan>>();
+        Map<Class<? extends Annotation>, Map<TypeLiteral<?>, Set<TypeLiteral<?>>>> dependencies =
+            new HashMap<Class<? extends Annotation>, Map<TypeLiteral<?>, Set<TypeLiteral<?>>>>();
+        Map<Long, String> threads = new LinkedHashMap<Long, String>();
+        for ( StageSpan span : allSpans )
+        {
+            Class<? extends Annotation> stage = span.getStage();
+            if ( !criticalPaths.containsKey( stage ) )
+            {
+                criticalPaths.put( stage, new HashSet<StageSpan>( getCriticalPath( stage ) ) );
+                dependencies.put( stage, InjectionDependencies.between( groupByType( getSpans( stage ) ).keySet(),
+                                                                        injector ) );
+            }
+            threads.put( span.getThreadId(), span.getThreadName() );
+        }
+
+        writer.write( "{\"displayTimeUnit\":\"ms\",\"traceEvents\":[" );
+        boolean first = true;
+        for ( Map.Entry<Long, String> thread : threads.entrySet() )
+        {
+            writer.write( first ? "\n" : ",\n" );
+            first = false;
+            writer.write( "{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + thread.getKey()
+                + ",\"args\":{\"name\":" + quote( thread.getValue() ) + "}}" );
+        }
+        for ( StageSpan span : allSpans )
+        {
+            writer.write( first ? "\n" : ",\n" );
+            first = false;
+            writer.write( "{\"name\":" + quote( span.getName() ) + ",\"cat\":"
+                + quote( span.getStage().getSimpleName() ) + ",\"ph\":\"X\",\"pid\":1,\"tid\":" + span.getThreadId()
+                + ",\"ts\":" + micros( span.getStartNanos() ) + ",\"dur\":" + micros( span.getDurationNanos() )
+                + ",\"args\":{\"type\":" + quote( span.getType().toString() ) + ",\"failed\":" + span.isFailed()
+                + ",\"criticalPath\":" + criticalPaths.get( span.getStage() ).contains( span )
+                + ",\"dependencies\":[" );
+            boolean firstDependency = true;
+            for ( TypeLiteral<?> dependency : dependencies.get( span.getStage() ).get( span.getType() ) )
+            {
+                writer.write( ( firstDependency ? "" : "," ) + quote( dependency.toString() ) );
+                firstDependency = false;
+            }
+            writer.write( "]}}" );
+        }
+        writer.write( "\n]}\n" );
+        writer.flush();
+    }
+
+    /**
+     * Discards the recorded methods, the next ones start at time {@code 0}.
+     */
+    public void reset()
+    {
+        spans.clear();
+        origin = System.nanoTime();
+    }
+
+    /**
+     * @return the stageable recording its executions in this profiler
+     */
+    Stageable profile( AnnotatedStageable stageable, Method method, TypeLiteral<?> type,
+                       Class<? extends Annotation> stage )
+    {
+        return new ProfiledStageable( stageable, type, getName( method, type ), stage, this );
+    }
+
+    /**
+     * Records the execution of a method, started at {@code start} and ended now.
+     */
+    void record( Class<? extends Annotation> stage, TypeLiteral<?> type, String name, long start, boolean failed )
+    {
+        long end = System.nanoTime();
+        spans.add( new StageSpan( stage, type, name, Thread.currentThread(), start - origin, end - start, failed ) );
+    }
+
+    static String getName( Method method, TypeLiteral<?> type )
+    {
+        String typeName = type.getRawType().getName();
+        return typeName.substring( typeName.lastIndexOf( '.' ) + 1 ) + '.' + method.getName();
+    }
+
+    private static Map<TypeLiteral<?>, List<StageSpan>> groupByType( List<StageSpan> spans )
+    {
+        Map<TypeLiteral<?>, List<StageSpan>> spansByType = new LinkedHashMap<TypeLiteral<?>, List<StageSpan>>();
+        for ( StageSpan span : spans )
+        {
+            List<StageSpan> typeSpans = spansByType.get( span.getType() );
+            if ( typeSpans == null )
+            {
+                typeSpans = new ArrayList<StageSpan>();
+                spansByType.put( span.getType(), typeSpans );
+            }
+            typeSpans.add( span );
+        }
+        return spansByType;
+    }
+
+    /**
+     * @return the time of the longest path starting at the type, following its dependencies
+     */
+    private static long longestPath( TypeLiteral<?> type, Map<TypeLiteral<?>, List<StageSpan>> spansByType,
+                                     Map<TypeLiteral<?>, Set<TypeLiteral<?>>> dependencies,
+                                     Map<TypeLiteral<?>, Long> pathNanos, Map<TypeLiteral<?>, TypeLiteral<?>> pathNext,
+                                     Set<TypeLiteral<?>> visiting )
+    {
+        Long known = pathNanos.get( type );
+        if ( known != null )
+        {
+            return known;
+        }
+        if ( !visiting.add( type ) )
+        {
+            // circular dependency, the cycle is cut here
+            return 0;
+        }
+
+        long longestDependency = 0;
+        for ( TypeLiteral<?> dependency : dependencies.get( type ) )
+        {
+            long nanos = longestPath( dependency, spansByType, dependencies, pathNanos, pathNext, visiting );
+            if ( nanos > longestDependency || pathNext.get( type ) == null )
+            {
+                longestDependency = nanos;
+                pathNext.put( type, dependency );
+            }
+        }
+
+        long nanos = longestDependency;
+        for ( StageSpan span : spansByType.get( type ) )
+        {
+            nanos += span.getDurationNanos();
+        }
+        pathNanos.put( type, nanos );
+        return nanos;
+    }
+
+    private static String micros( long nanos )
+    {
+        return String.format( Locale.ROOT, "%.3f", nanos / 1e3 );
+    }
+
+    private static String quote( String value )
+    {
+        StringBuilder quoted = new StringBuilder( value.length() + 2 ).append( '"' );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            if ( c == '"' || c == '\\' )
+            {
+                quoted.append( '\\' ).append( c );
+            }
+            else if ( c < ' ' )
+            {
+                quoted.append( String.format( "\\u%04x", (int) c ) );
+            }
+            else
+            {
+                quoted.append( c );
+            }
+        }
+        return quoted.append( '"' ).toString();
+    }
+
+}
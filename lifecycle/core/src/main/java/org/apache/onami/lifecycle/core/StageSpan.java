@@ -0,0 +1,134 @@
+package org.apache.onami.lifecycle.core;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.TypeLiteral;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * The execution of a lifecycle method recorded by a {@link StageProfiler}.
+ *
+ * @since 0.2.0
+ */
+public final class StageSpan
+{
+
+    private final Class<? extends Annotation> stage;
+
+    private final TypeLiteral<?> type;
+
+    private final String name;
+
+    private final String threadName;
+
+    private final long threadId;
+
+    private final long startNanos;
+
+    private final long durationNanos;
+
+    private final boolean failed;
+
+    StageSpan( Class<? extends Annotation> stage, TypeLiteral<?> type, String name, Thread thread, long startNanos,
+               long durationNanos, boolean failed )
+    {
+        this.stage = stage;
+        this.type = type;
+        this.name = name;
+        this.threadName = thread.getName();
+        this.threadId = thread.getId();
+        this.startNanos = startNanos;
+        this.durationNanos = durationNanos;
+        this.failed = failed;
+    }
+
+    /**
+     * @return the annotation of the stage the method belongs to
+     */
+    public Class<? extends Annotation> getStage()
+    {
+        return stage;
+    }
+
+    /**
+     * @return the type declaring the method
+     */
+    public TypeLiteral<?> getType()
+    {
+        return type;
+    }
+
+    /**
+     * @return the simple name of the type followed by the method name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return the name of the thread the method has been invoked on
+     */
+    public String getThreadName()
+    {
+        return threadName;
+    }
+
+    /**
+     * @return the id of the thread the method has been invoked on
+     */
+    public long getThreadId()
+    {
+        return threadId;
+    }
+
+    /**
+     * @return when the method has been invoked, in nanoseconds since the profiler has been created or reset
+     */
+    public long getStartNanos()
+    {
+        return startNanos;
+    }
+
+    /**
+     * @return the time the method took, in nanoseconds
+     */
+    public long getDurationNanos()
+    {
+        return durationNanos;
+    }
+
+    /**
+     * @return true if the method failed
+     */
+    public boolean isFailed()
+    {
+        return failed;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "@%s %s on %s: %.3f ms%s", stage.getSimpleName(), name, threadName,
+                              durationNanos / 1e6, failed ? " (failed)" : "" );
+    }
+
+}
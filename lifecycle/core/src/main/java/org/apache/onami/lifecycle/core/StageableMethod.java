@@ -19,6 +19,7 @@ package org.apache.onami.lifecycle.core;
  * under the License.
  */
 
+import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.security.AccessController;
@@ -30,10 +31,12 @@ import java.security.PrivilegedAction;
  */
 final class StageableMethod
     extends AbstractBasicStageable<Object>
+    implements AnnotatedStageable
 {
 
     /**
-     * The method to be invoked to stage resources.
+     * The method to be invoked to stage resources, shared by the stageables of the same type so that the JVM generates
+     * a single accessor for it.
      */
     private final Method stageMethod;
 
@@ -57,17 +60,21 @@ final class StageableMethod
     {
         try
         {
-            AccessController.doPrivileged( new PrivilegedAction<Void>()
+            // usually made accessible once by LifeCycleMethods
+            if ( !stageMethod.isAccessible() )
             {
-
-                @Override
-                public Void run()
+                AccessController.doPrivileged( new PrivilegedAction<Void>()
                 {
-                    stageMethod.setAccessible( true );
-                    return null;
-                }
 
-            } );
+                    @Override
+                    public Void run()
+                    {
+                        stageMethod.setAccessible( true );
+                        return null;
+                    }
+
+                } );
+            }
             stageMethod.invoke( object );
         }
         catch ( InvocationTargetException e )
@@ -83,4 +90,13 @@ final class StageableMethod
         stageHandler.onSuccess( object );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends Annotation> T getAnnotation( Class<T> annotationType )
+    {
+        return stageMethod.getAnnotation( annotationType );
+    }
+
 }
@@ -0,0 +1,111 @@
+package org.apache.onami.lifecycle.core;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LifeCycleMethodsTestCase
+{
+
+    @Test
+    public void testIndex()
+        throws Exception
+    {
+        LifeCycleMethods methods = LifeCycleMethods.of( MultiLifeCycleObject.class );
+
+        assertSame( methods, LifeCycleMethods.of( MultiLifeCycleObject.class ) );
+        assertEquals( methods( "aaa", "mmm", "zzz" ), new HashSet<Method>( methods.get( TestAnnotationA.class ) ) );
+        assertEquals( methods( "bbb", "nnn", "qqq" ), new HashSet<Method>( methods.get( TestAnnotationB.class ) ) );
+        assertEquals( methods( "foo" ), new HashSet<Method>( methods.get( TestAnnotationC.class ) ) );
+    }
+
+    @Test
+    public void testNone()
+    {
+        LifeCycleMethods methods = LifeCycleMethods.of( NoLifeCycle1.class );
+
+        // negative cache shared by all the classes without annotated methods
+        assertSame( methods, LifeCycleMethods.of( NoLifeCycle2.class ) );
+        assertTrue( methods.get( TestAnnotationA.class ).isEmpty() );
+    }
+
+    @Test
+    public void testAccessible()
+    {
+        Method method = single( LifeCycleMethods.of( PrivateLifeCycle.class ).get( TestAnnotationA.class ) );
+
+        assertTrue( method.isAccessible() );
+    }
+
+    private static Method single( List<Method> methods )
+    {
+        assertEquals( 1, methods.size() );
+        return methods.get( 0 );
+    }
+
+    private static Set<Method> methods( String... names )
+        throws NoSuchMethodException
+    {
+        Set<Method> methods = new HashSet<Method>();
+        for ( String name : names )
+        {
+            methods.add( MultiLifeCycleObject.class.getDeclaredMethod( name ) );
+        }
+        return methods;
+    }
+
+    public static class PrivateLifeCycle
+    {
+
+        @TestAnnotationA
+        private void aaa()
+        {
+        }
+
+    }
+
+    public static class NoLifeCycle1
+    {
+
+        public void aaa()
+        {
+        }
+
+    }
+
+    public static class NoLifeCycle2
+    {
+
+        public void bbb()
+        {
+        }
+
+    }
+
+}
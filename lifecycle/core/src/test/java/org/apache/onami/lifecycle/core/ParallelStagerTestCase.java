@@ -0,0 +1,252 @@
+package org.apache.onami.lifecycle.core;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class ParallelStagerTestCase
+{
+
+    private static final long TASK_MILLIS = 300;
+
+    private final List<ExecutorService> executors = new ArrayList<ExecutorService>();
+
+    private final RecordingStageHandler stageHandler = new RecordingStageHandler();
+
+    @After
+    public void tearDown()
+    {
+        for ( ExecutorService executor : executors )
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void executorsShouldBeShutDownAtOnce()
+    {
+        DisposingStager<TestAnnotationA> stager = newStager( DefaultStager.Order.FIRST_IN_LAST_OUT, 10000 );
+        for ( int i = 0; i < 4; i++ )
+        {
+            stager.register( newBusyExecutor( TASK_MILLIS ) );
+        }
+
+        long start = System.nanoTime();
+        stager.stage( stageHandler );
+
+        assertFasterThan( start, 2 * TASK_MILLIS );
+        Assert.assertEquals( 4, stageHandler.successes.size() );
+        for ( ExecutorService executor : executors )
+        {
+            Assert.assertTrue( executor.isTerminated() );
+        }
+    }
+
+    @Test
+    public void closeablesShouldBeClosedInParallel()
+    {
+        DisposingStager<TestAnnotationA> stager = newStager( DefaultStager.Order.FIRST_IN_FIRST_OUT, 10000 );
+        for ( int i = 0; i < 4; i++ )
+        {
+            stager.register( new Closeable()
+            {
+                @Override
+                public void close()
+                {
+                    sleep( TASK_MILLIS );
+                }
+            } );
+        }
+
+        long start = System.nanoTime();
+        stager.stage( stageHandler );
+
+        assertFasterThan( start, 2 * TASK_MILLIS );
+        Assert.assertEquals( 4, stageHandler.successes.size() );
+    }
+
+    @Test
+    public void stageablesShouldKeepTheirOrder()
+    {
+        final List<Integer> order = Collections.synchronizedList( new ArrayList<Integer>() );
+        DisposingStager<TestAnnotationA> stager = newStager( DefaultStager.Order.FIRST_IN_LAST_OUT, 10000 );
+        for ( int i = 1; i <= 3; i++ )
+        {
+            final int index = i;
+            stager.register( new Stageable()
+            {
+                @Override
+                public void stage( StageHandler stageHandler )
+                {
+                    order.add( index );
+                }
+            } );
+        }
+
+        stager.stage( stageHandler );
+
+        Assert.assertEquals( Arrays.asList( 3, 2, 1 ), order );
+    }
+
+    @Test
+    public void stagingShouldBeBoundedByTheDeadline()
+    {
+        DisposingStager<TestAnnotationA> stager = newStager( DefaultStager.Order.FIRST_IN_FIRST_OUT, TASK_MILLIS );
+        ExecutorService executor = stager.register( newBusyExecutor( TimeUnit.MINUTES.toMillis( 1 ) ) );
+        final CountDownLatch stuck = new CountDownLatch( 1 );
+        Stageable blocking = new Stageable()
+        {
+            @Override
+            public void stage( StageHandler stageHandler )
+            {
+                try
+                {
+                    stuck.await();
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        Stageable next = new Stageable()
+        {
+            @Override
+            public void stage( StageHandler stageHandler )
+            {
+                stageHandler.onSuccess( this );
+            }
+        };
+        stager.register( blocking );
+        stager.register( next );
+
+        long start = System.nanoTime();
+        stager.stage( stageHandler );
+
+        assertFasterThan( start, 3 * TASK_MILLIS );
+        Assert.assertTrue( executor.isShutdown() );
+        Assert.assertEquals( Collections.singletonList( next ), stageHandler.errors );
+        Assert.assertTrue( stageHandler.errorCauses.get( 0 ) instanceof TimeoutException );
+    }
+
+    @Test
+    public void stagerShouldStageObjectsRegisteredWhileStaging()
+    {
+        final DisposingStager<TestAnnotationA> stager = newStager( DefaultStager.Order.FIRST_IN_FIRST_OUT, 10000 );
+        final CountDownLatch staged = new CountDownLatch( 1 );
+        stager.register( new Stageable()
+        {
+            @Override
+            public void stage( StageHandler stageHandler )
+            {
+                stager.register( new Stageable()
+                {
+                    @Override
+                    public void stage( StageHandler stageHandler )
+                    {
+                        staged.countDown();
+                    }
+                } );
+            }
+        } );
+
+        stager.stage();
+
+        Assert.assertEquals( 0, staged.getCount() );
+    }
+
+    private static DisposingStager<TestAnnotationA> newStager( DefaultStager.Order order, long timeoutMillis )
+    {
+        return new DefaultStager<TestAnnotationA>( TestAnnotationA.class, order, 4, timeoutMillis,
+                                                   TimeUnit.MILLISECONDS );
+    }
+
+    private ExecutorService newBusyExecutor( final long millis )
+    {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executors.add( executor );
+        executor.execute( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                sleep( millis );
+            }
+        } );
+        return executor;
+    }
+
+    private static void assertFasterThan( long start, long millis )
+    {
+        long elapsed = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+        Assert.assertTrue( "Staged in " + elapsed + " ms", elapsed < millis );
+    }
+
+    private static void sleep( long millis )
+    {
+        try
+        {
+            Thread.sleep( millis );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class RecordingStageHandler
+        implements StageHandler
+    {
+
+        final List<Object> successes = new ArrayList<Object>();
+
+        final List<Object> errors = new ArrayList<Object>();
+
+        final List<Throwable> errorCauses = new ArrayList<Throwable>();
+
+        @Override
+        public <I> void onSuccess( I injectee )
+        {
+            successes.add( injectee );
+        }
+
+        @Override
+        public <I, E extends Throwable> void onError( I injectee, E error )
+        {
+            errors.add( injectee );
+            errorCauses.add( error );
+        }
+
+    }
+
+}
@@ -0,0 +1,203 @@
+package org.apache.onami.lifecycle.core;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Singleton;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StageProfilerTestCase
+{
+
+    @Test
+    public void testCriticalPath()
+        throws Exception
+    {
+        StageProfiler profiler = new StageProfiler();
+        Injector injector = createInjector( profiler );
+        injector.getInstance( Middle.class );
+        injector.getInstance( Other.class );
+        injector.getInstance( LifeCycleStageModule.key( TestAnnotationA.class ) ).stage();
+
+        List<StageSpan> spans = profiler.getSpans( TestAnnotationA.class );
+        assertEquals( 3, spans.size() );
+        for ( StageSpan span : spans )
+        {
+            assertEquals( Thread.currentThread().getName(), span.getThreadName() );
+            assertFalse( span.isFailed() );
+        }
+
+        assertEquals( Arrays.asList( "StageProfilerTestCase$Leaf.stage", "StageProfilerTestCase$Middle.stage" ),
+                      names( profiler.getCriticalPath( TestAnnotationA.class ) ) );
+    }
+
+    @Test
+    public void testLifeCycleMethods()
+    {
+        StageProfiler profiler = new StageProfiler();
+        Injector injector = createInjector( profiler );
+        injector.getInstance( Middle.class );
+
+        assertEquals( Arrays.asList( "StageProfilerTestCase$Leaf.start", "StageProfilerTestCase$Middle.start" ),
+                      names( profiler.getSpans( TestAnnotationB.class ) ) );
+        assertTrue( profiler.getSpans( TestAnnotationA.class ).isEmpty() );
+    }
+
+    @Test
+    public void testChromeTrace()
+        throws Exception
+    {
+        StageProfiler profiler = new StageProfiler();
+        Injector injector = createInjector( profiler );
+        injector.getInstance( Middle.class );
+        injector.getInstance( LifeCycleStageModule.key( TestAnnotationA.class ) ).stage();
+
+        StringWriter writer = new StringWriter();
+        profiler.writeChromeTrace( writer );
+        String trace = writer.toString();
+
+        assertTrue( trace, trace.startsWith( "{\"displayTimeUnit\":\"ms\",\"traceEvents\":[" ) );
+        assertTrue( trace, trace.contains( "\"ph\":\"M\"" ) );
+        assertTrue( trace, trace.contains( "\"name\":\"StageProfilerTestCase$Middle.stage\",\"cat\":\"TestAnnotationA\"" ) );
+        assertTrue( trace, trace.contains( "\"criticalPath\":true,\"dependencies\":[\"" + Leaf.class.getName() + "\"]" ) );
+
+        profiler.reset();
+        assertTrue( profiler.getSpans().isEmpty() );
+    }
+
+    private static Injector createInjector( StageProfiler profiler )
+    {
+        LifeCycleStageModule stageModule = new LifeCycleStageModule()
+        {
+
+            @Override
+            protected void configureBindings()
+            {
+                bindStager( new DefaultStager<TestAnnotationA>( TestAnnotationA.class,
+                                                                DefaultStager.Order.FIRST_IN_FIRST_OUT ) );
+            }
+
+        };
+        stageModule.setStageProfiler( profiler );
+        LifeCycleModule lifeCycleModule = new LifeCycleModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                bindLifeCycle( TestAnnotationB.class );
+            }
+
+        };
+        lifeCycleModule.setStageProfiler( profiler );
+        return Guice.createInjector( stageModule, lifeCycleModule, new AbstractModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                bind( Service.class ).to( Leaf.class );
+            }
+
+        } );
+    }
+
+    private static List<String> names( List<StageSpan> spans )
+    {
+        List<String> names = new ArrayList<String>();
+        for ( StageSpan span : spans )
+        {
+            names.add( span.getName() );
+        }
+        return names;
+    }
+
+    public interface Service
+    {
+    }
+
+    @Singleton
+    public static class Leaf
+        implements Service
+    {
+
+        @TestAnnotationB
+        public void start()
+        {
+        }
+
+        @TestAnnotationA
+        public void stage()
+            throws InterruptedException
+        {
+            Thread.sleep( 100 );
+        }
+
+    }
+
+    @Singleton
+    public static class Middle
+    {
+
+        @Inject
+        public Middle( Service service )
+        {
+        }
+
+        @TestAnnotationB
+        public void start()
+        {
+        }
+
+        @TestAnnotationA
+        public void stage()
+            throws InterruptedException
+        {
+            Thread.sleep( 20 );
+        }
+
+    }
+
+    @Singleton
+    public static class Other
+    {
+
+        @TestAnnotationA
+        public void stage()
+            throws InterruptedException
+        {
+            Thread.sleep( 50 );
+        }
+
+    }
+
+}
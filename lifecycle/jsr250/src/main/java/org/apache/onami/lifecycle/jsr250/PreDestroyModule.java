@@ -21,6 +21,7 @@ package org.apache.onami.lifecycle.jsr250;
 
 import com.google.inject.TypeLiteral;
 import org.apache.onami.lifecycle.core.DefaultStager;
+import org.apache.onami.lifecycle.core.DependencyOrderedStager;
 import org.apache.onami.lifecycle.core.DisposingStager;
 import org.apache.onami.lifecycle.core.LifeCycleStageModule;
 
@@ -37,13 +38,43 @@ public class PreDestroyModule
     extends LifeCycleStageModule
 {
 
-    private final DisposingStager<PreDestroy> stager = new DefaultStager<PreDestroy>(
-        PreDestroy.class, DefaultStager.Order.FIRST_IN_LAST_OUT );
+    private final DisposingStager<PreDestroy> stager;
+
+    private final DependencyOrderedStager<PreDestroy> dependencyOrderedStager;
+
+    /**
+     * Creates a module disposing the objects one at a time, last registered first.
+     */
+    public PreDestroyModule()
+    {
+        stager = new DefaultStager<PreDestroy>( PreDestroy.class, DefaultStager.Order.FIRST_IN_LAST_OUT );
+        dependencyOrderedStager = null;
+    }
+
+    /**
+     * Creates a module disposing the objects after the ones depending on them, the independent ones in parallel.
+     *
+     * @param parallelism maximum number of threads disposing the objects
+     * @see DependencyOrderedStager
+     * @since 0.2.0
+     */
+    public PreDestroyModule( int parallelism )
+    {
+        dependencyOrderedStager = new DependencyOrderedStager<PreDestroy>( PreDestroy.class, parallelism );
+        stager = dependencyOrderedStager;
+    }
 
     @Override
     protected void configureBindings()
     {
-        bindStager( stager );
+        if ( dependencyOrderedStager != null )
+        {
+            bindStager( dependencyOrderedStager ).mappingWith( dependencyOrderedStager );
+        }
+        else
+        {
+            bindStager( stager );
+        }
         bind( new TypeLiteral<DisposingStager<PreDestroy>>() {} ).toInstance( stager );
     }
 
@@ -0,0 +1,174 @@
+package org.apache.onami.lifecycle.jsr250;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Injector;
+import com.google.inject.Singleton;
+import org.apache.onami.lifecycle.core.DisposingStager;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Provider;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.inject.Guice.createInjector;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class DependencyOrderedPreDestroyTestCase
+{
+
+    private static final long DISPOSE_MILLIS = 200;
+
+    private static final List<String> disposed = Collections.synchronizedList( new ArrayList<String>() );
+
+    public interface Repository
+    {
+    }
+
+    @Singleton
+    public static class Database
+    {
+        @PreDestroy
+        public void close()
+        {
+            disposed.add( "Database" );
+        }
+    }
+
+    @Singleton
+    public static class DatabaseRepository
+        implements Repository
+    {
+        @Inject
+        public DatabaseRepository( Database database )
+        {
+        }
+
+        @PreDestroy
+        public void close()
+        {
+            disposed.add( "Repository" );
+        }
+    }
+
+    @Singleton
+    public static class Service
+    {
+        @Inject
+        public Service( Provider<Repository> repository )
+        {
+        }
+
+        @PreDestroy
+        public void close()
+        {
+            disposed.add( "Service" );
+        }
+    }
+
+    @Singleton
+    public static class SlowResource1
+    {
+        @PreDestroy
+        public void close()
+            throws InterruptedException
+        {
+            Thread.sleep( DISPOSE_MILLIS );
+        }
+    }
+
+    @Singleton
+    public static class SlowResource2
+    {
+        @PreDestroy
+        public void close()
+            throws InterruptedException
+        {
+            Thread.sleep( DISPOSE_MILLIS );
+        }
+    }
+
+    @Singleton
+    public static class SlowResource3
+    {
+        @PreDestroy
+        public void close()
+            throws InterruptedException
+        {
+            Thread.sleep( DISPOSE_MILLIS );
+        }
+    }
+
+    private Injector injector;
+
+    private DisposingStager<PreDestroy> stager;
+
+    @Before
+    public void setUp()
+    {
+        disposed.clear();
+        PreDestroyModule preDestroyModule = new PreDestroyModule( 4 );
+        injector = createInjector( preDestroyModule, new AbstractModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                bind( Repository.class ).to( DatabaseRepository.class );
+            }
+
+        } );
+        stager = preDestroyModule.getStager();
+    }
+
+    @Test
+    public void dependentsDisposedFirst()
+    {
+        // the repository is registered after the service, that gets it through a provider
+        injector.getInstance( Service.class );
+        injector.getInstance( Repository.class );
+
+        stager.stage();
+
+        assertEquals( Arrays.asList( "Service", "Repository", "Database" ), disposed );
+    }
+
+    @Test
+    public void independentObjectsDisposedInParallel()
+    {
+        injector.getInstance( SlowResource1.class );
+        injector.getInstance( SlowResource2.class );
+        injector.getInstance( SlowResource3.class );
+
+        long start = System.nanoTime();
+        stager.stage();
+
+        assertTrue( TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ) < 2 * DISPOSE_MILLIS );
+    }
+
+}
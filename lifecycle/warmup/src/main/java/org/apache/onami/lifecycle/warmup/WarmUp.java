@@ -22,6 +22,7 @@ package org.apache.onami.lifecycle.warmup;
 import java.lang.annotation.Documented;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
 
 import static java.lang.annotation.ElementType.METHOD;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
@@ -36,4 +37,19 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
 public @interface WarmUp
 {
 
+    /**
+     * The maximum time the method may take, once elapsed the method is interrupted and reported as timed out.
+     * {@code 0}, the default, to apply the timeout set on the {@link WarmUper}, if any.
+     *
+     * @return the method timeout
+     * @since 0.2.0
+     */
+    long timeout() default 0;
+
+    /**
+     * @return the {@link #timeout()} unit
+     * @since 0.2.0
+     */
+    TimeUnit unit() default TimeUnit.MILLISECONDS;
+
 }
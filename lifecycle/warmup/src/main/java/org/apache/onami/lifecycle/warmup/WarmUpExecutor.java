@@ -0,0 +1,50 @@
+package org.apache.onami.lifecycle.warmup;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.BindingAnnotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Binding annotation of the {@link java.util.concurrent.ExecutorService} the warm ups are performed on, e.g.
+ * <p/>
+ * <code><pre>
+ * bind( ExecutorService.class ).annotatedWith( WarmUpExecutor.class ).toInstance( Executors.newCachedThreadPool() );
+ * </pre></code>
+ * When not bound, each warm up is performed on a new {@code ForkJoinPool} sized to the available processors.
+ *
+ * @since 0.2.0
+ */
+@BindingAnnotation
+@Documented
+@Retention( RUNTIME )
+@Target( { FIELD, PARAMETER, METHOD } )
+public @interface WarmUpExecutor
+{
+
+}
@@ -19,6 +19,7 @@ package org.apache.onami.lifecycle.warmup;
  * under the License.
  */
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.onami.lifecycle.core.LifeCycleStageModule;
@@ -41,6 +42,50 @@ public class WarmUpModule
         bindStager( stager ).mappingWith( stager );
     }
 
+    /**
+     * @param maxWait max time to wait for the warm ups to finish
+     * @param unit    time unit
+     * @see WarmUper#setMaxWait(long, TimeUnit)
+     * @since 0.2.0
+     */
+    public void setMaxWait( long maxWait, TimeUnit unit )
+    {
+        stager.setMaxWait( maxWait, unit );
+    }
+
+    /**
+     * @param timeout max time of a warm up method, {@code 0} to wait forever
+     * @param unit    time unit
+     * @see WarmUper#setStageableTimeout(long, TimeUnit)
+     * @since 0.2.0
+     */
+    public void setStageableTimeout( long timeout, TimeUnit unit )
+    {
+        stager.setStageableTimeout( timeout, unit );
+    }
+
+    /**
+     * @param bestEffort true to not fail the stage when the maximum wait expires
+     * @see WarmUper#setBestEffort(boolean)
+     * @since 0.2.0
+     */
+    public void setBestEffort( boolean bestEffort )
+    {
+        stager.setBestEffort( bestEffort );
+    }
+
+    /**
+     * Sets the executor the warm ups are performed on; an executor bound with {@link WarmUpExecutor} takes precedence.
+     *
+     * @param executor the executor the warm ups are performed on
+     * @see WarmUper#setExecutor(ExecutorService)
+     * @since 0.2.0
+     */
+    public void setExecutor( ExecutorService executor )
+    {
+        stager.setExecutor( executor );
+    }
+
     public Stager<WarmUp> getStager()
     {
         return stager;
@@ -0,0 +1,398 @@
+package org.apache.onami.lifecycle.warmup;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.TypeLiteral;
+import org.apache.onami.lifecycle.core.AnnotatedStageable;
+import org.apache.onami.lifecycle.core.StageHandler;
+import org.apache.onami.lifecycle.core.Stageable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Performs the warm ups of a stage: a type is warmed up once all the types it depends on are, the stageables of the
+ * same type one at a time. Tasks never wait for each other, the scheduling is done by the staging thread, so that any
+ * executor can be used whatever its size.
+ */
+class WarmUpScheduler
+{
+
+    private final Map<TypeLiteral<?>, List<Stageable>> stageables;
+
+    private final Map<TypeLiteral<?>, Set<TypeLiteral<?>>> dependencies;
+
+    private final Map<TypeLiteral<?>, List<TypeLiteral<?>>> dependents = new HashMap<TypeLiteral<?>, List<TypeLiteral<?>>>();
+
+    private final Map<TypeLiteral<?>, Integer> pendingDependencies = new HashMap<TypeLiteral<?>, Integer>();
+
+    private final StageHandler stageHandler;
+
+    private final long stageableTimeoutNanos;
+
+    private final CompletionService<Void> completion;
+
+    private final Map<Future<Void>, StageableRun> running = new IdentityHashMap<Future<Void>, StageableRun>();
+
+    private final Set<TypeLiteral<?>> started = new HashSet<TypeLiteral<?>>();
+
+    /**
+     * @param stageables            the stageables to warm up, by type
+     * @param dependencies          for each type, the types it depends on
+     * @param stageHandler          the stage handler passed to {@link WarmUper#stage(StageHandler)}
+     * @param stageableTimeoutNanos the maximum time of the stageables without their own timeout, {@code 0} for none
+     * @param executor              the executor the stageables are staged on
+     */
+    WarmUpScheduler( Map<TypeLiteral<?>, List<Stageable>> stageables,
+                     Map<TypeLiteral<?>, Set<TypeLiteral<?>>> dependencies, StageHandler stageHandler,
+                     long stageableTimeoutNanos, ExecutorService executor )
+    {
+        this.stageables = stageables;
+        this.dependencies = dependencies;
+        this.stageHandler = stageHandler;
+        this.stageableTimeoutNanos = stageableTimeoutNanos;
+        this.completion = new ExecutorCompletionService<Void>( executor );
+
+        for ( TypeLiteral<?> type : stageables.keySet() )
+        {
+            dependents.put( type, new ArrayList<TypeLiteral<?>>() );
+        }
+        for ( Map.Entry<TypeLiteral<?>, Set<TypeLiteral<?>>> typeDependencies : dependencies.entrySet() )
+        {
+            pendingDependencies.put( typeDependencies.getKey(), typeDependencies.getValue().size() );
+            for ( TypeLiteral<?> dependency : typeDependencies.getValue() )
+            {
+                dependents.get( dependency ).add( typeDependencies.getKey() );
+            }
+        }
+    }
+
+    /**
+     * Warms up all the types, in dependency order.
+     *
+     * @param maxNanos       the maximum time to warm up
+     * @param reportTimeouts true to report the stageables not warmed up in time to the stage handler, false to
+     *                       only interrupt them
+     * @return true if all the types have been warmed up in time, false if the time has elapsed or the current
+     *         thread has been interrupted
+     */
+    boolean warmUp( long maxNanos, boolean reportTimeouts )
+    {
+        long start = System.nanoTime();
+        for ( TypeLiteral<?> type : stageables.keySet() )
+        {
+            if ( pendingDependencies.get( type ) == 0 )
+            {
+                submit( type, 0 );
+            }
+        }
+
+        try
+        {
+            while ( !running.isEmpty() || startCircular() )
+            {
+                long now = System.nanoTime();
+                long wait = maxNanos - ( now - start );
+                if ( wait <= 0 )
+                {
+                    timeOut( reportTimeouts );
+                    return false;
+                }
+                for ( StageableRun run : running.values() )
+                {
+                    wait = Math.min( wait, run.remainingNanos( now ) );
+                }
+
+                Future<Void> done = wait > 0 ? completion.poll( wait, TimeUnit.NANOSECONDS ) : null;
+                if ( done != null )
+                {
+                    StageableRun run = running.remove( done );
+                    // null if timed out before
+                    if ( run != null )
+                    {
+                        next( run );
+                    }
+                }
+                else
+                {
+                    timeOutExpired();
+                }
+            }
+            return true;
+        }
+        catch ( InterruptedException e )
+        {
+            timeOut( false );
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Breaks a dependency cycle, if any, starting one of its types.
+     *
+     * @return true if a type has been started
+     */
+    private boolean startCircular()
+    {
+        for ( TypeLiteral<?> type : stageables.keySet() )
+        {
+            if ( !started.contains( type ) )
+            {
+                submit( type, 0 );
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void timeOutExpired()
+    {
+        long now = System.nanoTime();
+        for ( StageableRun run : new ArrayList<StageableRun>( running.values() ) )
+        {
+            if ( run.remainingNanos( now ) <= 0 )
+            {
+                running.remove( run.future );
+                run.cancel( true );
+                next( run );
+            }
+        }
+    }
+
+    /**
+     * Stops all the stageables still running, the ones not started yet are not staged.
+     */
+    private void timeOut( boolean report )
+    {
+        for ( StageableRun run : running.values() )
+        {
+            run.cancel( report );
+            if ( report )
+            {
+                List<Stageable> sequence = stageables.get( run.type );
+                for ( Stageable stageable : sequence.subList( run.index + 1, sequence.size() ) )
+                {
+                    reportTimeout( stageable );
+                }
+            }
+        }
+        running.clear();
+
+        if ( report )
+        {
+            for ( Map.Entry<TypeLiteral<?>, List<Stageable>> notStarted : stageables.entrySet() )
+            {
+                if ( !started.contains( notStarted.getKey() ) )
+                {
+                    for ( Stageable stageable : notStarted.getValue() )
+                    {
+                        reportTimeout( stageable );
+                    }
+                }
+            }
+        }
+    }
+
+    private void next( StageableRun run )
+    {
+        if ( run.index + 1 < stageables.get( run.type ).size() )
+        {
+            submit( run.type, run.index + 1 );
+            return;
+        }
+
+        // the type is warm, its dependents may be ready
+        for ( TypeLiteral<?> dependent : dependents.get( run.type ) )
+        {
+            int pending = pendingDependencies.get( dependent ) - 1;
+            pendingDependencies.put( dependent, pending );
+            if ( pending == 0 && !started.contains( dependent ) )
+            {
+                submit( dependent, 0 );
+            }
+        }
+    }
+
+    private void submit( TypeLiteral<?> type, int index )
+    {
+        started.add( type );
+        Stageable stageable = stageables.get( type ).get( index );
+        StageableRun run = new StageableRun( type, index, stageable, getTimeoutNanos( stageable ) );
+        run.future = completion.submit( run );
+        running.put( run.future, run );
+    }
+
+    private long getTimeoutNanos( Stageable stageable )
+    {
+        if ( stageable instanceof AnnotatedStageable )
+        {
+            WarmUp warmUp = ( (AnnotatedStageable) stageable ).getAnnotation( WarmUp.class );
+            if ( warmUp != null && warmUp.timeout() > 0 )
+            {
+                return warmUp.unit().toNanos( warmUp.timeout() );
+            }
+        }
+        return stageableTimeoutNanos;
+    }
+
+    private void reportTimeout( Stageable stageable )
+    {
+        stageHandler.onError( stageable, new TimeoutException( "Warm up of " + stageable + " timed out" ) );
+    }
+
+    /**
+     * A stageable being warmed up, reporting to the stage handler either its own outcome or its timeout.
+     */
+    private final class StageableRun
+        implements Callable<Void>, StageHandler
+    {
+
+        final TypeLiteral<?> type;
+
+        final int index;
+
+        private final Stageable stageable;
+
+        private final long timeoutNanos;
+
+        /**
+         * When the staging started, the timeout doesn't include the time spent waiting for a thread.
+         */
+        private volatile long start;
+
+        private volatile boolean started;
+
+        private final AtomicBoolean reported = new AtomicBoolean();
+
+        Future<Void> future;
+
+        /**
+         * The thread staging, {@code null} if not started or completed.
+         */
+        private Thread runner;
+
+        private boolean cancelled;
+
+        StageableRun( TypeLiteral<?> type, int index, Stageable stageable, long timeoutNanos )
+        {
+            this.type = type;
+            this.index = index;
+            this.stageable = stageable;
+            this.timeoutNanos = timeoutNanos;
+        }
+
+        @Override
+        public Void call()
+        {
+            synchronized ( this )
+            {
+                if ( cancelled )
+                {
+                    return null;
+                }
+                runner = Thread.currentThread();
+            }
+            start = System.nanoTime();
+            started = true;
+            try
+            {
+                stageable.stage( this );
+            }
+            catch ( RuntimeException e )
+            {
+                onError( stageable, e );
+            }
+            finally
+            {
+                synchronized ( this )
+                {
+                    runner = null;
+                }
+                // not interrupted anymore, don't leak the interruption to the next tasks of the executor
+                Thread.interrupted();
+            }
+            return null;
+        }
+
+        /**
+         * @return the time left before the timeout, the whole timeout if not started yet
+         */
+        long remainingNanos( long now )
+        {
+            if ( timeoutNanos <= 0 )
+            {
+                return Long.MAX_VALUE;
+            }
+            return started ? timeoutNanos - ( now - start ) : timeoutNanos;
+        }
+
+        void cancel( boolean report )
+        {
+            if ( report && reported.compareAndSet( false, true ) )
+            {
+                reportTimeout( stageable );
+            }
+            // not all the futures interrupt when cancelled, e.g. the fork-join ones
+            synchronized ( this )
+            {
+                cancelled = true;
+                if ( runner != null )
+                {
+                    runner.interrupt();
+                }
+            }
+            future.cancel( false );
+        }
+
+        @Override
+        public <I> void onSuccess( I injectee )
+        {
+            if ( reported.compareAndSet( false, true ) )
+            {
+                stageHandler.onSuccess( injectee );
+            }
+        }
+
+        @Override
+        public <I, E extends Throwable> void onError( I injectee, E error )
+        {
+            if ( reported.compareAndSet( false, true ) )
+            {
+                stageHandler.onError( injectee, error );
+            }
+        }
+
+    }
+
+}
@@ -19,8 +19,11 @@ package org.apache.onami.lifecycle.warmup;
  * under the License.
  */
 
+import com.google.inject.Inject;
+import com.google.inject.Injector;
 import com.google.inject.TypeLiteral;
 import jsr166y.ForkJoinPool;
+import org.apache.onami.lifecycle.core.InjectionDependencies;
 import org.apache.onami.lifecycle.core.NoOpStageHandler;
 import org.apache.onami.lifecycle.core.StageHandler;
 import org.apache.onami.lifecycle.core.Stageable;
@@ -28,12 +31,15 @@ import org.apache.onami.lifecycle.core.StageableTypeMapper;
 import org.apache.onami.lifecycle.core.Stager;
 
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -51,6 +57,14 @@ public class WarmUper<A extends Annotation>
 
     private volatile long maxMs;
 
+    private volatile long stageableTimeoutNanos;
+
+    private volatile boolean bestEffort;
+
+    private volatile ExecutorService executor;
+
+    private volatile Injector injector;
+
     /**
      * @param stage the annotation to mark this stage
      * @param maxMs when {@link #stage()} is called, this is the maximum time
@@ -78,6 +92,58 @@ public class WarmUper<A extends Annotation>
         this.maxMs = unit.toMillis( maxWait );
     }
 
+    /**
+     * Sets the maximum time each warm up method may take, unless it sets its own {@link WarmUp#timeout()}. A warm up
+     * taking longer is interrupted and reported to the {@link StageHandler} as a {@link TimeoutException}, the other
+     * ones go on. The default is to wait forever.
+     *
+     * @param timeout max time of a warm up method, {@code 0} to wait forever
+     * @param unit    time unit
+     * @since 0.2.0
+     */
+    public void setStageableTimeout( long timeout, TimeUnit unit )
+    {
+        this.stageableTimeoutNanos = unit.toNanos( timeout );
+    }
+
+    /**
+     * In best effort mode, when the maximum wait expires the warm ups not completed yet are interrupted and reported
+     * to the {@link StageHandler} as {@link TimeoutException}s, and {@link #stage(StageHandler)} returns normally
+     * instead of throwing. The default is false.
+     *
+     * @param bestEffort true to not fail the stage when the maximum wait expires
+     * @since 0.2.0
+     */
+    public void setBestEffort( boolean bestEffort )
+    {
+        this.bestEffort = bestEffort;
+    }
+
+    /**
+     * Sets the executor the warm ups are performed on, e.g. a pool sized for I/O bound warm ups. It is not shut down
+     * by the stager. By default a new {@link ForkJoinPool} is created, and shut down, each time the stage is staged.
+     *
+     * @param executor the executor the warm ups are performed on
+     * @since 0.2.0
+     */
+    @Inject( optional = true )
+    public void setExecutor( @WarmUpExecutor ExecutorService executor )
+    {
+        this.executor = executor;
+    }
+
+    /**
+     * Sets the injector the dependencies between the warmed up types are resolved with.
+     *
+     * @param injector the injector the stager is bound in
+     * @since 0.2.0
+     */
+    @Inject
+    public void setInjector( Injector injector )
+    {
+        this.injector = injector;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -115,35 +181,44 @@ public class WarmUper<A extends Annotation>
     @Override
     public void stage( StageHandler stageHandler )
     {
-        Map<TypeLiteral<?>, Set<Stageable>> localCopy = new HashMap<TypeLiteral<?>, Set<Stageable>>();
-        localCopy.putAll( reverseLookup );
+        Map<TypeLiteral<?>, List<Stageable>> localCopy = new HashMap<TypeLiteral<?>, List<Stageable>>();
+        for ( Map.Entry<TypeLiteral<?>, Set<Stageable>> entry : reverseLookup.entrySet() )
+        {
+            localCopy.put( entry.getKey(), new ArrayList<Stageable>( entry.getValue() ) );
+        }
         reverseLookup.clear();
 
-        ForkJoinPool forkJoinPool = new ForkJoinPool();
-        try
+        Map<TypeLiteral<?>, Set<TypeLiteral<?>>> dependencies =
+            InjectionDependencies.between( localCopy.keySet(), injector );
+
+        ExecutorService useExecutor = executor;
+        ForkJoinPool forkJoinPool = null;
+        if ( useExecutor == null )
         {
-            ConcurrentMap<TypeLiteral<?>, WarmUpTask> inProgress = new ConcurrentHashMap<TypeLiteral<?>, WarmUpTask>();
-            forkJoinPool.submit( new WarmUpTask( stageHandler, WarmUpTask.ROOT, localCopy, inProgress ) );
+            forkJoinPool = new ForkJoinPool();
+            useExecutor = forkJoinPool;
         }
-        finally
+
+        boolean bestEffort = this.bestEffort;
+        boolean success;
+        try
         {
-            forkJoinPool.shutdown();
+            WarmUpScheduler scheduler =
+                new WarmUpScheduler( localCopy, dependencies, stageHandler, stageableTimeoutNanos, useExecutor );
+            success = scheduler.warmUp( TimeUnit.MILLISECONDS.toNanos( maxMs ), bestEffort );
         }
-        try
+        finally
         {
-            boolean success = forkJoinPool.awaitTermination( maxMs, TimeUnit.MILLISECONDS );
-            if ( !success )
+            if ( forkJoinPool != null )
             {
                 forkJoinPool.shutdownNow();
-                throw new RuntimeException( new TimeoutException( "Warm up stager timed out" ) );
             }
         }
-        catch ( InterruptedException e )
+
+        if ( !success && !bestEffort && !Thread.currentThread().isInterrupted() )
         {
-            forkJoinPool.shutdownNow();
-            Thread.currentThread().interrupt();
+            throw new RuntimeException( new TimeoutException( "Warm up stager timed out" ) );
         }
-
     }
 
     /**
@@ -21,11 +21,18 @@ package org.apachi.onami.lifecycle.warmup;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -34,6 +41,7 @@ import org.apache.onami.lifecycle.core.LifeCycleStageModule;
 import org.apache.onami.lifecycle.core.StageHandler;
 import org.apache.onami.lifecycle.core.Stager;
 import org.apache.onami.lifecycle.warmup.WarmUp;
+import org.apache.onami.lifecycle.warmup.WarmUpExecutor;
 import org.apache.onami.lifecycle.warmup.WarmUpModule;
 import org.apache.onami.lifecycle.warmup.WarmUper;
 import org.junit.Test;
@@ -277,6 +285,134 @@ public class TestWarmUpManager
                 recorder.getInterruptions().contains( "C" ) );
     }
 
+    @Test
+    public void testInjectedExecutor()
+        throws Exception
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool( 1, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread( Runnable runnable )
+            {
+                return new Thread( runnable, "injected-warm-up" );
+            }
+        } );
+        Module module = new AbstractModule()
+        {
+            @Override
+            protected void configure()
+            {
+                bind( ExecutorService.class ).annotatedWith( WarmUpExecutor.class ).toInstance( executor );
+            }
+        };
+        try
+        {
+            Injector injector = Guice.createInjector( new WarmUpModule(), module );
+            Timeouts.Quick quick = injector.getInstance( Timeouts.Quick.class );
+            injector.getInstance( Dag3.A.class );
+            injector.getInstance( LifeCycleStageModule.key( WarmUp.class ) ).stage();
+            Recorder recorder = injector.getInstance( Recorder.class );
+
+            // a single thread is enough, dependencies are not waited for on the executor
+            assertEquals( "injected-warm-up", quick.thread );
+            assertSingleExecution( recorder );
+            assertOrdering( recorder, "A", "C" );
+            assertOrdering( recorder, "C", "D" );
+            assertOrdering( recorder, "B", "D" );
+            assertFalse( executor.isShutdown() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testStageableTimeout()
+        throws Exception
+    {
+        WarmUpModule warmUpModule = new WarmUpModule();
+        Injector injector = Guice.createInjector( warmUpModule );
+        Timeouts.Stuck stuck = injector.getInstance( Timeouts.Stuck.class );
+        Timeouts.Quick quick = injector.getInstance( Timeouts.Quick.class );
+        injector.getInstance( Dag3.A.class );
+
+        RecordingStageHandler stageHandler = new RecordingStageHandler();
+        warmUpModule.getStager().stage( stageHandler );
+
+        assertTrue( stuck.interrupted.await( 2, TimeUnit.SECONDS ) );
+        assertTrue( quick.thread != null );
+        assertEquals( 4, injector.getInstance( Recorder.class ).getRecordings().size() );
+        assertEquals( Collections.singletonList( stuck.toString() ), stageHandler.timedOut );
+    }
+
+    @Test
+    public void testBestEffort()
+        throws Exception
+    {
+        // only B and C are started
+        final CountDownLatch latch = new CountDownLatch( 2 );
+        Module module = new AbstractModule()
+        {
+            @Override
+            protected void configure()
+            {
+                RecorderSleepSettings recorderSleepSettings = new RecorderSleepSettings();
+                recorderSleepSettings.setBaseSleepFor( "C", 1, TimeUnit.DAYS );
+                bind( RecorderSleepSettings.class ).toInstance( recorderSleepSettings );
+                bind( CountDownLatch.class ).toInstance( latch );
+            }
+        };
+        WarmUpModule warmUpModule = new WarmUpModule();
+        warmUpModule.setMaxWait( 1, TimeUnit.SECONDS );
+        warmUpModule.setBestEffort( true );
+        Injector injector = Guice.createInjector( warmUpModule, module );
+        Dag1.A a = injector.getInstance( Dag1.A.class );
+
+        RecordingStageHandler stageHandler = new RecordingStageHandler();
+        warmUpModule.getStager().stage( stageHandler );
+
+        // Wait for all warmup methods to finish after interruption
+        latch.await( 2, TimeUnit.SECONDS );
+
+        Recorder recorder = injector.getInstance( Recorder.class );
+        assertTrue( recorder.getRecordings().contains( "C" ) );
+        assertTrue( recorder.getInterruptions().contains( "C" ) );
+        // A depends on C, it is reported as timed out without being started
+        assertFalse( recorder.getRecordings().contains( "A" ) );
+        assertTrue( stageHandler.timedOut.toString(), stageHandler.timedOut.contains( a.toString() ) );
+        assertNull( stageHandler.otherError );
+    }
+
+    private static class RecordingStageHandler
+        implements StageHandler
+    {
+
+        // descriptions of the injectees
+        final List<String> timedOut = Collections.synchronizedList( new ArrayList<String>() );
+
+        volatile Throwable otherError;
+
+        @Override
+        public <I> void onSuccess( I injectee )
+        {
+        }
+
+        @Override
+        public <I, E extends Throwable> void onError( I injectee, E error )
+        {
+            if ( error instanceof TimeoutException )
+            {
+                timedOut.add( injectee.toString() );
+            }
+            else
+            {
+                otherError = error;
+            }
+        }
+
+    }
+
     private void assertSingleExecution( Recorder recorder )
     {
         Set<String> duplicateCheck = new HashSet<String>();
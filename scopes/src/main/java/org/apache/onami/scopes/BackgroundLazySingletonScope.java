@@ -0,0 +1,64 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+
+/**
+ * Starts the background creation of the {@link BackgroundLazySingleton} instances of an injector, once it is created:
+ *
+ * <pre>
+ * Injector injector = Guice.createInjector( new ScopesModule(), ... );
+ * injector.getInstance( BackgroundLazySingletonScope.class ).start();
+ * </pre>
+ *
+ * Until started, the instances are created on first request, as concurrent lazy singletons.
+ *
+ * @see BackgroundLazySingleton
+ */
+public final class BackgroundLazySingletonScope
+{
+
+    private final BackgroundLazySingletonScopeImpl scope;
+
+    private Injector injector;
+
+    BackgroundLazySingletonScope( BackgroundLazySingletonScopeImpl scope )
+    {
+        this.scope = scope;
+    }
+
+    @Inject
+    void setInjector( Injector injector )
+    {
+        this.injector = injector;
+    }
+
+    /**
+     * Starts creating in background the instances not requested yet, subsequent invocations do nothing. It must not
+     * be invoked while the injector is being created, e.g. by an eager singleton.
+     */
+    public void start()
+    {
+        scope.start( injector );
+    }
+
+}
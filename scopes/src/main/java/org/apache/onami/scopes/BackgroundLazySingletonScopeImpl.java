@@ -0,0 +1,179 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.Scope;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * A Guice {@code com.google.inject.Scope} that creates the lazy singletons in background once the injector is created.
+ *
+ * Keys scoped while the injector is created are collected and, when {@link BackgroundLazySingletonScope#start()} is
+ * invoked, requested to the injector by a pool that is shut down as soon as all of them are created; keys scoped
+ * later, i.e. just in time bindings, are created on first request.
+ * <p/>
+ * The creations can't start while the injector is being created, e.g. from an eager singleton: the pool threads would
+ * wait for the injector singletons lock, held by the thread creating the injector. The first pending key created on
+ * request before the start is logged, as the start was likely forgotten.
+ */
+final class BackgroundLazySingletonScopeImpl
+    implements Scope
+{
+    private static final Logger logger = Logger.getLogger( BackgroundLazySingletonScopeImpl.class.getName() );
+
+    private static final AtomicInteger poolsCount = new AtomicInteger();
+
+    private final int threads;
+
+    private final ScopeStatistics statistics;
+
+    private final Map<Key<?>, ConcurrentSingletonProvider<?>> pending =
+        new LinkedHashMap<Key<?>, ConcurrentSingletonProvider<?>>();
+
+    private volatile boolean started;
+
+    private final AtomicBoolean notStartedLogged = new AtomicBoolean();
+
+    BackgroundLazySingletonScopeImpl( int threads, ScopeStatistics statistics )
+    {
+        this.threads = threads;
+        this.statistics = statistics;
+    }
+
+    public <T> Provider<T> scope( final Key<T> key, Provider<T> creator )
+    {
+        final ConcurrentSingletonProvider<T> provider =
+            new ConcurrentSingletonProvider<T>( key, creator, statistics );
+        synchronized ( pending )
+        {
+            if ( started )
+            {
+                return provider;
+            }
+            pending.put( key, provider );
+        }
+        return new Provider<T>()
+        {
+            public T get()
+            {
+                if ( !started && !provider.isCreated() && notStartedLogged.compareAndSet( false, true ) )
+                {
+                    logger.warning( "BackgroundLazySingleton " + key + " is created on request: "
+                        + "BackgroundLazySingletonScope.start() has not been invoked after the injector creation" );
+                }
+                return provider.get();
+            }
+
+            @Override
+            public String toString()
+            {
+                return provider.toString();
+            }
+        };
+    }
+
+    /**
+     * Starts the creation of the pending keys, at most once.
+     *
+     * @param injector the created injector
+     */
+    void start( final Injector injector )
+    {
+        Map<Key<?>, ConcurrentSingletonProvider<?>> providers;
+        synchronized ( pending )
+        {
+            if ( started )
+            {
+                return;
+            }
+            started = true;
+            providers = new LinkedHashMap<Key<?>, ConcurrentSingletonProvider<?>>( pending );
+            pending.clear();
+        }
+
+        if ( providers.isEmpty() )
+        {
+            return;
+        }
+
+        ExecutorService executor = newExecutor( Math.min( threads, providers.size() ) );
+        for ( final Map.Entry<Key<?>, ConcurrentSingletonProvider<?>> provider : providers.entrySet() )
+        {
+            executor.execute( new Runnable()
+            {
+                public void run()
+                {
+                    if ( provider.getValue().isCreated() )
+                    {
+                        return;
+                    }
+                    try
+                    {
+                        // through the injector, the scoped provider can't be invoked outside of an injection
+                        injector.getInstance( provider.getKey() );
+                    }
+                    catch ( RuntimeException e )
+                    {
+                        // the next request retries the creation and gets the error
+                    }
+                }
+            } );
+        }
+        // the queued creations still run, then the threads terminate
+        executor.shutdown();
+    }
+
+    private static ExecutorService newExecutor( int threads )
+    {
+        final int pool = poolsCount.incrementAndGet();
+        return new ThreadPoolExecutor( threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                       new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+        {
+            private final AtomicInteger threadsCount = new AtomicInteger();
+
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable, "onami-lazy-singleton-" + pool + "-"
+                    + threadsCount.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BackgroundLazySingletonScope.SCOPE";
+    }
+}
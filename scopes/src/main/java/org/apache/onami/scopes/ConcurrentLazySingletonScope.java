@@ -29,7 +29,8 @@ import com.google.inject.Scope;
 public class ConcurrentLazySingletonScope
 {
 
-    private static final Scope instance = new ConcurrentLazySingletonScopeImpl();
+    // not instrumented, the ScopesModule binds a scope recording the statistics of its injector
+    private static final Scope instance = new ConcurrentLazySingletonScopeImpl( new ScopeStatistics() );
 
     /**
      * Returns the scope
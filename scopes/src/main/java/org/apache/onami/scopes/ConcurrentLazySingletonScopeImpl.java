@@ -21,116 +21,26 @@ package org.apache.onami.scopes;
 
 import com.google.inject.Key;
 import com.google.inject.Provider;
-import com.google.inject.ProvisionException;
 import com.google.inject.Scope;
 
-import java.util.HashMap;
-import java.util.Map;
-
+/**
+ * Each scoped provider guards its own instance with its own lock, allocated once when the key is scoped: there is
+ * no lock shared by different keys and, once the instance is created, {@code get()} is a volatile read.
+ */
 class ConcurrentLazySingletonScopeImpl
     implements Scope
 {
-    private static final Object NULL = new Object();
-
-    private final Map<Key<?>, LockRecord> locks = new HashMap<Key<?>, LockRecord>();
-
-    public <T> Provider<T> scope( final Key<T> key, final Provider<T> creator )
-    {
-        return new Provider<T>()
-        {
-            /*
-             * The lazily initialized singleton instance. Once set, this will either have type T or will
-             * be equal to NULL.
-             */
-            private volatile Object instance;
-
-            // DCL on a volatile is safe as of Java 5, which we obviously require.
-            @SuppressWarnings( "DoubleCheckedLocking" )
-            public T get()
-            {
-                if ( instance == null )
-                {
-                    final LockRecord lock = getLock( key );
-                    try
-                    {
-                        //noinspection SynchronizationOnLocalVariableOrMethodParameter
-                        synchronized ( lock )
-                        {
-                            if ( instance == null )
-                            {
-                                T provided = creator.get();
-
-								Object providedOrSentinel;
-								if ( provided == null )
-								{
-									providedOrSentinel = NULL;
-								}
-								else
-								{
-									for ( Class<?> clazz : provided.getClass().getInterfaces() )
-									{
-										// don't remember proxies; these exist only to serve circular dependencies
-										if ( clazz.getName().equals("com.google.inject.internal.CircularDependencyProxy") )
-										{
-											return provided;
-										}
-									}
-									providedOrSentinel = provided;
-								}
 
-                                if ( ( instance != null ) && ( instance != providedOrSentinel ) )
-                                {
-                                    throw new ProvisionException( "Provider was reentrant while creating a singleton" );
-                                }
+    private final ScopeStatistics statistics;
 
-                                instance = providedOrSentinel;
-                            }
-                        }
-                    }
-                    finally
-                    {
-                        releaseLock( lock, key );
-                    }
-                }
-
-                Object localInstance = instance;
-                // This is safe because instance has type T or is equal to NULL
-                @SuppressWarnings( { "unchecked", "UnnecessaryLocalVariable" } )
-                T returnedInstance = ( localInstance != NULL ) ? (T) localInstance : null;
-                return returnedInstance;
-            }
-
-            public String toString()
-            {
-                return String.format( "%s[%s]", creator, instance );
-            }
-        };
-    }
-
-    private LockRecord getLock( Key<?> key )
+    ConcurrentLazySingletonScopeImpl( ScopeStatistics statistics )
     {
-        synchronized ( locks )
-        {
-            LockRecord lock = locks.get( key );
-            if ( lock == null )
-            {
-                lock = new LockRecord();
-                locks.put( key, lock );
-            }
-            ++lock.useCount;
-            return lock;
-        }
+        this.statistics = statistics;
     }
 
-    private void releaseLock( LockRecord lock, Key<?> key )
+    public <T> Provider<T> scope( final Key<T> key, final Provider<T> creator )
     {
-        synchronized ( locks )
-        {
-            if ( --lock.useCount <= 0 )
-            {
-                locks.remove( key );
-            }
-        }
+        return new ConcurrentSingletonProvider<T>( key, creator, statistics );
     }
 
     @Override
@@ -138,9 +48,4 @@ class ConcurrentLazySingletonScopeImpl
     {
         return "ConcurrentLazySingletonScope.SCOPE";
     }
-
-    private static class LockRecord
-    {
-        private int useCount = 0;
-    }
 }
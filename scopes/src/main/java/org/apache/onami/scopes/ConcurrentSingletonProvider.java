@@ -0,0 +1,148 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.ProvisionException;
+
+/**
+ * A lazily created singleton guarded by its own lock, shared by the scopes that create different keys concurrently.
+ * Once the instance is created, {@code get()} is a volatile read; until then, the creation and the waits are recorded
+ * by the {@link ScopeStatistics}, if enabled.
+ */
+class ConcurrentSingletonProvider<T>
+    implements Provider<T>
+{
+    private static final Object NULL = new Object();
+
+    private final Key<T> key;
+
+    private final Provider<T> creator;
+
+    private final ScopeStatistics statistics;
+
+    /*
+     * Serializes the creation of this key only, different keys are created concurrently.
+     */
+    private final Object lock = new Object();
+
+    /*
+     * The lazily initialized singleton instance. Once set, this will either have type T or will
+     * be equal to NULL.
+     */
+    private volatile Object instance;
+
+    ConcurrentSingletonProvider( Key<T> key, Provider<T> creator, ScopeStatistics statistics )
+    {
+        this.key = key;
+        this.creator = creator;
+        this.statistics = statistics;
+    }
+
+    // DCL on a volatile is safe as of Java 5, which we obviously require.
+    @SuppressWarnings( "DoubleCheckedLocking" )
+    public T get()
+    {
+        Object localInstance = instance;
+        if ( localInstance == null )
+        {
+            KeyStatistics keyStatistics = statistics.record( key );
+            long start = ( keyStatistics != null ) ? System.nanoTime() : 0;
+            synchronized ( lock )
+            {
+                localInstance = instance;
+                if ( localInstance == null )
+                {
+                    if ( keyStatistics != null )
+                    {
+                        start = System.nanoTime();
+                    }
+                    T provided = creator.get();
+                    if ( keyStatistics != null )
+                    {
+                        keyStatistics.recordCreation( System.nanoTime() - start );
+                    }
+
+                    Object providedOrSentinel;
+                    if ( provided == null )
+                    {
+                        providedOrSentinel = NULL;
+                    }
+                    else
+                    {
+                        if ( isCircularDependencyProxy( provided ) )
+                        {
+                            return provided;
+                        }
+                        providedOrSentinel = provided;
+                    }
+
+                    if ( ( instance != null ) && ( instance != providedOrSentinel ) )
+                    {
+                        throw new ProvisionException( "Provider was reentrant while creating a singleton" );
+                    }
+
+                    instance = providedOrSentinel;
+                    localInstance = providedOrSentinel;
+                }
+                else if ( keyStatistics != null )
+                {
+                    // created by another thread while this one was waiting
+                    keyStatistics.recordWait( System.nanoTime() - start );
+                }
+            }
+        }
+
+        // This is safe because instance has type T or is equal to NULL
+        @SuppressWarnings( { "unchecked", "UnnecessaryLocalVariable" } )
+        T returnedInstance = ( localInstance != NULL ) ? (T) localInstance : null;
+        return returnedInstance;
+    }
+
+    /**
+     * Proxies are not to be remembered, they exist only to serve circular dependencies.
+     */
+    static boolean isCircularDependencyProxy( Object provided )
+    {
+        for ( Class<?> clazz : provided.getClass().getInterfaces() )
+        {
+            if ( clazz.getName().equals( "com.google.inject.internal.CircularDependencyProxy" ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true once the instance has been created
+     */
+    boolean isCreated()
+    {
+        return instance != null;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "%s[%s]", creator, instance );
+    }
+}
@@ -0,0 +1,108 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.Key;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The creation and contention counters of a scoped key, see {@link ScopeStatistics}.
+ */
+public final class KeyStatistics
+{
+
+    private final Key<?> key;
+
+    private final AtomicLong creationCount = new AtomicLong();
+
+    private final AtomicLong creationNanos = new AtomicLong();
+
+    private final AtomicLong waitingThreads = new AtomicLong();
+
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    KeyStatistics( Key<?> key )
+    {
+        this.key = key;
+    }
+
+    void recordCreation( long nanos )
+    {
+        creationCount.incrementAndGet();
+        creationNanos.addAndGet( nanos );
+    }
+
+    void recordWait( long nanos )
+    {
+        waitingThreads.incrementAndGet();
+        waitNanos.addAndGet( nanos );
+    }
+
+    /**
+     * @return the scoped key
+     */
+    public Key<?> getKey()
+    {
+        return key;
+    }
+
+    /**
+     * @return the number of instances created
+     */
+    public long getCreationCount()
+    {
+        return creationCount.get();
+    }
+
+    /**
+     * @return the total time spent creating the instances, including their dependencies
+     */
+    public long getCreationNanos()
+    {
+        return creationNanos.get();
+    }
+
+    /**
+     * @return the number of threads that waited for an instance being created by another thread
+     */
+    public long getWaitingThreads()
+    {
+        return waitingThreads.get();
+    }
+
+    /**
+     * @return the total time the waiting threads waited
+     */
+    public long getWaitNanos()
+    {
+        return waitNanos.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "%s: %s created in %s ms, %s waiting threads for %s ms", key, creationCount,
+                              TimeUnit.NANOSECONDS.toMillis( creationNanos.get() ), waitingThreads,
+                              TimeUnit.NANOSECONDS.toMillis( waitNanos.get() ) );
+    }
+
+}
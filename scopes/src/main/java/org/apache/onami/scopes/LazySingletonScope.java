@@ -37,7 +37,8 @@ public class LazySingletonScope
         return instance;
     }
 
-    private static final Scope instance = new LazySingletonScopeImpl();
+    // not instrumented, the ScopesModule binds a scope recording the statistics of its injector
+    private static final Scope instance = new LazySingletonScopeImpl( new ScopeStatistics() );
 
     private LazySingletonScope()
     {
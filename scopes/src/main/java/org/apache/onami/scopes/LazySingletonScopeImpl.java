@@ -26,14 +26,98 @@ import com.google.inject.Scopes;
 
 /**
  * A Guice {@code com.google.inject.Scope} that enables lazy singletons.
+ *
+ * The creation is delegated to {@code Scopes.SINGLETON}; until the instance is created, the creation and the waits on
+ * the singleton lock are recorded by the {@link ScopeStatistics}, if enabled.
  */
 final class LazySingletonScopeImpl
     implements Scope
 {
 
-    public <T> Provider<T> scope( Key<T> key, Provider<T> unscoped )
+    private final ScopeStatistics statistics;
+
+    LazySingletonScopeImpl( ScopeStatistics statistics )
+    {
+        this.statistics = statistics;
+    }
+
+    public <T> Provider<T> scope( final Key<T> key, final Provider<T> unscoped )
+    {
+        final InstrumentedCreator<T> creator = new InstrumentedCreator<T>( key, unscoped, statistics );
+        final Provider<T> singleton = Scopes.SINGLETON.scope( key, creator );
+        return new Provider<T>()
+        {
+            public T get()
+            {
+                // once created, the singleton is returned without waiting for any creation
+                if ( creator.created || !statistics.isEnabled() )
+                {
+                    return singleton.get();
+                }
+
+                long start = System.nanoTime();
+                T provided = singleton.get();
+                if ( creator.creatingThread != Thread.currentThread() )
+                {
+                    // not created when requested, nor by this thread: it waited for the creation on the lock
+                    KeyStatistics keyStatistics = statistics.record( key );
+                    if ( keyStatistics != null )
+                    {
+                        keyStatistics.recordWait( System.nanoTime() - start );
+                    }
+                }
+                return provided;
+            }
+
+            @Override
+            public String toString()
+            {
+                return singleton.toString();
+            }
+        };
+    }
+
+    private static final class InstrumentedCreator<T>
+        implements Provider<T>
     {
-        return Scopes.SINGLETON.scope( key, unscoped );
+
+        private final Key<T> key;
+
+        private final Provider<T> unscoped;
+
+        private final ScopeStatistics statistics;
+
+        volatile Thread creatingThread;
+
+        volatile boolean created;
+
+        InstrumentedCreator( Key<T> key, Provider<T> unscoped, ScopeStatistics statistics )
+        {
+            this.key = key;
+            this.unscoped = unscoped;
+            this.statistics = statistics;
+        }
+
+        public T get()
+        {
+            creatingThread = Thread.currentThread();
+            KeyStatistics keyStatistics = statistics.record( key );
+            long start = ( keyStatistics != null ) ? System.nanoTime() : 0;
+            T provided = unscoped.get();
+            if ( keyStatistics != null )
+            {
+                keyStatistics.recordCreation( System.nanoTime() - start );
+            }
+            created = true;
+            return provided;
+        }
+
+        @Override
+        public String toString()
+        {
+            return unscoped.toString();
+        }
+
     }
 
 }
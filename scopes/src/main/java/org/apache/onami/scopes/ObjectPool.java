@@ -0,0 +1,252 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.Provider;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The idle instances of a {@link Pooled} binding, in a lock-free FIFO queue: borrowing takes the instance idle for
+ * the longest time, so that the expired ones are met, and evicted, first. The borrowed instances are bounded by a
+ * semaphore: once all of them are out, borrowing waits for one to be returned, and fails after the maximum wait.
+ */
+final class ObjectPool<T>
+    implements PoolStatistics
+{
+
+    private final Provider<T> creator;
+
+    private final int maxIdle;
+
+    private final long idleTimeoutNanos;
+
+    private final long maxWaitNanos;
+
+    /*
+     * A permit per instance that can be borrowed: an instance is only created when none is idle, so the permits
+     * bound the instances alive as well.
+     */
+    private final Semaphore leases;
+
+    private final ConcurrentLinkedQueue<IdleInstance<T>> idle = new ConcurrentLinkedQueue<IdleInstance<T>>();
+
+    /*
+     * Counted aside, ConcurrentLinkedQueue.size() traverses the whole queue.
+     */
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    private final AtomicInteger borrowedCount = new AtomicInteger();
+
+    private final AtomicLong createdCount = new AtomicLong();
+
+    private final AtomicLong reusedCount = new AtomicLong();
+
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    private final AtomicLong discardedCount = new AtomicLong();
+
+    private final AtomicLong timedOutCount = new AtomicLong();
+
+    ObjectPool( Provider<T> creator, int maxTotal, int maxIdle, long idleTimeoutNanos, long maxWaitNanos )
+    {
+        this.creator = creator;
+        this.maxIdle = maxIdle;
+        this.idleTimeoutNanos = idleTimeoutNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.leases = new Semaphore( maxTotal );
+    }
+
+    /**
+     * @throws IllegalStateException if no instance could be borrowed within the maximum wait, or the wait was
+     *             interrupted
+     */
+    T borrow()
+    {
+        acquireLease();
+        boolean borrowed = false;
+        try
+        {
+            T instance = borrowLeased();
+            borrowed = true;
+            return instance;
+        }
+        finally
+        {
+            if ( !borrowed )
+            {
+                leases.release();
+            }
+        }
+    }
+
+    private void acquireLease()
+    {
+        if ( leases.tryAcquire() )
+        {
+            return;
+        }
+        try
+        {
+            if ( leases.tryAcquire( maxWaitNanos, TimeUnit.NANOSECONDS ) )
+            {
+                return;
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while waiting for an instance of " + creator, e );
+        }
+        timedOutCount.incrementAndGet();
+        throw new IllegalStateException( "No instance of " + creator + " returned within "
+            + TimeUnit.NANOSECONDS.toMillis( maxWaitNanos ) + " ms, all of them are borrowed" );
+    }
+
+    private T borrowLeased()
+    {
+        long now = System.nanoTime();
+        IdleInstance<T> candidate;
+        while ( ( candidate = idle.poll() ) != null )
+        {
+            idleCount.decrementAndGet();
+            if ( candidate.isExpired( now, idleTimeoutNanos ) )
+            {
+                evictedCount.incrementAndGet();
+            }
+            else
+            {
+                reusedCount.incrementAndGet();
+                borrowedCount.incrementAndGet();
+                return candidate.instance;
+            }
+        }
+
+        T created = creator.get();
+        createdCount.incrementAndGet();
+        borrowedCount.incrementAndGet();
+        return created;
+    }
+
+    void release( T instance )
+    {
+        try
+        {
+            recycle( instance );
+        }
+        finally
+        {
+            // once idle, so that a borrower waiting for the lease finds the instance
+            leases.release();
+        }
+    }
+
+    private void recycle( T instance )
+    {
+        borrowedCount.decrementAndGet();
+
+        long now = System.nanoTime();
+        // the eldest instance is at the head: evicting it here bounds the memory held by a pool getting quiet
+        IdleInstance<T> eldest = idle.peek();
+        if ( eldest != null && eldest.isExpired( now, idleTimeoutNanos ) && idle.remove( eldest ) )
+        {
+            idleCount.decrementAndGet();
+            evictedCount.incrementAndGet();
+        }
+
+        if ( instance == null )
+        {
+            return;
+        }
+        if ( idleCount.incrementAndGet() > maxIdle )
+        {
+            idleCount.decrementAndGet();
+            discardedCount.incrementAndGet();
+            return;
+        }
+        idle.offer( new IdleInstance<T>( instance, now ) );
+    }
+
+    public int getIdleCount()
+    {
+        return idleCount.get();
+    }
+
+    public int getBorrowedCount()
+    {
+        return borrowedCount.get();
+    }
+
+    public long getCreatedCount()
+    {
+        return createdCount.get();
+    }
+
+    public long getReusedCount()
+    {
+        return reusedCount.get();
+    }
+
+    public long getEvictedCount()
+    {
+        return evictedCount.get();
+    }
+
+    public long getDiscardedCount()
+    {
+        return discardedCount.get();
+    }
+
+    public long getTimedOutCount()
+    {
+        return timedOutCount.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "%s[idle=%s, borrowed=%s]", creator, idleCount, borrowedCount );
+    }
+
+    private static final class IdleInstance<T>
+    {
+
+        final T instance;
+
+        final long releasedAt;
+
+        IdleInstance( T instance, long releasedAt )
+        {
+            this.instance = instance;
+            this.releasedAt = releasedAt;
+        }
+
+        boolean isExpired( long now, long idleTimeoutNanos )
+        {
+            return now - releasedAt > idleTimeoutNanos;
+        }
+
+    }
+
+}
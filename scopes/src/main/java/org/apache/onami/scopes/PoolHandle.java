@@ -0,0 +1,136 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The lease of the {@link Pooled} instances requested by the current thread: each pooled key is borrowed once, on
+ * first request, and all of them go back to their pool when the handle is closed, to be done in a {@code finally}
+ * block:
+ *
+ * <pre>
+ * PoolHandle handle = PooledScope.open();
+ * try
+ * {
+ *     parserProvider.get().parse( input );
+ * }
+ * finally
+ * {
+ *     handle.close();
+ * }
+ * </pre>
+ *
+ * Handles are confined to the thread that opened them; opening a handle while another one is open on the same thread
+ * returns the outer one, closed only by the outermost {@code close()}.
+ */
+public final class PoolHandle
+{
+
+    private static final ThreadLocal<PoolHandle> current = new ThreadLocal<PoolHandle>();
+
+    private final Thread owner = Thread.currentThread();
+
+    /*
+     * Pools are identities, and a handle rarely leases more than a few instances.
+     */
+    private final Map<ObjectPool<?>, Object> leases = new IdentityHashMap<ObjectPool<?>, Object>( 4 );
+
+    private int depth = 1;
+
+    private PoolHandle()
+    {
+    }
+
+    static PoolHandle open()
+    {
+        PoolHandle handle = current.get();
+        if ( handle == null )
+        {
+            handle = new PoolHandle();
+            current.set( handle );
+        }
+        else
+        {
+            handle.depth++;
+        }
+        return handle;
+    }
+
+    /**
+     * @return the handle open on the current thread, {@code null} if none
+     */
+    static PoolHandle current()
+    {
+        return current.get();
+    }
+
+    <T> T lease( ObjectPool<T> pool )
+    {
+        if ( leases.containsKey( pool ) )
+        {
+            // leased by this handle before: exactly an instance of T
+            @SuppressWarnings( "unchecked" )
+            T leased = (T) leases.get( pool );
+            return leased;
+        }
+        T borrowed = pool.borrow();
+        leases.put( pool, borrowed );
+        return borrowed;
+    }
+
+    /**
+     * Returns the leased instances to their pools, if this is the outermost handle open on the thread.
+     *
+     * @throws IllegalStateException if invoked by a thread other than the one that opened the handle, or once closed
+     */
+    public void close()
+    {
+        if ( owner != Thread.currentThread() )
+        {
+            throw new IllegalStateException( "Pool handle opened by " + owner + " closed by "
+                + Thread.currentThread() );
+        }
+        if ( depth == 0 )
+        {
+            throw new IllegalStateException( "Pool handle already closed" );
+        }
+        if ( --depth > 0 )
+        {
+            return;
+        }
+
+        current.remove();
+        for ( Map.Entry<ObjectPool<?>, Object> lease : leases.entrySet() )
+        {
+            release( lease.getKey(), lease.getValue() );
+        }
+        leases.clear();
+    }
+
+    // the instance was borrowed from the same pool: exactly an instance of T
+    @SuppressWarnings( "unchecked" )
+    private static <T> void release( ObjectPool<T> pool, Object instance )
+    {
+        pool.release( (T) instance );
+    }
+
+}
@@ -0,0 +1,63 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * The counters of the pool of a {@link Pooled} key.
+ */
+public interface PoolStatistics
+{
+
+    /**
+     * @return the number of instances waiting in the pool
+     */
+    int getIdleCount();
+
+    /**
+     * @return the number of instances currently borrowed
+     */
+    int getBorrowedCount();
+
+    /**
+     * @return the number of instances created since the pool exists
+     */
+    long getCreatedCount();
+
+    /**
+     * @return the number of borrows served by an idle instance
+     */
+    long getReusedCount();
+
+    /**
+     * @return the number of instances dropped because idle for longer than the timeout
+     */
+    long getEvictedCount();
+
+    /**
+     * @return the number of instances dropped when returned because the pool was full
+     */
+    long getDiscardedCount();
+
+    /**
+     * @return the number of borrows failed because no instance was returned within the maximum wait
+     */
+    long getTimedOutCount();
+
+}
@@ -0,0 +1,165 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Scope;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A factory of Guice {@code com.google.inject.Scope}s pooling the instances of their keys, and the entry point to
+ * lease them.
+ *
+ * @see Pooled
+ */
+public class PooledScope
+{
+
+    /**
+     * The maximum number of instances, borrowed or idle, of each pool of the default scope.
+     */
+    public static final int DEFAULT_MAX_TOTAL = 4 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The maximum number of idle instances kept by each pool of the default scope.
+     */
+    public static final int DEFAULT_MAX_IDLE = 2 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The time, in seconds, an instance of the default scope is kept idle before being evicted.
+     */
+    public static final long DEFAULT_IDLE_TIMEOUT_SECONDS = 60;
+
+    /**
+     * The time, in seconds, a request of the default scope waits for an instance once all of them are borrowed.
+     */
+    public static final long DEFAULT_MAX_WAIT_SECONDS = 30;
+
+    /**
+     * Creates a scope with the default pool settings, the {@link ScopesModule} binds one to {@link Pooled} per
+     * injector.
+     *
+     * @return scope
+     */
+    public static Scope create()
+    {
+        return create( DEFAULT_MAX_TOTAL, DEFAULT_MAX_IDLE, DEFAULT_IDLE_TIMEOUT_SECONDS, DEFAULT_MAX_WAIT_SECONDS,
+                       TimeUnit.SECONDS );
+    }
+
+    /**
+     * Creates a scope with its own pool settings and no bound on the borrowed instances, e.g.
+     * {@code bind( Parser.class ).in( PooledScope.create( 16, 5, TimeUnit.MINUTES ) );}
+     *
+     * @param maxIdle the maximum number of idle instances kept by each pool, the exceeding ones are dropped when
+     *            returned
+     * @param idleTimeout the time an instance is kept idle before being evicted
+     * @param unit the unit of {@code idleTimeout}
+     * @return scope
+     */
+    public static Scope create( int maxIdle, long idleTimeout, TimeUnit unit )
+    {
+        return create( Integer.MAX_VALUE, maxIdle, idleTimeout, 0, unit );
+    }
+
+    /**
+     * Creates a scope with its own pool settings, e.g.
+     * {@code bind( Parser.class ).in( PooledScope.create( 32, 16, 300, 10, TimeUnit.SECONDS ) );}
+     *
+     * A scope keeps a pool per binding: bind it in a single injector, the pools of a scope shared by several
+     * injectors would be replaced by the last one created.
+     *
+     * @param maxTotal the maximum number of instances, borrowed or idle, of each pool
+     * @param maxIdle the maximum number of idle instances kept by each pool, the exceeding ones are dropped when
+     *            returned
+     * @param idleTimeout the time an instance is kept idle before being evicted
+     * @param maxWait the time a request waits for an instance once {@code maxTotal} are borrowed, before failing
+     * @param unit the unit of {@code idleTimeout} and {@code maxWait}
+     * @return scope
+     */
+    public static Scope create( int maxTotal, int maxIdle, long idleTimeout, long maxWait, TimeUnit unit )
+    {
+        if ( maxTotal < 1 )
+        {
+            throw new IllegalArgumentException( "The maximum number of instances must be positive" );
+        }
+        if ( maxIdle < 0 )
+        {
+            throw new IllegalArgumentException( "The maximum number of idle instances must be not negative" );
+        }
+        if ( idleTimeout < 0 )
+        {
+            throw new IllegalArgumentException( "The idle timeout must be not negative" );
+        }
+        if ( maxWait < 0 )
+        {
+            throw new IllegalArgumentException( "The maximum wait must be not negative" );
+        }
+        if ( unit == null )
+        {
+            throw new NullPointerException( "Argument 'unit' must be not null" );
+        }
+        return new PooledScopeImpl( maxTotal, maxIdle, unit.toNanos( idleTimeout ), unit.toNanos( maxWait ) );
+    }
+
+    /**
+     * Opens a handle on the current thread, the {@link Pooled} instances requested until it is closed are leased
+     * from their pools.
+     *
+     * @return the handle, to be closed in a {@code finally} block
+     */
+    public static PoolHandle open()
+    {
+        return PoolHandle.open();
+    }
+
+    /**
+     * @param injector an injector created with the {@link ScopesModule}
+     * @return the statistics of the pools of the scope bound to {@link Pooled} in the injector, by key
+     */
+    public static Map<Key<?>, PoolStatistics> getStatistics( Injector injector )
+    {
+        if ( injector == null )
+        {
+            throw new NullPointerException( "Argument 'injector' must be not null" );
+        }
+        return getStatistics( injector.getScopeBindings().get( Pooled.class ) );
+    }
+
+    /**
+     * @param scope a scope returned by one of the {@code create} methods
+     * @return the statistics of the pools of the scope, by key
+     */
+    public static Map<Key<?>, PoolStatistics> getStatistics( Scope scope )
+    {
+        if ( !( scope instanceof PooledScopeImpl ) )
+        {
+            throw new IllegalArgumentException( scope + " is not a pooled scope" );
+        }
+        return ( (PooledScopeImpl) scope ).getStatistics();
+    }
+
+    private PooledScope()
+    {
+    }
+}
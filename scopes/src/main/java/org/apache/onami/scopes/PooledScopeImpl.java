@@ -0,0 +1,96 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.Key;
+import com.google.inject.OutOfScopeException;
+import com.google.inject.Provider;
+import com.google.inject.Scope;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Each scoped binding gets its own {@link ObjectPool}, leased through the {@link PoolHandle} open on the requesting
+ * thread. The pools are keyed by binding only: a scope instance is meant to be bound in a single injector.
+ */
+final class PooledScopeImpl
+    implements Scope
+{
+
+    private final int maxTotal;
+
+    private final int maxIdle;
+
+    private final long idleTimeoutNanos;
+
+    private final long maxWaitNanos;
+
+    private final ConcurrentMap<Key<?>, PoolStatistics> pools = new ConcurrentHashMap<Key<?>, PoolStatistics>();
+
+    PooledScopeImpl( int maxTotal, int maxIdle, long idleTimeoutNanos, long maxWaitNanos )
+    {
+        this.maxTotal = maxTotal;
+        this.maxIdle = maxIdle;
+        this.idleTimeoutNanos = idleTimeoutNanos;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    public <T> Provider<T> scope( final Key<T> key, Provider<T> creator )
+    {
+        final ObjectPool<T> pool = new ObjectPool<T>( creator, maxTotal, maxIdle, idleTimeoutNanos, maxWaitNanos );
+        pools.put( key, pool );
+        return new Provider<T>()
+        {
+            public T get()
+            {
+                PoolHandle handle = PoolHandle.current();
+                if ( handle == null )
+                {
+                    throw new OutOfScopeException( "Cannot access " + key
+                        + " outside of a pool handle, see PooledScope.open()" );
+                }
+                return handle.lease( pool );
+            }
+
+            @Override
+            public String toString()
+            {
+                return pool.toString();
+            }
+        };
+    }
+
+    /**
+     * @return the statistics of the pools, by key
+     */
+    Map<Key<?>, PoolStatistics> getStatistics()
+    {
+        return Collections.unmodifiableMap( pools );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PooledScope.SCOPE";
+    }
+}
@@ -0,0 +1,42 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.inject.Scope;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Same as {@link ConcurrentLazySingleton} for objects wrapping data that goes stale: once the time to live set on the
+ * {@link ScopesModule} has elapsed, the next request triggers the creation of a new instance in background and
+ * keeps getting the current one until the new one replaces it. Requests never wait for a refresh; a failed refresh
+ * is logged and keeps the current instance for another time to live. Refreshes run on the executor bound with
+ * {@link RefreshingSingletonExecutor}, if any.
+ *
+ * Since the instance changes over time, inject a {@code Provider} rather than the instance itself.
+ */
+@Target( { ElementType.TYPE, ElementType.METHOD } )
+@Retention( RetentionPolicy.RUNTIME )
+@Scope
+public @interface RefreshingSingleton
+{
+}
@@ -0,0 +1,47 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Controls the refreshes of the {@link RefreshingSingleton} instances of an injector, bound by {@link ScopesModule}.
+ *
+ * @see RefreshingSingleton
+ */
+public final class RefreshingSingletonScope
+{
+
+    private final RefreshingSingletonScopeImpl scope;
+
+    RefreshingSingletonScope( RefreshingSingletonScopeImpl scope )
+    {
+        this.scope = scope;
+    }
+
+    /**
+     * Stops refreshing the instances, which are then served even once expired; the default refresh threads terminate
+     * once the running refreshes complete, an executor bound with {@link RefreshingSingletonExecutor} is left to its
+     * owner.
+     */
+    public void shutdown()
+    {
+        scope.shutdown();
+    }
+
+}
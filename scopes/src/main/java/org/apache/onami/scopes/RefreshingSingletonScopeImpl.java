@@ -0,0 +1,274 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.Scope;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The first instance is created like {@link ConcurrentSingletonProvider} does, the next ones by the refresh executor
+ * requesting the key to the injector: the creator can't be invoked outside of an injection, so the scoped provider
+ * is told through a thread local that the request is a refresh, to be served by the creator. Failed refreshes are
+ * logged.
+ */
+final class RefreshingSingletonScopeImpl
+    implements Scope
+{
+
+    private static final Logger logger = Logger.getLogger( RefreshingSingletonScopeImpl.class.getName() );
+
+    /**
+     * Refreshes queued by the default executor, the next ones are retried once the queue has room.
+     */
+    private static final int MAXIMUM_PENDING_REFRESHES = 1024;
+
+    private static final AtomicInteger poolsCount = new AtomicInteger();
+
+    private static final ThreadLocal<Object> refreshed = new ThreadLocal<Object>();
+
+    private final long timeToLiveNanos;
+
+    private volatile Injector injector;
+
+    private volatile Executor executor;
+
+    /**
+     * The executor created when none is bound, to be shut down.
+     */
+    private ExecutorService defaultExecutor;
+
+    private volatile boolean shutdown;
+
+    RefreshingSingletonScopeImpl( long timeToLiveNanos )
+    {
+        this.timeToLiveNanos = timeToLiveNanos;
+    }
+
+    @Inject
+    void setInjector( Injector injector )
+    {
+        this.injector = injector;
+    }
+
+    @Inject( optional = true )
+    void setExecutor( @RefreshingSingletonExecutor Executor executor )
+    {
+        this.executor = executor;
+    }
+
+    synchronized void shutdown()
+    {
+        shutdown = true;
+        if ( defaultExecutor != null )
+        {
+            defaultExecutor.shutdown();
+        }
+    }
+
+    private Executor getExecutor()
+    {
+        Executor current = executor;
+        if ( current == null )
+        {
+            synchronized ( this )
+            {
+                current = executor;
+                if ( current == null )
+                {
+                    defaultExecutor = newDefaultExecutor();
+                    current = defaultExecutor;
+                    executor = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static ExecutorService newDefaultExecutor()
+    {
+        final int pool = poolsCount.incrementAndGet();
+        int threads = Math.max( 2, Runtime.getRuntime().availableProcessors() / 2 );
+        return new ThreadPoolExecutor( threads, threads, 60L, TimeUnit.SECONDS,
+                                       new ArrayBlockingQueue<Runnable>( MAXIMUM_PENDING_REFRESHES ),
+                                       new ThreadFactory()
+        {
+            private final AtomicInteger threadsCount = new AtomicInteger();
+
+            public Thread newThread( Runnable runnable )
+            {
+                Thread thread = new Thread( runnable, "onami-refreshing-singleton-" + pool + "-"
+                    + threadsCount.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+    }
+
+    public <T> Provider<T> scope( Key<T> key, Provider<T> creator )
+    {
+        return new RefreshingProvider<T>( key, creator );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RefreshingSingletonScope.SCOPE";
+    }
+
+    private final class RefreshingProvider<T>
+        implements Provider<T>
+    {
+
+        private final Key<T> key;
+
+        private final Provider<T> creator;
+
+        private final Object lock = new Object();
+
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        /*
+         * Replaced as a whole, so that readers see an instance together with its own expiration.
+         */
+        private volatile Generation<T> current;
+
+        RefreshingProvider( Key<T> key, Provider<T> creator )
+        {
+            this.key = key;
+            this.creator = creator;
+        }
+
+        // DCL on a volatile is safe as of Java 5, which we obviously require.
+        @SuppressWarnings( "DoubleCheckedLocking" )
+        public T get()
+        {
+            if ( refreshed.get() == this )
+            {
+                // the instance requested by refresh(), the dependencies it gets are not refreshed
+                refreshed.remove();
+                return creator.get();
+            }
+
+            Generation<T> generation = current;
+            if ( generation == null )
+            {
+                synchronized ( lock )
+                {
+                    generation = current;
+                    if ( generation == null )
+                    {
+                        T provided = creator.get();
+                        if ( provided != null && ConcurrentSingletonProvider.isCircularDependencyProxy( provided ) )
+                        {
+                            return provided;
+                        }
+                        generation = new Generation<T>( provided, System.nanoTime() + timeToLiveNanos );
+                        current = generation;
+                    }
+                }
+            }
+            else if ( generation.isExpired() && injector != null && !shutdown
+                && refreshing.compareAndSet( false, true ) )
+            {
+                try
+                {
+                    getExecutor().execute( new Runnable()
+                    {
+                        public void run()
+                        {
+                            refresh();
+                        }
+                    } );
+                }
+                catch ( RejectedExecutionException e )
+                {
+                    // saturated or shut down, the next request retries
+                    refreshing.set( false );
+                }
+            }
+            return generation.instance;
+        }
+
+        private void refresh()
+        {
+            try
+            {
+                refreshed.set( this );
+                T provided = injector.getInstance( key );
+                current = new Generation<T>( provided, System.nanoTime() + timeToLiveNanos );
+            }
+            catch ( RuntimeException e )
+            {
+                // keep serving the current instance, the refresh is retried once expired again
+                current = new Generation<T>( current.instance, System.nanoTime() + timeToLiveNanos );
+                logger.log( Level.WARNING, "Refresh of " + key + " failed, the current instance is kept", e );
+            }
+            finally
+            {
+                refreshed.remove();
+                refreshing.set( false );
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            Generation<T> generation = current;
+            return String.format( "%s[%s]", creator, generation != null ? generation.instance : null );
+        }
+
+    }
+
+    private static final class Generation<T>
+    {
+
+        final T instance;
+
+        final long expiresAt;
+
+        Generation( T instance, long expiresAt )
+        {
+            this.instance = instance;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired()
+        {
+            return System.nanoTime() - expiresAt >= 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,202 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.Provider;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The {@link PerRequest} instances of a request, entered by {@link RequestScope#enter()}.
+ *
+ * The context is attached to a thread only while it runs the request: {@link #exit()}, and the end of the tasks
+ * wrapped by {@link #wrap(Runnable)} and {@link #wrap(Callable)}, restore what the thread was running before, so that
+ * pooled threads don't keep references to finished requests.
+ */
+public final class RequestContext
+{
+
+    private static final ThreadLocal<RequestContext> attached = new ThreadLocal<RequestContext>();
+
+    private static final Object NULL = new Object();
+
+    /*
+     * By scoped provider rather than by key: bindings of the same key in different injectors don't share instances.
+     */
+    private final ConcurrentMap<Object, Object> instances = new ConcurrentHashMap<Object, Object>();
+
+    private final Thread owner;
+
+    private final RequestContext previous;
+
+    private boolean exited;
+
+    private RequestContext( Thread owner, RequestContext previous )
+    {
+        this.owner = owner;
+        this.previous = previous;
+    }
+
+    static RequestContext enter()
+    {
+        RequestContext context = new RequestContext( Thread.currentThread(), attached.get() );
+        attached.set( context );
+        return context;
+    }
+
+    /**
+     * @return the context attached to the current thread, {@code null} if none
+     */
+    static RequestContext current()
+    {
+        return attached.get();
+    }
+
+    /**
+     * Ends the request on the thread that entered it, restoring the context the thread was running before, if any.
+     *
+     * @throws IllegalStateException if invoked by a thread other than the one that entered the request, or twice
+     */
+    public void exit()
+    {
+        if ( owner != Thread.currentThread() )
+        {
+            throw new IllegalStateException( "Request entered by " + owner + " exited by " + Thread.currentThread() );
+        }
+        if ( exited )
+        {
+            throw new IllegalStateException( "Request already exited" );
+        }
+        if ( attached.get() != this )
+        {
+            throw new IllegalStateException( "Nested requests must be exited first" );
+        }
+        exited = true;
+        restore( previous );
+    }
+
+    /**
+     * @param task the task to run in this request
+     * @return a task attaching this request to the thread running it, for the duration of {@code task}
+     */
+    public Runnable wrap( final Runnable task )
+    {
+        if ( task == null )
+        {
+            throw new NullPointerException( "Argument 'task' must be not null" );
+        }
+        return new Runnable()
+        {
+            public void run()
+            {
+                RequestContext previous = attach();
+                try
+                {
+                    task.run();
+                }
+                finally
+                {
+                    restore( previous );
+                }
+            }
+        };
+    }
+
+    /**
+     * @param task the task to run in this request
+     * @return a task attaching this request to the thread running it, for the duration of {@code task}
+     */
+    public <V> Callable<V> wrap( final Callable<V> task )
+    {
+        if ( task == null )
+        {
+            throw new NullPointerException( "Argument 'task' must be not null" );
+        }
+        return new Callable<V>()
+        {
+            public V call()
+                throws Exception
+            {
+                RequestContext previous = attach();
+                try
+                {
+                    return task.call();
+                }
+                finally
+                {
+                    restore( previous );
+                }
+            }
+        };
+    }
+
+    /**
+     * Tasks of the same request may run concurrently: the creation is serialized by context, to create a single
+     * instance, and the instances already created are read without locking.
+     */
+    <T> T get( Object scopedProvider, Provider<T> creator )
+    {
+        Object instance = instances.get( scopedProvider );
+        if ( instance == null )
+        {
+            synchronized ( instances )
+            {
+                instance = instances.get( scopedProvider );
+                if ( instance == null )
+                {
+                    T provided = creator.get();
+                    if ( provided != null && ConcurrentSingletonProvider.isCircularDependencyProxy( provided ) )
+                    {
+                        return provided;
+                    }
+                    instance = ( provided != null ) ? provided : NULL;
+                    instances.put( scopedProvider, instance );
+                }
+            }
+        }
+
+        // This is safe because the instance was created by the creator or is equal to NULL
+        @SuppressWarnings( "unchecked" )
+        T returnedInstance = ( instance != NULL ) ? (T) instance : null;
+        return returnedInstance;
+    }
+
+    private RequestContext attach()
+    {
+        RequestContext previous = attached.get();
+        attached.set( this );
+        return previous;
+    }
+
+    private static void restore( RequestContext previous )
+    {
+        if ( previous == null )
+        {
+            attached.remove();
+        }
+        else
+        {
+            attached.set( previous );
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.Scope;
+
+import java.util.concurrent.Executor;
+
+/**
+ * A singleton factory that returns a Guice {@code com.google.inject.Scope} binding instances to requests, and the
+ * entry point to run the requests:
+ *
+ * <pre>
+ * RequestContext request = RequestScope.enter();
+ * try
+ * {
+ *     handler.handle( message );
+ * }
+ * finally
+ * {
+ *     request.exit();
+ * }
+ * </pre>
+ *
+ * @see PerRequest
+ */
+public class RequestScope
+{
+
+    private static final Scope instance = new RequestScopeImpl();
+
+    /**
+     * Returns the scope
+     *
+     * @return scope
+     */
+    public static Scope get()
+    {
+        return instance;
+    }
+
+    /**
+     * Starts a new request on the current thread, nested in the request it is running, if any.
+     *
+     * @return the request, to be exited in a {@code finally} block
+     */
+    public static RequestContext enter()
+    {
+        return RequestContext.enter();
+    }
+
+    /**
+     * @return the request run by the current thread, {@code null} if none
+     */
+    public static RequestContext current()
+    {
+        return RequestContext.current();
+    }
+
+    /**
+     * @param executor the executor to propagate the requests to
+     * @return an executor running each task in the request that submitted it, if any
+     */
+    public static Executor wrap( final Executor executor )
+    {
+        if ( executor == null )
+        {
+            throw new NullPointerException( "Argument 'executor' must be not null" );
+        }
+        return new Executor()
+        {
+            public void execute( Runnable command )
+            {
+                RequestContext context = RequestContext.current();
+                executor.execute( context == null ? command : context.wrap( command ) );
+            }
+        };
+    }
+
+    private RequestScope()
+    {
+    }
+}
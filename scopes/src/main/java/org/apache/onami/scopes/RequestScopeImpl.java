@@ -0,0 +1,62 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.Key;
+import com.google.inject.OutOfScopeException;
+import com.google.inject.Provider;
+import com.google.inject.Scope;
+
+/**
+ * Instances are stored by the {@link RequestContext} attached to the requesting thread.
+ */
+final class RequestScopeImpl
+    implements Scope
+{
+
+    public <T> Provider<T> scope( final Key<T> key, final Provider<T> creator )
+    {
+        return new Provider<T>()
+        {
+            public T get()
+            {
+                RequestContext context = RequestContext.current();
+                if ( context == null )
+                {
+                    throw new OutOfScopeException( "Cannot access " + key
+                        + " outside of a request, see RequestScope.enter()" );
+                }
+                return context.get( this, creator );
+            }
+
+            @Override
+            public String toString()
+            {
+                return creator + "[RequestScope.SCOPE]";
+            }
+        };
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RequestScope.SCOPE";
+    }
+}
@@ -0,0 +1,213 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import com.google.inject.Key;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Records, per {@code Key} scoped as {@link LazySingleton}, {@link ConcurrentLazySingleton} or
+ * {@link BackgroundLazySingleton} in an injector, the time spent creating the instance and the threads that waited
+ * for it, to find the providers dominating the startup.
+ *
+ * Each {@link ScopesModule} has its own statistics, disabled by default, to be enabled before the injector is
+ * created:
+ *
+ * <pre>
+ * ScopesModule scopesModule = new ScopesModule();
+ * scopesModule.getScopeStatistics().setEnabled( true );
+ * Injector injector = Guice.createInjector( ..., scopesModule, ... );
+ * ...
+ * for ( KeyStatistics statistics : injector.getInstance( ScopeStatistics.class ).getKeyStatistics() ) ...
+ * </pre>
+ *
+ * Once {@link #registerMBean(String) registered}, the report is also available through JMX as
+ * {@code org.apache.onami.scopes:type=ScopeStatistics,name=<name>}.
+ */
+public final class ScopeStatistics
+    implements ScopeStatisticsMBean
+{
+
+    private static final String OBJECT_NAME = "org.apache.onami.scopes:type=ScopeStatistics,name=";
+
+    private final ConcurrentMap<Key<?>, KeyStatistics> keysStatistics =
+        new ConcurrentHashMap<Key<?>, KeyStatistics>();
+
+    private volatile boolean enabled;
+
+    private ObjectName objectName;
+
+    ScopeStatistics()
+    {
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public void setEnabled( boolean enabled )
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the statistics of the keys created so far, the slowest to create first
+     */
+    public List<KeyStatistics> getKeyStatistics()
+    {
+        List<KeyStatistics> report = new ArrayList<KeyStatistics>( keysStatistics.values() );
+        Collections.sort( report, new Comparator<KeyStatistics>()
+        {
+            public int compare( KeyStatistics o1, KeyStatistics o2 )
+            {
+                int byCreation = compare( o2.getCreationNanos(), o1.getCreationNanos() );
+                return byCreation != 0 ? byCreation : compare( o2.getWaitNanos(), o1.getWaitNanos() );
+            }
+
+            private int compare( long l1, long l2 )
+            {
+                return l1 < l2 ? -1 : ( l1 == l2 ? 0 : 1 );
+            }
+        } );
+        return report;
+    }
+
+    /**
+     * @param key the scoped key
+     * @return the statistics of the key, {@code null} if not created since enabled
+     */
+    public KeyStatistics getKeyStatistics( Key<?> key )
+    {
+        return keysStatistics.get( key );
+    }
+
+    public String[] getReport()
+    {
+        List<KeyStatistics> keyStatistics = getKeyStatistics();
+        String[] report = new String[keyStatistics.size()];
+        for ( int i = 0; i < report.length; i++ )
+        {
+            report[i] = keyStatistics.get( i ).toString();
+        }
+        return report;
+    }
+
+    public void reset()
+    {
+        keysStatistics.clear();
+    }
+
+    /**
+     * Registers the statistics in the platform {@code MBeanServer}, subsequent invocations do nothing.
+     *
+     * @param name the name telling the injector apart from the other ones registered
+     * @throws IllegalStateException if the statistics of another injector are registered with the same name
+     */
+    public synchronized void registerMBean( String name )
+    {
+        if ( name == null )
+        {
+            throw new NullPointerException( "Argument 'name' must be not null" );
+        }
+        if ( objectName != null )
+        {
+            return;
+        }
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            ObjectName registered = new ObjectName( OBJECT_NAME + ObjectName.quote( name ) );
+            mBeanServer.registerMBean( this, registered );
+            objectName = registered;
+        }
+        catch ( InstanceAlreadyExistsException e )
+        {
+            throw new IllegalStateException( "The scope statistics of another injector are registered as " + name,
+                                             e );
+        }
+        catch ( JMException e )
+        {
+            throw new IllegalStateException( "Impossible to register the scope statistics MBean", e );
+        }
+    }
+
+    /**
+     * Unregisters the statistics from the platform {@code MBeanServer}, if registered.
+     */
+    public synchronized void unregisterMBean()
+    {
+        if ( objectName == null )
+        {
+            return;
+        }
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            mBeanServer.unregisterMBean( objectName );
+            objectName = null;
+        }
+        catch ( InstanceNotFoundException e )
+        {
+            // unregistered by someone else
+            objectName = null;
+        }
+        catch ( JMException e )
+        {
+            throw new IllegalStateException( "Impossible to unregister the scope statistics MBean", e );
+        }
+    }
+
+    /**
+     * @return the statistics to record the key in, {@code null} if disabled
+     */
+    KeyStatistics record( Key<?> key )
+    {
+        if ( !enabled )
+        {
+            return null;
+        }
+        KeyStatistics statistics = keysStatistics.get( key );
+        if ( statistics == null )
+        {
+            statistics = new KeyStatistics( key );
+            KeyStatistics previous = keysStatistics.putIfAbsent( key, statistics );
+            if ( previous != null )
+            {
+                return previous;
+            }
+        }
+        return statistics;
+    }
+
+}
@@ -0,0 +1,48 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * The management interface of {@link ScopeStatistics}.
+ */
+public interface ScopeStatisticsMBean
+{
+
+    /**
+     * @return true if the scopes record the statistics
+     */
+    boolean isEnabled();
+
+    /**
+     * @param enabled true to record the statistics of the instances created from now on
+     */
+    void setEnabled( boolean enabled );
+
+    /**
+     * @return one line per key, the slowest to create first
+     */
+    String[] getReport();
+
+    /**
+     * Discards the statistics recorded so far.
+     */
+    void reset();
+
+}
@@ -21,18 +21,111 @@ package org.apache.onami.scopes;
 
 import com.google.inject.AbstractModule;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Guice module to register scopes.
+ * <p/>
+ * The {@link BackgroundLazySingleton} instances are created in background only once started, after the injector
+ * creation:
+ *
+ * <pre>
+ * Injector injector = Guice.createInjector( new ScopesModule(), ... );
+ * injector.getInstance( BackgroundLazySingletonScope.class ).start();
+ * </pre>
+ *
+ * Until then they are created on first request, as concurrent lazy singletons, and the first of them is logged as a
+ * warning.
  */
 public class ScopesModule
     extends AbstractModule
 {
 
+    /**
+     * The time to live, in seconds, of the {@link RefreshingSingleton} instances when not set.
+     */
+    public static final long DEFAULT_TIME_TO_LIVE_SECONDS = 300;
+
+    private final int backgroundThreads;
+
+    private final long timeToLiveNanos;
+
+    private final ScopeStatistics scopeStatistics = new ScopeStatistics();
+
+    /**
+     * Creates the {@link BackgroundLazySingleton} instances using up to as many threads as processors, and refreshes
+     * the {@link RefreshingSingleton} instances every {@link #DEFAULT_TIME_TO_LIVE_SECONDS} seconds.
+     */
+    public ScopesModule()
+    {
+        this( Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     * @param backgroundThreads the maximum number of threads creating the {@link BackgroundLazySingleton} instances
+     */
+    public ScopesModule( int backgroundThreads )
+    {
+        this( backgroundThreads, DEFAULT_TIME_TO_LIVE_SECONDS, TimeUnit.SECONDS );
+    }
+
+    /**
+     * @param backgroundThreads the maximum number of threads creating the {@link BackgroundLazySingleton} instances
+     * @param timeToLive the time after which the {@link RefreshingSingleton} instances are refreshed
+     * @param unit the unit of {@code timeToLive}
+     */
+    public ScopesModule( int backgroundThreads, long timeToLive, TimeUnit unit )
+    {
+        if ( backgroundThreads < 1 )
+        {
+            throw new IllegalArgumentException( "At least one background thread is required" );
+        }
+        if ( timeToLive <= 0 )
+        {
+            throw new IllegalArgumentException( "The time to live must be positive" );
+        }
+        if ( unit == null )
+        {
+            throw new NullPointerException( "Argument 'unit' must be not null" );
+        }
+        this.backgroundThreads = backgroundThreads;
+        this.timeToLiveNanos = unit.toNanos( timeToLive );
+    }
+
+    /**
+     * @return the statistics of the lazy singletons of the injector created with this module, to be enabled before
+     *         creating it; bound in the injector too
+     */
+    public ScopeStatistics getScopeStatistics()
+    {
+        return scopeStatistics;
+    }
+
     @Override
     protected void configure()
     {
-        bindScope( LazySingleton.class, LazySingletonScope.get() );
-        bindScope( ConcurrentLazySingleton.class, ConcurrentLazySingletonScope.get() );
+        bindScope( PerRequest.class, RequestScope.get() );
+
+        // one per injector, recording the statistics of its keys
+        bind( ScopeStatistics.class ).toInstance( scopeStatistics );
+        bindScope( LazySingleton.class, new LazySingletonScopeImpl( scopeStatistics ) );
+        bindScope( ConcurrentLazySingleton.class, new ConcurrentLazySingletonScopeImpl( scopeStatistics ) );
+
+        // one per injector, the pools are keyed by binding
+        bindScope( Pooled.class, PooledScope.create() );
+
+        // one per injector, it creates the instances once started after the injector creation
+        BackgroundLazySingletonScopeImpl backgroundLazySingletonScope =
+            new BackgroundLazySingletonScopeImpl( backgroundThreads, scopeStatistics );
+        bindScope( BackgroundLazySingleton.class, backgroundLazySingletonScope );
+        bind( BackgroundLazySingletonScope.class )
+            .toInstance( new BackgroundLazySingletonScope( backgroundLazySingletonScope ) );
+
+        // one per injector, refreshes are requested to it
+        RefreshingSingletonScopeImpl refreshingSingletonScope = new RefreshingSingletonScopeImpl( timeToLiveNanos );
+        bindScope( RefreshingSingleton.class, refreshingSingletonScope );
+        requestInjection( refreshingSingletonScope );
+        bind( RefreshingSingletonScope.class ).toInstance( new RefreshingSingletonScope( refreshingSingletonScope ) );
     }
 
 }
@@ -0,0 +1,184 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.name.Names;
+
+/**
+ * Contention benchmark of the {@link ConcurrentLazySingleton} scope, not run by the build:
+ * {@code java org.apache.onami.scopes.ConcurrentLazySingletonContention [keys] [maxThreads]}.
+ *
+ * For each thread count, a fresh injector binds the given number of lazy singletons, each one taking ~10 microseconds
+ * to create, then all threads request all keys, in different orders; the time to get all of them created is reported,
+ * followed by the throughput of the already created singletons.
+ */
+public final class ConcurrentLazySingletonContention
+{
+
+    private static final long CREATION_NANOS = 10000L;
+
+    private static volatile Object sink;
+
+    private ConcurrentLazySingletonContention()
+    {
+    }
+
+    public static void main( String[] args )
+        throws Exception
+    {
+        int keysCount = args.length > 0 ? Integer.parseInt( args[0] ) : 1000;
+        int maxThreads = args.length > 1 ? Integer.parseInt( args[1] ) : Runtime.getRuntime().availableProcessors();
+
+        // warm up
+        for ( int i = 0; i < 5; i++ )
+        {
+            run( keysCount, maxThreads );
+        }
+
+        System.out.println( String.format( "%8s %16s %16s", "threads", "creation (ms)", "gets/us" ) );
+        for ( int threads = 1; threads <= maxThreads; threads *= 2 )
+        {
+            long[] result = run( keysCount, threads );
+            System.out.println( String.format( "%8d %16.2f %16.2f", threads, result[0] / 1e6, result[1] / 1e3 ) );
+        }
+    }
+
+    /**
+     * @return the creation nanos and the gets per millisecond, once created
+     */
+    private static long[] run( final int keysCount, int threads )
+        throws Exception
+    {
+        final Injector injector = Guice.createInjector( new ScopesModule(), new AbstractModule()
+        {
+            @Override
+            protected void configure()
+            {
+                for ( int i = 0; i < keysCount; i++ )
+                {
+                    bind( Object.class ).annotatedWith( Names.named( "key" + i ) ).toProvider( new Provider<Object>()
+                    {
+                        public Object get()
+                        {
+                            long end = System.nanoTime() + CREATION_NANOS;
+                            while ( System.nanoTime() < end )
+                            {
+                                // simulates an expensive constructor
+                            }
+                            return new Object();
+                        }
+                    } ).in( ConcurrentLazySingleton.class );
+                }
+            }
+        } );
+
+        final List<Key<Object>> keys = new ArrayList<Key<Object>>();
+        for ( int i = 0; i < keysCount; i++ )
+        {
+            keys.add( Key.get( Object.class, Names.named( "key" + i ) ) );
+        }
+
+        long creationNanos = measure( injector, keys, threads, 1, true );
+        int rounds = 100;
+        long getNanos = measure( injector, keys, threads, rounds, false );
+        long gets = (long) keysCount * threads * rounds;
+        return new long[] { creationNanos, gets * 1000000L / Math.max( 1L, getNanos ) };
+    }
+
+    private static long measure( final Injector injector,
+                                 final List<Key<Object>> keys,
+                                 int threads,
+                                 final int rounds,
+                                 final boolean shuffle )
+        throws Exception
+    {
+        final List<Provider<Object>> providers = new ArrayList<Provider<Object>>();
+        for ( Key<Object> key : keys )
+        {
+            providers.add( injector.getProvider( key ) );
+        }
+
+        final CountDownLatch ready = new CountDownLatch( threads );
+        final CountDownLatch start = new CountDownLatch( 1 );
+        ExecutorService executorService = Executors.newFixedThreadPool( threads );
+        try
+        {
+            List<Future<?>> results = new ArrayList<Future<?>>();
+            for ( int t = 0; t < threads; t++ )
+            {
+                results.add( executorService.submit( new Runnable()
+                {
+                    public void run()
+                    {
+                        List<Provider<Object>> ordered = new ArrayList<Provider<Object>>( providers );
+                        if ( shuffle )
+                        {
+                            Collections.shuffle( ordered );
+                        }
+                        ready.countDown();
+                        try
+                        {
+                            start.await();
+                        }
+                        catch ( InterruptedException e )
+                        {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        for ( int round = 0; round < rounds; round++ )
+                        {
+                            for ( Provider<Object> provider : ordered )
+                            {
+                                sink = provider.get();
+                            }
+                        }
+                    }
+                } ) );
+            }
+
+            ready.await();
+            long startTime = System.nanoTime();
+            start.countDown();
+            for ( Future<?> result : results )
+            {
+                result.get();
+            }
+            return System.nanoTime() - startTime;
+        }
+        finally
+        {
+            executorService.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,204 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+
+public class TestBackgroundLazySingleton
+{
+    private static final long CREATION_MILLIS = 300;
+
+    @BackgroundLazySingleton
+    public static class SlowObject
+    {
+        public static final AtomicInteger constructorCount = new AtomicInteger( 0 );
+
+        public SlowObject()
+            throws InterruptedException
+        {
+            Thread.sleep( CREATION_MILLIS );
+            constructorCount.incrementAndGet();
+        }
+    }
+
+    @BackgroundLazySingleton
+    public static class JustInTimeObject
+    {
+        public static final AtomicInteger constructorCount = new AtomicInteger( 0 );
+
+        public JustInTimeObject()
+        {
+            constructorCount.incrementAndGet();
+        }
+    }
+
+    @Before
+    public void setup()
+    {
+        SlowObject.constructorCount.set( 0 );
+        JustInTimeObject.constructorCount.set( 0 );
+    }
+
+    @Singleton
+    public static class Dependency
+    {
+    }
+
+    @BackgroundLazySingleton
+    public static class DependingObject
+    {
+        @Inject
+        public DependingObject( Provider<Dependency> dependency )
+        {
+            dependency.get();
+        }
+    }
+
+    public static class EagerObject
+    {
+        @Inject
+        public EagerObject( Provider<DependingObject> dependingObject )
+        {
+            dependingObject.get();
+        }
+    }
+
+    private static Injector createInjector()
+    {
+        Injector injector = Guice.createInjector( new ScopesModule( 2 ), new AbstractModule()
+        {
+            @Override
+            protected void configure()
+            {
+                bind( SlowObject.class );
+            }
+        } );
+        injector.getInstance( BackgroundLazySingletonScope.class ).start();
+        return injector;
+    }
+
+    @Test
+    public void testCreatedInBackground()
+        throws InterruptedException
+    {
+        long start = System.currentTimeMillis();
+        createInjector();
+        assertTrue( "The injector creation waited for the instance", System.currentTimeMillis() - start < CREATION_MILLIS );
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while ( SlowObject.constructorCount.get() == 0 && System.currentTimeMillis() < deadline )
+        {
+            Thread.sleep( 10 );
+        }
+        assertEquals( 1, SlowObject.constructorCount.get() );
+    }
+
+    @Test
+    public void testRequestJoinsTheCreation()
+    {
+        Injector injector = createInjector();
+
+        SlowObject instance = injector.getInstance( SlowObject.class );
+        SlowObject instance2 = injector.getInstance( SlowObject.class );
+        assertSame( instance, instance2 );
+        assertEquals( 1, SlowObject.constructorCount.get() );
+    }
+
+    @Test
+    public void testNotStartedUntilRequested()
+        throws InterruptedException
+    {
+        Injector injector = Guice.createInjector( new ScopesModule( 2 ), new AbstractModule()
+        {
+            @Override
+            protected void configure()
+            {
+                bind( SlowObject.class );
+            }
+        } );
+        Thread.sleep( CREATION_MILLIS + 100 );
+        assertEquals( 0, SlowObject.constructorCount.get() );
+
+        BackgroundLazySingletonScope scope = injector.getInstance( BackgroundLazySingletonScope.class );
+        scope.start();
+        scope.start();
+        assertSame( injector.getInstance( SlowObject.class ), injector.getInstance( SlowObject.class ) );
+        assertEquals( 1, SlowObject.constructorCount.get() );
+    }
+
+    @Test
+    public void testEagerSingletonRequestingDuringInjectorCreation()
+        throws Exception
+    {
+        final AtomicReference<Injector> injector = new AtomicReference<Injector>();
+        Thread creator = new Thread( new Runnable()
+        {
+            public void run()
+            {
+                injector.set( Guice.createInjector( new ScopesModule( 2 ), new AbstractModule()
+                {
+                    @Override
+                    protected void configure()
+                    {
+                        bind( DependingObject.class );
+                        bind( EagerObject.class ).asEagerSingleton();
+                    }
+                } ) );
+            }
+        } );
+        creator.setDaemon( true );
+        creator.start();
+        creator.join( 5000 );
+        assertNotNull( "The injector creation is deadlocked", injector.get() );
+
+        injector.get().getInstance( BackgroundLazySingletonScope.class ).start();
+        assertSame( injector.get().getInstance( DependingObject.class ),
+                    injector.get().getInstance( DependingObject.class ) );
+    }
+
+    @Test
+    public void testJustInTimeBindingsAreCreatedOnRequest()
+        throws InterruptedException
+    {
+        Injector injector = Guice.createInjector( new ScopesModule( 2 ) );
+        Thread.sleep( 100 );
+        assertEquals( 0, JustInTimeObject.constructorCount.get() );
+
+        JustInTimeObject instance = injector.getInstance( JustInTimeObject.class );
+        assertSame( instance, injector.getInstance( JustInTimeObject.class ) );
+        assertEquals( 1, JustInTimeObject.constructorCount.get() );
+    }
+}
@@ -22,10 +22,15 @@ package org.apache.onami.scopes;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.onami.lifecycle.standard.AfterInjectionModule;
 import org.apache.onami.test.OnamiRunner;
@@ -33,9 +38,12 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import javax.inject.Inject;
 import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
 import javax.inject.Provider;
 
 @RunWith(OnamiRunner.class)
@@ -143,4 +151,90 @@ public class TestConcurrentLazySingleton
 
         assertSame( instance, instance2 );
     }
+
+    @Test
+    public void testConcurrentCreationOfManyKeys()
+        throws Exception
+    {
+        final int keysCount = 200;
+        final int threadsCount = 16;
+        final AtomicInteger[] creationCounts = new AtomicInteger[keysCount];
+
+        final Injector injector = Guice.createInjector( new ScopesModule(), new AbstractModule()
+        {
+            @Override
+            protected void configure()
+            {
+                for ( int i = 0; i < keysCount; i++ )
+                {
+                    final AtomicInteger creationCount = new AtomicInteger();
+                    creationCounts[i] = creationCount;
+                    bind( Object.class ).annotatedWith( Names.named( "key" + i ) ).toProvider( new com.google.inject.Provider<Object>()
+                    {
+                        public Object get()
+                        {
+                            creationCount.incrementAndGet();
+                            return new Object();
+                        }
+                    } ).in( ConcurrentLazySingleton.class );
+                }
+            }
+        } );
+
+        final List<Key<Object>> keys = new ArrayList<Key<Object>>();
+        for ( int i = 0; i < keysCount; i++ )
+        {
+            keys.add( Key.get( Object.class, Names.named( "key" + i ) ) );
+        }
+
+        final CountDownLatch start = new CountDownLatch( 1 );
+        ExecutorService executorService = Executors.newFixedThreadPool( threadsCount );
+        try
+        {
+            List<Future<List<Object>>> results = new ArrayList<Future<List<Object>>>();
+            for ( int t = 0; t < threadsCount; t++ )
+            {
+                results.add( executorService.submit( new Callable<List<Object>>()
+                {
+                    public List<Object> call()
+                        throws Exception
+                    {
+                        List<Key<Object>> shuffled = new ArrayList<Key<Object>>( keys );
+                        Collections.shuffle( shuffled );
+                        start.await();
+                        for ( Key<Object> key : shuffled )
+                        {
+                            injector.getInstance( key );
+                        }
+                        List<Object> instances = new ArrayList<Object>();
+                        for ( Key<Object> key : keys )
+                        {
+                            instances.add( injector.getInstance( key ) );
+                        }
+                        return instances;
+                    }
+                } ) );
+            }
+            start.countDown();
+
+            List<Object> expected = results.get( 0 ).get();
+            for ( Future<List<Object>> result : results )
+            {
+                List<Object> instances = result.get();
+                for ( int i = 0; i < keysCount; i++ )
+                {
+                    assertSame( expected.get( i ), instances.get( i ) );
+                }
+            }
+        }
+        finally
+        {
+            executorService.shutdownNow();
+        }
+
+        for ( AtomicInteger creationCount : creationCounts )
+        {
+            assertEquals( 1, creationCount.get() );
+        }
+    }
 }
@@ -0,0 +1,376 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.OutOfScopeException;
+import com.google.inject.Provider;
+import com.google.inject.ProvisionException;
+import com.google.inject.Scope;
+
+public class TestPooled
+{
+    @Pooled
+    public static class PooledObject
+    {
+    }
+
+    public static class ShortLivedObject
+    {
+    }
+
+    public static class ScarceObject
+    {
+    }
+
+    private final Scope shortLivedScope = PooledScope.create( 1, 50, TimeUnit.MILLISECONDS );
+
+    private final Scope scarceScope = PooledScope.create( 1, 1, 1000, 500, TimeUnit.MILLISECONDS );
+
+    private Injector injector;
+
+    @Before
+    public void setup()
+    {
+        injector = Guice.createInjector( new ScopesModule(), new AbstractModule()
+        {
+            @Override
+            protected void configure()
+            {
+                bind( ShortLivedObject.class ).in( shortLivedScope );
+                bind( ScarceObject.class ).in( scarceScope );
+            }
+        } );
+    }
+
+    @Test
+    public void testSameInstanceWithinHandle()
+    {
+        PoolHandle handle = PooledScope.open();
+        try
+        {
+            assertSame( injector.getInstance( PooledObject.class ), injector.getInstance( PooledObject.class ) );
+        }
+        finally
+        {
+            handle.close();
+        }
+    }
+
+    @Test
+    public void testReusedAcrossHandles()
+    {
+        PooledObject first = getInstance( PooledObject.class );
+        PooledObject second = getInstance( PooledObject.class );
+        assertSame( first, second );
+    }
+
+    @Test
+    public void testNestedHandlesShareLeases()
+    {
+        PoolHandle outer = PooledScope.open();
+        try
+        {
+            PooledObject leased = injector.getInstance( PooledObject.class );
+            PoolHandle inner = PooledScope.open();
+            try
+            {
+                assertSame( leased, injector.getInstance( PooledObject.class ) );
+            }
+            finally
+            {
+                inner.close();
+            }
+            assertSame( leased, injector.getInstance( PooledObject.class ) );
+        }
+        finally
+        {
+            outer.close();
+        }
+    }
+
+    @Test
+    public void testConcurrentHandlesGetDistinctInstances()
+        throws Exception
+    {
+        final CountDownLatch leased = new CountDownLatch( 1 );
+        final CountDownLatch done = new CountDownLatch( 1 );
+        final AtomicReference<PooledObject> other = new AtomicReference<PooledObject>();
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                PoolHandle handle = PooledScope.open();
+                try
+                {
+                    other.set( injector.getInstance( PooledObject.class ) );
+                    leased.countDown();
+                    done.await();
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                finally
+                {
+                    handle.close();
+                }
+            }
+        };
+        thread.start();
+        leased.await();
+        try
+        {
+            assertNotSame( other.get(), getInstance( PooledObject.class ) );
+        }
+        finally
+        {
+            done.countDown();
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testOutsideOfHandle()
+    {
+        try
+        {
+            injector.getInstance( PooledObject.class );
+            fail( "Pooled instances can only be leased through a handle" );
+        }
+        catch ( ProvisionException e )
+        {
+            assertTrue( e.getCause() instanceof OutOfScopeException );
+        }
+    }
+
+    @Test
+    public void testExceedingInstancesAreDiscarded()
+    {
+        Provider<ShortLivedObject> provider = injector.getProvider( ShortLivedObject.class );
+        PoolHandle handle = PooledScope.open();
+        try
+        {
+            provider.get();
+            // a second lease from another handle while the first one is still borrowed
+            leaseOnAnotherThread( provider );
+        }
+        finally
+        {
+            handle.close();
+        }
+
+        PoolStatistics statistics = getStatistics();
+        assertEquals( 2, statistics.getCreatedCount() );
+        assertEquals( 1, statistics.getDiscardedCount() );
+        assertEquals( 1, statistics.getIdleCount() );
+        assertEquals( 0, statistics.getBorrowedCount() );
+    }
+
+    @Test
+    public void testIdleInstancesAreEvicted()
+        throws InterruptedException
+    {
+        ShortLivedObject first = getInstance( ShortLivedObject.class );
+        assertSame( first, getInstance( ShortLivedObject.class ) );
+
+        Thread.sleep( 100 );
+        assertNotSame( first, getInstance( ShortLivedObject.class ) );
+
+        PoolStatistics statistics = getStatistics();
+        assertEquals( 1, statistics.getReusedCount() );
+        assertEquals( 1, statistics.getEvictedCount() );
+    }
+
+    @Test
+    public void testBorrowWaitsForAReturnedInstance()
+        throws Exception
+    {
+        final CountDownLatch leased = new CountDownLatch( 1 );
+        final AtomicReference<ScarceObject> other = new AtomicReference<ScarceObject>();
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                PoolHandle handle = PooledScope.open();
+                try
+                {
+                    other.set( injector.getInstance( ScarceObject.class ) );
+                    leased.countDown();
+                    Thread.sleep( 20 );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+                finally
+                {
+                    handle.close();
+                }
+            }
+        };
+        thread.start();
+        leased.await();
+        try
+        {
+            // the only instance is borrowed by the other thread until it closes its handle
+            assertSame( other.get(), getInstance( ScarceObject.class ) );
+        }
+        finally
+        {
+            thread.join();
+        }
+
+        PoolStatistics statistics = PooledScope.getStatistics( scarceScope ).get( Key.get( ScarceObject.class ) );
+        assertEquals( 1, statistics.getCreatedCount() );
+        assertEquals( 0, statistics.getTimedOutCount() );
+    }
+
+    @Test
+    public void testBorrowFailsOnceTheMaximumWaitElapsed()
+    {
+        PoolHandle handle = PooledScope.open();
+        try
+        {
+            injector.getInstance( ScarceObject.class );
+            final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+            Thread thread = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        getInstance( ScarceObject.class );
+                    }
+                    catch ( ProvisionException e )
+                    {
+                        failure.set( e.getCause() );
+                    }
+                }
+            };
+            thread.start();
+            thread.join();
+            assertTrue( failure.get() instanceof IllegalStateException );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            handle.close();
+        }
+
+        PoolStatistics statistics = PooledScope.getStatistics( scarceScope ).get( Key.get( ScarceObject.class ) );
+        assertEquals( 1, statistics.getCreatedCount() );
+        assertEquals( 1, statistics.getTimedOutCount() );
+        assertEquals( 0, statistics.getBorrowedCount() );
+        // the lease of the failed borrow was not kept
+        assertSame( getInstance( ScarceObject.class ), getInstance( ScarceObject.class ) );
+    }
+
+    @Test
+    public void testPoolsPerInjector()
+    {
+        Injector other = Guice.createInjector( new ScopesModule() );
+        PoolHandle handle = PooledScope.open();
+        try
+        {
+            assertNotSame( injector.getInstance( PooledObject.class ), other.getInstance( PooledObject.class ) );
+        }
+        finally
+        {
+            handle.close();
+        }
+
+        PoolStatistics statistics = PooledScope.getStatistics( injector ).get( Key.get( PooledObject.class ) );
+        PoolStatistics otherStatistics = PooledScope.getStatistics( other ).get( Key.get( PooledObject.class ) );
+        assertNotSame( statistics, otherStatistics );
+        assertEquals( 1, statistics.getCreatedCount() );
+        assertEquals( 1, otherStatistics.getCreatedCount() );
+    }
+
+    private <T> T getInstance( Class<T> type )
+    {
+        PoolHandle handle = PooledScope.open();
+        try
+        {
+            return injector.getInstance( type );
+        }
+        finally
+        {
+            handle.close();
+        }
+    }
+
+    private PoolStatistics getStatistics()
+    {
+        return PooledScope.getStatistics( shortLivedScope ).get( Key.get( ShortLivedObject.class ) );
+    }
+
+    private static void leaseOnAnotherThread( final Provider<ShortLivedObject> provider )
+    {
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                PoolHandle handle = PooledScope.open();
+                try
+                {
+                    provider.get();
+                }
+                finally
+                {
+                    handle.close();
+                }
+            }
+        };
+        thread.start();
+        try
+        {
+            thread.join();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
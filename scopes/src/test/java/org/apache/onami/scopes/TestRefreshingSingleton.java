@@ -0,0 +1,251 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+
+public class TestRefreshingSingleton
+{
+    private static final long TIME_TO_LIVE_MILLIS = 100;
+
+    @RefreshingSingleton
+    public static class Routes
+    {
+        public static final AtomicInteger constructorCount = new AtomicInteger( 0 );
+
+        public static volatile long refreshMillis;
+
+        public static volatile boolean failing;
+
+        public final int generation;
+
+        public Routes()
+            throws InterruptedException
+        {
+            if ( constructorCount.get() > 0 )
+            {
+                Thread.sleep( refreshMillis );
+                if ( failing )
+                {
+                    throw new IllegalStateException( "Routes not available" );
+                }
+            }
+            generation = constructorCount.incrementAndGet();
+        }
+    }
+
+    private Provider<Routes> provider;
+
+    @Before
+    public void setup()
+    {
+        Routes.constructorCount.set( 0 );
+        Routes.refreshMillis = 0;
+        Routes.failing = false;
+        Injector injector =
+            Guice.createInjector( new ScopesModule( 1, TIME_TO_LIVE_MILLIS, TimeUnit.MILLISECONDS ) );
+        provider = injector.getProvider( Routes.class );
+    }
+
+    @Test
+    public void testSameInstanceUntilExpired()
+    {
+        Routes routes = provider.get();
+        assertSame( routes, provider.get() );
+        assertEquals( 1, Routes.constructorCount.get() );
+    }
+
+    @Test
+    public void testRefreshedAfterExpiration()
+        throws InterruptedException
+    {
+        Routes routes = provider.get();
+        Thread.sleep( TIME_TO_LIVE_MILLIS * 2 );
+
+        // the expired instance is still served while the refresh runs
+        assertSame( routes, provider.get() );
+        assertEquals( 2, awaitGeneration( 2 ).generation );
+    }
+
+    @Test
+    public void testRequestsDoNotWaitForTheRefresh()
+        throws InterruptedException
+    {
+        Routes routes = provider.get();
+        Routes.refreshMillis = 500;
+        Thread.sleep( TIME_TO_LIVE_MILLIS * 2 );
+
+        long start = System.nanoTime();
+        for ( int i = 0; i < 10; i++ )
+        {
+            assertSame( routes, provider.get() );
+        }
+        assertTrue( TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ) < Routes.refreshMillis );
+        assertEquals( 2, awaitGeneration( 2 ).generation );
+    }
+
+    @Test
+    public void testFailedRefreshKeepsTheInstance()
+        throws InterruptedException
+    {
+        Routes routes = provider.get();
+        Routes.failing = true;
+        Thread.sleep( TIME_TO_LIVE_MILLIS * 2 );
+        assertSame( routes, provider.get() );
+        Thread.sleep( TIME_TO_LIVE_MILLIS / 2 );
+        assertSame( routes, provider.get() );
+
+        Routes.failing = false;
+        Thread.sleep( TIME_TO_LIVE_MILLIS * 2 );
+        assertSame( routes, provider.get() );
+        assertEquals( 2, awaitGeneration( 2 ).generation );
+    }
+
+    @Test
+    public void testFailedRefreshIsLogged()
+        throws InterruptedException
+    {
+        final List<LogRecord> records = Collections.synchronizedList( new ArrayList<LogRecord>() );
+        Handler handler = new Handler()
+        {
+            @Override
+            public void publish( LogRecord record )
+            {
+                records.add( record );
+            }
+
+            @Override
+            public void flush()
+            {
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+        Logger logger = Logger.getLogger( RefreshingSingletonScopeImpl.class.getName() );
+        logger.addHandler( handler );
+        try
+        {
+            provider.get();
+            Routes.failing = true;
+            Thread.sleep( TIME_TO_LIVE_MILLIS * 2 );
+            provider.get();
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while ( records.isEmpty() && System.currentTimeMillis() < deadline )
+            {
+                Thread.sleep( 10 );
+            }
+            assertEquals( 1, records.size() );
+            assertEquals( Level.WARNING, records.get( 0 ).getLevel() );
+            assertTrue( records.get( 0 ).getThrown().getCause() instanceof IllegalStateException );
+        }
+        finally
+        {
+            logger.removeHandler( handler );
+        }
+    }
+
+    @Test
+    public void testRefreshedByTheBoundExecutor()
+        throws InterruptedException
+    {
+        final AtomicInteger executions = new AtomicInteger();
+        final Executor executor = new Executor()
+        {
+            public void execute( Runnable command )
+            {
+                executions.incrementAndGet();
+                command.run();
+            }
+        };
+        provider = Guice.createInjector( new ScopesModule( 1, TIME_TO_LIVE_MILLIS, TimeUnit.MILLISECONDS ),
+                                         new AbstractModule()
+        {
+            @Override
+            protected void configure()
+            {
+                bind( Executor.class ).annotatedWith( RefreshingSingletonExecutor.class ).toInstance( executor );
+            }
+        } ).getProvider( Routes.class );
+
+        provider.get();
+        Thread.sleep( TIME_TO_LIVE_MILLIS * 2 );
+
+        // refreshed synchronously by the executor above
+        assertEquals( 1, provider.get().generation );
+        assertEquals( 2, provider.get().generation );
+        assertEquals( 1, executions.get() );
+    }
+
+    @Test
+    public void testNotRefreshedOnceShutdown()
+        throws InterruptedException
+    {
+        Injector injector =
+            Guice.createInjector( new ScopesModule( 1, TIME_TO_LIVE_MILLIS, TimeUnit.MILLISECONDS ) );
+        provider = injector.getProvider( Routes.class );
+        Routes routes = provider.get();
+        injector.getInstance( RefreshingSingletonScope.class ).shutdown();
+        Thread.sleep( TIME_TO_LIVE_MILLIS * 2 );
+
+        assertSame( routes, provider.get() );
+        Thread.sleep( TIME_TO_LIVE_MILLIS );
+        assertSame( routes, provider.get() );
+        assertEquals( 1, Routes.constructorCount.get() );
+    }
+
+    private Routes awaitGeneration( int generation )
+        throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 5000;
+        Routes routes = provider.get();
+        while ( routes.generation < generation && System.currentTimeMillis() < deadline )
+        {
+            Thread.sleep( 10 );
+            routes = provider.get();
+        }
+        return routes;
+    }
+
+}
@@ -0,0 +1,212 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.OutOfScopeException;
+import com.google.inject.ProvisionException;
+
+public class TestRequestScope
+{
+    @PerRequest
+    public static class RequestObject
+    {
+    }
+
+    private Injector injector;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setup()
+    {
+        injector = Guice.createInjector( new ScopesModule() );
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSameInstanceWithinRequest()
+    {
+        RequestContext request = RequestScope.enter();
+        try
+        {
+            assertSame( injector.getInstance( RequestObject.class ), injector.getInstance( RequestObject.class ) );
+        }
+        finally
+        {
+            request.exit();
+        }
+        assertNull( RequestScope.current() );
+    }
+
+    @Test
+    public void testDistinctInstancesAcrossRequests()
+    {
+        assertNotSame( getInRequest(), getInRequest() );
+    }
+
+    @Test
+    public void testNestedRequest()
+    {
+        RequestContext outer = RequestScope.enter();
+        try
+        {
+            RequestObject outerObject = injector.getInstance( RequestObject.class );
+            RequestContext inner = RequestScope.enter();
+            try
+            {
+                assertNotSame( outerObject, injector.getInstance( RequestObject.class ) );
+            }
+            finally
+            {
+                inner.exit();
+            }
+            assertSame( outer, RequestScope.current() );
+            assertSame( outerObject, injector.getInstance( RequestObject.class ) );
+        }
+        finally
+        {
+            outer.exit();
+        }
+    }
+
+    @Test
+    public void testPropagatedToChildTasks()
+        throws Exception
+    {
+        RequestContext request = RequestScope.enter();
+        try
+        {
+            RequestObject object = injector.getInstance( RequestObject.class );
+
+            FutureTask<RequestObject> wrapped = new FutureTask<RequestObject>( new Getter() );
+            RequestScope.wrap( executor ).execute( wrapped );
+            assertSame( object, wrapped.get() );
+
+            Future<RequestObject> submitted = executor.submit( request.wrap( new Getter() ) );
+            assertSame( object, submitted.get() );
+        }
+        finally
+        {
+            request.exit();
+        }
+
+        // the pooled thread doesn't keep the request
+        assertNull( executor.submit( new Callable<RequestContext>()
+        {
+            public RequestContext call()
+            {
+                return RequestScope.current();
+            }
+        } ).get() );
+    }
+
+    @Test
+    public void testOutsideOfRequest()
+    {
+        try
+        {
+            injector.getInstance( RequestObject.class );
+            fail( "Request instances can only be accessed in a request" );
+        }
+        catch ( ProvisionException e )
+        {
+            assertTrue( e.getCause() instanceof OutOfScopeException );
+        }
+    }
+
+    @Test
+    public void testExitedByAnotherThread()
+        throws Exception
+    {
+        final RequestContext request = RequestScope.enter();
+        try
+        {
+            Future<?> exit = executor.submit( new Runnable()
+            {
+                public void run()
+                {
+                    request.exit();
+                }
+            } );
+            try
+            {
+                exit.get();
+                fail( "Requests can only be exited by the thread that entered them" );
+            }
+            catch ( ExecutionException e )
+            {
+                assertEquals( IllegalStateException.class, e.getCause().getClass() );
+            }
+        }
+        finally
+        {
+            request.exit();
+        }
+    }
+
+    private RequestObject getInRequest()
+    {
+        RequestContext request = RequestScope.enter();
+        try
+        {
+            return injector.getInstance( RequestObject.class );
+        }
+        finally
+        {
+            request.exit();
+        }
+    }
+
+    private class Getter
+        implements Callable<RequestObject>
+    {
+        public RequestObject call()
+        {
+            return injector.getInstance( RequestObject.class );
+        }
+    }
+
+}
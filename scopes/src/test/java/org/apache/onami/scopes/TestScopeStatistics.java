@@ -0,0 +1,242 @@
+package org.apache.onami.scopes;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+
+public class TestScopeStatistics
+{
+    private static final long CREATION_MILLIS = 100;
+
+    @ConcurrentLazySingleton
+    public static class SlowConcurrentObject
+    {
+        public SlowConcurrentObject()
+            throws InterruptedException
+        {
+            Thread.sleep( CREATION_MILLIS );
+        }
+    }
+
+    @LazySingleton
+    public static class SlowObject
+    {
+        public SlowObject()
+            throws InterruptedException
+        {
+            Thread.sleep( CREATION_MILLIS );
+        }
+    }
+
+    @ConcurrentLazySingleton
+    public static class FastObject
+    {
+    }
+
+    private ScopeStatistics scopeStatistics;
+
+    private Injector injector;
+
+    @Before
+    public void setup()
+    {
+        ScopesModule scopesModule = new ScopesModule();
+        scopeStatistics = scopesModule.getScopeStatistics();
+        scopeStatistics.setEnabled( true );
+        injector = Guice.createInjector( scopesModule );
+    }
+
+    @After
+    public void tearDown()
+    {
+        scopeStatistics.unregisterMBean();
+    }
+
+    @Test
+    public void testConcurrentLazySingleton()
+        throws InterruptedException
+    {
+        getConcurrently( SlowConcurrentObject.class, 2 );
+        assertCreatedAndWaited( SlowConcurrentObject.class );
+    }
+
+    @Test
+    public void testLazySingleton()
+        throws InterruptedException
+    {
+        getConcurrently( SlowObject.class, 2 );
+        assertCreatedAndWaited( SlowObject.class );
+    }
+
+    @Test
+    public void testReportSortedByCreationTime()
+    {
+        injector.getInstance( FastObject.class );
+        injector.getInstance( SlowConcurrentObject.class );
+
+        List<KeyStatistics> report = scopeStatistics.getKeyStatistics();
+        assertEquals( 2, report.size() );
+        assertEquals( Key.get( SlowConcurrentObject.class ), report.get( 0 ).getKey() );
+        assertEquals( Key.get( FastObject.class ), report.get( 1 ).getKey() );
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        scopeStatistics.setEnabled( false );
+        injector.getInstance( FastObject.class );
+        injector.getInstance( SlowObject.class );
+        assertTrue( scopeStatistics.getKeyStatistics().isEmpty() );
+    }
+
+    @Test
+    public void testNoWaitOnceCreated()
+        throws InterruptedException
+    {
+        injector.getInstance( SlowObject.class );
+        getConcurrently( SlowObject.class, 2 );
+        injector.getInstance( SlowObject.class );
+
+        KeyStatistics statistics = scopeStatistics.getKeyStatistics( Key.get( SlowObject.class ) );
+        assertEquals( 1, statistics.getCreationCount() );
+        assertEquals( 0, statistics.getWaitingThreads() );
+    }
+
+    @Test
+    public void testNoWaitWhenEnabledOnceCreated()
+    {
+        scopeStatistics.setEnabled( false );
+        injector.getInstance( SlowObject.class );
+        scopeStatistics.setEnabled( true );
+        injector.getInstance( SlowObject.class );
+        assertNull( scopeStatistics.getKeyStatistics( Key.get( SlowObject.class ) ) );
+    }
+
+    @Test
+    public void testStatisticsPerInjector()
+    {
+        Injector other = Guice.createInjector( new ScopesModule() );
+        ScopeStatistics otherStatistics = other.getInstance( ScopeStatistics.class );
+        assertNotSame( scopeStatistics, otherStatistics );
+        assertSame( scopeStatistics, injector.getInstance( ScopeStatistics.class ) );
+
+        otherStatistics.setEnabled( true );
+        injector.getInstance( FastObject.class );
+        other.getInstance( FastObject.class );
+        other.getInstance( SlowObject.class );
+
+        assertEquals( 1, scopeStatistics.getKeyStatistics( Key.get( FastObject.class ) ).getCreationCount() );
+        assertEquals( 1, otherStatistics.getKeyStatistics( Key.get( FastObject.class ) ).getCreationCount() );
+        assertNull( scopeStatistics.getKeyStatistics( Key.get( SlowObject.class ) ) );
+    }
+
+    @Test
+    public void testMBean()
+        throws Exception
+    {
+        injector.getInstance( FastObject.class );
+        scopeStatistics.registerMBean( "test" );
+
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName( "org.apache.onami.scopes:type=ScopeStatistics,name=\"test\"" );
+        String[] report = (String[]) mBeanServer.getAttribute( objectName, "Report" );
+        assertEquals( 1, report.length );
+        assertTrue( report[0].startsWith( Key.get( FastObject.class ).toString() ) );
+
+        ScopeStatistics otherStatistics = new ScopesModule().getScopeStatistics();
+        try
+        {
+            otherStatistics.registerMBean( "test" );
+            fail( "The name is taken by the statistics of another injector" );
+        }
+        catch ( IllegalStateException e )
+        {
+            // expected
+        }
+
+        scopeStatistics.unregisterMBean();
+        assertFalse( mBeanServer.isRegistered( objectName ) );
+    }
+
+    private void assertCreatedAndWaited( Class<?> type )
+    {
+        KeyStatistics statistics = scopeStatistics.getKeyStatistics( Key.get( type ) );
+        assertEquals( 1, statistics.getCreationCount() );
+        assertTrue( statistics.getCreationNanos() >= TimeUnit.MILLISECONDS.toNanos( CREATION_MILLIS ) );
+        assertEquals( 1, statistics.getWaitingThreads() );
+        assertTrue( statistics.getWaitNanos() > 0 );
+        assertNull( scopeStatistics.getKeyStatistics( Key.get( FastObject.class ) ) );
+    }
+
+    private void getConcurrently( final Class<?> type, int threadsCount )
+        throws InterruptedException
+    {
+        final CountDownLatch start = new CountDownLatch( 1 );
+        Thread[] threads = new Thread[threadsCount];
+        for ( int i = 0; i < threads.length; i++ )
+        {
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                        injector.getInstance( type );
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+    }
+
+}